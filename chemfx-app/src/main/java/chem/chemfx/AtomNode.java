@@ -0,0 +1,372 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.Atom;
+import chem.chemfx.atoms.BondEntry;
+import chem.chemfx.atoms.MoleculeGraph;
+import chem.chemfx.jfr.AtomCreatedEvent;
+import chem.chemfx.jfr.SelectionChangedEvent;
+import javafx.beans.value.ChangeListener;
+import javafx.geometry.Point2D;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.text.Text;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public abstract class AtomNode {
+
+    /* ------------------ Static Fields ------------------ */
+    /** Radius of an atom's circle, in pixels. */
+    static final double RADIUS = 15;
+    /** Closest two atom centers may be placed, in pixels. */
+    static final double MIN_SPACING = 2 * RADIUS;
+
+    private static final Set<AtomNode> ALL_ATOMS = new LinkedHashSet<>();
+    /** Atom centers, for hit testing, area selection and placement. */
+    private static final SpatialIndex<AtomNode> INDEX = new SpatialIndex<>();
+    private static final MoleculeGraph.Builder SNAPSHOT_BUILDER = new MoleculeGraph.Builder();
+    private static final List<Atom> SNAPSHOT_ATOMS = new ArrayList<>();
+    private static MoleculeGraph snapshot;
+
+    /* ------------------ Instance Fields ------------------ */
+    private final Circle circle;
+    private final Text text;
+    private final StackPane atomGroup;
+    private final Pane container;
+    private final BondManager bondManager;
+    private final Atom atom;
+
+    private boolean selected = false;
+
+    /** Total order of this atom's bonds, kept up to date by {@link Bond}. */
+    private int valence = 0;
+
+    /* ------------------ Constructor ------------------ */
+    protected AtomNode(double x, double y, Pane container, BondManager bondManager, Atom atom) {
+        AtomCreatedEvent event = AtomCreatedEvent.start();
+        this.container = container;
+        this.bondManager = bondManager;
+        this.atom = atom;
+
+        this.circle = createCircle();
+        this.text = createText();
+        this.atomGroup = createAtomGroup(x, y);
+
+        registerEventHandlers();
+        styleUnselected();
+
+        ALL_ATOMS.add(this);
+        INDEX.put(this, getCenterX(), getCenterY());
+        invalidateSnapshot();
+        FormulaTracker.atomAdded(atom.getAtomicNumber(), atom.getNeutronNumber());
+        EditHistory.atomAdded(this);
+        container.getChildren().add(atomGroup);
+        event.end(atom.getAtomicNumber(), x, y, ALL_ATOMS.size());
+    }
+
+    /**
+     * Deselects every atom.
+     */
+    static void deselectAll() {
+        deselectAllExcept(null);
+    }
+
+    private static void deselectAllExcept(AtomNode except) {
+        for (AtomNode atom : ALL_ATOMS) {
+            if (atom != except && atom.isSelected()) {
+                atom.setSelected(false);
+            }
+        }
+    }
+
+    /* ------------------ Deletion ------------------ */
+    public static void deleteSelectedAtoms() {
+        Set<AtomNode> toDelete = new HashSet<>();
+        for (AtomNode atom : ALL_ATOMS) {
+            if (atom.isSelected()) {
+                toDelete.add(atom);
+            }
+        }
+        toDelete.forEach(AtomNode::delete);
+    }
+
+
+    /* ------------------ UI Creation ------------------ */
+    private Circle createCircle() {
+        Circle c = new Circle(RADIUS, Color.rgb(240, 240, 240));
+        c.setUserData(this);
+        return c;
+    }
+
+    private Text createText() {
+        Text t = new Text(atom.getElementSymbol());
+        styleText(t);
+        return t;
+    }
+
+    private StackPane createAtomGroup(double x, double y) {
+        StackPane stack = new StackPane(circle, text);
+        stack.setLayoutX(x);
+        stack.setLayoutY(y);
+        stack.setPickOnBounds(true); // clicks anywhere in the stack’s bounds
+        return stack;
+    }
+
+    /* ------------------ Event Handling ------------------ */
+    private void registerEventHandlers() {
+        atomGroup.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+            if (!event.isShiftDown()) {
+                deselectAllExcept(this);
+                container.requestFocus();
+            }
+            bondManager.selectBondingAtom(this);
+            event.consume();
+        });
+
+        // Bond lines follow the atom's center, which moves with its position
+        if (bondManager != null) {
+            ChangeListener<Number> moved = (_, _, _) -> bondManager.atomMoved(this);
+            atomGroup.layoutXProperty().addListener(moved);
+            atomGroup.layoutYProperty().addListener(moved);
+        }
+    }
+
+    public void toggleSelection() {
+        setSelected(!selected);
+    }
+
+    public boolean isSelected() {
+        return selected;
+    }
+
+    /* ------------------ Selection Handling ------------------ */
+    public void setSelected(boolean selected) {
+        if (this.selected != selected) {
+            SelectionChangedEvent event = SelectionChangedEvent.start();
+            this.selected = selected;
+            updateSelectionStyle();
+            event.end(atom.getAtomicNumber(), selected);
+        }
+    }
+
+    public void updateSelectionStyle() {
+        if (selected) styleSelected();
+        else styleUnselected();
+    }
+
+    /* ------------------ Abstract styling ------------------ */
+    protected abstract void styleText(Text text);
+
+    protected abstract void styleSelected();
+
+    protected abstract void styleUnselected();
+
+    public void delete() {
+        if (bondManager != null) {
+            bondManager.deleteBondsConnectedTo(this);
+            for (BondEntry bond : new ArrayList<>(atom.getBondedTo())) {
+                atom.unbond(bond.atom());
+            }
+        }
+        container.getChildren().remove(atomGroup);
+        ALL_ATOMS.remove(this);
+        INDEX.remove(this);
+        invalidateSnapshot();
+        FormulaTracker.atomRemoved(atom.getAtomicNumber(), atom.getNeutronNumber(), valence);
+        EditHistory.atomRemoved(this);
+    }
+
+    public static boolean exists(AtomNode atomNode){
+        return ALL_ATOMS.contains(atomNode);
+    }
+
+    /* ------------------ Spatial Queries ------------------ */
+
+    /**
+     * Updates the spatial index and the edit history after this atom was moved; called by
+     * {@link DraggableMaker}.
+     */
+    void relocated() {
+        if (ALL_ATOMS.contains(this)) {
+            INDEX.put(this, getCenterX(), getCenterY());
+            EditHistory.atomMoved(this);
+        }
+    }
+
+    /**
+     * Updates the spatial index after a shrinking canvas pushed this atom back inside; called by
+     * {@link DraggableMaker}. The move follows from the resize rather than from the user, so
+     * unlike {@link #relocated()} it is not recorded in the edit history.
+     */
+    void pushedInside() {
+        if (ALL_ATOMS.contains(this)) INDEX.put(this, getCenterX(), getCenterY());
+    }
+
+    /**
+     * Moves this atom so that its center is at a point, and updates the spatial index.
+     *
+     * @param x X coordinate of the center in the container
+     * @param y Y coordinate of the center in the container
+     */
+    void moveCenterTo(double x, double y) {
+        atomGroup.relocate(x - RADIUS, y - RADIUS);
+        relocated();
+    }
+
+    /**
+     * Lists every atom on the canvas in creation order, which is the numbering of {@link #snapshot()}.
+     *
+     * @return a copy of the atom list
+     */
+    static List<AtomNode> atoms() {
+        return new ArrayList<>(ALL_ATOMS);
+    }
+
+    /**
+     * @return number of atoms on the canvas
+     */
+    static int count() {
+        return ALL_ATOMS.size();
+    }
+
+    /**
+     * Finds the atom whose center is closest to a point.
+     *
+     * @param x           X coordinate in the canvas
+     * @param y           Y coordinate in the canvas
+     * @param maxDistance how far to look
+     * @return the closest atom, or {@code null} if none is within {@code maxDistance}
+     */
+    static AtomNode nearest(double x, double y, double maxDistance) {
+        return INDEX.nearest(x, y, maxDistance);
+    }
+
+    /**
+     * Lists the atoms whose centers lie in a rectangle.
+     *
+     * @param minX left edge in the canvas
+     * @param minY top edge in the canvas
+     * @param maxX right edge in the canvas
+     * @param maxY bottom edge in the canvas
+     * @return the atoms found
+     */
+    static List<AtomNode> atomsIn(double minX, double minY, double maxX, double maxY) {
+        List<AtomNode> found = new ArrayList<>();
+        INDEX.query(minX, minY, maxX, maxY, found::add);
+        return found;
+    }
+
+    /**
+     * Lists the atoms whose centers lie right of or below a point, edges included.
+     *
+     * @param x X coordinate in the canvas
+     * @param y Y coordinate in the canvas
+     * @return the atoms found, each once
+     */
+    static List<AtomNode> atomsBeyond(double x, double y) {
+        List<AtomNode> found = new ArrayList<>();
+        double inf = Double.POSITIVE_INFINITY;
+        INDEX.query(x, -inf, inf, inf, found::add);
+        INDEX.query(-inf, y, Math.nextDown(x), inf, found::add);
+        return found;
+    }
+
+    /**
+     * Finds the free spot closest to a point for a new atom's center. The point itself is used
+     * if no atom is within {@link #MIN_SPACING}; otherwise rings of candidates one spacing apart
+     * are tried, nearest ring first.
+     *
+     * @param x desired X coordinate of the center
+     * @param y desired Y coordinate of the center
+     * @return a center at least {@link #MIN_SPACING} away from every atom
+     */
+    static Point2D freeCenter(double x, double y) {
+        if (!INDEX.isOccupied(x, y, MIN_SPACING)) return new Point2D(x, y);
+        for (int ring = 1; ; ring++) {
+            double radius = ring * MIN_SPACING;
+            int candidates = 6 * ring;
+            for (int k = 0; k < candidates; k++) {
+                double angle = 2 * Math.PI * k / candidates;
+                double cx = x + radius * Math.cos(angle);
+                double cy = y + radius * Math.sin(angle);
+                if (cx >= RADIUS && cy >= RADIUS && !INDEX.isOccupied(cx, cy, MIN_SPACING)) {
+                    return new Point2D(cx, cy);
+                }
+            }
+        }
+    }
+
+    /* ------------------ Molecule Snapshot ------------------ */
+
+    /**
+     * Returns a CSR snapshot of every atom on the canvas, numbered in creation order.
+     * The snapshot is cached and only rebuilt after atoms or bonds change.
+     *
+     * @return the current molecule graph
+     */
+    public static MoleculeGraph snapshot() {
+        if (snapshot == null) {
+            for (AtomNode node : ALL_ATOMS) SNAPSHOT_ATOMS.add(node.atom);
+            snapshot = SNAPSHOT_BUILDER.build(SNAPSHOT_ATOMS);
+            SNAPSHOT_ATOMS.clear();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Discards the cached snapshot; called whenever atoms or bonds change.
+     */
+    static void invalidateSnapshot() {
+        snapshot = null;
+    }
+
+    /**
+     * Records a change in the total order of this atom's bonds.
+     *
+     * @param delta bond orders added (positive) or removed (negative)
+     */
+    void changeValence(int delta) {
+        FormulaTracker.valenceChanged(atom.getAtomicNumber(), valence, valence + delta);
+        valence += delta;
+    }
+
+    /* ------------------ Getters ------------------ */
+
+
+    public Text getText() {
+        return text;
+    }
+
+    public StackPane getAtomGroup() {
+        return atomGroup;
+    }
+
+    /**
+     * @return X coordinate of the atom's center in its container
+     */
+    public double getCenterX() {
+        return atomGroup.getLayoutX() + RADIUS;
+    }
+
+    /**
+     * @return Y coordinate of the atom's center in its container
+     */
+    public double getCenterY() {
+        return atomGroup.getLayoutY() + RADIUS;
+    }
+
+    public Circle getCircle() {
+        return circle;
+    }
+
+    public Atom getAtom() {
+        return atom;
+    }
+}
@@ -14,6 +14,10 @@ public class BohrAtomNode extends AtomNode {
         super(x, y, container, bondManager, new BohrAtom(atomicNumber));
     }
 
+    public BohrAtomNode(double x, double y, javafx.scene.layout.Pane container, BondManager bondManager, BohrAtom atom) {
+        super(x, y, container, bondManager, atom);
+    }
+
     @Override
     protected void styleText(Text text) {
         switch (getAtom().getAtomicNumber()) {
@@ -41,7 +45,6 @@ public class BohrAtomNode extends AtomNode {
             getCircle().setStroke(null);
         }
         getCircle().setStrokeWidth(2);
-        System.out.println("SELECTED:" + this);
     }
 
     @Override
@@ -55,6 +58,5 @@ public class BohrAtomNode extends AtomNode {
         }
         getCircle().setStroke(null);
         getCircle().setStrokeWidth(0);
-        System.out.println("DESELECTED" + this);
     }
 }
@@ -1,12 +1,15 @@
 package chem.chemfx;
 
 import chem.chemfx.atoms.Atom;
-import chem.chemfx.atoms.CovalentBondException;
+import chem.chemfx.jfr.BondChangedEvent;
 import javafx.scene.shape.Line;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Represents a chemical bond between two {@link AtomNode}s.
@@ -17,14 +20,20 @@ import java.util.NoSuchElementException;
  *     <li>The visual representation of the bond as one or more JavaFX {@link Line}s.</li>
  *     <li>The order of the bond (single, double, triple, etc.).</li>
  * </ul>
- * Each bond is registered in the global static {@link #bonds} list for tracking.
+ * Each bond is registered in the global static {@link #bonds} set for tracking, and in an
+ * {@link IncidenceIndex} keyed by the unordered atom pair so that lookups cost O(1) and listing
+ * the bonds of an atom costs O(degree).
  */
 public class Bond {
 
     /**
-     * Global list of all bonds currently present.
+     * Global set of all bonds currently present.
      */
-    public static final List<Bond> bonds = new ArrayList<>();
+    public static final Set<Bond> bonds = new LinkedHashSet<>();
+    /**
+     * Bonds by atom pair and by atom.
+     */
+    private static final IncidenceIndex<AtomNode, Bond> index = new IncidenceIndex<>();
     /**
      * The first atom in the bond.
      */
@@ -57,6 +66,7 @@ public class Bond {
      * @param order the bond order (e.g. 1 = single, 2 = double, etc.)
      */
     public Bond(AtomNode atom1, AtomNode atom2, Line line, int order, BondManager bondManager) {
+        BondChangedEvent event = BondChangedEvent.start();
         atom1.getAtom().bond(atom2.getAtom(), order);
         this.atom1 = atom1;
         this.atom2 = atom2;
@@ -64,8 +74,8 @@ public class Bond {
         this.bondManager = bondManager;
         this.lines.add(line);
         this.order = order;
-        bonds.add(this);
-        System.out.println("DEBUG: NEW BOND " + this + " with Order " + order + " instantiated.");
+        register();
+        event.end(BondChangedEvent.FORMED, atomicNumber1(), atomicNumber2(), 0, order, bonds.size());
     }
 
     /**
@@ -76,16 +86,16 @@ public class Bond {
      * @param lines the JavaFX lines representing the bond
      */
     public Bond(AtomNode atom1, AtomNode atom2, List<Line> lines, BondManager bondManager) {
-        atom1.getAtom().bond(atom2.getAtom(), order);
+        BondChangedEvent event = BondChangedEvent.start();
+        atom1.getAtom().bond(atom2.getAtom(), lines.size());
         this.atom1 = atom1;
         this.atom2 = atom2;
         this.lines = lines;
         this.order = lines.size();
         this.bondManager = bondManager;
 
-        bonds.add(this);
-
-        System.out.println("DEBUG: NEW BOND " + this + " with Order " + order + " instantiated.");
+        register();
+        event.end(BondChangedEvent.FORMED, atomicNumber1(), atomicNumber2(), 0, order, bonds.size());
     }
 
     /**
@@ -99,6 +109,39 @@ public class Bond {
         this(atom1, atom2, line, 1, bondManager);
     }
 
+    /**
+     * Adds this bond to the global set and to the incidence index of both atoms.
+     */
+    private void register() {
+        AtomNode.invalidateSnapshot();
+        bonds.add(this);
+        index.put(atom1, atom2, this);
+        atom1.changeValence(order);
+        atom2.changeValence(order);
+        EditHistory.bondChanged(atom1, atom2, order);
+    }
+
+    /**
+     * Removes this bond from the global set and from the incidence index of both atoms.
+     */
+    private void unregister() {
+        AtomNode.invalidateSnapshot();
+        bonds.remove(this);
+        index.remove(atom1, atom2, this);
+        EditHistory.bondChanged(atom1, atom2, 0);
+    }
+
+    /**
+     * Finds the bond between two atoms.
+     *
+     * @param atom1 the first atom
+     * @param atom2 the second atom
+     * @return the existing bond, or {@code null} if the atoms are not bonded
+     */
+    public static Bond find(AtomNode atom1, AtomNode atom2) {
+        return index.find(atom1, atom2);
+    }
+
     /**
      * Checks whether a bond already exists between two atoms.
      *
@@ -107,10 +150,7 @@ public class Bond {
      * @return {@code true} if such a bond exists, {@code false} otherwise
      */
     public static boolean existsFor(AtomNode atom1, AtomNode atom2) {
-        for (Bond bond : bonds) {
-            if (bond.connects(atom1) && bond.connects(atom2)) return true;
-        }
-        return false;
+        return find(atom1, atom2) != null;
     }
 
     /**
@@ -122,10 +162,19 @@ public class Bond {
      * @throws NoSuchElementException if no bond exists between the given atoms
      */
     public static Bond getBond(AtomNode atom1, AtomNode atom2) {
-        for (Bond bond : bonds) {
-            if (bond.connects(atom1) && bond.connects(atom2)) return bond;
-        }
-        throw new NoSuchElementException();
+        Bond bond = find(atom1, atom2);
+        if (bond == null) throw new NoSuchElementException();
+        return bond;
+    }
+
+    /**
+     * Lists the bonds an atom takes part in.
+     *
+     * @param atom the atom
+     * @return an unmodifiable live view of the atom's bonds
+     */
+    public static Collection<Bond> bondsOf(AtomNode atom) {
+        return index.edgesOf(atom);
     }
 
     /**
@@ -145,10 +194,15 @@ public class Bond {
      * @param lines the additional lines to visually represent the bond
      */
     public void bond(int order, List<Line> lines) {
+        BondChangedEvent event = BondChangedEvent.start();
         this.atom1.getAtom().bond(this.atom2.getAtom(), order);
         this.order += order;
         this.lines.addAll(lines);
-        System.out.println("DEBUG: BOND " + this + " increased order to " + this.order + ".");
+        AtomNode.invalidateSnapshot();
+        atom1.changeValence(order);
+        atom2.changeValence(order);
+        EditHistory.bondChanged(atom1, atom2, this.order);
+        event.end(BondChangedEvent.RAISED, atomicNumber1(), atomicNumber2(), this.order - order, this.order, bonds.size());
     }
 
     /**
@@ -157,33 +211,32 @@ public class Bond {
      * @param line the line to add to the visual representation
      */
     public void bond(Line line) {
-        try {
-            ArrayList<Line> lines = new ArrayList<>();
-            lines.add(line);
-            bond(1, lines);
-        } catch (CovalentBondException e) {
-            System.out.println("Failed: MAKING NEW BOND");
-            throw e;
-        }
+        ArrayList<Line> lines = new ArrayList<>();
+        lines.add(line);
+        bond(1, lines);
     }
 
     /**
      * Disconnects the bond, removing references and visual representation.
      * <ul>
      *     <li>Calls {@link Atom#unbond(Atom)} on both atoms.</li>
-     *     <li>Resets bond order to 0.</li>
-     *     <li>Removes this bond from the global {@link #bonds} list.</li>
+     *     <li>Resets bond order to 0, returning it to both atoms' valence.</li>
+     *     <li>Removes this bond from the global {@link #bonds} set and the atom index.</li>
      *     <li>Clears all graphical lines.</li>
      * </ul>
      */
     public void disconnect() {
+        BondChangedEvent event = BondChangedEvent.start();
+        int previousOrder = order;
         this.atom1.getAtom().unbond(this.atom2.getAtom());
         this.atom1.updateSelectionStyle();
         this.atom2.updateSelectionStyle();
+        atom1.changeValence(-order);
+        atom2.changeValence(-order);
         this.order = 0;
-        bonds.remove(this);
+        unregister();
         lines.clear();
-        System.out.println("DEBUG: BOND " + this + " with Order " + order + " deleted.");
+        event.end(BondChangedEvent.REMOVED, atomicNumber1(), atomicNumber2(), previousOrder, 0, bonds.size());
     }
 
     /**
@@ -194,4 +247,12 @@ public class Bond {
     public int getOrder() {
         return order;
     }
+
+    private int atomicNumber1() {
+        return atom1.getAtom().getAtomicNumber();
+    }
+
+    private int atomicNumber2() {
+        return atom2.getAtom().getAtomicNumber();
+    }
 }
@@ -0,0 +1,94 @@
+package chem.chemfx;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.shape.Line;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps bond lines attached to their atoms.
+ * <p>
+ * Atoms report moves with {@link #atomMoved(AtomNode)}, which only records the atom. Once per
+ * pulse, before the scene is rendered, the bonds of every atom that moved are recomputed and
+ * the results written straight into the coordinates of their {@link Line}s, so each bond is
+ * laid out at most once per frame however many drag events arrived. The timer only runs
+ * while there is something to update.
+ * <p>
+ * Line {@code k} of a bond is drawn {@value #LINE_SPACING} × {@code k} pixels to the left of
+ * the axis from {@link Bond#atom1} to {@link Bond#atom2}.
+ */
+class BondGeometry {
+
+    /** Distance in pixels between the parallel lines of a multiple bond. */
+    static final double LINE_SPACING = 5;
+
+    /** Atoms moved since the last pass. */
+    private final Set<AtomNode> moved = new LinkedHashSet<>();
+
+    /** Bonds already laid out in the current pass. */
+    private final Set<Bond> laidOut = new HashSet<>();
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            update();
+        }
+    };
+
+    /**
+     * Records that an atom moved; its bonds are updated on the next pulse.
+     *
+     * @param atom the atom
+     */
+    void atomMoved(AtomNode atom) {
+        if (moved.add(atom) && moved.size() == 1) timer.start();
+    }
+
+    /**
+     * Recomputes the bonds of every atom that moved since the last pass.
+     */
+    void update() {
+        for (AtomNode atom : moved) {
+            for (Bond bond : Bond.bondsOf(atom)) {
+                if (laidOut.add(bond)) layout(bond);
+            }
+        }
+        moved.clear();
+        laidOut.clear();
+        timer.stop();
+    }
+
+    /**
+     * Positions the lines of a bond immediately, between the centers of its atoms. The centers
+     * come from the atoms' positions alone, so lines of an atom not yet laid out already meet
+     * its circle.
+     *
+     * @param bond the bond
+     */
+    void layout(Bond bond) {
+        double x1 = bond.atom1.getCenterX();
+        double y1 = bond.atom1.getCenterY();
+        double x2 = bond.atom2.getCenterX();
+        double y2 = bond.atom2.getCenterY();
+
+        // Unit normal of the bond axis; zero when the atoms coincide
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double length = Math.hypot(dx, dy);
+        double nx = length == 0 ? 0 : -dy / length;
+        double ny = length == 0 ? 0 : dx / length;
+
+        List<Line> lines = bond.lines;
+        for (int k = 0; k < lines.size(); k++) {
+            double offset = k * LINE_SPACING;
+            Line line = lines.get(k);
+            line.setStartX(x1 + nx * offset);
+            line.setStartY(y1 + ny * offset);
+            line.setEndX(x2 + nx * offset);
+            line.setEndY(y2 + ny * offset);
+        }
+    }
+}
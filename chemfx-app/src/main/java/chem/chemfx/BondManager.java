@@ -0,0 +1,165 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.CovalentBondException;
+import chem.chemfx.jfr.ValidationFailedEvent;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+
+import java.util.ArrayList;
+
+public class BondManager {
+
+    private final Pane container;
+    private final BondGeometry geometry = new BondGeometry();
+    private int bondMode = 0;
+    private AtomNode selected = null;
+    private final ToggleButton singleBond;
+    private final ToggleButton doubleBond;
+    private final ToggleButton tripleBond;
+
+    public BondManager(Pane container, ToggleButton singleBond, ToggleButton doubleBond, ToggleButton tripleBond) {
+        this.container = container;
+        this.singleBond = singleBond;
+        this.doubleBond = doubleBond;
+        this.tripleBond = tripleBond;
+    }
+
+    public int getBondMode() {
+        return bondMode;
+    }
+
+    public void setBondMode(int mode) {
+        this.bondMode = mode;
+        if (mode == 0 && selected != null) {
+            selected.toggleSelection();
+            selected = null;
+        }
+    }
+
+    public boolean isBonding() {
+        return bondMode != 0;
+    }
+
+    public void selectBondingAtom(AtomNode atom) {
+        if (selected == null || !AtomNode.exists(atom)) {
+            selected = atom;
+            atom.setSelected(true);
+        } else if (!isBonding() && selected != atom) {
+            selected = atom;
+            atom.setSelected(true);
+        } else if (isBonding() && selected != atom) {
+            makeNewBond(selected, atom, bondMode); // bond
+
+            atom.setSelected(false);
+            selected.setSelected(false);
+
+            selected = null;
+            deselectAllToggles();
+
+        } else {
+            selected.setSelected(false);
+            selected = null;
+        }
+    }
+
+    /**
+     * Creates a new bond between two atoms, replacing any bond they already share, and reports
+     * a bond the atoms cannot form.
+     *
+     * @param a1    First AtomNode
+     * @param a2    Second AtomNode
+     * @param order Bond order (1-3)
+     */
+    private void makeNewBond(AtomNode a1, AtomNode a2, int order) {
+        try {
+            setBondOrder(a1, a2, order);
+        } catch (CovalentBondException e) {
+            ValidationFailedEvent.record(e.getMessage(), a1.getAtom().getAtomicNumber(), a2.getAtom().getAtomicNumber(), order);
+
+            setBondOrder(a1, a2, 0);
+
+            Alert alert = new Alert(Alert.AlertType.ERROR, e.getMessage());
+            alert.show();
+        }
+
+        // Update atom selection visuals and reset bond mode
+        a1.updateSelectionStyle();
+        a2.updateSelectionStyle();
+        deselectAllToggles();
+        bondMode = 0;
+    }
+
+    /**
+     * Replaces the bond between two atoms with one of the given order.
+     * - Any existing bond and its lines are removed first
+     * - Each order adds a parallel line offset by {@link BondGeometry#LINE_SPACING} pixels
+     * - Lines follow atom moves through {@link #atomMoved(AtomNode)}
+     *
+     * @param a1    First AtomNode
+     * @param a2    Second AtomNode
+     * @param order Bond order (0-3); 0 only removes the existing bond
+     * @throws CovalentBondException if the atoms cannot form the bond; the lines added so far
+     *                               are left in place
+     */
+    void setBondOrder(AtomNode a1, AtomNode a2, int order) throws CovalentBondException {
+        Bond bond = Bond.find(a1, a2);
+        if (bond != null) {
+            container.getChildren().removeAll(bond.lines);
+            bond.disconnect();
+        }
+
+        if (order >= 1) {
+            Line bondLine = createBondLine();
+            bond = new Bond(a1, a2, bondLine, this);
+
+            container.getChildren().addFirst(bondLine);
+            a1.updateSelectionStyle();
+            a2.updateSelectionStyle();
+        }
+        for (int extra = 2; extra <= Math.min(order, 3); extra++) {
+            Line bondLine = createBondLine();
+
+            bond.bond(bondLine);
+
+            container.getChildren().addFirst(bondLine);
+            a1.updateSelectionStyle();
+            a2.updateSelectionStyle();
+        }
+        if (order >= 1) geometry.layout(bond);
+    }
+
+    /**
+     * Creates an unbound bond line; its coordinates are set by {@link BondGeometry}.
+     */
+    private Line createBondLine() {
+        Line line = new Line();
+        line.setStroke(Color.BLACK);
+        line.setStrokeWidth(2);
+        return line;
+    }
+
+    /**
+     * Records that an atom moved or changed size, so that its bond lines follow it on the next pulse.
+     *
+     * @param atom the atom
+     */
+    public void atomMoved(AtomNode atom) {
+        geometry.atomMoved(atom);
+    }
+
+    public void deleteBondsConnectedTo(AtomNode atom) {
+        for (Bond bond : new ArrayList<>(Bond.bondsOf(atom))) {
+            for (Line l : bond.lines) container.getChildren().remove(l);
+            bond.disconnect();
+        }
+    }
+
+    public void deselectAllToggles(){
+        singleBond.setSelected(false);
+        doubleBond.setSelected(false);
+        tripleBond.setSelected(false);
+    }
+}
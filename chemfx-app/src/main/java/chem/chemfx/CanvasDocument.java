@@ -0,0 +1,285 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.CovalentBondException;
+import chem.chemfx.io.MoleculeFile;
+import chem.chemfx.jfr.ValidationFailedEvent;
+import javafx.scene.control.Alert;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves the canvas to and opens it from {@link MoleculeFile}s.
+ * <p>
+ * An opened file stays memory-mapped, and only atoms inside the canvas become {@link AtomNode}s;
+ * when the canvas grows, the atoms in the uncovered area follow. The rest of the molecule stays
+ * in the mapping, so a document of any size opens at once and heap is spent only on what can
+ * be seen. Saving writes the canvas together with the atoms never materialized, which are
+ * copied straight from the mapping, including their bonds to atoms on the canvas.
+ * <p>
+ * The file keeps atom centers in canvas coordinates.
+ */
+final class CanvasDocument {
+
+    /** Most skipped bonds to list when reporting them. */
+    private static final int LISTED_SKIPPED = 10;
+
+    /** Opened file, or {@code null} if the canvas did not come from one. */
+    private static MoleculeFile.Mapped file;
+    /** Atoms of the file that have been materialized, and the nodes made for them. */
+    private static final Map<Integer, AtomNode> materialized = new HashMap<>();
+    private static final Map<AtomNode, Integer> fileAtoms = new HashMap<>();
+    /** Size of the canvas area whose atoms have been materialized. */
+    private static double coveredWidth;
+    private static double coveredHeight;
+
+    private CanvasDocument() {
+    }
+
+    /**
+     * Replaces the canvas with a file and materializes the atoms inside the canvas. The edit
+     * history starts over.
+     *
+     * @param path        the file
+     * @param width       width of the canvas
+     * @param height      height of the canvas
+     * @param bondManager bonds the materialized atoms
+     * @param atomFactory creates the materialized atoms
+     * @return the number of atoms in the file
+     * @throws IOException if the file cannot be read or is not a molecule file
+     */
+    static int open(Path path, double width, double height, BondManager bondManager,
+                    EditHistory.AtomFactory atomFactory) throws IOException {
+        MoleculeFile.Mapped opened = MoleculeFile.map(path);
+        for (AtomNode atom : AtomNode.atoms()) atom.delete();
+        file = opened;
+        materialized.clear();
+        fileAtoms.clear();
+        coveredWidth = 0;
+        coveredHeight = 0;
+        cover(width, height, bondManager, atomFactory);
+        EditHistory.clear();
+        return opened.atomCount();
+    }
+
+    /**
+     * Materializes the atoms of the opened file that lie in a grown canvas. Materializing is
+     * not an edit, so the edit history starts over if any atoms appear.
+     *
+     * @param width       width of the canvas
+     * @param height      height of the canvas
+     * @param bondManager bonds the materialized atoms
+     * @param atomFactory creates the materialized atoms
+     */
+    static void canvasResized(double width, double height, BondManager bondManager, EditHistory.AtomFactory atomFactory) {
+        if (file == null || (width <= coveredWidth && height <= coveredHeight)) return;
+        if (cover(width, height, bondManager, atomFactory) > 0) EditHistory.clear();
+    }
+
+    /**
+     * Materializes the atoms whose circles reach into the canvas, returning how many were new.
+     * Bonds the atoms cannot form are skipped and reported together once all are made.
+     */
+    private static int cover(double width, double height, BondManager bondManager, EditHistory.AtomFactory atomFactory) {
+        coveredWidth = Math.max(coveredWidth, width);
+        coveredHeight = Math.max(coveredHeight, height);
+        List<Integer> found = new ArrayList<>();
+        float margin = (float) AtomNode.RADIUS;
+        file.query(-margin, -margin, (float) coveredWidth + margin, (float) coveredHeight + margin, atom -> {
+            if (!materialized.containsKey(atom)) found.add(atom);
+        });
+
+        for (int atom : found) {
+            int z = file.element(atom);
+            int neutrons = file.massNumber(atom) == 0 ? z : file.massNumber(atom) - z;
+            AtomNode node = atomFactory.create(z, neutrons, file.charge(atom),
+                    file.x(atom) - AtomNode.RADIUS, file.y(atom) - AtomNode.RADIUS);
+            materialized.put(atom, node);
+            fileAtoms.put(node, atom);
+        }
+        List<String> skipped = new ArrayList<>();
+        for (int atom : found) {
+            AtomNode node = materialized.get(atom);
+            for (int e = file.firstEdge(atom), end = file.endEdge(atom); e < end; e++) {
+                AtomNode other = materialized.get(file.neighbor(e));
+                if (other == null || !AtomNode.exists(other) || Bond.existsFor(node, other)) continue;
+                try {
+                    bondManager.setBondOrder(node, other, file.order(e));
+                } catch (CovalentBondException ex) {
+                    ValidationFailedEvent.record(ex.getMessage(), file.element(atom), file.element(file.neighbor(e)), file.order(e));
+                    skipped.add(atom + "-" + file.neighbor(e) + ": " + ex.getMessage());
+                }
+            }
+        }
+        if (!skipped.isEmpty()) {
+            StringBuilder message = new StringBuilder("Skipped ").append(skipped.size())
+                    .append(skipped.size() == 1 ? " bond the atoms cannot form:" : " bonds the atoms cannot form:");
+            for (int k = 0; k < Math.min(LISTED_SKIPPED, skipped.size()); k++) message.append('\n').append(skipped.get(k));
+            if (skipped.size() > LISTED_SKIPPED) message.append("\n…");
+            new Alert(Alert.AlertType.WARNING, message.toString()).show();
+        }
+        return found.size();
+    }
+
+    /**
+     * Captures the canvas for saving. Must be called on the FX thread; the result may then be
+     * written from any thread while editing goes on.
+     *
+     * @return the document as it is now
+     */
+    static MoleculeFile.Source snapshot() {
+        return new Snapshot();
+    }
+
+    /**
+     * Canvas atoms first, in canvas order, then the file atoms never materialized, in file
+     * order. File atoms that were materialized and then deleted are left out with their bonds.
+     */
+    private static final class Snapshot implements MoleculeFile.Source {
+        private final MoleculeFile.Mapped source = file;
+        private final int canvasCount;
+        private final int[] elements;
+        private final int[] massNumbers;
+        private final int[] charges;
+        private final float[] coordinates;
+        /** File atom of each canvas atom, or -1 for atoms drawn by hand. */
+        private final int[] fileIndex;
+        private final int[][] neighbors;
+        private final int[][] orders;
+
+        /** Materialized file atoms, sorted, and the canvas atom each became, or -1 if deleted. */
+        private final int[] materializedAtoms;
+        private final int[] materializedAs;
+
+        /** Last position looked up among the atoms never materialized, for sequential access. */
+        private int lastRank = -1;
+        private int lastFileAtom = -1;
+
+        Snapshot() {
+            List<AtomNode> atoms = AtomNode.atoms();
+            canvasCount = atoms.size();
+            Map<AtomNode, Integer> numbers = new HashMap<>();
+            for (int i = 0; i < canvasCount; i++) numbers.put(atoms.get(i), i);
+
+            elements = new int[canvasCount];
+            massNumbers = new int[canvasCount];
+            charges = new int[canvasCount];
+            coordinates = new float[2 * canvasCount];
+            fileIndex = new int[canvasCount];
+            neighbors = new int[canvasCount][];
+            orders = new int[canvasCount][];
+            for (int i = 0; i < canvasCount; i++) {
+                AtomNode atom = atoms.get(i);
+                elements[i] = atom.getAtom().getAtomicNumber();
+                massNumbers[i] = elements[i] + atom.getAtom().getNeutronNumber();
+                charges[i] = atom.getAtom().getCharge();
+                coordinates[2 * i] = (float) atom.getCenterX();
+                coordinates[2 * i + 1] = (float) atom.getCenterY();
+                fileIndex[i] = fileAtoms.getOrDefault(atom, -1);
+                List<Bond> bonds = new ArrayList<>(Bond.bondsOf(atom));
+                neighbors[i] = new int[bonds.size()];
+                orders[i] = new int[bonds.size()];
+                for (int b = 0; b < bonds.size(); b++) {
+                    Bond bond = bonds.get(b);
+                    neighbors[i][b] = numbers.get(bond.atom1 == atom ? bond.atom2 : bond.atom1);
+                    orders[i][b] = bond.getOrder();
+                }
+            }
+
+            materializedAtoms = materialized.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            materializedAs = new int[materializedAtoms.length];
+            for (int k = 0; k < materializedAtoms.length; k++) {
+                materializedAs[k] = numbers.getOrDefault(materialized.get(materializedAtoms[k]), -1);
+            }
+        }
+
+        /** Number in the saved document of a file atom, or -1 if it was deleted. */
+        private int numberOf(int fileAtom) {
+            int k = Arrays.binarySearch(materializedAtoms, fileAtom);
+            return k >= 0 ? materializedAs[k] : canvasCount + fileAtom + k + 1;
+        }
+
+        /** File atom of the atom numbered {@code canvasCount + rank} in the saved document. */
+        private int fileAtomAt(int rank) {
+            int atom;
+            if (rank == lastRank + 1 && lastRank >= 0) {
+                atom = lastFileAtom + 1;
+                while (Arrays.binarySearch(materializedAtoms, atom) >= 0) atom++;
+            } else {
+                // The rank-th unmaterialized atom is the least fixed point of f = rank + |materialized <= f|
+                atom = rank;
+                for (int next; (next = rank + countAtMost(atom)) != atom; ) atom = next;
+            }
+            lastRank = rank;
+            lastFileAtom = atom;
+            return atom;
+        }
+
+        private int countAtMost(int fileAtom) {
+            int k = Arrays.binarySearch(materializedAtoms, fileAtom);
+            return k >= 0 ? k + 1 : -k - 1;
+        }
+
+        @Override
+        public int atomCount() {
+            return canvasCount + (source == null ? 0 : source.atomCount() - materializedAtoms.length);
+        }
+
+        @Override
+        public int element(int atom) {
+            return atom < canvasCount ? elements[atom] : source.element(fileAtomAt(atom - canvasCount));
+        }
+
+        @Override
+        public int massNumber(int atom) {
+            return atom < canvasCount ? massNumbers[atom] : source.massNumber(fileAtomAt(atom - canvasCount));
+        }
+
+        @Override
+        public int charge(int atom) {
+            return atom < canvasCount ? charges[atom] : source.charge(fileAtomAt(atom - canvasCount));
+        }
+
+        @Override
+        public float x(int atom) {
+            return atom < canvasCount ? coordinates[2 * atom] : source.x(fileAtomAt(atom - canvasCount));
+        }
+
+        @Override
+        public float y(int atom) {
+            return atom < canvasCount ? coordinates[2 * atom + 1] : source.y(fileAtomAt(atom - canvasCount));
+        }
+
+        @Override
+        public int degree(int atom) {
+            int[] count = {0};
+            forEachBond(atom, (neighbor, order) -> count[0]++);
+            return count[0];
+        }
+
+        @Override
+        public void forEachBond(int atom, MoleculeFile.BondVisitor visitor) {
+            if (atom < canvasCount) {
+                for (int b = 0; b < neighbors[atom].length; b++) visitor.visit(neighbors[atom][b], orders[atom][b]);
+                if (fileIndex[atom] < 0) return;
+                // Bonds on the canvas are already listed; add those to atoms still in the file
+                int from = fileIndex[atom];
+                for (int e = source.firstEdge(from), end = source.endEdge(from); e < end; e++) {
+                    int other = source.neighbor(e);
+                    if (Arrays.binarySearch(materializedAtoms, other) < 0) visitor.visit(numberOf(other), source.order(e));
+                }
+                return;
+            }
+            int from = fileAtomAt(atom - canvasCount);
+            for (int e = source.firstEdge(from), end = source.endEdge(from); e < end; e++) {
+                int other = numberOf(source.neighbor(e));
+                if (other >= 0) visitor.visit(other, source.order(e));
+            }
+        }
+    }
+}
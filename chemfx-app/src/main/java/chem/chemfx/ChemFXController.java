@@ -0,0 +1,403 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.AtomConstructionException;
+import chem.chemfx.atoms.BohrAtom;
+import chem.chemfx.atoms.ElementTable;
+import chem.chemfx.io.MoleculeFile;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.geometry.Point2D;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.shape.Rectangle;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ResourceBundle;
+
+public class ChemFXController implements Initializable {
+    private static final KeyCombination UNDO = new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN);
+    private static final KeyCombination REDO = new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN);
+    private static final KeyCombination REDO_ALTERNATE = new KeyCodeCombination(KeyCode.Z,
+            KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN);
+    private static final KeyCombination PERFORMANCE_OVERLAY = new KeyCodeCombination(KeyCode.F3);
+
+    private final ToggleGroup toggleGroup = new ToggleGroup();
+    private final DraggableMaker draggableMaker = new DraggableMaker();
+    @FXML
+    private AnchorPane molPane;
+    @FXML
+    private ToggleButton carbon;
+    @FXML
+    private ToggleButton oxygen;
+    @FXML
+    private ToggleButton nitrogen;
+    @FXML
+    private ToggleButton singleBond;
+    @FXML
+    private ToggleButton doubleBond;
+    @FXML
+    private ToggleButton tripleBond;
+    @FXML
+    private Button btn_open;
+    @FXML
+    private Button btn_save;
+    @FXML
+    private Button btn_search;
+    @FXML
+    private Button btn_layout;
+    @FXML
+    private Button btn_three_d;
+    @FXML
+    private Button btn_rxn_view;
+    @FXML
+    private Label about;
+    @FXML
+    private ToggleButton custom;
+    @FXML
+    private Label formula;
+
+    private int customAtomicNumber;
+
+    private BondManager bondManager;
+
+    private Task<String> search;
+
+    private Task<double[]> layout;
+
+    private PerformanceOverlay performanceOverlay;
+
+    private final Rectangle selectionBand = new Rectangle();
+    private double bandStartX;
+    private double bandStartY;
+    private boolean bandActive;
+
+    @Override
+    public void initialize(URL url, ResourceBundle resourceBundle) {
+        bondManager = new BondManager(molPane, singleBond, doubleBond, tripleBond);
+        EditHistory.attach(bondManager, this::placeAtom);
+        EditHistory.setMemoryLimit(EditHistory.configuredMemoryLimit());
+
+
+        toggleGroup.getToggles().addAll(carbon, oxygen, nitrogen, singleBond, doubleBond, tripleBond, custom);
+
+        formula.textProperty().bind(FormulaTracker.summaryProperty());
+
+
+        // Create atoms, moved off any atom already at the clicked spot
+        molPane.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+            if (!event.isStillSincePress()) return; // end of a rubber-band drag
+
+            int atomicNumber = 0;
+            if (carbon.isSelected()) atomicNumber = 6;
+            else if (oxygen.isSelected()) atomicNumber = 8;
+            else if (nitrogen.isSelected()) atomicNumber = 7;
+            else if (custom.isSelected() && customAtomicNumber > 0) atomicNumber = customAtomicNumber;
+            if (atomicNumber == 0) return;
+
+            Point2D center = AtomNode.freeCenter(event.getX() + AtomNode.RADIUS, event.getY() + AtomNode.RADIUS);
+            placeAtom(new BohrAtom(atomicNumber), center.getX() - AtomNode.RADIUS, center.getY() - AtomNode.RADIUS);
+        });
+
+
+        // Rubber-band selection; Shift adds to the current selection
+        selectionBand.setManaged(false);
+        selectionBand.setMouseTransparent(true);
+        selectionBand.setVisible(false);
+        selectionBand.getStyleClass().add("selection-band");
+        molPane.getChildren().add(selectionBand);
+        performanceOverlay = new PerformanceOverlay(molPane);
+
+        molPane.addEventHandler(MouseEvent.MOUSE_PRESSED, event -> {
+            if (event.getTarget() != molPane) return;
+            bandStartX = event.getX();
+            bandStartY = event.getY();
+            bandActive = true;
+        });
+
+        molPane.addEventHandler(MouseEvent.MOUSE_DRAGGED, event -> {
+            if (!bandActive) return;
+            selectionBand.setX(Math.min(bandStartX, event.getX()));
+            selectionBand.setY(Math.min(bandStartY, event.getY()));
+            selectionBand.setWidth(Math.abs(event.getX() - bandStartX));
+            selectionBand.setHeight(Math.abs(event.getY() - bandStartY));
+            if (!selectionBand.isVisible()) {
+                selectionBand.setVisible(true);
+                selectionBand.toFront();
+            }
+        });
+
+        molPane.addEventHandler(MouseEvent.MOUSE_RELEASED, event -> {
+            if (!bandActive) return;
+            bandActive = false;
+            if (!selectionBand.isVisible()) return;
+            selectionBand.setVisible(false);
+            if (!event.isShiftDown()) AtomNode.deselectAll();
+            for (AtomNode atom : AtomNode.atomsIn(selectionBand.getX(), selectionBand.getY(),
+                    selectionBand.getX() + selectionBand.getWidth(), selectionBand.getY() + selectionBand.getHeight())) {
+                atom.setSelected(true);
+            }
+            molPane.requestFocus();
+        });
+
+
+        // Bond mode
+        singleBond.selectedProperty().addListener((obs, oldVal, newVal) -> {
+            bondManager.setBondMode(newVal ? 1 : bondManager.getBondMode());
+        });
+
+
+        doubleBond.selectedProperty().addListener((obs, oldVal, newVal) -> {
+            bondManager.setBondMode(newVal ? 2 : bondManager.getBondMode());
+        });
+
+
+        tripleBond.selectedProperty().addListener((obs, oldVal, newVal) -> {
+            bondManager.setBondMode(newVal ? 3 : bondManager.getBondMode());
+        });
+
+        molPane.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.DELETE) {
+                BohrAtomNode.deleteSelectedAtoms();
+            } else if (UNDO.match(event)) {
+                EditHistory.undo();
+            } else if (REDO.match(event) || REDO_ALTERNATE.match(event)) {
+                EditHistory.redo();
+            } else if (PERFORMANCE_OVERLAY.match(event)) {
+                performanceOverlay.toggle();
+            }
+        });
+
+        custom.selectedProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal) { // button was selected
+                TextInputDialog dialog = new TextInputDialog();
+                dialog.setTitle("Other Element");
+                dialog.setHeaderText("Enter the atomic number, symbol or name of the element:");
+                dialog.setContentText("Element:");
+                dialog.showAndWait().ifPresent(input -> {
+                    try {
+                        ElementTable.Element element = ElementTable.parse(input);
+                        customAtomicNumber = element.atomicNumber();
+                        this.custom.setText(element.symbol());
+                    } catch (AtomConstructionException e) {
+                        Alert alert = new Alert(Alert.AlertType.ERROR, "Invalid element. Enter an atomic number (1-118), symbol or name.");
+                        alert.showAndWait();
+                        custom.setSelected(false);
+                    }
+                });
+            }
+        });
+
+
+        btn_open.setOnAction(event -> {
+            FileChooser chooser = documentChooser("Open Document");
+            File file = chooser.showOpenDialog(molPane.getScene().getWindow());
+            if (file == null) return;
+            if (layout != null) layout.cancel();
+            try {
+                CanvasDocument.open(file.toPath(), molPane.getWidth(), molPane.getHeight(), bondManager, this::placeAtom);
+            } catch (IOException e) {
+                new Alert(Alert.AlertType.ERROR, "Failed to open document:\n" + e.getMessage()).show();
+            }
+        });
+
+        draggableMaker.keepAtomsInside(molPane);
+
+        // Atoms of an opened document appear as the canvas grows to reach them
+        molPane.widthProperty().addListener((_, _, _) ->
+                CanvasDocument.canvasResized(molPane.getWidth(), molPane.getHeight(), bondManager, this::placeAtom));
+        molPane.heightProperty().addListener((_, _, _) ->
+                CanvasDocument.canvasResized(molPane.getWidth(), molPane.getHeight(), bondManager, this::placeAtom));
+
+        btn_save.setOnAction(event -> {
+            FileChooser chooser = documentChooser("Save Document");
+            File file = chooser.showSaveDialog(molPane.getScene().getWindow());
+            if (file == null) return;
+            Path path = file.getName().contains(".") ? file.toPath() : file.toPath().resolveSibling(file.getName() + "." + MoleculeFile.EXTENSION);
+            MoleculeFile.Source document = CanvasDocument.snapshot();
+            Task<Void> save = new Task<>() {
+                @Override
+                protected Void call() throws IOException {
+                    MoleculeFile.write(path, document, true);
+                    return null;
+                }
+            };
+            btn_save.setDisable(true);
+            save.setOnSucceeded(done -> btn_save.setDisable(false));
+            save.setOnFailed(failed -> {
+                btn_save.setDisable(false);
+                new Alert(Alert.AlertType.ERROR, "Failed to save document:\n" + save.getException().getMessage()).show();
+            });
+            Thread worker = new Thread(save, "document-save");
+            worker.setDaemon(true);
+            worker.start();
+        });
+
+
+        btn_search.setOnAction(event -> {
+            if (search != null) {
+                search.cancel();
+                return;
+            }
+            if (AtomNode.snapshot().atomCount() == 0) {
+                new Alert(Alert.AlertType.INFORMATION, "Draw the structure to search for first.").show();
+                return;
+            }
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Search Library");
+            chooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("Molecule libraries", "*.smi", "*.smiles", "*.txt", "*.sdf", "*.sd", "*.mol"),
+                    new FileChooser.ExtensionFilter("SMILES files", "*.smi", "*.smiles", "*.txt"),
+                    new FileChooser.ExtensionFilter("SD files", "*.sdf", "*.sd", "*.mol"),
+                    new FileChooser.ExtensionFilter("All files", "*.*"));
+            File file = chooser.showOpenDialog(molPane.getScene().getWindow());
+            if (file == null) return;
+
+            search = new SubstructureSearchTask(file.toPath(), AtomNode.snapshot());
+            String label = btn_search.getText();
+            btn_search.setText("Cancel Search");
+            search.setOnSucceeded(done -> {
+                new Alert(Alert.AlertType.INFORMATION, search.getValue()).show();
+                btn_search.setText(label);
+                search = null;
+            });
+            search.setOnFailed(failed -> {
+                new Alert(Alert.AlertType.ERROR, "Search failed:\n" + search.getException().getMessage()).show();
+                btn_search.setText(label);
+                search = null;
+            });
+            search.setOnCancelled(cancelled -> {
+                btn_search.setText(label);
+                search = null;
+            });
+            Thread worker = new Thread(search, "substructure-search");
+            worker.setDaemon(true);
+            worker.start();
+        });
+
+
+        btn_layout.setOnAction(event -> {
+            if (layout != null) {
+                layout.cancel();
+                return;
+            }
+            if (AtomNode.snapshot().atomCount() == 0) return;
+
+            layout = new LayoutTask(AtomNode.snapshot(), AtomNode.atoms(), molPane.getWidth(), molPane.getHeight());
+            String label = btn_layout.getText();
+            btn_layout.setText("Stop Layout");
+            EditHistory.hold(); // the whole layout undoes as one step
+            layout.runningProperty().addListener((obs, wasRunning, running) -> {
+                if (!running) {
+                    btn_layout.setText(label);
+                    layout = null;
+                    EditHistory.release();
+                }
+            });
+            layout.setOnFailed(failed -> new Alert(Alert.AlertType.ERROR,
+                    "Layout failed:\n" + ((Task<?>) failed.getSource()).getException().getMessage()).show());
+            Thread worker = new Thread(layout, "structure-layout");
+            worker.setDaemon(true);
+            worker.start();
+        });
+
+
+        btn_three_d.setOnAction(event -> {
+            try {
+                Stage threeDStage = ViewCache.stage(ChemFXMain.THREE_D_VIEW, "3D View", stage -> { });
+                ChemFXThreeDController viewer = ViewCache.controller(ChemFXMain.THREE_D_VIEW);
+                threeDStage.show();
+                threeDStage.toFront();
+                viewer.showCanvas(AtomNode.snapshot(), AtomNode.atoms());
+
+            } catch (IOException e) {
+                Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to open 3D View:\n" + e.getMessage());
+                alert.show();
+            }
+        });
+
+        btn_rxn_view.setOnAction(event -> {
+            try {
+                Stage reactionStage = ViewCache.stage(ChemFXMain.REACTION_VIEW, "Reaction View", stage -> { });
+                reactionStage.show();
+                reactionStage.toFront();
+
+            } catch (IOException e) {
+                Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to open Reaction View:\n" + e.getMessage());
+                alert.show();
+            }
+        });
+
+
+        about.setOnMouseClicked(event -> {
+            try {
+                Stage aboutStage = ViewCache.stage(ChemFXMain.ABOUT_VIEW, "About Programmer",
+                        stage -> stage.initModality(Modality.APPLICATION_MODAL)); // Optional: blocks main window
+                aboutStage.show();
+
+            } catch (IOException e) {
+                Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to open About View:\n" + e.getMessage());
+                alert.show();
+            }
+        });
+
+
+        molPane.setFocusTraversable(true);
+    }
+
+    private static FileChooser documentChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("ChemFX documents", "*." + MoleculeFile.EXTENSION),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        return chooser;
+    }
+
+    /**
+     * Puts a new atom on the canvas, falling back to a neutral atom if the charge has no
+     * electron configuration.
+     *
+     * @param atomicNumber  element of the atom
+     * @param neutronNumber neutrons of the atom
+     * @param charge        charge of the atom
+     * @param x             X coordinate of the atom's top-left corner
+     * @param y             Y coordinate of the atom's top-left corner
+     * @return the atom
+     */
+    private AtomNode placeAtom(int atomicNumber, int neutronNumber, int charge, double x, double y) {
+        BohrAtom atom;
+        try {
+            atom = new BohrAtom(atomicNumber, neutronNumber, atomicNumber - charge);
+        } catch (AtomConstructionException e) {
+            atom = new BohrAtom(atomicNumber, neutronNumber);
+        }
+        return placeAtom(atom, x, y);
+    }
+
+    /**
+     * Puts a new atom on the canvas and makes it draggable; a drag undoes as one step.
+     *
+     * @param bohrAtom the atom's model
+     * @param x        X coordinate of the atom's top-left corner
+     * @param y        Y coordinate of the atom's top-left corner
+     * @return the atom
+     */
+    private AtomNode placeAtom(BohrAtom bohrAtom, double x, double y) {
+        BohrAtomNode atom = new BohrAtomNode(x, y, molPane, bondManager, bohrAtom);
+        draggableMaker.makeDraggable(atom.getAtomGroup(), atom::relocated);
+        atom.getAtomGroup().addEventHandler(MouseEvent.MOUSE_PRESSED, _ -> EditHistory.hold());
+        atom.getAtomGroup().addEventHandler(MouseEvent.MOUSE_RELEASED, _ -> EditHistory.release());
+        return atom;
+    }
+}
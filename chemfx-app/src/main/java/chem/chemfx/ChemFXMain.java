@@ -0,0 +1,139 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.ElectronConfigurations;
+import chem.chemfx.atoms.ElementTable;
+import chem.chemfx.atoms.MolecularFormula;
+import javafx.animation.FadeTransition;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The application: a splash screen shown while the main view, the element tables and the
+ * views opened from the main view load on background threads, then the main view as soon as
+ * it is ready. Milestones are printed by {@link StartupTimer}.
+ */
+public class ChemFXMain extends Application {
+
+    static final String MAIN_VIEW = "chemfx-compound-view.fxml";
+    static final String REACTION_VIEW = "chemfx-reaction-view.fxml";
+    static final String THREE_D_VIEW = "chemfx-three-d-view.fxml";
+    static final String ABOUT_VIEW = "chemfx-about.fxml";
+
+    /** Loading of the main view and the tables it needs, started in {@link #init()}. */
+    private CompletableFuture<Void> mainLoaded;
+
+    public static void main(String[] args) {
+        StartupTimer.mark("Launching");
+        launch();
+    }
+
+    @Override
+    public void init() {
+        StartupTimer.mark("Toolkit started");
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService preloader = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "view-preload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        mainLoaded = CompletableFuture.allOf(
+                CompletableFuture.runAsync(ChemFXMain::initializeTables, preloader),
+                ViewCache.preload(MAIN_VIEW, preloader));
+        List<CompletableFuture<?>> all = new ArrayList<>(List.of(mainLoaded));
+        for (String view : List.of(REACTION_VIEW, THREE_D_VIEW, ABOUT_VIEW)) all.add(ViewCache.preload(view, preloader));
+        CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0])).whenComplete((done, failure) -> {
+            preloader.shutdown();
+            StartupTimer.mark("Preloading done");
+        });
+    }
+
+    /** Runs the static initializers of the element tables, which build them. */
+    private static void initializeTables() {
+        long start = System.nanoTime();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for (Class<?> table : List.of(ElementTable.class, ElectronConfigurations.class, MolecularFormula.class)) {
+                lookup.ensureInitialized(table);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        StartupTimer.took("Initialized element tables", start);
+    }
+
+    @Override
+    public void start(Stage stage) {
+        // Load logo image
+        Image logoImg = new Image(Objects.requireNonNull(
+                getClass().getResourceAsStream("ChemFXLogo.png")
+        ));
+
+        // --- Splash Screen ---
+        ImageView logoView = new ImageView(logoImg);
+        logoView.setPreserveRatio(true);
+        logoView.setFitWidth(500);
+        logoView.setOpacity(0);
+
+        StackPane splashRoot = new StackPane(logoView);
+        Scene splashScene = new Scene(splashRoot, 1080, 720);
+
+        stage.setScene(splashScene);
+        stage.setTitle("ChemFX");
+        stage.getIcons().add(logoImg);
+        stage.show();
+        StartupTimer.mark("Splash shown");
+
+        // --- Animations ---
+        FadeTransition fadeIn = new FadeTransition(Duration.seconds(1), logoView);
+        fadeIn.setToValue(1);
+        fadeIn.play();
+
+        // Fade out from wherever the fade in got to once the main view is ready
+        mainLoaded.handle((done, failure) -> null).thenRun(() -> Platform.runLater(() -> {
+            fadeIn.stop();
+            FadeTransition fadeOut = new FadeTransition(Duration.seconds(0.3), logoView);
+            fadeOut.setToValue(0);
+            fadeOut.setOnFinished(event -> showMainView(stage));
+            fadeOut.play();
+        }));
+    }
+
+    private void showMainView(Stage stage) {
+        try {
+            Scene mainScene = new Scene(ViewCache.root(MAIN_VIEW), 1080, 720);
+            mainScene.getStylesheets().add(
+                    Objects.requireNonNull(getClass().getResource("styles.css")).toExternalForm()
+            );
+            mainScene.addPostLayoutPulseListener(new Runnable() {
+                @Override
+                public void run() {
+                    mainScene.removePostLayoutPulseListener(this);
+                    StartupTimer.mark("Interactive");
+                }
+            });
+            stage.setScene(mainScene);
+            stage.centerOnScreen();
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.ERROR, "Failed to load ChemFX:\n" + e.getMessage()).show();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.BatchCalculation;
+import chem.chemfx.atoms.EquilibriumSystem;
+import chem.chemfx.atoms.ReactionCalculation;
+import chem.chemfx.io.CsvBatch;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.Tab;
+import javafx.scene.control.Label;
+import javafx.stage.FileChooser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class ChemFXRxnController {
+
+    @FXML
+    private TabPane formulaTabPane;
+
+    // Ideal Gas
+    @FXML private TextField pressureField;
+    @FXML private TextField volumeField;
+    @FXML private TextField temperatureField;
+    @FXML private TextField molesField;
+
+    // Equilibrium
+    @FXML private TextField eqReactant1Field;
+    @FXML private TextField eqReactant2Field;
+    @FXML private TextField eqProduct1Field;
+    @FXML private TextField eqProduct2Field;
+    @FXML private Label equilibriumResultLabel; // optional label for Kc display
+    @FXML private TextArea eqReactionsArea;
+    @FXML private TextField eqInitialField;
+    @FXML private Label eqCompositionLabel;
+
+    // Batch
+    @FXML private Button importBatchButton;
+    @FXML private ProgressBar batchProgress;
+    @FXML private Label batchStatusLabel;
+
+    /** Running batch, or {@code null}. */
+    private Task<CsvBatch.Summary> batch;
+
+    @FXML
+    private void calculate() {
+        Tab selectedTab = formulaTabPane.getSelectionModel().getSelectedItem();
+
+        if (selectedTab == null) return;
+
+        String tabId = selectedTab.getId();
+
+        switch (tabId) {
+            case "idealGasTab":
+                calculateIdealGas();
+                break;
+
+            case "equilibriumTab":
+                calculateEquilibrium();
+                break;
+        }
+    }
+
+    private void calculateIdealGas() {
+        TextField[] fields = {pressureField, volumeField, temperatureField, molesField};
+        double[] values = new double[fields.length];
+        try {
+            for (int i = 0; i < fields.length; i++) values[i] = parseOrNaN(fields[i]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        ReactionCalculation.IDEAL_GAS.compute(values);
+
+        // Fill the missing field
+        for (int i = 0; i < fields.length; i++) {
+            if (isEmpty(fields[i]) && !Double.isNaN(values[i])) fields[i].setText(String.valueOf(values[i]));
+        }
+    }
+
+    private void calculateEquilibrium() {
+        if (!eqReactionsArea.getText().isBlank()) {
+            solveEquilibrium();
+            return;
+        }
+        try {
+            double[] values = {
+                    parseOrNaN(eqReactant1Field), parseOrNaN(eqReactant2Field),
+                    parseOrNaN(eqProduct1Field), parseOrNaN(eqProduct2Field), Double.NaN
+            };
+            // Stoichiometric coefficients a=b=c=d=1 for simplicity
+            ReactionCalculation.EQUILIBRIUM.compute(values);
+            double Kc = values[4];
+
+            equilibriumResultLabel.setText(Double.isNaN(Kc) ? "Invalid input" : String.valueOf(Kc));
+
+        } catch (NumberFormatException e) {
+            equilibriumResultLabel.setText("Invalid input");
+        }
+    }
+
+    /**
+     * Solves the reactions typed in for the initial concentrations given as
+     * {@code species = value} pairs, missing species starting at 0.
+     */
+    private void solveEquilibrium() {
+        EquilibriumSystem system;
+        double[] initial;
+        try {
+            system = EquilibriumSystem.parse(eqReactionsArea.getText());
+            initial = parseInitial(system, eqInitialField.getText());
+        } catch (IllegalArgumentException e) {
+            eqCompositionLabel.setText(e.getMessage());
+            return;
+        }
+        EquilibriumSystem.Result result = system.solve(initial);
+        if (!result.converged()) {
+            eqCompositionLabel.setText("No equilibrium found");
+            return;
+        }
+        List<String> species = system.species();
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < species.size(); s++) {
+            if (s > 0) text.append(", ");
+            text.append(species.get(s)).append(" = ").append(String.format("%.4g", result.concentrations()[s]));
+        }
+        eqCompositionLabel.setText(text.toString());
+    }
+
+    private static double[] parseInitial(EquilibriumSystem system, String text) {
+        double[] initial = new double[system.species().size()];
+        if (text == null || text.isBlank()) return initial;
+        for (String pair : text.split(",")) {
+            String[] parts = pair.split("=");
+            if (parts.length != 2) throw new IllegalArgumentException("Expected species = concentration: " + pair.strip());
+            int s = system.species().indexOf(parts[0].strip());
+            if (s < 0) throw new IllegalArgumentException("Not in the reactions: " + parts[0].strip());
+            try {
+                initial[s] = Double.parseDouble(parts[1].strip());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad concentration: " + parts[1].strip());
+            }
+            if (!(initial[s] >= 0)) throw new IllegalArgumentException("Concentration must not be negative: " + parts[1].strip());
+        }
+        return initial;
+    }
+
+    /**
+     * Runs the calculation of the selected tab over a CSV file of cases, one per row, and
+     * writes the completed rows to another. Pressed again while running, cancels the batch.
+     */
+    @FXML
+    private void importBatch() {
+        if (batch != null) {
+            batch.cancel();
+            return;
+        }
+        BatchCalculation calculation;
+        try {
+            calculation = selectedCalculation();
+        } catch (IllegalArgumentException e) {
+            new Alert(Alert.AlertType.ERROR, "Invalid reactions:\n" + e.getMessage()).show();
+            return;
+        }
+        if (calculation == null) return;
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Batch");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        File input = chooser.showOpenDialog(formulaTabPane.getScene().getWindow());
+        if (input == null) return;
+        chooser.setTitle("Save Batch Results");
+        chooser.setInitialDirectory(input.getParentFile());
+        chooser.setInitialFileName(input.getName().replaceFirst("(?i)\\.csv$", "") + "-results.csv");
+        File output = chooser.showSaveDialog(formulaTabPane.getScene().getWindow());
+        if (output == null) return;
+        if (output.equals(input)) {
+            new Alert(Alert.AlertType.ERROR, "Choose a results file other than the batch file.").show();
+            return;
+        }
+
+        Path inputPath = input.toPath(), outputPath = output.toPath();
+        batch = new Task<>() {
+            @Override
+            protected CsvBatch.Summary call() throws Exception {
+                long size = Math.max(1, Files.size(inputPath));
+                updateMessage("Reading " + inputPath.getFileName() + "…");
+                return CsvBatch.run(calculation, inputPath, outputPath, (rows, bytes) -> {
+                    updateProgress(bytes, size);
+                    updateMessage(rows + " rows");
+                }, this::isCancelled);
+            }
+        };
+        String label = importBatchButton.getText();
+        importBatchButton.setText("Cancel Batch");
+        batchProgress.progressProperty().bind(batch.progressProperty());
+        batchStatusLabel.textProperty().bind(batch.messageProperty());
+        batchProgress.setVisible(true);
+
+        batch.setOnSucceeded(done -> {
+            CsvBatch.Summary summary = batch.getValue();
+            finishBatch(label, summary.rows() + " rows, " + summary.unsolved() + " unsolved, written to " + output.getName());
+        });
+        batch.setOnFailed(failed -> {
+            new Alert(Alert.AlertType.ERROR, "Batch failed:\n" + batch.getException().getMessage()).show();
+            finishBatch(label, "Batch failed");
+        });
+        batch.setOnCancelled(cancelled -> finishBatch(label, "Batch cancelled"));
+        Thread worker = new Thread(batch, "reaction-batch");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void finishBatch(String label, String status) {
+        batchProgress.progressProperty().unbind();
+        batchStatusLabel.textProperty().unbind();
+        batchProgress.setVisible(false);
+        batchStatusLabel.setText(status);
+        importBatchButton.setText(label);
+        batch = null;
+    }
+
+    /**
+     * The calculation of the selected tab; on the equilibrium tab, the reactions typed in if
+     * there are any, solved for columns named after their species.
+     *
+     * @throws IllegalArgumentException if the reactions typed in are invalid.
+     */
+    private BatchCalculation selectedCalculation() {
+        Tab selectedTab = formulaTabPane.getSelectionModel().getSelectedItem();
+        if (selectedTab == null) return null;
+        return switch (selectedTab.getId()) {
+            case "idealGasTab" -> ReactionCalculation.IDEAL_GAS;
+            case "equilibriumTab" -> eqReactionsArea.getText().isBlank()
+                    ? ReactionCalculation.EQUILIBRIUM
+                    : EquilibriumSystem.parse(eqReactionsArea.getText()).batch();
+            default -> null;
+        };
+    }
+
+    private double parseOrNaN(TextField tf) {
+        if (isEmpty(tf)) return Double.NaN;
+        return Double.parseDouble(tf.getText());
+    }
+
+    private static boolean isEmpty(TextField tf) {
+        return tf.getText() == null || tf.getText().isEmpty();
+    }
+}
@@ -0,0 +1,268 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.MolecularFormula;
+import chem.chemfx.atoms.MoleculeGraph;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.AmbientLight;
+import javafx.scene.Group;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.PointLight;
+import javafx.scene.SceneAntialiasing;
+import javafx.scene.SubScene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Rotate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller of the 3D view: a rotatable ball-and-stick model of a molecule.
+ * <p>
+ * Geometry comes from {@link MoleculeMeshes}, so the scene holds one node per element and one
+ * for all bonds, however large the molecule. Drag to rotate; the zoom slider moves the camera.
+ * <p>
+ * Level of detail follows the on-screen size of an atom: sphere tessellation drops as the view
+ * zooms out, and bonds are left out once they would be thinner than a pixel. The tessellation
+ * is further capped so that no level exceeds {@value #TRIANGLE_BUDGET} triangles. Each level is
+ * built once, on a background thread, and kept for when the zoom comes back.
+ */
+public class ChemFXThreeDController {
+
+    /** Upper bound on the triangles of one level of detail. */
+    private static final int TRIANGLE_BUDGET = 1_500_000;
+
+    /** Sphere tessellations, finest first, with the on-screen atom radius in pixels each needs. */
+    private static final int[] DIVISIONS = {24, 16, 8, 4};
+    private static final double[] MIN_RADIUS_PIXELS = {18, 8, 3, 0};
+
+    /** Bond length in Å, used to scale canvas coordinates. */
+    private static final double BOND_LENGTH = 1.5;
+
+    private static final double FIELD_OF_VIEW = 30;
+
+    @FXML
+    private Label moleculeNameLabel;
+    @FXML
+    private Pane moleculePane;
+    @FXML
+    private Button resetViewButton;
+    @FXML
+    private Slider zoomSlider;
+
+    private final Group world = new Group();
+    private final Group model = new Group();
+    private final Rotate rotateX = new Rotate(0, Rotate.X_AXIS);
+    private final Rotate rotateY = new Rotate(0, Rotate.Y_AXIS);
+    private final PerspectiveCamera camera = new PerspectiveCamera(true);
+
+    /** Built levels of detail, by index into {@link #DIVISIONS}, plus 0x100 when bonds are drawn. */
+    private final Map<Integer, Group> levels = new HashMap<>();
+    private Task<Group> building;
+    private int shownLevel = -1;
+
+    private MoleculeGraph graph;
+    private float[] xyz;
+
+    /** Distance from the model center at which the whole model fits the view at zoom 1. */
+    private double fitDistance = 10;
+
+    private double dragX;
+    private double dragY;
+
+    @FXML
+    private void initialize() {
+        world.getTransforms().addAll(rotateX, rotateY);
+        world.getChildren().add(model);
+
+        AmbientLight ambient = new AmbientLight(Color.rgb(90, 90, 90));
+        PointLight key = new PointLight(Color.WHITE);
+        Group root = new Group(world, ambient, key);
+
+        camera.setFieldOfView(FIELD_OF_VIEW);
+        camera.setNearClip(0.1);
+        camera.setFarClip(100_000);
+        key.translateZProperty().bind(camera.translateZProperty());
+
+        SubScene view = new SubScene(root, 600, 400, true, SceneAntialiasing.DISABLED);
+        view.setFill(Color.rgb(221, 221, 221));
+        view.setCamera(camera);
+        view.widthProperty().bind(moleculePane.widthProperty());
+        view.heightProperty().bind(moleculePane.heightProperty());
+        moleculePane.getChildren().add(view);
+
+        view.addEventHandler(MouseEvent.MOUSE_PRESSED, event -> {
+            dragX = event.getSceneX();
+            dragY = event.getSceneY();
+        });
+        view.addEventHandler(MouseEvent.MOUSE_DRAGGED, event -> {
+            rotateY.setAngle(rotateY.getAngle() + (event.getSceneX() - dragX) * 0.4);
+            rotateX.setAngle(rotateX.getAngle() - (event.getSceneY() - dragY) * 0.4);
+            dragX = event.getSceneX();
+            dragY = event.getSceneY();
+        });
+
+        zoomSlider.valueProperty().addListener((obs, oldZoom, zoom) -> updateView());
+        moleculePane.heightProperty().addListener((obs, oldHeight, height) -> updateView());
+        resetViewButton.setOnAction(event -> {
+            rotateX.setAngle(0);
+            rotateY.setAngle(0);
+            zoomSlider.setValue(1);
+            updateView();
+        });
+    }
+
+    /**
+     * Shows a molecule laid out on the compound canvas, flat in the z = 0 plane, scaled so that
+     * the average bond is {@value #BOND_LENGTH} Å long.
+     *
+     * @param graph snapshot of the canvas
+     * @param atoms the atom shown for each atom of the snapshot
+     */
+    void showCanvas(MoleculeGraph graph, List<AtomNode> atoms) {
+        double bondPixels = 0;
+        for (int i = 0; i < graph.atomCount(); i++) {
+            for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                AtomNode a = atoms.get(i), b = atoms.get(graph.neighbor(e));
+                bondPixels += Math.hypot(a.getCenterX() - b.getCenterX(), a.getCenterY() - b.getCenterY());
+            }
+        }
+        double scale = graph.bondCount() == 0 || bondPixels == 0
+                ? BOND_LENGTH / (2 * AtomNode.MIN_SPACING)
+                : BOND_LENGTH / (bondPixels / (2 * graph.bondCount()));
+        float[] coordinates = new float[3 * graph.atomCount()];
+        for (int i = 0; i < graph.atomCount(); i++) {
+            coordinates[3 * i] = (float) (atoms.get(i).getCenterX() * scale);
+            coordinates[3 * i + 1] = (float) (atoms.get(i).getCenterY() * scale);
+        }
+        show(graph, coordinates);
+    }
+
+    /**
+     * Shows a molecule.
+     *
+     * @param graph       the molecule
+     * @param coordinates interleaved x, y, z atom coordinates in Å
+     */
+    void show(MoleculeGraph graph, float[] coordinates) {
+        if (building != null) building.cancel();
+        building = null;
+        levels.clear();
+        shownLevel = -1;
+        model.getChildren().clear();
+
+        this.graph = graph;
+        this.xyz = coordinates.clone();
+        int n = graph.atomCount();
+
+        // Center the model on the origin and find its radius
+        double cx = 0, cy = 0, cz = 0;
+        for (int i = 0; i < n; i++) {
+            cx += xyz[3 * i];
+            cy += xyz[3 * i + 1];
+            cz += xyz[3 * i + 2];
+        }
+        if (n > 0) {
+            cx /= n;
+            cy /= n;
+            cz /= n;
+        }
+        double radius = 1;
+        for (int i = 0; i < n; i++) {
+            xyz[3 * i] -= (float) cx;
+            xyz[3 * i + 1] -= (float) cy;
+            xyz[3 * i + 2] -= (float) cz;
+            radius = Math.max(radius, Math.sqrt(xyz[3 * i] * xyz[3 * i] + xyz[3 * i + 1] * xyz[3 * i + 1] + xyz[3 * i + 2] * xyz[3 * i + 2]));
+        }
+        fitDistance = (radius + MoleculeMeshes.ATOM_RADIUS) / Math.tan(Math.toRadians(FIELD_OF_VIEW / 2)) * 1.1;
+
+        moleculeNameLabel.setText("Molecule: " + formulaOf(graph) + " (" + n + " atoms, " + graph.bondCount() + " bonds)");
+        updateView();
+    }
+
+    private static String formulaOf(MoleculeGraph graph) {
+        MolecularFormula formula = new MolecularFormula();
+        for (int i = 0; i < graph.atomCount(); i++) {
+            int z = graph.element(i);
+            if (z == 0) continue;
+            int neutrons = graph.atom(i) != null ? graph.atom(i).getNeutronNumber() : 0;
+            formula.addAtom(z, neutrons);
+            int valence = 0;
+            for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) valence += graph.order(e);
+            formula.changeValence(z, 0, valence);
+        }
+        return formula.atomCount() == 0 ? "empty" : formula.hillFormula();
+    }
+
+    /** Moves the camera for the current zoom and switches to the matching level of detail. */
+    private void updateView() {
+        if (graph == null) return;
+        double distance = fitDistance / zoomSlider.getValue();
+        camera.setTranslateZ(-distance);
+
+        // On-screen radius of an atom at the model center
+        double viewHeight = Math.max(1, moleculePane.getHeight());
+        double pixelsPerUnit = viewHeight / (2 * distance * Math.tan(Math.toRadians(FIELD_OF_VIEW / 2)));
+        double atomPixels = MoleculeMeshes.ATOM_RADIUS * pixelsPerUnit;
+        boolean bonds = graph.bondCount() > 0 && MoleculeMeshes.BOND_RADIUS * pixelsPerUnit >= 0.5;
+
+        int level = 0;
+        while (level < DIVISIONS.length - 1 && atomPixels < MIN_RADIUS_PIXELS[level]) level++;
+        while (level < DIVISIONS.length - 1 && triangles(level, bonds) > TRIANGLE_BUDGET) level++;
+        if (bonds && triangles(level, true) > TRIANGLE_BUDGET) bonds = false;
+
+        int key = level | (bonds ? 0x100 : 0);
+        if (key == shownLevel) return;
+        Group built = levels.get(key);
+        if (built != null) {
+            showLevel(key, built);
+        } else {
+            build(key, DIVISIONS[level], bonds);
+        }
+    }
+
+    private long triangles(int level, boolean bonds) {
+        long atoms = (long) graph.atomCount() * MoleculeMeshes.sphereTriangles(DIVISIONS[level]);
+        return bonds ? atoms + (long) graph.bondCount() * MoleculeMeshes.cylinderTriangles(bondSides(level)) : atoms;
+    }
+
+    private static int bondSides(int level) {
+        return Math.max(3, DIVISIONS[level] / 2);
+    }
+
+    private void build(int key, int divisions, boolean bonds) {
+        if (building != null) building.cancel();
+        MoleculeGraph graph = this.graph;
+        float[] xyz = this.xyz;
+        int sides = bondSides(key & 0xFF);
+        Task<Group> task = new Task<>() {
+            @Override
+            protected Group call() {
+                Group group = new Group(MoleculeMeshes.atoms(graph, xyz, divisions));
+                if (bonds && !isCancelled()) group.getChildren().add(MoleculeMeshes.bonds(graph, xyz, sides));
+                return group;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (building != task) return;
+            building = null;
+            levels.put(key, task.getValue());
+            showLevel(key, task.getValue());
+        });
+        building = task;
+        Thread worker = new Thread(task, "three-d-mesh");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void showLevel(int key, Group group) {
+        shownLevel = key;
+        model.getChildren().setAll(group);
+    }
+}
@@ -1,5 +1,6 @@
 package chem.chemfx;
 
+import javafx.beans.InvalidationListener;
 import javafx.scene.Node;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
@@ -31,6 +32,19 @@ public class DraggableMaker {
      * @throws IllegalStateException if the node has not yet been added to a {@link Pane}
      */
     public void makeDraggable(Node node) throws IllegalStateException {
+        makeDraggable(node, () -> {});
+    }
+
+    /**
+     * Makes the given {@link Node} draggable within its parent {@link Pane}, reporting every
+     * relocation by a drag. Keeping the node inside the parent when the parent shrinks is left to
+     * one listener on the parent, such as {@link #keepAtomsInside(Pane)}, rather than one per node.
+     *
+     * @param node        the node to make draggable
+     * @param onRelocated called after each relocation
+     * @throws IllegalStateException if the node has not yet been added to a {@link Pane}
+     */
+    public void makeDraggable(Node node, Runnable onRelocated) throws IllegalStateException {
         Delta delta = new Delta();
 
         Pane parent = (Pane) node.getParent();
@@ -45,12 +59,34 @@ public class DraggableMaker {
         });
 
         // Update position on drag, constrained to parent bounds
-        node.addEventHandler(MouseEvent.MOUSE_DRAGGED, e -> clampAndRelocate(node, parent, e.getSceneX() - delta.x, e.getSceneY() - delta.y));
-
-        // Re-clamp position if the parent resizes
-        parent.widthProperty().addListener((_, _, _) -> clampAndRelocate(node, parent, node.getLayoutX(), node.getLayoutY()));
+        node.addEventHandler(MouseEvent.MOUSE_DRAGGED, e -> {
+            clampAndRelocate(node, parent, e.getSceneX() - delta.x, e.getSceneY() - delta.y);
+            onRelocated.run();
+        });
+    }
 
-        parent.heightProperty().addListener((_, _, _) -> clampAndRelocate(node, parent, node.getLayoutX(), node.getLayoutY()));
+    /**
+     * Keeps the atoms on a canvas inside it when the canvas shrinks. One listener serves every
+     * atom: on a resize it asks the spatial index for the atoms near or past the new right and
+     * bottom edges and re-clamps only those. Being pushed back by a resize is not an edit, so the
+     * atoms moved here are not recorded in the edit history.
+     *
+     * @param canvas the pane the atoms were placed on
+     */
+    void keepAtomsInside(Pane canvas) {
+        InvalidationListener resized = _ -> {
+            // An atom's stack is at least as wide as its circle, so any atom the clamp moves has
+            // its center within a circle's width and the margin of the new edges, or past them
+            double reach = margin + AtomNode.MIN_SPACING;
+            for (AtomNode atom : AtomNode.atomsBeyond(canvas.getWidth() - reach, canvas.getHeight() - reach)) {
+                Node node = atom.getAtomGroup();
+                double x = node.getLayoutX(), y = node.getLayoutY();
+                clampAndRelocate(node, canvas, x, y);
+                if (node.getLayoutX() != x || node.getLayoutY() != y) atom.pushedInside();
+            }
+        };
+        canvas.widthProperty().addListener(resized);
+        canvas.heightProperty().addListener(resized);
     }
 
     /**
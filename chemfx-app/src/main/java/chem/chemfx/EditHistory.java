@@ -0,0 +1,368 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.CovalentBondException;
+import chem.chemfx.atoms.PersistentLongMap;
+import chem.chemfx.jfr.ValidationFailedEvent;
+import javafx.scene.control.Alert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Undo and redo for the canvas.
+ * <p>
+ * {@link AtomNode} and {@link Bond} report every change here, and each change is applied to a
+ * persistent model of the canvas: atoms keyed by a stable id, bonds keyed by their pair of
+ * ids. An update copies only the O(log n) trie nodes on its path, so every version shares
+ * almost all of its memory with its neighbours and the history has no fixed length. Instead,
+ * the oldest versions are dropped once the estimated memory held by the history passes a
+ * limit.
+ * <p>
+ * Changes are committed as one undo step at the end of the pulse they happen in, so a delete
+ * of many atoms or a bond replacement undoes in one go. Drags and layouts span many pulses;
+ * they {@link #hold()} the history while running and commit when {@link #release() released}.
+ * Undo and redo rebuild only the atoms and bonds that differ between the two versions.
+ */
+final class EditHistory {
+
+    /** Default bound on the estimated memory held by past and undone versions. */
+    static final long DEFAULT_MEMORY_LIMIT = 32L << 20;
+
+    /** System property replacing {@link #DEFAULT_MEMORY_LIMIT}, in mebibytes. */
+    static final String MEMORY_LIMIT_PROPERTY = "chemfx.history.limit.mb";
+
+    /** Most bonds that could not be restored to list when reporting them. */
+    private static final int LISTED_FAILURES = 10;
+
+    /** Estimated bytes of a version besides its two maps. */
+    private static final long VERSION_BYTES = 48;
+
+    /** Position and nucleus of an atom; atoms are rebuilt from these. */
+    private record AtomState(int atomicNumber, int neutronNumber, int charge, double x, double y) {
+    }
+
+    /** One version of the canvas. Bond values are orders, boxed from the small integer cache. */
+    private record Version(PersistentLongMap<AtomState> atoms, PersistentLongMap<Integer> bonds) {
+        long unsharedBytes(Version other) {
+            return VERSION_BYTES + atoms.unsharedBytes(other == null ? null : other.atoms)
+                    + bonds.unsharedBytes(other == null ? null : other.bonds);
+        }
+    }
+
+    /** Creates atoms when undo or redo brings them back. */
+    @FunctionalInterface
+    interface AtomFactory {
+        /**
+         * @param atomicNumber  element of the atom
+         * @param neutronNumber neutrons of the atom
+         * @param charge        charge of the atom
+         * @param x             X coordinate of the atom's top-left corner in the canvas
+         * @param y             Y coordinate of the atom's top-left corner in the canvas
+         * @return the new atom, already on the canvas
+         */
+        AtomNode create(int atomicNumber, int neutronNumber, int charge, double x, double y);
+    }
+
+    private static final Map<AtomNode, Integer> ids = new HashMap<>();
+    private static final Map<Integer, AtomNode> nodes = new HashMap<>();
+    private static int nextId = 0;
+
+    /** Committed versions, oldest first, and undone ones, most recently undone first. */
+    private static final Deque<Version> past = new ArrayDeque<>();
+    private static final Deque<Version> undone = new ArrayDeque<>();
+    private static Version committed = new Version(PersistentLongMap.empty(), PersistentLongMap.empty());
+    private static Version current = committed;
+    /** Estimated bytes held by {@link #past} and {@link #undone} beyond the committed version. */
+    private static long historyBytes = 0;
+    private static long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+    private static BondManager bondManager;
+    private static AtomFactory atomFactory;
+    private static int holds = 0;
+    private static boolean commitPending = false;
+    private static boolean restoring = false;
+
+    private EditHistory() {
+    }
+
+    /**
+     * Connects the history to the canvas it restores.
+     *
+     * @param bondManager creates and removes bonds
+     * @param atomFactory creates atoms
+     */
+    static void attach(BondManager bondManager, AtomFactory atomFactory) {
+        EditHistory.bondManager = bondManager;
+        EditHistory.atomFactory = atomFactory;
+    }
+
+    /**
+     * Sets the bound on the estimated memory held by past and undone versions, and drops the
+     * oldest versions beyond it right away.
+     *
+     * @param bytes the bound
+     * @throws IllegalArgumentException if {@code bytes} is negative
+     */
+    static void setMemoryLimit(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Memory limit must not be negative: " + bytes);
+        memoryLimit = bytes;
+        evict();
+    }
+
+    /**
+     * Reads the memory limit to start with from the {@value #MEMORY_LIMIT_PROPERTY} system
+     * property, e.g. {@code -Dchemfx.history.limit.mb=8}.
+     *
+     * @return the limit in bytes, or {@link #DEFAULT_MEMORY_LIMIT} if the property is unset or
+     *         not a non-negative whole number of mebibytes
+     */
+    static long configuredMemoryLimit() {
+        String value = System.getProperty(MEMORY_LIMIT_PROPERTY);
+        if (value == null) return DEFAULT_MEMORY_LIMIT;
+        try {
+            long mebibytes = Long.parseLong(value.trim());
+            if (mebibytes >= 0 && mebibytes <= Long.MAX_VALUE >> 20) return mebibytes << 20;
+        } catch (NumberFormatException malformed) {
+            // fall back to the default below
+        }
+        return DEFAULT_MEMORY_LIMIT;
+    }
+
+    /**
+     * @return estimated bytes held by past and undone versions
+     */
+    static long memoryUsed() {
+        return historyBytes;
+    }
+
+    /**
+     * Forgets every past and undone version, making the canvas as it is the oldest state.
+     */
+    static void clear() {
+        committed = current;
+        past.clear();
+        undone.clear();
+        historyBytes = 0;
+    }
+
+    /* ------------------ Recording ------------------ */
+
+    static void atomAdded(AtomNode atom) {
+        if (restoring) return;
+        int id = nextId++;
+        ids.put(atom, id);
+        nodes.put(id, atom);
+        update(new Version(current.atoms().put(id, new AtomState(atom.getAtom().getAtomicNumber(),
+                atom.getAtom().getNeutronNumber(), atom.getAtom().getCharge(),
+                atom.getAtomGroup().getLayoutX(), atom.getAtomGroup().getLayoutY())), current.bonds()));
+    }
+
+    static void atomMoved(AtomNode atom) {
+        if (restoring) return;
+        Integer id = ids.get(atom);
+        if (id == null) return;
+        AtomState previous = current.atoms().get(id);
+        double x = atom.getAtomGroup().getLayoutX(), y = atom.getAtomGroup().getLayoutY();
+        if (previous == null || (previous.x() == x && previous.y() == y)) return;
+        AtomState state = new AtomState(previous.atomicNumber(), previous.neutronNumber(), previous.charge(), x, y);
+        update(new Version(current.atoms().put(id, state), current.bonds()));
+    }
+
+    static void atomRemoved(AtomNode atom) {
+        if (restoring) return;
+        Integer id = ids.remove(atom);
+        if (id == null) return;
+        nodes.remove(id);
+        update(new Version(current.atoms().remove(id), current.bonds()));
+    }
+
+    /**
+     * @param order the new order, or 0 if the atoms are no longer bonded
+     */
+    static void bondChanged(AtomNode atom1, AtomNode atom2, int order) {
+        if (restoring) return;
+        Integer id1 = ids.get(atom1), id2 = ids.get(atom2);
+        if (id1 == null || id2 == null) return;
+        long key = bondKey(id1, id2);
+        update(new Version(current.atoms(), order == 0 ? current.bonds().remove(key) : current.bonds().put(key, order)));
+    }
+
+    private static long bondKey(int id1, int id2) {
+        return (long) Math.min(id1, id2) << 32 | Math.max(id1, id2);
+    }
+
+    private static void update(Version version) {
+        if (version.atoms() == current.atoms() && version.bonds() == current.bonds()) return;
+        current = version;
+        if (holds == 0) scheduleCommit();
+    }
+
+    /**
+     * Keeps changes from being committed until a matching {@link #release()}, so that a
+     * gesture spanning many pulses undoes as one step.
+     */
+    static void hold() {
+        holds++;
+    }
+
+    /**
+     * Ends a {@link #hold()}; changes made meanwhile are committed at the end of the pulse.
+     */
+    static void release() {
+        if (holds > 0 && --holds == 0) scheduleCommit();
+    }
+
+    private static void scheduleCommit() {
+        if (!commitPending) {
+            commitPending = true;
+            Pulse.later(() -> {
+                commitPending = false;
+                if (holds == 0) commit();
+            });
+        }
+    }
+
+    /** Makes the current version an undo step, if anything changed since the last one. */
+    private static void commit() {
+        if (current == committed) return;
+        for (Version version; (version = undone.pollLast()) != null; ) {
+            historyBytes -= version.unsharedBytes(undone.isEmpty() ? committed : undone.peekLast());
+        }
+        past.addLast(committed);
+        historyBytes += committed.unsharedBytes(current);
+        committed = current;
+        evict();
+    }
+
+    /** Drops the oldest versions until the history fits its memory limit. */
+    private static void evict() {
+        while (historyBytes > memoryLimit && !past.isEmpty()) {
+            Version oldest = past.pollFirst();
+            historyBytes -= oldest.unsharedBytes(past.isEmpty() ? committed : past.peekFirst());
+        }
+        if (past.isEmpty() && undone.isEmpty()) historyBytes = 0;
+    }
+
+    /* ------------------ Undo and redo ------------------ */
+
+    /**
+     * @return whether there is a step to undo
+     */
+    static boolean canUndo() {
+        return !past.isEmpty() || current != committed;
+    }
+
+    /**
+     * @return whether there is a step to redo
+     */
+    static boolean canRedo() {
+        return !undone.isEmpty() && current == committed;
+    }
+
+    /**
+     * Reverts the canvas to the previous step. Changes not yet committed are committed first.
+     * Does nothing during a drag or layout.
+     *
+     * @return whether anything was undone
+     */
+    static boolean undo() {
+        if (holds > 0) return false;
+        commit();
+        Version target = past.pollLast();
+        if (target == null) return false;
+        historyBytes -= target.unsharedBytes(committed);
+        historyBytes += committed.unsharedBytes(target);
+        undone.addFirst(committed);
+        restore(target);
+        return true;
+    }
+
+    /**
+     * Re-applies the most recently undone step.
+     *
+     * @return whether anything was redone
+     */
+    static boolean redo() {
+        if (holds > 0 || current != committed) return false;
+        Version target = undone.pollFirst();
+        if (target == null) return false;
+        historyBytes -= target.unsharedBytes(committed);
+        historyBytes += committed.unsharedBytes(target);
+        past.addLast(committed);
+        restore(target);
+        return true;
+    }
+
+    /**
+     * Changes the canvas to match a version, touching only what differs from the current one:
+     * bonds that differ are removed, then atoms are removed, added and moved, then the bonds
+     * of the target are put back.
+     */
+    private static void restore(Version target) {
+        List<long[]> bonds = new ArrayList<>();
+        List<Long> removedAtoms = new ArrayList<>();
+        Map<Long, AtomState> changedAtoms = new HashMap<>();
+        current.bonds().diff(target.bonds(), (key, before, after) -> bonds.add(new long[]{key, after == null ? 0 : after}));
+        current.atoms().diff(target.atoms(), (key, before, after) -> {
+            if (after == null || (before != null && (before.atomicNumber() != after.atomicNumber()
+                    || before.neutronNumber() != after.neutronNumber() || before.charge() != after.charge()))) {
+                removedAtoms.add(key);
+            }
+            if (after != null) changedAtoms.put(key, after);
+        });
+
+        List<String> unrestored = new ArrayList<>();
+        restoring = true;
+        try {
+            for (long[] bond : bonds) {
+                AtomNode a1 = nodes.get((int) (bond[0] >>> 32)), a2 = nodes.get((int) bond[0]);
+                if (a1 != null && a2 != null) bondManager.setBondOrder(a1, a2, 0);
+            }
+            for (long id : removedAtoms) {
+                AtomNode atom = nodes.remove((int) id);
+                if (atom == null) continue;
+                ids.remove(atom);
+                atom.delete();
+            }
+            for (Map.Entry<Long, AtomState> change : changedAtoms.entrySet()) {
+                int id = change.getKey().intValue();
+                AtomState state = change.getValue();
+                AtomNode atom = nodes.get(id);
+                if (atom == null) {
+                    atom = atomFactory.create(state.atomicNumber(), state.neutronNumber(), state.charge(), state.x(), state.y());
+                    nodes.put(id, atom);
+                    ids.put(atom, id);
+                } else {
+                    atom.getAtomGroup().relocate(state.x(), state.y());
+                    atom.relocated();
+                }
+            }
+            for (long[] bond : bonds) {
+                if (bond[1] == 0) continue;
+                AtomNode a1 = nodes.get((int) (bond[0] >>> 32)), a2 = nodes.get((int) bond[0]);
+                try {
+                    bondManager.setBondOrder(a1, a2, (int) bond[1]);
+                } catch (CovalentBondException e) {
+                    // The version was valid when recorded; report rather than abandon the rest
+                    ValidationFailedEvent.record(e.getMessage(), a1.getAtom().getAtomicNumber(),
+                            a2.getAtom().getAtomicNumber(), (int) bond[1]);
+                    unrestored.add(e.getMessage());
+                }
+            }
+        } finally {
+            restoring = false;
+        }
+        current = target;
+        committed = target;
+        if (!unrestored.isEmpty()) {
+            String listed = String.join("\n", unrestored.subList(0, Math.min(LISTED_FAILURES, unrestored.size())));
+            new Alert(Alert.AlertType.WARNING, "Could not restore " + unrestored.size()
+                    + (unrestored.size() == 1 ? " bond:\n" : " bonds:\n") + listed
+                    + (unrestored.size() > LISTED_FAILURES ? "\n…" : "")).show();
+        }
+    }
+}
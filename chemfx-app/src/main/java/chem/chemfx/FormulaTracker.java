@@ -0,0 +1,63 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.MolecularFormula;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+/**
+ * Keeps the molecular formula and mass of the canvas up to date as atoms and bonds change.
+ * <p>
+ * {@link AtomNode} and {@link Bond} report every change here, so each edit costs O(1) instead
+ * of a walk over all atoms. The summary text is rebuilt at most once per pulse, however many
+ * edits arrive in between.
+ */
+final class FormulaTracker {
+
+    private static final MolecularFormula formula = new MolecularFormula();
+    private static final ReadOnlyStringWrapper summary = new ReadOnlyStringWrapper(format());
+    private static boolean refreshPending = false;
+
+    private FormulaTracker() {
+    }
+
+    static void atomAdded(int atomicNumber, int neutronNumber) {
+        formula.addAtom(atomicNumber, neutronNumber);
+        scheduleRefresh();
+    }
+
+    static void atomRemoved(int atomicNumber, int neutronNumber, int valence) {
+        formula.removeAtom(atomicNumber, neutronNumber, valence);
+        scheduleRefresh();
+    }
+
+    static void valenceChanged(int atomicNumber, int before, int after) {
+        formula.changeValence(atomicNumber, before, after);
+        scheduleRefresh();
+    }
+
+    /**
+     * @return Formula, exact or estimated isotopic mass and average mass of everything on the canvas.
+     */
+    static ReadOnlyStringProperty summaryProperty() {
+        return summary.getReadOnlyProperty();
+    }
+
+    private static void scheduleRefresh() {
+        if (!refreshPending) {
+            refreshPending = true;
+            Pulse.later(() -> {
+                refreshPending = false;
+                summary.set(format());
+            });
+        }
+    }
+
+    private static String format() {
+        if (formula.atomCount() == 0) return "No atoms";
+        // Masses estimated for unmeasured isotopes are only good to a few hundredths of a u
+        String mass = formula.isExactMassMeasured()
+                ? String.format("Exact mass: %.4f u", formula.exactMass())
+                : String.format("Isotopic mass (estimated): %.1f u", formula.exactMass());
+        return String.format("%s%n%s%nAverage mass: %.3f g/mol", formula.hillFormula(), mass, formula.averageMass());
+    }
+}
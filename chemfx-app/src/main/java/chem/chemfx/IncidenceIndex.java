@@ -0,0 +1,75 @@
+package chem.chemfx;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Edges between pairs of nodes, indexed by the unordered pair and by each node, so that
+ * finding the edge between two nodes costs O(1) and listing the edges of a node O(degree).
+ * <p>
+ * Each node maps to its edges keyed by the other node, so every edge is stored under both of
+ * its nodes. A node without edges has no entry.
+ *
+ * @param <N> Type of the nodes; compared by {@code equals}.
+ * @param <E> Type of the edges.
+ */
+final class IncidenceIndex<N, E> {
+
+    private final Map<N, Map<N, E>> incidence = new HashMap<>();
+
+    /**
+     * Adds an edge, replacing any edge already between the two nodes.
+     *
+     * @param node1 the first node
+     * @param node2 the second node
+     * @param edge  the edge between them
+     */
+    void put(N node1, N node2, E edge) {
+        incidence.computeIfAbsent(node1, n -> new HashMap<>(4)).put(node2, edge);
+        incidence.computeIfAbsent(node2, n -> new HashMap<>(4)).put(node1, edge);
+    }
+
+    /**
+     * Removes an edge, if it is still the one between the two nodes.
+     *
+     * @param node1 the first node
+     * @param node2 the second node
+     * @param edge  the edge to remove
+     */
+    void remove(N node1, N node2, E edge) {
+        unlink(node1, node2, edge);
+        unlink(node2, node1, edge);
+    }
+
+    private void unlink(N node, N other, E edge) {
+        Map<N, E> incident = incidence.get(node);
+        if (incident != null && incident.remove(other, edge) && incident.isEmpty()) {
+            incidence.remove(node);
+        }
+    }
+
+    /**
+     * Finds the edge between two nodes.
+     *
+     * @param node1 the first node
+     * @param node2 the second node
+     * @return the edge, or {@code null} if the nodes are not joined
+     */
+    E find(N node1, N node2) {
+        Map<N, E> incident = incidence.get(node1);
+        return incident == null ? null : incident.get(node2);
+    }
+
+    /**
+     * Lists the edges of a node.
+     *
+     * @param node the node
+     * @return an unmodifiable live view of the node's edges
+     */
+    Collection<E> edgesOf(N node) {
+        Map<N, E> incident = incidence.get(node);
+        return incident == null ? Collections.emptyList() : Collections.unmodifiableCollection(incident.values());
+    }
+}
@@ -0,0 +1,95 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.MoleculeGraph;
+import chem.chemfx.atoms.StructureLayout;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Background 2D layout of the atoms on the canvas.
+ * <p>
+ * The template layout is shown as soon as it is ready, then refinement results are pushed to
+ * the atoms every {@value #UPDATE_INTERVAL} iterations. Updates are coalesced: if the FX thread
+ * falls behind, only the newest coordinates are applied.
+ */
+class LayoutTask extends Task<double[]> {
+
+    /** Refinement iterations between updates of the canvas. */
+    private static final int UPDATE_INTERVAL = 10;
+
+    /** Bond length on screen, in pixels. */
+    private static final double BOND_PIXELS = 50;
+
+    private final MoleculeGraph graph;
+    private final List<AtomNode> atoms;
+    private final double width;
+    private final double height;
+
+    /** Coordinates waiting to be applied on the FX thread. */
+    private final AtomicReference<double[]> pending = new AtomicReference<>();
+
+    /**
+     * @param graph  snapshot of the canvas
+     * @param atoms  the atom shown for each atom of the snapshot
+     * @param width  width of the canvas to fit the layout in
+     * @param height height of the canvas to fit the layout in
+     */
+    LayoutTask(MoleculeGraph graph, List<AtomNode> atoms, double width, double height) {
+        this.graph = graph;
+        this.atoms = atoms;
+        this.width = width;
+        this.height = height;
+        setOnSucceeded(event -> apply(getValue()));
+    }
+
+    @Override
+    protected double[] call() {
+        StructureLayout layout = new StructureLayout(graph);
+        double[] coordinates = layout.initialCoordinates();
+        publish(coordinates);
+        return layout.refine(coordinates, StructureLayout.DEFAULT_ITERATIONS, ForkJoinPool.commonPool(),
+                UPDATE_INTERVAL, (current, iteration) -> {
+                    updateProgress(iteration, StructureLayout.DEFAULT_ITERATIONS);
+                    publish(current);
+                }, this::isCancelled);
+    }
+
+    private void publish(double[] coordinates) {
+        if (pending.getAndSet(coordinates) == null) {
+            Platform.runLater(() -> apply(pending.getAndSet(null)));
+        }
+    }
+
+    /**
+     * Moves the atoms to layout coordinates, scaled to the bond length on screen (or less, to
+     * fit) and centered in the canvas. Atoms deleted since the snapshot are skipped.
+     */
+    private void apply(double[] coordinates) {
+        if (coordinates == null || isCancelled()) return;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < atoms.size(); i++) {
+            minX = Math.min(minX, coordinates[2 * i]);
+            maxX = Math.max(maxX, coordinates[2 * i]);
+            minY = Math.min(minY, coordinates[2 * i + 1]);
+            maxY = Math.max(maxY, coordinates[2 * i + 1]);
+        }
+        double margin = 2 * AtomNode.RADIUS;
+        double scale = BOND_PIXELS / StructureLayout.BOND_LENGTH;
+        if (maxX > minX) scale = Math.min(scale, (width - 2 * margin) / (maxX - minX));
+        if (maxY > minY) scale = Math.min(scale, (height - 2 * margin) / (maxY - minY));
+        scale = Math.max(scale, 1e-3);
+        double offsetX = width / 2 - scale * (minX + maxX) / 2;
+        double offsetY = height / 2 - scale * (minY + maxY) / 2;
+
+        for (int i = 0; i < atoms.size(); i++) {
+            AtomNode atom = atoms.get(i);
+            if (!AtomNode.exists(atom)) continue;
+            atom.moveCenterTo(offsetX + scale * coordinates[2 * i], offsetY + scale * coordinates[2 * i + 1]);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.ElementTable;
+import chem.chemfx.atoms.MoleculeGraph;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds ball-and-stick geometry for the 3D view.
+ * <p>
+ * JavaFX has no hardware instancing, and one node per atom does not scale to tens of thousands
+ * of atoms, so every atom of an element is copied into a single {@link TriangleMesh} with one
+ * shared {@link PhongMaterial}; all bonds form one more mesh. The unit sphere and cylinder of
+ * each tessellation level are built once and shared, and their vertices are placed into each
+ * copy. Balls are only moved and scaled, which leaves normals unchanged, so every ball indexes
+ * the sphere's normals directly; sticks are also rotated, so each stick gets its own copy of the
+ * cylinder's normals, rotated into the direction of the bond.
+ * <p>
+ * Meshes may be built off the FX thread and attached later.
+ */
+final class MoleculeMeshes {
+
+    /** Ball radius in Å, and for hydrogen. */
+    static final float ATOM_RADIUS = 0.32f;
+    static final float HYDROGEN_RADIUS = 0.22f;
+
+    /** Stick radius in Å. */
+    static final float BOND_RADIUS = 0.1f;
+
+    private static final ConcurrentHashMap<Integer, Template> spheres = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, Template> cylinders = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, PhongMaterial> materials = new ConcurrentHashMap<>();
+    private static final PhongMaterial bondMaterial = material(Color.rgb(150, 150, 150));
+
+    private MoleculeMeshes() {
+    }
+
+    /**
+     * @param sphereDivisions tessellation of the balls
+     * @return triangles drawn for one ball
+     */
+    static int sphereTriangles(int sphereDivisions) {
+        return sphere(sphereDivisions).faces.length / 9;
+    }
+
+    /**
+     * @param cylinderSides sides of the sticks
+     * @return triangles drawn for one stick
+     */
+    static int cylinderTriangles(int cylinderSides) {
+        return cylinder(cylinderSides).faces.length / 9;
+    }
+
+    /**
+     * Builds one mesh per element holding all of its balls.
+     *
+     * @param graph     the molecule
+     * @param xyz       interleaved atom coordinates in Å
+     * @param divisions sphere tessellation: segments around the equator, at least 4
+     * @return one node per element present
+     */
+    static List<MeshView> atoms(MoleculeGraph graph, float[] xyz, int divisions) {
+        Template sphere = sphere(divisions);
+        int[] perElement = new int[ElementTable.SIZE + 1];
+        for (int i = 0; i < graph.atomCount(); i++) perElement[graph.element(i)]++;
+
+        List<MeshView> views = new ArrayList<>();
+        for (int z = 0; z <= ElementTable.SIZE; z++) {
+            if (perElement[z] == 0) continue;
+            Batch batch = new Batch(sphere, perElement[z], false);
+            float radius = z == 1 ? HYDROGEN_RADIUS : ATOM_RADIUS;
+            for (int i = 0; i < graph.atomCount(); i++) {
+                if (graph.element(i) != z) continue;
+                float x = xyz[3 * i], y = xyz[3 * i + 1], zz = xyz[3 * i + 2];
+                batch.add((px, py, pz, out, o) -> {
+                    out[o] = x + radius * px;
+                    out[o + 1] = y + radius * py;
+                    out[o + 2] = zz + radius * pz;
+                });
+            }
+            MeshView view = new MeshView(batch.mesh());
+            view.setMaterial(materialOf(z));
+            views.add(view);
+        }
+        return views;
+    }
+
+    /**
+     * Builds one mesh holding every bond as a stick between atom centers.
+     *
+     * @param graph the molecule
+     * @param xyz   interleaved atom coordinates in Å
+     * @param sides sides of each stick, at least 3
+     * @return the node
+     */
+    static MeshView bonds(MoleculeGraph graph, float[] xyz, int sides) {
+        Batch batch = new Batch(cylinder(sides), graph.bondCount(), true);
+        for (int i = 0; i < graph.atomCount(); i++) {
+            for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                int j = graph.neighbor(e);
+                if (j < i) continue;
+                float ax = xyz[3 * i], ay = xyz[3 * i + 1], az = xyz[3 * i + 2];
+                float dx = xyz[3 * j] - ax, dy = xyz[3 * j + 1] - ay, dz = xyz[3 * j + 2] - az;
+                float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+                if (length == 0) length = 1e-6f;
+                // Orthonormal frame (u, v, w) with w along the bond
+                float wx = dx / length, wy = dy / length, wz = dz / length;
+                float ux, uy, uz;
+                if (Math.abs(wx) < 0.9f) {
+                    ux = 0; uy = wz; uz = -wy;
+                } else {
+                    ux = -wz; uy = 0; uz = wx;
+                }
+                float un = (float) Math.sqrt(ux * ux + uy * uy + uz * uz);
+                ux /= un; uy /= un; uz /= un;
+                float vx = wy * uz - wz * uy, vy = wz * ux - wx * uz, vz = wx * uy - wy * ux;
+                float fux = ux, fuy = uy, fuz = uz, flen = length;
+                batch.add((px, py, pz, out, o) -> {
+                    float r = BOND_RADIUS;
+                    out[o] = ax + r * (px * fux + py * vx) + pz * flen * wx;
+                    out[o + 1] = ay + r * (px * fuy + py * vy) + pz * flen * wy;
+                    out[o + 2] = az + r * (px * fuz + py * vz) + pz * flen * wz;
+                }, (nx, ny, nz, out, o) -> {
+                    out[o] = nx * fux + ny * vx + nz * wx;
+                    out[o + 1] = nx * fuy + ny * vy + nz * wy;
+                    out[o + 2] = nx * fuz + ny * vz + nz * wz;
+                });
+            }
+        }
+        MeshView view = new MeshView(batch.mesh());
+        view.setMaterial(bondMaterial);
+        return view;
+    }
+
+    /* ------------------ Shared templates and materials ------------------ */
+
+    /**
+     * @param atomicNumber element, or 0 for a wildcard
+     * @return the material shared by every ball of the element
+     */
+    static PhongMaterial materialOf(int atomicNumber) {
+        return materials.computeIfAbsent(atomicNumber, z -> material(colorOf(z)));
+    }
+
+    private static PhongMaterial material(Color color) {
+        PhongMaterial material = new PhongMaterial(color);
+        material.setSpecularColor(Color.rgb(255, 255, 255, 0.6));
+        material.setSpecularPower(24);
+        return material;
+    }
+
+    /** CPK-style colors, grouped like the element colors of the 2D canvas. */
+    private static Color colorOf(int z) {
+        return switch (z) {
+            case 1 -> Color.rgb(235, 235, 235);
+            case 6 -> Color.rgb(80, 80, 80);
+            case 7 -> Color.rgb(48, 80, 248);
+            case 8 -> Color.rgb(255, 13, 13);
+            case 9, 17 -> Color.rgb(144, 224, 80);
+            case 35 -> Color.rgb(166, 41, 41);
+            case 53 -> Color.rgb(148, 0, 148);
+            case 15 -> Color.rgb(255, 128, 0);
+            case 16 -> Color.rgb(255, 255, 48);
+            case 2, 10, 18, 36, 54, 86 -> Color.rgb(0, 190, 190);
+            case 3, 11, 19, 37, 55, 87 -> Color.rgb(140, 75, 255);
+            case 4, 12, 20, 38, 56, 88 -> Color.rgb(0, 160, 40);
+            case 5, 13, 31, 49, 81 -> Color.rgb(200, 150, 120);
+            case 14, 32, 50, 82 -> Color.rgb(140, 140, 170);
+            default -> Color.rgb(255, 20, 147);
+        };
+    }
+
+    /** Unit sphere with {@code divisions} segments around and {@code divisions / 2} from pole to pole. */
+    private static Template sphere(int divisions) {
+        return spheres.computeIfAbsent(Math.max(4, divisions), d -> {
+            int rings = d / 2;
+            int count = 2 + (rings - 1) * d;
+            float[] points = new float[3 * count];
+            points[1] = -1;
+            points[3 * (count - 1) + 1] = 1;
+            for (int r = 1; r < rings; r++) {
+                double polar = Math.PI * r / rings;
+                for (int s = 0; s < d; s++) {
+                    double azimuth = 2 * Math.PI * s / d;
+                    int p = 3 * (1 + (r - 1) * d + s);
+                    points[p] = (float) (Math.sin(polar) * Math.cos(azimuth));
+                    points[p + 1] = (float) -Math.cos(polar);
+                    points[p + 2] = (float) (Math.sin(polar) * Math.sin(azimuth));
+                }
+            }
+            List<int[]> triangles = new ArrayList<>();
+            int last = count - 1;
+            for (int s = 0; s < d; s++) {
+                int t = (s + 1) % d;
+                triangles.add(new int[]{0, 1 + s, 1 + t});
+                triangles.add(new int[]{last, 1 + (rings - 2) * d + t, 1 + (rings - 2) * d + s});
+                for (int r = 1; r < rings - 1; r++) {
+                    int a = 1 + (r - 1) * d + s, b = 1 + (r - 1) * d + t;
+                    int c = 1 + r * d + s, e = 1 + r * d + t;
+                    triangles.add(new int[]{a, c, e});
+                    triangles.add(new int[]{a, e, b});
+                }
+            }
+            // On a unit sphere the normal of each vertex is the vertex itself
+            return new Template(points, points.clone(), triangles);
+        });
+    }
+
+    /** Open cylinder of unit radius along z from 0 to 1; normals point outwards. */
+    private static Template cylinder(int sides) {
+        return cylinders.computeIfAbsent(Math.max(3, sides), k -> {
+            float[] points = new float[3 * 2 * k];
+            float[] normals = new float[3 * 2 * k];
+            for (int s = 0; s < k; s++) {
+                double angle = 2 * Math.PI * s / k;
+                float cx = (float) Math.cos(angle), cy = (float) Math.sin(angle);
+                for (int end = 0; end < 2; end++) {
+                    int p = 3 * (2 * s + end);
+                    points[p] = normals[p] = cx;
+                    points[p + 1] = normals[p + 1] = cy;
+                    points[p + 2] = end;
+                }
+            }
+            List<int[]> triangles = new ArrayList<>();
+            for (int s = 0; s < k; s++) {
+                int a = 2 * s, b = 2 * s + 1, c = 2 * ((s + 1) % k), e = c + 1;
+                triangles.add(new int[]{a, c, e});
+                triangles.add(new int[]{a, e, b});
+            }
+            return new Template(points, normals, triangles);
+        });
+    }
+
+    /**
+     * Unit shape: vertex positions and normals (one per vertex) and faces in
+     * {@link VertexFormat#POINT_NORMAL_TEXCOORD} layout, relative to the template.
+     */
+    private static final class Template {
+        final float[] points;
+        final float[] normals;
+        final int[] faces;
+
+        Template(float[] points, float[] normals, List<int[]> triangles) {
+            this.points = points;
+            this.normals = normals;
+            this.faces = new int[9 * triangles.size()];
+            int f = 0;
+            for (int[] triangle : triangles) {
+                for (int vertex : triangle) {
+                    faces[f++] = vertex; // point, offset per copy
+                    faces[f++] = vertex; // normal, offset per copy if the copies rotate
+                    faces[f++] = 0;      // texture coordinate
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Placement {
+        void place(float px, float py, float pz, float[] out, int offset);
+    }
+
+    /** Accumulates transformed copies of a template into one mesh. */
+    private static final class Batch {
+        private final Template template;
+        private final float[] points;
+
+        /** Normals of each copy, or {@code null} if the copies share the template's. */
+        private final float[] normals;
+        private final int[] faces;
+        private int copies;
+
+        /**
+         * @param template   shape to copy
+         * @param capacity   number of copies
+         * @param ownNormals whether copies are rotated, and so need normals of their own
+         */
+        Batch(Template template, int capacity, boolean ownNormals) {
+            this.template = template;
+            this.points = new float[template.points.length * capacity];
+            this.normals = ownNormals ? new float[template.normals.length * capacity] : null;
+            this.faces = new int[template.faces.length * capacity];
+        }
+
+        /** Adds a copy sharing the template's normals. */
+        void add(Placement placement) {
+            add(placement, null);
+        }
+
+        /** Adds a copy, placing its normals too if the copies have their own. */
+        void add(Placement placement, Placement normalPlacement) {
+            int vertices = template.points.length / 3;
+            int pointBase = copies * template.points.length;
+            for (int v = 0; v < vertices; v++) {
+                placement.place(template.points[3 * v], template.points[3 * v + 1], template.points[3 * v + 2],
+                        points, pointBase + 3 * v);
+            }
+            int normalOffset = 0;
+            if (normals != null) {
+                int count = template.normals.length / 3;
+                int normalBase = copies * template.normals.length;
+                for (int v = 0; v < count; v++) {
+                    normalPlacement.place(template.normals[3 * v], template.normals[3 * v + 1], template.normals[3 * v + 2],
+                            normals, normalBase + 3 * v);
+                }
+                normalOffset = copies * count;
+            }
+            int faceBase = copies * template.faces.length;
+            int vertexOffset = copies * vertices;
+            for (int f = 0; f < template.faces.length; f += 3) {
+                faces[faceBase + f] = template.faces[f] + vertexOffset;
+                faces[faceBase + f + 1] = template.faces[f + 1] + normalOffset;
+                faces[faceBase + f + 2] = 0;
+            }
+            copies++;
+        }
+
+        TriangleMesh mesh() {
+            TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_NORMAL_TEXCOORD);
+            int used = copies;
+            mesh.getPoints().setAll(points, 0, used * template.points.length);
+            if (normals != null) mesh.getNormals().setAll(normals, 0, used * template.normals.length);
+            else mesh.getNormals().setAll(template.normals);
+            mesh.getTexCoords().setAll(0, 0);
+            mesh.getFaces().setAll(faces, 0, used * template.faces.length);
+            return mesh;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package chem.chemfx;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Pane;
+
+import java.util.Arrays;
+
+/**
+ * A panel of live rendering numbers drawn over the compound canvas: frame rate, frame and pulse
+ * times, scene graph size, canvas atom and bond counts and heap in use.
+ * <p>
+ * An {@link AnimationTimer} runs once per pulse and records the time since the previous frame;
+ * a post-layout pulse listener records how long the FX thread spent on the pulse up to the end
+ * of layout, which covers animations, CSS and layout but not rendering, which happens on the
+ * render thread. Both go into fixed rings of the last {@value #FRAMES} frames, so recording a
+ * frame allocates nothing. The text, percentiles and scene graph walk are only redone every
+ * {@value #REFRESH_MILLIS} ms, which keeps the overlay cheap enough to leave on while profiling.
+ * The pulse that styles and lays out the new text is left out of the pulse times, so the overlay
+ * does not measure itself.
+ */
+final class PerformanceOverlay {
+
+    /** Frames kept for the percentiles; a few seconds at 60 fps. */
+    private static final int FRAMES = 256;
+
+    private static final long REFRESH_MILLIS = 500;
+
+    private final Pane container;
+    private final Label label = new Label();
+    private final Ring frameTimes = new Ring(FRAMES);
+    private final Ring pulseTimes = new Ring(FRAMES);
+    private final Runnable pulseEnded = this::pulseEnded;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            frame(now);
+        }
+    };
+
+    private long lastFrame;
+    private long pulseStart;
+    private long lastRefresh;
+    private Scene scene;
+
+    /**
+     * @param container the pane to draw the overlay in, at its top-left corner
+     */
+    PerformanceOverlay(Pane container) {
+        this.container = container;
+        label.getStyleClass().add("performance-overlay");
+        label.setManaged(false);
+        label.setMouseTransparent(true);
+        label.setViewOrder(-1); // above atoms added later
+        label.relocate(8, 8);
+    }
+
+    /**
+     * Shows the overlay if hidden, hides it if shown.
+     */
+    void toggle() {
+        if (isShowing()) hide();
+        else show();
+    }
+
+    boolean isShowing() {
+        return scene != null;
+    }
+
+    /**
+     * Starts sampling and shows the overlay; the numbers fill in after the first refresh.
+     */
+    void show() {
+        if (isShowing() || container.getScene() == null) return;
+        scene = container.getScene();
+        frameTimes.clear();
+        pulseTimes.clear();
+        lastFrame = 0;
+        lastRefresh = 0;
+        label.setText("Sampling…");
+        container.getChildren().add(label);
+        label.applyCss();
+        label.autosize();
+        scene.addPostLayoutPulseListener(pulseEnded);
+        timer.start();
+    }
+
+    /**
+     * Stops sampling and removes the overlay.
+     */
+    void hide() {
+        if (!isShowing()) return;
+        timer.stop();
+        scene.removePostLayoutPulseListener(pulseEnded);
+        container.getChildren().remove(label);
+        scene = null;
+    }
+
+    private void frame(long now) {
+        if (lastFrame != 0) frameTimes.add(now - lastFrame);
+        lastFrame = now;
+        pulseStart = System.nanoTime();
+        if (now - lastRefresh >= REFRESH_MILLIS * 1_000_000) {
+            lastRefresh = now;
+            refresh();
+            pulseStart = 0; // the new text goes through this pulse's CSS and layout passes
+        }
+    }
+
+    private void pulseEnded() {
+        if (pulseStart != 0) pulseTimes.add(System.nanoTime() - pulseStart);
+        pulseStart = 0;
+    }
+
+    private void refresh() {
+        if (frameTimes.size() == 0) return;
+        int nodes = count(scene.getRoot());
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        double meanFrame = frameTimes.mean();
+
+        label.setText(String.format("""
+                        %5.1f fps
+                        frame  p50 %5.1f  p99 %5.1f ms
+                        pulse  p50 %5.1f  p99 %5.1f ms
+                        nodes %d
+                        atoms %d   bonds %d
+                        heap %d / %d MB""",
+                meanFrame > 0 ? 1e9 / meanFrame : 0,
+                frameTimes.percentile(0.5) / 1e6, frameTimes.percentile(0.99) / 1e6,
+                pulseTimes.percentile(0.5) / 1e6, pulseTimes.percentile(0.99) / 1e6,
+                nodes,
+                AtomNode.count(), Bond.bonds.size(),
+                heapUsed >> 20, runtime.maxMemory() >> 20));
+        label.applyCss();
+        label.autosize();
+    }
+
+    /**
+     * @return number of nodes under and including {@code node}
+     */
+    private static int count(Node node) {
+        int nodes = 1;
+        if (node instanceof Parent parent) {
+            for (Node child : parent.getChildrenUnmodifiable()) nodes += count(child);
+        }
+        return nodes;
+    }
+
+    /**
+     * The last values added, in a fixed array, overwriting the oldest once full.
+     */
+    private static final class Ring {
+        private final long[] values;
+        private final long[] sorted;
+        private int next;
+        private int size;
+
+        Ring(int capacity) {
+            values = new long[capacity];
+            sorted = new long[capacity];
+        }
+
+        void add(long value) {
+            values[next] = value;
+            next = (next + 1) % values.length;
+            if (size < values.length) size++;
+        }
+
+        void clear() {
+            next = 0;
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        double mean() {
+            if (size == 0) return 0;
+            long sum = 0;
+            for (int i = 0; i < size; i++) sum += values[i];
+            return (double) sum / size;
+        }
+
+        /** Nearest-rank percentile, or 0 when empty. */
+        long percentile(double p) {
+            if (size == 0) return 0;
+            System.arraycopy(values, 0, sorted, 0, size);
+            Arrays.sort(sorted, 0, size);
+            return sorted[Math.min(size - 1, (int) Math.ceil(p * size) - 1)];
+        }
+    }
+}
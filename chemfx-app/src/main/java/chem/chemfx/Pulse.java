@@ -0,0 +1,40 @@
+package chem.chemfx;
+
+import javafx.application.Platform;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs work deferred to the end of the current pulse.
+ * <p>
+ * {@link EditHistory} and {@link FormulaTracker} coalesce the changes of a pulse into one
+ * commit or refresh scheduled here. By default the work goes to {@link Platform#runLater}; code
+ * that drives atoms and bonds without a running FX thread, such as the benchmarks, sets its own
+ * executor and runs the work on its own thread.
+ */
+public final class Pulse {
+
+    private static volatile Executor executor = Platform::runLater;
+
+    private Pulse() {
+    }
+
+    /**
+     * Replaces the executor that runs end-of-pulse work.
+     *
+     * @param executor runs each task once, after the changes that scheduled it
+     */
+    public static void setExecutor(Executor executor) {
+        Pulse.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Schedules work for the end of the pulse.
+     *
+     * @param task the work
+     */
+    static void later(Runnable task) {
+        executor.execute(task);
+    }
+}
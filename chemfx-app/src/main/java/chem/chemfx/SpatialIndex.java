@@ -0,0 +1,323 @@
+package chem.chemfx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Quadtree of items at points in the plane, answering point, box and nearest-neighbour
+ * queries in time logarithmic in the number of items for evenly spread points.
+ * <p>
+ * Leaves hold up to {@value #LEAF_CAPACITY} items and split when they overflow; a node whose
+ * subtree shrinks back to that size is merged into a leaf again. The root square starts around
+ * the first item and doubles towards any item placed outside it, so the canvas size need not
+ * be known in advance. Moving an item within its leaf only updates its coordinates.
+ *
+ * @param <T> Type of the indexed items; compared by {@code equals}.
+ */
+class SpatialIndex<T> {
+
+    /** Items per leaf before it splits. */
+    private static final int LEAF_CAPACITY = 8;
+
+    /** Depth past which leaves stop splitting, so coincident points cannot recurse forever. */
+    private static final int MAX_DEPTH = 32;
+
+    /** Side of the initial root square. */
+    private static final double INITIAL_SIZE = 1024;
+
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+    private Node<T> root;
+
+    /**
+     * Adds an item, or moves it if it is already indexed.
+     *
+     * @param item the item
+     * @param x    X coordinate
+     * @param y    Y coordinate
+     * @throws IllegalArgumentException if a coordinate is not finite
+     */
+    void put(T item, double x, double y) {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new IllegalArgumentException("Coordinates must be finite: (" + x + ", " + y + ")");
+        }
+        Entry<T> entry = entries.get(item);
+        if (entry != null) {
+            if (entry.leaf.contains(x, y)) {
+                entry.x = x;
+                entry.y = y;
+                return;
+            }
+            detach(entry);
+        } else {
+            entry = new Entry<>(item);
+            entries.put(item, entry);
+        }
+        entry.x = x;
+        entry.y = y;
+        insert(entry);
+    }
+
+    /**
+     * Removes an item.
+     *
+     * @param item the item
+     * @return {@code true} if the item was indexed
+     */
+    boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) return false;
+        detach(entry);
+        return true;
+    }
+
+    /**
+     * @return number of indexed items
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes every item.
+     */
+    void clear() {
+        entries.clear();
+        root = null;
+    }
+
+    /**
+     * Visits every item inside a box, edges included.
+     *
+     * @param minX    left edge
+     * @param minY    top edge
+     * @param maxX    right edge
+     * @param maxY    bottom edge
+     * @param visitor receives each item
+     */
+    void query(double minX, double minY, double maxX, double maxY, Consumer<? super T> visitor) {
+        if (root != null) query(root, minX, minY, maxX, maxY, visitor);
+    }
+
+    private void query(Node<T> node, double minX, double minY, double maxX, double maxY, Consumer<? super T> visitor) {
+        if (node.x0 > maxX || node.y0 > maxY || node.x0 + node.size < minX || node.y0 + node.size < minY) return;
+        if (node.children == null) {
+            for (Entry<T> entry : node.items) {
+                if (entry.x >= minX && entry.x <= maxX && entry.y >= minY && entry.y <= maxY) visitor.accept(entry.item);
+            }
+            return;
+        }
+        for (Node<T> child : node.children) {
+            if (child.count > 0) query(child, minX, minY, maxX, maxY, visitor);
+        }
+    }
+
+    /**
+     * Finds the item closest to a point.
+     *
+     * @param x           X coordinate
+     * @param y           Y coordinate
+     * @param maxDistance how far to look
+     * @return the closest item no further than {@code maxDistance}, or {@code null} if there is none
+     */
+    T nearest(double x, double y, double maxDistance) {
+        if (root == null) return null;
+        Nearest<T> best = new Nearest<>(maxDistance * maxDistance);
+        nearest(root, x, y, best);
+        return best.item;
+    }
+
+    private void nearest(Node<T> node, double x, double y, Nearest<T> best) {
+        if (node.count == 0 || node.distanceSquared(x, y) > best.distanceSquared) return;
+        if (node.children == null) {
+            for (Entry<T> entry : node.items) {
+                double dx = entry.x - x;
+                double dy = entry.y - y;
+                double d = dx * dx + dy * dy;
+                if (d <= best.distanceSquared) {
+                    best.distanceSquared = d;
+                    best.item = entry.item;
+                }
+            }
+            return;
+        }
+        // Visit the child containing the point first, so that the others are usually pruned
+        int first = node.quadrant(x, y);
+        nearest(node.children[first], x, y, best);
+        for (int q = 0; q < 4; q++) {
+            if (q != first) nearest(node.children[q], x, y, best);
+        }
+    }
+
+    /**
+     * Checks whether any item lies within a distance of a point.
+     *
+     * @param x        X coordinate
+     * @param y        Y coordinate
+     * @param distance radius to check
+     * @return {@code true} if an item is no further than {@code distance}
+     */
+    boolean isOccupied(double x, double y, double distance) {
+        return nearest(x, y, distance) != null;
+    }
+
+    /* ------------------ Tree maintenance ------------------ */
+
+    private void insert(Entry<T> entry) {
+        if (root == null) {
+            root = new Node<>(null, entry.x - INITIAL_SIZE / 2, entry.y - INITIAL_SIZE / 2, INITIAL_SIZE, 0);
+        }
+        while (!root.contains(entry.x, entry.y)) grow(entry.x, entry.y);
+
+        Node<T> node = root;
+        while (true) {
+            node.count++;
+            if (node.children == null) break;
+            node = node.children[node.quadrant(entry.x, entry.y)];
+        }
+        node.items.add(entry);
+        entry.leaf = node;
+        if (node.items.size() > LEAF_CAPACITY && node.depth < MAX_DEPTH) split(node);
+    }
+
+    /** Doubles the root square towards a point outside it. */
+    private void grow(double x, double y) {
+        Node<T> old = root;
+        boolean left = x < old.x0;
+        boolean up = y < old.y0;
+        Node<T> grown = new Node<>(null, left ? old.x0 - old.size : old.x0, up ? old.y0 - old.size : old.y0, 2 * old.size, 0);
+        grown.count = old.count;
+        if (old.count > 0) {
+            grown.createChildren();
+            int q = (left ? 1 : 0) | (up ? 2 : 0);
+            old.parent = grown;
+            grown.children[q] = old;
+        }
+        root = grown;
+        shiftDepth(root, 0);
+    }
+
+    private void shiftDepth(Node<T> node, int depth) {
+        node.depth = depth;
+        if (node.children != null) {
+            for (Node<T> child : node.children) shiftDepth(child, depth + 1);
+        }
+    }
+
+    private void split(Node<T> leaf) {
+        leaf.createChildren();
+        for (Entry<T> entry : leaf.items) {
+            Node<T> child = leaf.children[leaf.quadrant(entry.x, entry.y)];
+            child.items.add(entry);
+            child.count++;
+            entry.leaf = child;
+        }
+        leaf.items.clear();
+        for (Node<T> child : leaf.children) {
+            if (child.items.size() > LEAF_CAPACITY && child.depth < MAX_DEPTH) split(child);
+        }
+    }
+
+    private void detach(Entry<T> entry) {
+        Node<T> leaf = entry.leaf;
+        leaf.items.remove(entry);
+        entry.leaf = null;
+        Node<T> merge = null;
+        for (Node<T> node = leaf; node != null; node = node.parent) {
+            node.count--;
+            if (node.children != null && node.count <= LEAF_CAPACITY) merge = node;
+        }
+        if (merge != null) collapse(merge);
+    }
+
+    /** Turns an inner node back into a leaf holding all the items below it. */
+    private void collapse(Node<T> node) {
+        List<Entry<T>> items = new ArrayList<>(node.count);
+        gather(node, items);
+        node.children = null;
+        node.items.clear();
+        node.items.addAll(items);
+        for (Entry<T> entry : items) entry.leaf = node;
+    }
+
+    private void gather(Node<T> node, List<Entry<T>> out) {
+        if (node.children == null) {
+            out.addAll(node.items);
+            return;
+        }
+        for (Node<T> child : node.children) gather(child, out);
+    }
+
+    /* ------------------ Structure ------------------ */
+
+    private static final class Entry<T> {
+        final T item;
+        double x;
+        double y;
+        Node<T> leaf;
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    private static final class Node<T> {
+        Node<T> parent;
+        final double x0;
+        final double y0;
+        final double size;
+        int depth;
+
+        /** Items in this subtree. */
+        int count;
+
+        /** Quadrants indexed by {@code (bottom ? 2 : 0) | (right ? 1 : 0)}, or {@code null} for a leaf. */
+        Node<T>[] children;
+
+        /** Items of a leaf. */
+        final List<Entry<T>> items = new ArrayList<>(LEAF_CAPACITY + 1);
+
+        Node(Node<T> parent, double x0, double y0, double size, int depth) {
+            this.parent = parent;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.size = size;
+            this.depth = depth;
+        }
+
+        @SuppressWarnings("unchecked")
+        void createChildren() {
+            double half = size / 2;
+            children = new Node[4];
+            for (int q = 0; q < 4; q++) {
+                children[q] = new Node<>(this, x0 + ((q & 1) != 0 ? half : 0), y0 + ((q & 2) != 0 ? half : 0), half, depth + 1);
+            }
+        }
+
+        boolean contains(double x, double y) {
+            return x >= x0 && x < x0 + size && y >= y0 && y < y0 + size;
+        }
+
+        int quadrant(double x, double y) {
+            double half = size / 2;
+            return (x >= x0 + half ? 1 : 0) | (y >= y0 + half ? 2 : 0);
+        }
+
+        double distanceSquared(double x, double y) {
+            double dx = Math.max(0, Math.max(x0 - x, x - (x0 + size)));
+            double dy = Math.max(0, Math.max(y0 - y, y - (y0 + size)));
+            return dx * dx + dy * dy;
+        }
+    }
+
+    private static final class Nearest<T> {
+        double distanceSquared;
+        T item;
+
+        Nearest(double distanceSquared) {
+            this.distanceSquared = distanceSquared;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package chem.chemfx;
+
+/**
+ * Prints the milestones of startup, in milliseconds since {@code main} began,
+ * so that time to interactive can be tracked from one build to the next. Lines look like
+ * <pre>
+ *     [startup    412 ms] Loaded chemfx-compound-view.fxml in 268 ms (view-preload-1)
+ * </pre>
+ */
+final class StartupTimer {
+
+    private static final long START = System.nanoTime();
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Prints a milestone.
+     *
+     * @param event what happened
+     */
+    static void mark(String event) {
+        print(event + " (" + Thread.currentThread().getName() + ")");
+    }
+
+    /**
+     * Prints a milestone reached after work that began at {@code since}.
+     *
+     * @param event what happened
+     * @param since {@link System#nanoTime()} when the work began
+     */
+    static void took(String event, long since) {
+        print(event + " in " + millis(since) + " ms (" + Thread.currentThread().getName() + ")");
+    }
+
+    private static void print(String line) {
+        System.out.printf("[startup %6d ms] %s%n", millis(START), line);
+    }
+
+    private static long millis(long since) {
+        return (System.nanoTime() - since) / 1_000_000;
+    }
+}
@@ -0,0 +1,157 @@
+package chem.chemfx;
+
+import chem.chemfx.atoms.CanonicalCache;
+import chem.chemfx.atoms.MoleculeGraph;
+import chem.chemfx.atoms.SubstructureSearch;
+import chem.chemfx.io.SdfReader;
+import chem.chemfx.io.SmilesReader;
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Background search of a SMILES or SD file for the structure drawn on the canvas. Files ending
+ * in {@code .sdf}, {@code .sd} or {@code .mol} are read as SD files, anything else as SMILES.
+ * <p>
+ * The indexed file is kept after a search, so searching the same file again with a different
+ * query skips reading and fingerprinting it, unless its size or modification time has changed.
+ * Records of the same molecule, however numbered, are indexed and matched once, and the
+ * summary for each query is kept in a {@link CanonicalCache} with the file, so searching again
+ * for the same structure skips the search. Indexing stops as soon as the task is cancelled.
+ */
+class SubstructureSearchTask extends Task<String> {
+
+    /** Maximum number of hits to collect. */
+    static final int HIT_LIMIT = 1000;
+
+    /** Maximum number of hits to list in the summary. */
+    private static final int LISTED = 20;
+
+    /**
+     * Last indexed file. Tasks index without holding a lock, so two searches of a new file
+     * started together both read it, and the last to finish is kept.
+     */
+    private static volatile Library library;
+
+    /**
+     * An indexed file.
+     *
+     * @param path      The file.
+     * @param size      Its size when it was read.
+     * @param modified  Its modification time when it was read.
+     * @param search    Its distinct molecules.
+     * @param names     The names of the records of each distinct molecule.
+     * @param records   Number of records read.
+     * @param summaries Summaries of the searches run so far, by query.
+     */
+    private record Library(Path path, long size, FileTime modified, SubstructureSearch search, List<List<String>> names,
+                           int records, CanonicalCache<String> summaries) {
+
+        boolean isOf(Path path, BasicFileAttributes attributes) {
+            return this.path.equals(path) && size == attributes.size() && modified.equals(attributes.lastModifiedTime());
+        }
+    }
+
+    private final Path path;
+    private final MoleculeGraph query;
+
+    /**
+     * @param path  SMILES or SD file to search.
+     * @param query Structure to look for; a snapshot, so later edits do not affect the search.
+     */
+    SubstructureSearchTask(Path path, MoleculeGraph query) {
+        this.path = path;
+        this.query = query;
+    }
+
+    @Override
+    protected String call() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Library indexed = library;
+        if (indexed == null || !indexed.isOf(path, attributes)) {
+            updateMessage("Indexing " + path.getFileName() + "…");
+            List<MoleculeGraph> molecules = new ArrayList<>();
+            List<String> moleculeNames = new ArrayList<>();
+            try {
+                if (isSdFile(path)) {
+                    SdfReader.read(path, entry -> {
+                        if (isCancelled()) throw new CancellationException();
+                        if (entry.molecule() == null) return;
+                        molecules.add(entry.molecule());
+                        moleculeNames.add(entry.name() != null ? entry.name() : "record " + entry.record());
+                    });
+                } else {
+                    SmilesReader.read(path, entry -> {
+                        if (isCancelled()) throw new CancellationException();
+                        if (entry.molecule() == null) return;
+                        molecules.add(entry.molecule());
+                        moleculeNames.add(entry.name() != null ? entry.name() : "line " + entry.line());
+                    });
+                }
+            } catch (CancellationException e) {
+                return null;
+            }
+            if (isCancelled()) return null;
+
+            // Group the records by molecule, so that each distinct one is fingerprinted and matched once
+            int[] first = CanonicalCache.firstOccurrences(molecules, ForkJoinPool.commonPool());
+            List<MoleculeGraph> distinct = new ArrayList<>();
+            List<List<String>> names = new ArrayList<>();
+            int[] group = new int[first.length];
+            for (int i = 0; i < first.length; i++) {
+                if (first[i] == i) {
+                    group[i] = distinct.size();
+                    distinct.add(molecules.get(i));
+                    names.add(new ArrayList<>(1));
+                } else {
+                    group[i] = group[first[i]];
+                }
+                names.get(group[i]).add(moleculeNames.get(i));
+            }
+            if (isCancelled()) return null;
+            indexed = new Library(path, attributes.size(), attributes.lastModifiedTime(), new SubstructureSearch(distinct),
+                    names, molecules.size(), new CanonicalCache<>());
+            library = indexed;
+        }
+
+        String cached = indexed.summaries().get(query);
+        if (cached != null) return cached;
+        SubstructureSearch search = indexed.search();
+        List<List<String>> names = indexed.names();
+
+        updateMessage("Searching " + search.size() + " molecules…");
+        SubstructureSearch.Result result = search.search(query, HIT_LIMIT, ForkJoinPool.commonPool(), this::isCancelled);
+        if (isCancelled()) return null;
+
+        int records = 0;
+        for (SubstructureSearch.Hit hit : result.hits()) records += names.get(hit.index()).size();
+        StringBuilder summary = new StringBuilder();
+        summary.append(records).append(result.complete() ? "" : "+")
+                .append(" of ").append(indexed.records()).append(" records contain the query (")
+                .append(result.hits().size()).append(" of ").append(search.size()).append(" distinct molecules, ")
+                .append(result.screened()).append(" passed the fingerprint screen).");
+        int listed = 0;
+        for (SubstructureSearch.Hit hit : result.hits()) {
+            for (String name : names.get(hit.index())) {
+                if (listed++ < LISTED) summary.append('\n').append(name);
+            }
+        }
+        if (listed > LISTED) summary.append("\n…");
+        indexed.summaries().putIfAbsent(query, summary.toString());
+        return summary.toString();
+    }
+
+    private static boolean isSdFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".sdf") || name.endsWith(".sd") || name.endsWith(".mol");
+    }
+}
@@ -0,0 +1,122 @@
+package chem.chemfx;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * FXML views, each parsed once and kept for the life of the application.
+ * <p>
+ * Views can be {@link #preload preloaded} on background threads, which JavaFX allows for nodes
+ * not yet in a showing window; asking for a view still loading waits for it, and asking for one
+ * never preloaded loads it on the spot. The window of a view is likewise made once, so closing
+ * one only hides it, and reopening it shows it as it was left.
+ */
+final class ViewCache {
+
+    /** Loaded views by FXML file name. */
+    private static final Map<String, CompletableFuture<View>> views = new ConcurrentHashMap<>();
+
+    /** Windows made for views, by FXML file name; used on the FX thread only. */
+    private static final Map<String, Stage> stages = new HashMap<>();
+
+    private record View(Parent root, Object controller) {
+    }
+
+    private ViewCache() {
+    }
+
+    /**
+     * Starts loading a view, unless it is loaded or loading already.
+     *
+     * @param fxml     FXML file name, relative to this package
+     * @param executor executor to load on
+     * @return completes when the view is loaded
+     */
+    static CompletableFuture<?> preload(String fxml, Executor executor) {
+        return views.computeIfAbsent(fxml, name -> CompletableFuture.supplyAsync(() -> load(name), executor));
+    }
+
+    /**
+     * @param fxml FXML file name, relative to this package
+     * @return the root node of the view
+     * @throws IOException if the view could not be loaded
+     */
+    static Parent root(String fxml) throws IOException {
+        return view(fxml).root();
+    }
+
+    /**
+     * @param fxml FXML file name, relative to this package
+     * @param <C>  type of the controller
+     * @return the controller of the view
+     * @throws IOException if the view could not be loaded
+     */
+    @SuppressWarnings("unchecked")
+    static <C> C controller(String fxml) throws IOException {
+        return (C) view(fxml).controller();
+    }
+
+    /**
+     * Returns the window of a view, making it the first time.
+     *
+     * @param fxml  FXML file name, relative to this package
+     * @param title title of the window
+     * @param setup applied to the window when it is made, before it is first shown
+     * @return the window, not necessarily showing
+     * @throws IOException if the view could not be loaded
+     */
+    static Stage stage(String fxml, String title, Consumer<Stage> setup) throws IOException {
+        Stage stage = stages.get(fxml);
+        if (stage == null) {
+            stage = new Stage();
+            stage.setTitle(title);
+            stage.setScene(new Scene(root(fxml)));
+            setup.accept(stage);
+            stages.put(fxml, stage);
+        }
+        return stage;
+    }
+
+    private static View view(String fxml) throws IOException {
+        CompletableFuture<View> future = views.get(fxml);
+        if (future == null) {
+            try {
+                future = CompletableFuture.completedFuture(load(fxml));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            views.put(fxml, future);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            views.remove(fxml, future); // let the next attempt try again
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw e;
+        }
+    }
+
+    private static View load(String fxml) {
+        long start = System.nanoTime();
+        FXMLLoader loader = new FXMLLoader(ChemFXMain.class.getResource(fxml));
+        try {
+            Parent root = loader.load();
+            StartupTimer.took("Loaded " + fxml, start);
+            return new View(root, loader.getController());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
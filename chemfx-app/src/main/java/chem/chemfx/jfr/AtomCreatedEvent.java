@@ -0,0 +1,57 @@
+package chem.chemfx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An atom placed on the canvas, timed from the start of building its node to its registration.
+ */
+@Name("chem.chemfx.AtomCreated")
+@Label("Atom Created")
+@Category({"ChemFX", "Canvas"})
+@Description("An atom placed on the canvas")
+@StackTrace(false)
+public final class AtomCreatedEvent extends Event {
+
+    @Label("Atomic Number")
+    int atomicNumber;
+
+    @Label("X")
+    double x;
+
+    @Label("Y")
+    double y;
+
+    @Label("Atoms")
+    @Description("Atoms on the canvas, this one included")
+    int atomCount;
+
+    /**
+     * @return a started event
+     */
+    public static AtomCreatedEvent start() {
+        AtomCreatedEvent event = new AtomCreatedEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and records it, if recording.
+     *
+     * @param atomicNumber the element of the atom
+     * @param x            the x coordinate of the atom's top-left corner
+     * @param y            the y coordinate of the atom's top-left corner
+     * @param atomCount    atoms on the canvas, this one included
+     */
+    public void end(int atomicNumber, double x, double y, int atomCount) {
+        this.atomicNumber = atomicNumber;
+        this.x = x;
+        this.y = y;
+        this.atomCount = atomCount;
+        commit();
+    }
+}
@@ -0,0 +1,71 @@
+package chem.chemfx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A bond formed, raised in order or removed, timed over the change to the atoms and the bond
+ * registry.
+ */
+@Name("chem.chemfx.BondChanged")
+@Label("Bond Changed")
+@Category({"ChemFX", "Canvas"})
+@Description("A bond formed, raised in order or removed")
+@StackTrace(false)
+public final class BondChangedEvent extends Event {
+
+    /** Values of {@link #change}. */
+    public static final String FORMED = "formed", RAISED = "raised", REMOVED = "removed";
+
+    @Label("Change")
+    String change;
+
+    @Label("First Atomic Number")
+    int atomicNumber1;
+
+    @Label("Second Atomic Number")
+    int atomicNumber2;
+
+    @Label("Previous Order")
+    int previousOrder;
+
+    @Label("Order")
+    int order;
+
+    @Label("Bonds")
+    @Description("Bonds on the canvas after the change")
+    int bondCount;
+
+    /**
+     * @return a started event
+     */
+    public static BondChangedEvent start() {
+        BondChangedEvent event = new BondChangedEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and records it, if recording.
+     *
+     * @param change        {@link #FORMED}, {@link #RAISED} or {@link #REMOVED}
+     * @param atomicNumber1 the element of the first atom
+     * @param atomicNumber2 the element of the second atom
+     * @param previousOrder the order before the change, 0 for a new bond
+     * @param order         the order after the change, 0 for a removed bond
+     * @param bondCount     bonds on the canvas after the change
+     */
+    public void end(String change, int atomicNumber1, int atomicNumber2, int previousOrder, int order, int bondCount) {
+        this.change = change;
+        this.atomicNumber1 = atomicNumber1;
+        this.atomicNumber2 = atomicNumber2;
+        this.previousOrder = previousOrder;
+        this.order = order;
+        this.bondCount = bondCount;
+        commit();
+    }
+}
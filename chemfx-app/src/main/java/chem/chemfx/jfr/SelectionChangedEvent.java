@@ -0,0 +1,46 @@
+package chem.chemfx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An atom selected or deselected, timed over its restyling.
+ */
+@Name("chem.chemfx.SelectionChanged")
+@Label("Selection Changed")
+@Category({"ChemFX", "Canvas"})
+@Description("An atom selected or deselected")
+@StackTrace(false)
+public final class SelectionChangedEvent extends Event {
+
+    @Label("Atomic Number")
+    int atomicNumber;
+
+    @Label("Selected")
+    boolean selected;
+
+    /**
+     * @return a started event
+     */
+    public static SelectionChangedEvent start() {
+        SelectionChangedEvent event = new SelectionChangedEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and records it, if recording.
+     *
+     * @param atomicNumber the element of the atom
+     * @param selected     whether the atom is now selected
+     */
+    public void end(int atomicNumber, boolean selected) {
+        this.atomicNumber = atomicNumber;
+        this.selected = selected;
+        commit();
+    }
+}
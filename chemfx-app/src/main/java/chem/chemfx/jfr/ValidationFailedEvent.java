@@ -0,0 +1,47 @@
+package chem.chemfx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A bond refused because the atoms could not form it, with the stack trace of the attempt.
+ */
+@Name("chem.chemfx.ValidationFailed")
+@Label("Validation Failed")
+@Category({"ChemFX", "Canvas"})
+@Description("A bond the atoms could not form")
+public final class ValidationFailedEvent extends Event {
+
+    @Label("Message")
+    String message;
+
+    @Label("First Atomic Number")
+    int atomicNumber1;
+
+    @Label("Second Atomic Number")
+    int atomicNumber2;
+
+    @Label("Requested Order")
+    int order;
+
+    /**
+     * Records a failure, if recording.
+     *
+     * @param message       why the bond was refused
+     * @param atomicNumber1 the element of the first atom
+     * @param atomicNumber2 the element of the second atom
+     * @param order         the order asked for
+     */
+    public static void record(String message, int atomicNumber1, int atomicNumber2, int order) {
+        ValidationFailedEvent event = new ValidationFailedEvent();
+        if (!event.isEnabled()) return;
+        event.message = message;
+        event.atomicNumber1 = atomicNumber1;
+        event.atomicNumber2 = atomicNumber2;
+        event.order = order;
+        event.commit();
+    }
+}
@@ -2,9 +2,11 @@ module chem.chemfx {
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.graphics;
+    requires jdk.jfr;
+    requires transitive chem.chemfx.core;
 
 
     opens chem.chemfx to javafx.fxml;
     exports chem.chemfx;
-    exports chem.chemfx.atoms;
+    exports chem.chemfx.jfr;
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package chem.chemfx;
+
+import javafx.application.Platform;
+import javafx.scene.layout.Pane;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EditHistoryTest {
+
+    /** End-of-pulse work scheduled since the last pulse. */
+    private static final ArrayDeque<Runnable> pulse = new ArrayDeque<>();
+
+    private final Pane pane = new Pane();
+
+    @BeforeAll
+    static void startToolkit() {
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (IllegalStateException alreadyRunning) {
+            // started by another test in the same JVM
+        }
+        Pulse.setExecutor(pulse::add);
+    }
+
+    @AfterAll
+    static void restorePulse() {
+        Pulse.setExecutor(Platform::runLater);
+    }
+
+    @BeforeEach
+    void setUp() {
+        EditHistory.setMemoryLimit(EditHistory.DEFAULT_MEMORY_LIMIT);
+        EditHistory.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (AtomNode atom : AtomNode.atoms()) atom.delete();
+        endPulse();
+        EditHistory.setMemoryLimit(EditHistory.DEFAULT_MEMORY_LIMIT);
+        EditHistory.clear();
+        System.clearProperty(EditHistory.MEMORY_LIMIT_PROPERTY);
+    }
+
+    @Test
+    void loweringTheLimitDropsTheOldestSteps() {
+        addAtoms(20);
+        long used = EditHistory.memoryUsed();
+        assertTrue(used > 0);
+
+        EditHistory.setMemoryLimit(used / 2);
+        assertTrue(EditHistory.memoryUsed() <= used / 2);
+        int kept = undoAll();
+        assertTrue(kept > 0 && kept < 20, "kept " + kept + " steps");
+
+        // Later steps are held to the lowered limit too
+        addAtoms(20);
+        assertTrue(EditHistory.memoryUsed() <= used / 2);
+        assertTrue(undoAll() < 20);
+    }
+
+    @Test
+    void zeroLimitKeepsNoSteps() {
+        EditHistory.setMemoryLimit(0);
+        addAtoms(5);
+        assertEquals(0, EditHistory.memoryUsed());
+        assertFalse(EditHistory.canUndo());
+    }
+
+    @Test
+    void readsTheLimitFromASystemProperty() {
+        assertEquals(EditHistory.DEFAULT_MEMORY_LIMIT, EditHistory.configuredMemoryLimit());
+        System.setProperty(EditHistory.MEMORY_LIMIT_PROPERTY, "8");
+        assertEquals(8L << 20, EditHistory.configuredMemoryLimit());
+        System.setProperty(EditHistory.MEMORY_LIMIT_PROPERTY, " 0 ");
+        assertEquals(0, EditHistory.configuredMemoryLimit());
+        for (String bad : new String[] {"-1", "lots", "8MB", String.valueOf(Long.MAX_VALUE)}) {
+            System.setProperty(EditHistory.MEMORY_LIMIT_PROPERTY, bad);
+            assertEquals(EditHistory.DEFAULT_MEMORY_LIMIT, EditHistory.configuredMemoryLimit(), bad);
+        }
+    }
+
+    /** Adds atoms one undo step at a time. */
+    private void addAtoms(int count) {
+        for (int i = 0; i < count; i++) {
+            new BohrAtomNode(40 * i, 40, pane, null);
+            endPulse();
+        }
+    }
+
+    private static int undoAll() {
+        int steps = 0;
+        while (EditHistory.undo()) {
+            endPulse();
+            steps++;
+        }
+        return steps;
+    }
+
+    /** Runs the work the last changes scheduled, as the FX thread would after a pulse. */
+    private static void endPulse() {
+        for (Runnable task; (task = pulse.poll()) != null; ) task.run();
+    }
+}
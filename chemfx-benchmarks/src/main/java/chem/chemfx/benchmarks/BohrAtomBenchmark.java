@@ -0,0 +1,130 @@
+package chem.chemfx.benchmarks;
+
+import chem.chemfx.atoms.BohrAtom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of {@link BohrAtom}: construction, orbital filling, ionisation, valence queries
+ * and bonding. Run with the GC profiler (the default of {@link BenchmarkRunner}) to see
+ * allocation per operation alongside the timings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BohrAtomBenchmark {
+
+    /** Atomic number used by the single-element benchmarks: carbon, iron and uranium. */
+    @State(Scope.Thread)
+    public static class Element {
+        @Param({"6", "26", "92"})
+        public int atomicNumber;
+    }
+
+    /** Length of the bonded carbon chain. */
+    @State(Scope.Thread)
+    public static class Chain {
+        @Param({"10", "100"})
+        public int length;
+    }
+
+    /** One atom of every element, both unmutated and with materialized orbitals. */
+    @State(Scope.Thread)
+    public static class PeriodicTable {
+        BohrAtom[] neutral;
+        BohrAtom[] materialized;
+
+        @Setup
+        public void setUp() {
+            neutral = new BohrAtom[118];
+            materialized = new BohrAtom[118];
+            for (int z = 1; z <= 118; z++) {
+                neutral[z - 1] = new BohrAtom(z);
+                materialized[z - 1] = new BohrAtom(z);
+                materialized[z - 1].getOrbitals();
+            }
+        }
+    }
+
+    /** Constructs one neutral atom of each of the 118 elements. */
+    @Benchmark
+    public void constructAllElements(Blackhole blackhole) {
+        for (int z = 1; z <= 118; z++) {
+            blackhole.consume(new BohrAtom(z));
+        }
+    }
+
+    /** Fills the orbitals of a bare nucleus. */
+    @Benchmark
+    public BohrAtom fill(Element element) {
+        BohrAtom atom = new BohrAtom(element.atomicNumber, element.atomicNumber, 0);
+        atom.fill(element.atomicNumber);
+        return atom;
+    }
+
+    /** Removes and then restores two electrons. */
+    @Benchmark
+    public BohrAtom ionise(Element element) {
+        BohrAtom atom = new BohrAtom(element.atomicNumber);
+        atom.ionise(2);
+        atom.ionise(-2);
+        return atom;
+    }
+
+    /** Reads the valence shell of every element. */
+    @Benchmark
+    public void getValenceShell(PeriodicTable table, Blackhole blackhole) {
+        for (BohrAtom atom : table.materialized) {
+            blackhole.consume(atom.getValenceShell());
+        }
+    }
+
+    /** Reads the valence capacity of every element from the shared configuration table. */
+    @Benchmark
+    public int getMaxCapacityValenceShared(PeriodicTable table) {
+        int sum = 0;
+        for (BohrAtom atom : table.neutral) {
+            sum += atom.getMaxCapacityValence();
+        }
+        return sum;
+    }
+
+    /** Reads the valence capacity of every element from materialized orbitals. */
+    @Benchmark
+    public int getMaxCapacityValenceMaterialized(PeriodicTable table) {
+        int sum = 0;
+        for (BohrAtom atom : table.materialized) {
+            sum += atom.getMaxCapacityValence();
+        }
+        return sum;
+    }
+
+    /** Builds a single-bonded carbon chain, then unbonds it again. */
+    @Benchmark
+    public BohrAtom[] bondAndUnbondChain(Chain chain) {
+        BohrAtom[] atoms = new BohrAtom[chain.length];
+        atoms[0] = new BohrAtom(6);
+        for (int i = 1; i < chain.length; i++) {
+            atoms[i] = new BohrAtom(6);
+            atoms[i - 1].bond(atoms[i], 1);
+        }
+        for (int i = 1; i < chain.length; i++) {
+            atoms[i - 1].unbond(atoms[i]);
+        }
+        return atoms;
+    }
+}
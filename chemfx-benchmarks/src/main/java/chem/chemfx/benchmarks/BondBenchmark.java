@@ -0,0 +1,116 @@
+package chem.chemfx.benchmarks;
+
+import chem.chemfx.AtomNode;
+import chem.chemfx.BohrAtomNode;
+import chem.chemfx.Bond;
+import chem.chemfx.Pulse;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Line;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures bond creation and lookup on a canvas where {@code bondCount} other bonds already
+ * exist.
+ * <p>
+ * The existing bonds form a carbon chain. Each operation should cost the same at every bond
+ * count, since {@link Bond} indexes bonds by atom pair instead of scanning the global bond set.
+ * Atoms and bonds are the real ones, so creating a bond includes its formula and edit history
+ * updates. The end-of-pulse work they schedule runs on the benchmark thread through
+ * {@link Pulse}, once per created bond as if each were its own edit, instead of racing the FX
+ * thread; the nodes are never shown, so they may be built off the FX thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BondBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int bondCount;
+
+    /** End-of-pulse work scheduled since the last pulse. */
+    private final ArrayDeque<Runnable> pulse = new ArrayDeque<>();
+
+    /** Two unbonded atoms, bonded and unbonded again by each create invocation. */
+    private AtomNode first;
+    private AtomNode second;
+
+    /** The last two atoms of the chain, joined by the most recently created bond. */
+    private AtomNode chainEnd;
+    private AtomNode chainLast;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FxToolkit.start();
+        Pulse.setExecutor(pulse::add);
+        Pane pane = new Pane();
+
+        AtomNode previous = new BohrAtomNode(0, 0, pane, null);
+        AtomNode next = previous;
+        for (int i = 0; i < bondCount; i++) {
+            previous = next;
+            next = new BohrAtomNode(0, 0, pane, null);
+            new Bond(previous, next, new Line(), null);
+        }
+        chainEnd = previous;
+        chainLast = next;
+
+        first = new BohrAtomNode(0, 0, pane, null);
+        second = new BohrAtomNode(0, 0, pane, null);
+        endPulse();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (Bond bond : new ArrayList<>(Bond.bonds)) {
+            bond.disconnect();
+        }
+        endPulse();
+    }
+
+    /** The same sequence as placing a fresh bond in the editor, then deleting it. */
+    @Benchmark
+    public int createAndDisconnect() {
+        if (Bond.existsFor(first, second)) throw new IllegalStateException();
+        Bond bond = new Bond(first, second, new Line(), null);
+        int order = Bond.getBond(first, second).getOrder();
+        bond.disconnect();
+        endPulse();
+        return order;
+    }
+
+    /** A miss: before indexing this scanned every bond. */
+    @Benchmark
+    public boolean existsForMissing() {
+        return Bond.existsFor(first, chainLast);
+    }
+
+    /** A hit on the newest bond: before indexing this was the worst case of the scan. */
+    @Benchmark
+    public Bond getNewestBond() {
+        return Bond.getBond(chainEnd, chainLast);
+    }
+
+    /** Runs the work the last changes scheduled, as the FX thread would after a pulse. */
+    private void endPulse() {
+        for (Runnable task; (task = pulse.poll()) != null; ) task.run();
+    }
+}
@@ -0,0 +1,75 @@
+package chem.chemfx.benchmarks;
+
+import chem.chemfx.atoms.BondValidationReport;
+import chem.chemfx.atoms.BondValidator;
+import chem.chemfx.atoms.MoleculeGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch bond validation of 100k small molecules at increasing pool sizes, to check that
+ * throughput scales with cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BondValidatorBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private List<MoleculeGraph> molecules;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        byte[] organic = {1, 6, 7, 8, 9, 15, 16, 17};
+        molecules = new ArrayList<>();
+        for (int m = 0; m < 100_000; m++) {
+            int n = 8 + random.nextInt(24);
+            byte[] elements = new byte[n];
+            for (int i = 0; i < n; i++) elements[i] = organic[random.nextInt(organic.length)];
+
+            // A random tree: each atom bonds to one earlier atom
+            int[] bondAtoms = new int[2 * (n - 1)];
+            byte[] bondOrders = new byte[n - 1];
+            for (int i = 1; i < n; i++) {
+                bondAtoms[2 * (i - 1)] = random.nextInt(i);
+                bondAtoms[2 * (i - 1) + 1] = i;
+                bondOrders[i - 1] = (byte) (1 + random.nextInt(3));
+            }
+            molecules.add(MoleculeGraph.of(elements, bondAtoms, bondOrders));
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public BondValidationReport[] validateAll() {
+        return BondValidator.validateAll(molecules, pool);
+    }
+}
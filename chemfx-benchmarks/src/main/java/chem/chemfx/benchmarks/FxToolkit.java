@@ -0,0 +1,26 @@
+package chem.chemfx.benchmarks;
+
+import javafx.application.Platform;
+
+/**
+ * Starts the JavaFX toolkit once per benchmark JVM, so that atom nodes can be created.
+ * Nodes are never attached to a shown scene, so benchmarks may build them off the FX thread.
+ */
+final class FxToolkit {
+
+    private static boolean started;
+
+    private FxToolkit() {
+    }
+
+    static synchronized void start() {
+        if (started) return;
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (IllegalStateException alreadyRunning) {
+            // started by another benchmark in the same JVM
+        }
+        started = true;
+    }
+}
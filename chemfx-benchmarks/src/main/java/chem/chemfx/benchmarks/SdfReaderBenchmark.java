@@ -0,0 +1,86 @@
+package chem.chemfx.benchmarks;
+
+import chem.chemfx.atoms.ElementTable;
+import chem.chemfx.io.SdfReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming SD import of 20k small molecules with coordinates and data items at increasing pool
+ * sizes. Scores are records per second. The file is held in memory, so the score measures
+ * splitting and parsing rather than the disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SdfReaderBenchmark {
+
+    private static final int RECORDS = 20_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private byte[] file;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] organic = {1, 6, 7, 8, 9, 15, 16, 17};
+        StringBuilder sdf = new StringBuilder();
+        for (int m = 0; m < RECORDS; m++) {
+            int n = 8 + random.nextInt(24);
+            sdf.append("CFX-").append(m).append("\n  ChemFX\n\n");
+            sdf.append(String.format(Locale.ROOT, "%3d%3d  0  0  0  0  0  0  0  0999 V2000\n", n, n - 1));
+            for (int i = 0; i < n; i++) {
+                String symbol = ElementTable.byNumber(organic[random.nextInt(organic.length)]).symbol();
+                sdf.append(String.format(Locale.ROOT, "%10.4f%10.4f%10.4f %-3s 0  0  0  0  0  0  0  0  0  0  0  0\n",
+                        random.nextDouble(-10, 10), random.nextDouble(-10, 10), random.nextDouble(-10, 10), symbol));
+            }
+            // A random tree: each atom bonds to one earlier atom
+            for (int i = 1; i < n; i++) {
+                sdf.append(String.format(Locale.ROOT, "%3d%3d%3d  0\n", random.nextInt(i) + 1, i + 1, 1 + random.nextInt(3)));
+            }
+            sdf.append("M  END\n> <ID>\n").append(m).append("\n\n$$$$\n");
+        }
+        file = sdf.toString().getBytes(StandardCharsets.US_ASCII);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long read() throws IOException {
+        long[] atoms = {0};
+        SdfReader.read(Channels.newChannel(new ByteArrayInputStream(file)),
+                entry -> atoms[0] += entry.molecule().atomCount(), pool);
+        return atoms[0];
+    }
+}
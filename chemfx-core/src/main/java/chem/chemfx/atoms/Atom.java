@@ -1,9 +1,7 @@
 package chem.chemfx.atoms;
 
-import javafx.util.Pair;
-
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public interface Atom {
     static String deepToString(int[][] orbitals) {
@@ -40,9 +38,11 @@ public interface Atom {
 
     int getNeutronNumber();
 
+    int getCharge();
+
     int getAtomicNumber();
 
-    ArrayList<Pair<Atom, Integer>> getBondedTo();
+    List<BondEntry> getBondedTo();
 
     Atom alphaDecay();
 
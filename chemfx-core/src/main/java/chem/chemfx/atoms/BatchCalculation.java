@@ -0,0 +1,60 @@
+package chem.chemfx.atoms;
+
+import java.util.List;
+
+/**
+ * A calculation over batches of cases held column by column, such as the fixed
+ * {@link ReactionCalculation}s or the equilibria of an {@link EquilibriumSystem}.
+ * <p>
+ * A batch passes one {@code double[]} per column, indexed by case, and a missing value is
+ * {@code NaN}. Input columns may be missing and output columns are overwritten. A case that
+ * cannot be solved gets {@code NaN} outputs rather than an exception, so one bad case never
+ * stops a batch.
+ */
+public interface BatchCalculation {
+
+    /**
+     * @return Names of the columns, inputs first.
+     */
+    List<String> columns();
+
+    /**
+     * @return Number of leading columns that are inputs.
+     */
+    int inputs();
+
+    /**
+     * Computes the cases {@code [from, to)} of a batch in place.
+     *
+     * @param columns One array per column, in the order of {@link #columns()}.
+     * @param from    First case.
+     * @param to      One past the last case.
+     */
+    void compute(double[][] columns, int from, int to);
+
+    /**
+     * Looks up a column by name, ignoring case.
+     *
+     * @param name Column name.
+     * @return Column number, or -1 if the calculation has no such column.
+     */
+    default int columnOf(String name) {
+        List<String> columns = columns();
+        for (int k = 0; k < columns.size(); k++) {
+            if (columns.get(k).equalsIgnoreCase(name)) return k;
+        }
+        return -1;
+    }
+
+    /**
+     * Computes a single case.
+     *
+     * @param values One value per column, {@code NaN} where missing; outputs are filled in.
+     */
+    default void compute(double[] values) {
+        double[][] batch = new double[values.length][];
+        for (int k = 0; k < values.length; k++) batch[k] = new double[]{values[k]};
+        compute(batch, 0, 1);
+        for (int k = 0; k < values.length; k++) values[k] = batch[k][0];
+    }
+}
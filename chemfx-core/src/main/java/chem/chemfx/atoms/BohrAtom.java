@@ -1,9 +1,8 @@
 package chem.chemfx.atoms;
 
 
-import javafx.util.Pair;
-
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents an atom modeled using the Bohr model with electron orbitals.
@@ -12,20 +11,7 @@ import java.util.ArrayList;
  */
 public class BohrAtom implements Atom {
     /** Array of element names indexed by atomic number - 1. */
-    public static final String[] elementNames = {
-            "Hydrogen", "Helium", "Lithium", "Beryllium", "Boron", "Carbon", "Nitrogen", "Oxygen", "Fluorine", "Neon",
-            "Sodium", "Magnesium", "Aluminium", "Silicon", "Phosphorus", "Sulfur", "Chlorine", "Argon", "Potassium", "Calcium",
-            "Scandium", "Titanium", "Vanadium", "Chromium", "Manganese", "Iron", "Cobalt", "Nickel", "Copper", "Zinc",
-            "Gallium", "Germanium", "Arsenic", "Selenium", "Bromine", "Krypton", "Rubidium", "Strontium", "Yttrium", "Zirconium",
-            "Niobium", "Molybdenum", "Technetium", "Ruthenium", "Rhodium", "Palladium", "Silver", "Cadmium", "Indium", "Tin",
-            "Antimony", "Tellurium", "Iodine", "Xenon", "Cesium", "Barium", "Lanthanum", "Cerium", "Praseodymium", "Neodymium",
-            "Promethium", "Samarium", "Europium", "Gadolinium", "Terbium", "Dysprosium", "Holmium", "Erbium", "Thulium", "Ytterbium",
-            "Lutetium", "Hafnium", "Tantalum", "Tungsten", "Rhenium", "Osmium", "Iridium", "Platinum", "Gold", "Mercury",
-            "Thallium", "Lead", "Bismuth", "Polonium", "Astatine", "Radon", "Francium", "Radium", "Actinium", "Thorium",
-            "Protactinium", "Uranium", "Neptunium", "Plutonium", "Americium", "Curium", "Berkelium", "Californium", "Einsteinium", "Fermium",
-            "Mendelevium", "Nobelium", "Lawrencium", "Rutherfordium", "Dubnium", "Seaborgium", "Bohrium", "Hassium", "Meitnerium", "Darmstadtium",
-            "Roentgenium", "Copernicium", "Nihonium", "Flerovium", "Moscovium", "Livermorium", "Tennessine", "Oganesson"
-    };
+    public static final String[] elementNames = ElementTable.names();
     /** Subshell labels (s, p, d, f). */
     private static final SubShellType[] labels = {
             SubShellType.S,
@@ -73,31 +59,16 @@ public class BohrAtom implements Atom {
      */
 
     /** Array of element symbols indexed by atomic number - 1. */
-    public static String[] elementSymbols = {
-            "H", "He", "Li", "Be", "B", "C", "N", "O", "F", "Ne",
-            "Na", "Mg", "Al", "Si", "P", "S", "Cl", "Ar", "K", "Ca",
-            "Sc", "Ti", "V", "Cr", "Mn", "Fe", "Co", "Ni", "Cu", "Zn",
-            "Ga", "Ge", "As", "Se", "Br", "Kr", "Rb", "Sr", "Y", "Zr",
-            "Nb", "Mo", "Tc", "Ru", "Rh", "Pd", "Ag", "Cd", "In", "Sn",
-            "Sb", "Te", "I", "Xe", "Cs", "Ba", "La", "Ce", "Pr", "Nd",
-            "Pm", "Sm", "Eu", "Gd", "Tb", "Dy", "Ho", "Er", "Tm", "Yb",
-            "Lu", "Hf", "Ta", "W", "Re", "Os", "Ir", "Pt", "Au", "Hg",
-            "Tl", "Pb", "Bi", "Po", "At", "Rn", "Fr", "Ra", "Ac", "Th",
-            "Pa", "U", "Np", "Pu", "Am", "Cm", "Bk", "Cf", "Es", "Fm",
-            "Md", "No", "Lr", "Rf", "Db", "Sg", "Bh", "Hs", "Mt", "Ds",
-            "Rg", "Cn", "Nh", "Fl", "Mc", "Lv", "Ts", "Og"
-    };
+    public static String[] elementSymbols = ElementTable.symbols();
 
-    /** Current electron configuration of the atom. */
-    public int[][] orbitals = {
-            {0},
-            {0, 0},
-            {0, 0, 0},
-            {0, 0, 0, 0},
-            {0, 0, 0, 0},
-            {0, 0, 0},
-            {0, 0}
-    };
+    /**
+     * Current electron configuration of the atom, or {@code null} while the atom still shares
+     * a precomputed row of {@link ElectronConfigurations}.
+     */
+    private int[][] orbitals;
+
+    /** Row of {@link ElectronConfigurations} shared by this atom until it is first mutated, or -1. */
+    private int configuration = -1;
 
     /** Number of neutrons in the atom. */
     private int neutronNumber;
@@ -106,7 +77,7 @@ public class BohrAtom implements Atom {
     private int atomicNumber;
 
     /** List of atoms this atom is covalently bonded to along with bond order. */
-    private final ArrayList<Pair<Atom, Integer>> bondedTo = new ArrayList<>();
+    private final ArrayList<BondEntry> bondedTo = new ArrayList<>();
 
     /** Symbol of the element (e.g., "H" for Hydrogen). */
     private String symbol;
@@ -129,11 +100,12 @@ public class BohrAtom implements Atom {
      * @throws AtomConstructionException if the electron number is invalid.
      */
     public BohrAtom(int atomicNumber, int neutronNumber, int electronNumber) {
+        ElementTable.Element element = ElementTable.byNumber(atomicNumber);
         this.atomicNumber = atomicNumber;
         this.neutronNumber = neutronNumber;
-        this.name = elementNames[atomicNumber];
-        this.symbol = elementSymbols[atomicNumber - 1];
-        fill(electronNumber);
+        this.name = element.name();
+        this.symbol = element.symbol();
+        share(electronNumber);
     }
 
 
@@ -160,36 +132,27 @@ public class BohrAtom implements Atom {
 
 
     /**
-     * Creates a BohrAtom given an element name or symbol.
+     * Creates a BohrAtom given an element name or symbol, ignoring case.
      *
      * @param elementName Name or symbol of the element.
      * @param isName      True if {@code elementName} is a full name, false if it is a symbol.
      * @throws AtomConstructionException if the element name or symbol is not found.
      */
     public BohrAtom(String elementName, boolean isName) {
-        if (isName) {
-            for (int i = 0; i < elementNames.length; i++) {
-                if (elementNames[i].equals(elementName)) {
-                    atomicNumber = i + 1;
-                    neutronNumber = i + 1;
-                    name = elementNames[i];
-                    symbol = elementSymbols[i];
-                    fill(atomicNumber);
-                    break;
-                }
-            }
-        } else {
-            for (int i = 0; i < elementSymbols.length; i++) {
-                if (elementSymbols[i].equals(elementName)) {
-                    atomicNumber = i + 1;
-                    neutronNumber = i + 1;
-                    name = elementNames[i];
-                    symbol = elementSymbols[i];
-                    fill(atomicNumber);
-                    break;
-                }
-            }
-        }
+        this(isName ? ElementTable.byName(elementName) : ElementTable.bySymbol(elementName));
+    }
+
+    /**
+     * Creates a neutral BohrAtom of the given element, with neutrons defaulting to atomic number.
+     *
+     * @param element The element record.
+     */
+    public BohrAtom(ElementTable.Element element) {
+        this.atomicNumber = element.atomicNumber();
+        this.neutronNumber = element.atomicNumber();
+        this.name = element.name();
+        this.symbol = element.symbol();
+        share(atomicNumber);
     }
 
     //UTILITY METHODS
@@ -238,6 +201,15 @@ public class BohrAtom implements Atom {
      *
      */
     public int[][] setup() {
+        return emptyOrbitals();
+    }
+
+    /**
+     * Creates an empty orbital array with one row per shell and one column per subshell.
+     *
+     * @return A new, zero-filled orbital array.
+     */
+    static int[][] emptyOrbitals() {
         return new int[][]{
                 {0},
                 {0, 0},
@@ -249,6 +221,36 @@ public class BohrAtom implements Atom {
         };
     }
 
+    /**
+     * Points this atom at the precomputed configuration for the given electron count,
+     * falling back to filling its own orbitals when the charge state is not tabulated.
+     *
+     * @param electronNumber Number of electrons in the atom.
+     */
+    private void share(int electronNumber) {
+        this.configuration = ElectronConfigurations.indexOf(atomicNumber, electronNumber);
+        if (configuration >= 0) {
+            this.orbitals = null;
+        } else {
+            this.orbitals = setup();
+            fill(electronNumber);
+        }
+    }
+
+    /**
+     * Returns the orbitals of this atom, copying the shared configuration first if needed.
+     * Must be used by every method that mutates the orbitals or lets them escape.
+     *
+     * @return The orbital array owned by this atom.
+     */
+    private int[][] mutableOrbitals() {
+        if (orbitals == null) {
+            orbitals = configuration >= 0 ? ElectronConfigurations.unpack(configuration) : setup();
+            configuration = -1;
+        }
+        return orbitals;
+    }
+
     /**
      * Fills orbitals with electrons using the Aufbau principle, accounting for exceptions to the principle.
      *
@@ -257,6 +259,24 @@ public class BohrAtom implements Atom {
      */
 
     public void fill(int electronNumber) throws AtomConstructionException {
+        try {
+            aufbau(mutableOrbitals(), atomicNumber, electronNumber);
+        } catch (AtomConstructionException e) {
+            this.orbitals = setup();
+            throw e;
+        }
+    }
+
+    /**
+     * Fills the given orbitals with electrons using the Aufbau principle, then applies the
+     * exceptions for the given element.
+     *
+     * @param orbitals       Orbital array to fill.
+     * @param atomicNumber   Atomic number used to select exceptional configurations.
+     * @param electronNumber Number of electrons to place.
+     * @throws AtomConstructionException if orbitals overflow or indices are invalid.
+     */
+    static void aufbau(int[][] orbitals, int atomicNumber, int electronNumber) throws AtomConstructionException {
 
         for (int[] orbital : shellOrder) {
             int n = orbital[0] - 1; // Convert to zero-based index
@@ -264,7 +284,6 @@ public class BohrAtom implements Atom {
 
             // Safety check: Ensure n and l are within bounds
             if (n < 0 || n >= orbitals.length || l < 0 || l >= orbitals[n].length) {
-                this.orbitals = setup();
                 throw new AtomConstructionException("Principal Quantum Number and Angular Momentum Number out of bounds");
             }
 
@@ -278,13 +297,16 @@ public class BohrAtom implements Atom {
         }
 
         // Handle special electron configurations for exceptions
-        applyExceptions();
+        applyExceptions(orbitals, atomicNumber);
     }
 
     /**
      * Adjusts electron configurations for special exceptions (e.g. Cr, Cu, Mo, etc.).
+     *
+     * @param orbitals     Orbital array to adjust.
+     * @param atomicNumber Atomic number of the element.
      */
-    private void applyExceptions() {
+    private static void applyExceptions(int[][] orbitals, int atomicNumber) {
         // Chromium (24) and Molybdenum (42)
         if (atomicNumber == 24 || atomicNumber == 42) {
             orbitals[3][0] = 1; // 4s1
@@ -334,6 +356,7 @@ public class BohrAtom implements Atom {
      * @param electronLoss Positive to remove electrons, negative to add electrons.
      */
     public void ionise(int electronLoss) {
+        int[][] orbitals = mutableOrbitals();
         int electronsToLose = electronLoss;
         int electronsToGain = -electronLoss;
         if (electronLoss > 0) {
@@ -381,8 +404,8 @@ public class BohrAtom implements Atom {
      * @throws CovalentBondException if bonding rules are violated.
      */
     public void bond(Atom other, int bondOrder, boolean needToRecur) throws CovalentBondException {
-        if (bondOrder > 3) throw new CovalentBondException("Bond order cannot be more than 3");
-        if (bondOrder < 1) throw new CovalentBondException("Bond order must be positive");
+        if (bondOrder > 3) throw BondViolation.ORDER_TOO_HIGH.toException();
+        if (bondOrder < 1) throw BondViolation.ORDER_NOT_POSITIVE.toException();
 
         int[] thisValenceShell = this.getValenceShell();
         int[] maxThisValenceShell = this.getMaxValenceShell();
@@ -394,37 +417,29 @@ public class BohrAtom implements Atom {
         int electronsInThis = getNumberOfElectrons(thisValenceShell);
         int electronsInOther = getNumberOfElectrons(otherValenceShell);
 
-        if (electronsInThis < bondOrder) throw new CovalentBondException("Not enough Electrons to bond (this)");
-        if (electronsInOther < bondOrder) throw new CovalentBondException("Not enough Electrons to bond (other)");
+        if (electronsInThis < bondOrder) throw BondViolation.NOT_ENOUGH_ELECTRONS_THIS.toException();
+        if (electronsInOther < bondOrder) throw BondViolation.NOT_ENOUGH_ELECTRONS_OTHER.toException();
 
         if (bondOrder + electronsInThis > thisMaxCapacity)
-            throw new CovalentBondException("Not enough space to bond (this)");
+            throw BondViolation.NOT_ENOUGH_SPACE_THIS.toException();
         if (bondOrder + electronsInOther > otherMaxCapacity)
-            throw new CovalentBondException("Not enough space to bond (other)");
+            throw BondViolation.NOT_ENOUGH_SPACE_OTHER.toException();
 
         // Find existing bond (if any)
-        Pair<Atom, Integer> existing = null;
-        for (Pair<Atom, Integer> p : this.bondedTo) {
-            if (p.getKey() == other) {
-                existing = p;
-                break;
-            }
-        }
+        int existing = indexOfBond(other);
 
-        if (existing != null) {
-            int currentOrder = existing.getValue();
+        if (existing >= 0) {
+            int currentOrder = this.bondedTo.get(existing).order();
             int newOrder = currentOrder + bondOrder;
-            if (newOrder > 3) throw new CovalentBondException("Bond order cannot be more than 3");
+            if (newOrder > 3) throw BondViolation.ORDER_TOO_HIGH.toException();
 
             // Let the other atom accept the increase first (so if it throws, we do not mutate 'this').
             if (needToRecur) {
                 other.bond(this, bondOrder, false);
             }
 
-            // Replace the old Pair with the updated order.
-            // Because javafx.util.Pair is immutable, remove old and add new.
-            this.bondedTo.remove(existing);
-            this.bondedTo.add(new Pair<>(other, newOrder));
+            // Replace the old entry with the updated order.
+            this.bondedTo.set(existing, new BondEntry(other, newOrder));
 
             // Add the extra electrons (only the additional electrons equal to bondOrder).
             this.addElectronsTo(thisValenceShell, maxThisValenceShell, bondOrder);
@@ -435,7 +450,7 @@ public class BohrAtom implements Atom {
                 other.bond(this, bondOrder, false);
             }
 
-            this.bondedTo.add(new Pair<>(other, bondOrder));
+            this.bondedTo.add(new BondEntry(other, bondOrder));
             this.addElectronsTo(thisValenceShell, maxThisValenceShell, bondOrder);
         }
     }
@@ -451,20 +466,27 @@ public class BohrAtom implements Atom {
         // so we don't leave the other with a dangling bond if we throw or fail here.
         if (needToRecur) other.unbond(this, false);
 
-        Pair<Atom, Integer> found = null;
-        for (Pair<Atom, Integer> p : new ArrayList<>(this.bondedTo)) {
-            if (p.getKey() == other) {
-                found = p;
-                break;
-            }
-        }
-        if (found != null) {
-            // remove the electrons contributed by the bond and remove the pair
-            this.ionise(found.getValue());
+        int found = indexOfBond(other);
+        if (found >= 0) {
+            // remove the electrons contributed by the bond and remove the entry
+            this.ionise(this.bondedTo.get(found).order());
             this.bondedTo.remove(found);
         }
     }
 
+    /**
+     * Finds the entry for the bond with another atom.
+     *
+     * @param other The bonded atom.
+     * @return Index into the bond list, or -1 if the atoms are not bonded.
+     */
+    private int indexOfBond(Atom other) {
+        for (int i = 0; i < bondedTo.size(); i++) {
+            if (bondedTo.get(i).atom() == other) return i;
+        }
+        return -1;
+    }
+
 
     /**
      * Removes a bond with another atom (recursive by default).
@@ -487,12 +509,13 @@ public class BohrAtom implements Atom {
      * @throws CovalentBondException if no electrons exist.
      */
     public int[] getValenceShell() {
+        int[][] orbitals = mutableOrbitals();
         for (int i = orbitals.length - 1; i >= 0; i--) {
             if (orbitals[i][0] != 0) {
                 return orbitals[i];
             }
         }
-        throw new CovalentBondException("All shells are empty");
+        throw BondViolation.EMPTY_SHELLS.toException();
     }
 
     /**
@@ -502,12 +525,28 @@ public class BohrAtom implements Atom {
      * @throws CovalentBondException if no electrons exist.
      */
     public int[] getMaxValenceShell() {
-        for (int i = orbitals.length - 1; i >= 0; i--) {
-            if (orbitals[i][0] != 0) {
-                return maxOrbitals[i];
+        return maxOrbitals[valenceShellIndex()];
+    }
+
+    /**
+     * Finds the index of the outermost shell with electrons, reading the shared configuration
+     * directly when the atom has not been mutated.
+     *
+     * @return Zero-based index of the valence shell.
+     * @throws CovalentBondException if no electrons exist.
+     */
+    private int valenceShellIndex() {
+        if (configuration >= 0) {
+            int shell = ElectronConfigurations.valenceShell(configuration);
+            if (shell >= 0) return shell;
+        } else if (orbitals != null) {
+            for (int i = orbitals.length - 1; i >= 0; i--) {
+                if (orbitals[i][0] != 0) {
+                    return i;
+                }
             }
         }
-        throw new CovalentBondException("All shells are empty");
+        throw BondViolation.EMPTY_SHELLS.toException();
     }
 
     public void addElectronsTo(int[] shell, int[] maxCapacity, int electronsToAdd) {
@@ -523,8 +562,17 @@ public class BohrAtom implements Atom {
 
 
     public int getMaxCapacityValence() {
-        int[] valence = getValenceShell();
-        return switch (valence.length) {
+        return shellCapacity(valenceShellIndex());
+    }
+
+    /**
+     * Gets the electron capacity of a shell when it is the valence shell (2, 8, 18 or 32).
+     *
+     * @param shell Zero-based shell index.
+     * @return Maximum number of electrons in the shell.
+     */
+    static int shellCapacity(int shell) {
+        return switch (maxOrbitals[shell].length) {
             case 1 -> 2;
             case 2 -> 8;
             case 3 -> 18;
@@ -538,13 +586,25 @@ public class BohrAtom implements Atom {
     }
 
     public int[][] getOrbitals() {
-        return orbitals;
+        return mutableOrbitals();
     }
 
     public int getNeutronNumber() {
         return neutronNumber;
     }
 
+    /**
+     * Gets the charge of the atom, counting the electrons gained through bonds as shared.
+     *
+     * @return Protons minus the electrons the atom would keep if all its bonds were broken.
+     */
+    public int getCharge() {
+        int shared = 0;
+        for (BondEntry bond : bondedTo) shared += bond.order();
+        int[][] shells = orbitals != null ? orbitals : ElectronConfigurations.unpack(configuration);
+        return atomicNumber - (getNumberOfElectrons(shells) - shared);
+    }
+
     public int getAtomicNumber() {
         return atomicNumber;
     }
@@ -557,15 +617,14 @@ public class BohrAtom implements Atom {
         return symbol;
     }
 
-    public ArrayList<Pair<Atom, Integer>> getBondedTo() {
+    public List<BondEntry> getBondedTo() {
         return bondedTo;
     }
 
     public BohrAtom alphaDecay() {
         atomicNumber -= 2;
         neutronNumber -= 2;
-        this.orbitals = setup();
-        fill(atomicNumber);
+        share(atomicNumber);
         return new BohrAtom(2, 2);
     }
 
@@ -577,8 +636,7 @@ public class BohrAtom implements Atom {
             atomicNumber++;
             neutronNumber--;
         }
-        this.orbitals = setup();
-        fill(atomicNumber);
+        share(atomicNumber);
     }
 
 
@@ -589,7 +647,7 @@ public class BohrAtom implements Atom {
                 "NeutronNumber: "
                 + neutronNumber + "\n" +
                 "Orbitals: \n"
-                + deepToString(orbitals);
+                + deepToString(configuration >= 0 ? ElectronConfigurations.unpack(configuration) : mutableOrbitals());
     }
 
 
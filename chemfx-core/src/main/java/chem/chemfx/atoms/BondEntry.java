@@ -0,0 +1,10 @@
+package chem.chemfx.atoms;
+
+/**
+ * One covalent bond as seen from one of its atoms: the atom at the other end and the bond order.
+ *
+ * @param atom  The bonded atom.
+ * @param order Bond order (1-3).
+ */
+public record BondEntry(Atom atom, int order) {
+}
@@ -0,0 +1,100 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of checking the bonds of one molecule with {@link BondValidator}.
+ * <p>
+ * Valid molecules carry no per-bond data. For invalid ones the violation of each bond is kept
+ * by bond number (see {@link MoleculeGraph}), and {@link #diagnostics()} expands them into
+ * records naming the atoms involved.
+ */
+public final class BondValidationReport {
+
+    /**
+     * One rejected bond.
+     *
+     * @param bond      Bond number in the molecule.
+     * @param atom1     Lower atom number of the bond (the "this" side of the rule).
+     * @param atom2     Higher atom number of the bond (the "other" side of the rule).
+     * @param order     Bond order.
+     * @param violation The rule the bond breaks.
+     */
+    public record Diagnostic(int bond, int atom1, int atom2, int order, BondViolation violation) {
+    }
+
+    private static final BondViolation[] VIOLATIONS = BondViolation.values();
+
+    /** The molecule that was checked. */
+    private final MoleculeGraph molecule;
+
+    /** Violation ordinal + 1 of each bond, 0 for accepted bonds; {@code null} if all were accepted. */
+    private final byte[] violations;
+
+    /** Number of rejected bonds. */
+    private final int violationCount;
+
+    BondValidationReport(MoleculeGraph molecule, byte[] violations, int violationCount) {
+        this.molecule = molecule;
+        this.violations = violations;
+        this.violationCount = violationCount;
+    }
+
+    /**
+     * @return The molecule that was checked.
+     */
+    public MoleculeGraph molecule() {
+        return molecule;
+    }
+
+    /**
+     * @return {@code true} if every bond was accepted.
+     */
+    public boolean isValid() {
+        return violationCount == 0;
+    }
+
+    /**
+     * @return Number of rejected bonds.
+     */
+    public int violationCount() {
+        return violationCount;
+    }
+
+    /**
+     * @param bond Bond number.
+     * @return The rule the bond breaks, or {@code null} if it was accepted.
+     */
+    public BondViolation violation(int bond) {
+        if (violations == null || violations[bond] == 0) return null;
+        return VIOLATIONS[violations[bond] - 1];
+    }
+
+    /**
+     * Lists the rejected bonds in bond-number order.
+     *
+     * @return A new list of diagnostics, empty if the molecule is valid.
+     */
+    public List<Diagnostic> diagnostics() {
+        List<Diagnostic> diagnostics = new ArrayList<>(violationCount);
+        if (violations == null) return diagnostics;
+        int bond = 0;
+        for (int i = 0; i < molecule.atomCount(); i++) {
+            for (int e = molecule.firstEdge(i); e < molecule.endEdge(i); e++) {
+                int j = molecule.neighbor(e);
+                if (j <= i) continue;
+                if (violations[bond] != 0) {
+                    diagnostics.add(new Diagnostic(bond, i, j, molecule.order(e), VIOLATIONS[violations[bond] - 1]));
+                }
+                bond++;
+            }
+        }
+        return diagnostics;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "valid" : violationCount + " invalid bond(s): " + diagnostics();
+    }
+}
@@ -0,0 +1,155 @@
+package chem.chemfx.atoms;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Checks molecule descriptions against the bonding rules of {@link BohrAtom#bond(Atom, int, boolean)}
+ * without building atoms or throwing exceptions.
+ * <p>
+ * Each molecule starts from neutral atoms and its bonds are replayed in bond-number order
+ * (see {@link MoleculeGraph}), the lower-numbered atom taking the "this" side of each rule.
+ * Valence electrons and capacities come from {@link ElectronConfigurations}, and only one counter
+ * per atom is updated per bond. A bond that breaks a rule is reported and skipped, so later bonds
+ * are checked against the state a sequence of {@code bond()} calls would leave after catching
+ * the exception.
+ * <p>
+ * {@link #validateAll} splits a list of molecules across a fork/join pool. Each leaf task reuses
+ * one set of scratch arrays for all of its molecules.
+ */
+public final class BondValidator {
+
+    /** Number of molecules below which a task stops splitting. */
+    private static final int THRESHOLD = 64;
+
+    private BondValidator() {
+    }
+
+    /**
+     * Checks one molecule.
+     *
+     * @param molecule The molecule to check.
+     * @return The report for the molecule.
+     */
+    public static BondValidationReport validate(MoleculeGraph molecule) {
+        return new Scratch().validate(molecule);
+    }
+
+    /**
+     * Checks many molecules in parallel on the common fork/join pool.
+     *
+     * @param molecules The molecules to check.
+     * @return One report per molecule, in the same order.
+     */
+    public static BondValidationReport[] validateAll(List<MoleculeGraph> molecules) {
+        return validateAll(molecules, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Checks many molecules in parallel on the given pool.
+     *
+     * @param molecules The molecules to check.
+     * @param pool      The pool to run on.
+     * @return One report per molecule, in the same order.
+     */
+    public static BondValidationReport[] validateAll(List<MoleculeGraph> molecules, ForkJoinPool pool) {
+        MoleculeGraph[] input = molecules.toArray(new MoleculeGraph[0]);
+        BondValidationReport[] reports = new BondValidationReport[input.length];
+        pool.invoke(new Task(input, reports, 0, input.length));
+        return reports;
+    }
+
+    /**
+     * Validates a range of molecules, splitting it in half until it is small enough.
+     */
+    private static final class Task extends RecursiveAction {
+        private final MoleculeGraph[] molecules;
+        private final BondValidationReport[] reports;
+        private final int from;
+        private final int to;
+
+        Task(MoleculeGraph[] molecules, BondValidationReport[] reports, int from, int to) {
+            this.molecules = molecules;
+            this.reports = reports;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                Scratch scratch = new Scratch();
+                for (int i = from; i < to; i++) {
+                    reports[i] = scratch.validate(molecules[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Task(molecules, reports, from, mid), new Task(molecules, reports, mid, to));
+        }
+    }
+
+    /**
+     * Per-thread electron counters, reused across molecules.
+     */
+    private static final class Scratch {
+        /** Current valence electrons of each atom. */
+        private int[] electrons = new int[64];
+
+        /** Valence shell capacity of each atom; 0 means all shells are empty. */
+        private int[] capacity = new int[64];
+
+        BondValidationReport validate(MoleculeGraph molecule) {
+            int n = molecule.atomCount();
+            if (electrons.length < n) {
+                electrons = new int[n];
+                capacity = new int[n];
+            }
+            for (int i = 0; i < n; i++) {
+                int z = molecule.element(i);
+                if (ElectronConfigurations.contains(z, 0)) {
+                    electrons[i] = ElectronConfigurations.valenceElectrons(z, 0);
+                    capacity[i] = ElectronConfigurations.maxCapacityValence(z, 0);
+                } else {
+                    electrons[i] = 0;
+                    capacity[i] = 0;
+                }
+            }
+
+            byte[] violations = null;
+            int violationCount = 0;
+            int bond = 0;
+            for (int i = 0; i < n; i++) {
+                for (int e = molecule.firstEdge(i); e < molecule.endEdge(i); e++) {
+                    int j = molecule.neighbor(e);
+                    if (j <= i) continue;
+
+                    BondViolation violation = check(i, j, molecule.order(e));
+                    if (violation == null) {
+                        electrons[i] += molecule.order(e);
+                        electrons[j] += molecule.order(e);
+                    } else {
+                        if (violations == null) violations = new byte[molecule.bondCount()];
+                        violations[bond] = (byte) (violation.ordinal() + 1);
+                        violationCount++;
+                    }
+                    bond++;
+                }
+            }
+            return new BondValidationReport(molecule, violations, violationCount);
+        }
+
+        /** Applies the checks of {@code BohrAtom.bond} in the same order. */
+        private BondViolation check(int self, int other, int order) {
+            if (order > 3) return BondViolation.ORDER_TOO_HIGH;
+            if (order < 1) return BondViolation.ORDER_NOT_POSITIVE;
+            if (capacity[self] == 0 || capacity[other] == 0) return BondViolation.EMPTY_SHELLS;
+            if (electrons[self] < order) return BondViolation.NOT_ENOUGH_ELECTRONS_THIS;
+            if (electrons[other] < order) return BondViolation.NOT_ENOUGH_ELECTRONS_OTHER;
+            if (order + electrons[self] > capacity[self]) return BondViolation.NOT_ENOUGH_SPACE_THIS;
+            if (order + electrons[other] > capacity[other]) return BondViolation.NOT_ENOUGH_SPACE_OTHER;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package chem.chemfx.atoms;
+
+/**
+ * The covalent bonding rules enforced by {@link BohrAtom#bond(Atom, int, boolean)}, each with the
+ * message of the {@link CovalentBondException} it raises. {@link BondValidator} reports the same
+ * rules as values instead of exceptions.
+ */
+public enum BondViolation {
+    ORDER_TOO_HIGH("Bond order cannot be more than 3"),
+    ORDER_NOT_POSITIVE("Bond order must be positive"),
+    NOT_ENOUGH_ELECTRONS_THIS("Not enough Electrons to bond (this)"),
+    NOT_ENOUGH_ELECTRONS_OTHER("Not enough Electrons to bond (other)"),
+    NOT_ENOUGH_SPACE_THIS("Not enough space to bond (this)"),
+    NOT_ENOUGH_SPACE_OTHER("Not enough space to bond (other)"),
+    EMPTY_SHELLS("All shells are empty");
+
+    private final String message;
+
+    BondViolation(String message) {
+        this.message = message;
+    }
+
+    /**
+     * @return The message used when this rule is violated.
+     */
+    public String message() {
+        return message;
+    }
+
+    /**
+     * @return A new exception describing this violation.
+     */
+    public CovalentBondException toException() {
+        return new CovalentBondException(message);
+    }
+}
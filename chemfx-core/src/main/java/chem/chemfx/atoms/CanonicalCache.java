@@ -0,0 +1,134 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Thread-safe cache of per-molecule results, keyed by {@link MoleculeHash} so that every
+ * numbering of the same molecule shares one entry. Batch imports and repeated analyses use it
+ * to skip molecules they have already seen.
+ * <p>
+ * Keys are 128-bit hashes rather than graphs; two different molecules sharing an entry is
+ * possible in principle but negligibly unlikely.
+ *
+ * @param <V> Type of the cached results.
+ */
+public final class CanonicalCache<V> {
+
+    private final ConcurrentHashMap<MoleculeHash, V> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the cached result for a molecule, computing it if absent. The computation runs
+     * outside any lock, so concurrent callers may compute the same molecule twice; the first
+     * stored result wins and is returned to both.
+     *
+     * @param graph   The molecule.
+     * @param compute Computes the result; must not return {@code null}.
+     * @return The cached result.
+     */
+    public V computeIfAbsent(MoleculeGraph graph, Function<? super MoleculeGraph, ? extends V> compute) {
+        MoleculeHash key = MoleculeHash.of(graph);
+        V value = entries.get(key);
+        if (value != null) return value;
+        value = compute.apply(graph);
+        V previous = entries.putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    /**
+     * @param graph The molecule.
+     * @return The cached result, or {@code null} if the molecule has not been seen.
+     */
+    public V get(MoleculeGraph graph) {
+        return entries.get(MoleculeHash.of(graph));
+    }
+
+    /**
+     * Stores a result unless the molecule already has one.
+     *
+     * @param graph The molecule.
+     * @param value The result.
+     * @return The result already cached, or {@code null} if {@code value} was stored.
+     */
+    public V putIfAbsent(MoleculeGraph graph, V value) {
+        return entries.putIfAbsent(MoleculeHash.of(graph), value);
+    }
+
+    /**
+     * @param graph The molecule.
+     * @return Whether the molecule has a cached result.
+     */
+    public boolean contains(MoleculeGraph graph) {
+        return entries.containsKey(MoleculeHash.of(graph));
+    }
+
+    /**
+     * @return Number of distinct molecules cached.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Forgets every molecule.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Removes repeated molecules from a list, hashing on the common pool.
+     *
+     * @param graphs The molecules.
+     * @return The first occurrence of each distinct molecule, in list order.
+     * @see #distinct(List, ForkJoinPool)
+     */
+    public static List<MoleculeGraph> distinct(List<MoleculeGraph> graphs) {
+        return distinct(graphs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Removes repeated molecules from a list.
+     *
+     * @param graphs The molecules.
+     * @param pool   Pool to hash on.
+     * @return The first occurrence of each distinct molecule, in list order.
+     * @see #firstOccurrences(List, ForkJoinPool)
+     */
+    public static List<MoleculeGraph> distinct(List<MoleculeGraph> graphs, ForkJoinPool pool) {
+        int[] first = firstOccurrences(graphs, pool);
+        List<MoleculeGraph> unique = new ArrayList<>();
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] == i) unique.add(graphs.get(i));
+        }
+        return unique;
+    }
+
+    /**
+     * Finds where each molecule of a list first occurs in it. Hashes are computed in parallel;
+     * the matching pass is sequential, so the result does not depend on scheduling.
+     *
+     * @param graphs The molecules.
+     * @param pool   Pool to hash on.
+     * @return For each molecule, the index of the first molecule in the list that is the same;
+     * its own index if it is the first.
+     */
+    public static int[] firstOccurrences(List<MoleculeGraph> graphs, ForkJoinPool pool) {
+        MoleculeHash[] hashes = new MoleculeHash[graphs.size()];
+        pool.submit(() -> IntStream.range(0, hashes.length).parallel()
+                .forEach(i -> hashes[i] = MoleculeHash.of(graphs.get(i)))).join();
+
+        HashMap<MoleculeHash, Integer> seen = HashMap.newHashMap(hashes.length);
+        int[] first = new int[hashes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            Integer earlier = seen.putIfAbsent(hashes[i], i);
+            first[i] = earlier != null ? earlier : i;
+        }
+        return first;
+    }
+}
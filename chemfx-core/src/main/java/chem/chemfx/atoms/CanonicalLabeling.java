@@ -0,0 +1,341 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Numbers the atoms of a {@link MoleculeGraph} independently of the order they were entered in,
+ * so that the same molecule always gets the same numbering.
+ * <p>
+ * Ranking follows the Morgan scheme:
+ * <ol>
+ *     <li>Atoms are first ranked by element, degree and total bond order.</li>
+ *     <li>Ranks are refined repeatedly: atoms of equal rank are split by the sorted list of
+ *     (neighbour rank, {@link MoleculeGraph#orderClass(int) order class}) pairs, until no class
+ *     splits any more.</li>
+ *     <li>If atoms are still tied, the lowest tied class is broken by promoting one atom ahead
+ *     of the rest of its class, and refinement resumes.</li>
+ * </ol>
+ * Refinement alone does not tell apart every pair of atoms that no automorphism swaps (every
+ * atom of {@code C1CC1.C1CCCCC1} has the same neighbourhood), so which atom is promoted can
+ * change the result. Every atom of the tied class is therefore tried in turn, recursively,
+ * and the numbering whose {@link #canonicalBonds bond list} is smallest wins. The search is
+ * pruned with the automorphisms it finds along the way: a numbering that gives the same bond
+ * list as the first one found is an automorphism, and atoms it swaps need not be tried twice.
+ * Molecules without ties beyond what refinement resolves have a single numbering to try.
+ * Bonds enter by order class
+ * rather than order, and an atom's total bond order is the same in every Kekulé structure, so
+ * different Kekulé structures of a molecule get the same ranks. The canonical structure is
+ * exposed as a {@link #canonicalString(MoleculeGraph) string} and as a 128-bit
+ * {@link MoleculeHash}.
+ */
+public final class CanonicalLabeling {
+
+    private CanonicalLabeling() {
+    }
+
+    /**
+     * Computes canonical ranks.
+     *
+     * @param graph The molecule.
+     * @return A permutation: the canonical position {@code 0..atomCount()-1} of each atom.
+     */
+    public static int[] ranks(MoleculeGraph graph) {
+        return new Refiner(graph).run();
+    }
+
+    /**
+     * Lists the bonds in canonical form: each bond packed as
+     * {@code (lower rank << 36) | (higher rank << 8) | order class}, sorted ascending.
+     *
+     * @param graph The molecule.
+     * @param ranks Canonical ranks from {@link #ranks(MoleculeGraph)}.
+     * @return The packed bonds.
+     */
+    static long[] canonicalBonds(MoleculeGraph graph, int[] ranks) {
+        long[] bonds = new long[graph.bondCount()];
+        int b = 0;
+        for (int i = 0; i < graph.atomCount(); i++) {
+            for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                int j = graph.neighbor(e);
+                if (j < i) continue;
+                long low = Math.min(ranks[i], ranks[j]);
+                long high = Math.max(ranks[i], ranks[j]);
+                bonds[b++] = low << 36 | high << 8 | graph.orderClass(e);
+            }
+        }
+        Arrays.sort(bonds);
+        return bonds;
+    }
+
+    /**
+     * Writes a canonical string for a molecule: the element symbols in canonical order, then
+     * the bonds between canonical positions, e.g. {@code "CCO;0-1,1-2"} for ethanol. Double,
+     * triple and quadruple bonds are written with {@code =}, {@code #} and {@code $},
+     * {@link MoleculeGraph#AROMATIC} bonds with {@code :}, and wildcard atoms as {@code *};
+     * other orders are written as {@code ~n~}. Two graphs of the same molecule give the same
+     * string, however their atoms are numbered and whichever Kekulé structure they carry.
+     *
+     * @param graph The molecule.
+     * @return The canonical string.
+     */
+    public static String canonicalString(MoleculeGraph graph) {
+        int[] ranks = ranks(graph);
+        int n = graph.atomCount();
+        int[] byRank = new int[n];
+        for (int i = 0; i < n; i++) byRank[ranks[i]] = i;
+
+        StringBuilder out = new StringBuilder(4 * n + 8 * graph.bondCount());
+        for (int r = 0; r < n; r++) {
+            int z = graph.element(byRank[r]);
+            out.append(z == 0 ? "*" : ElementTable.byNumber(z).symbol());
+        }
+        out.append(';');
+        long[] bonds = canonicalBonds(graph, ranks);
+        for (int b = 0; b < bonds.length; b++) {
+            if (b > 0) out.append(',');
+            int order = (int) (bonds[b] & 0xFF);
+            out.append(bonds[b] >>> 36);
+            if (order >= 1 && order <= 4) out.append("-=#$".charAt(order - 1));
+            else if (order == MoleculeGraph.AROMATIC) out.append(':');
+            else out.append('~').append(order).append('~');
+            out.append((bonds[b] >>> 8) & 0xFFFFFFF);
+        }
+        return out.toString();
+    }
+
+    /** Scratch state of one ranking run. */
+    private static final class Refiner {
+
+        private final MoleculeGraph graph;
+        private final int n;
+
+        /** Current dense rank of each atom. */
+        private final int[] rank;
+
+        /** Atoms sorted by rank. */
+        private final int[] order;
+
+        /** Sort scratch. */
+        private final int[] buffer;
+
+        /** Sorted (neighbour rank, order class) signatures, laid out like the graph's edge slots. */
+        private final long[] signatures;
+
+        /** Atom promoted at each level of the search. */
+        private final int[] path;
+
+        /** Atoms promoted on the way to the first numbering found. */
+        private int[] firstPath;
+
+        /** First numbering found, and its bond list. */
+        private int[] firstRank;
+        private long[] firstBonds;
+
+        /** Numbering with the smallest bond list so far, and that list. */
+        private int[] bestRank;
+        private long[] bestBonds;
+
+        /** Automorphisms found, each mapping an atom to its image. */
+        private final List<int[]> automorphisms = new ArrayList<>();
+
+        Refiner(MoleculeGraph graph) {
+            this.graph = graph;
+            this.n = graph.atomCount();
+            this.rank = new int[n];
+            this.order = new int[n];
+            this.buffer = new int[n];
+            this.signatures = new long[2 * graph.bondCount()];
+            this.path = new int[n];
+        }
+
+        int[] run() {
+            if (n == 0) return rank;
+
+            long[] invariants = new long[n];
+            for (int i = 0; i < n; i++) {
+                int valence = 0;
+                for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) valence += graph.order(e);
+                invariants[i] = (long) graph.element(i) << 40 | (long) graph.degree(i) << 20 | valence;
+                order[i] = i;
+            }
+            sort((a, b) -> Long.compare(invariants[a], invariants[b]));
+            int classes = assign((a, b) -> Long.compare(invariants[a], invariants[b]));
+
+            search(0, classes, true);
+            return bestRank;
+        }
+
+        /**
+         * Refines, then either records the numbering reached or tries each atom of the lowest
+         * tied class in turn.
+         *
+         * @param level   Number of atoms promoted so far.
+         * @param classes Number of classes before refining.
+         * @param first   Whether every atom promoted so far was on the way to the first numbering.
+         * @return The level to resume trying atoms at, or {@code level} and more to carry on.
+         */
+        private int search(int level, int classes, boolean first) {
+            classes = refine(classes);
+            if (classes == n) return leaf(level);
+
+            int k = 0;
+            while (rank[order[k]] != rank[order[k + 1]]) k++;
+            int tied = rank[order[k]];
+            int size = 1;
+            while (k + size < n && rank[order[k + size]] == tied) size++;
+            int[] cell = Arrays.copyOfRange(order, k, k + size);
+            int[] saved = rank.clone();
+
+            for (int t = 0; t < cell.length; t++) {
+                if (first && t > 0 && sameOrbit(level, cell, t)) continue;
+                System.arraycopy(saved, 0, rank, 0, n);
+                int chosen = cell[t];
+                path[level] = chosen;
+                for (int i = 0; i < n; i++) {
+                    if (rank[i] > tied || (rank[i] == tied && i != chosen)) rank[i]++;
+                }
+                int resume = search(level + 1, classes + 1, first && t == 0);
+                if (resume < level) return resume;
+            }
+            return level;
+        }
+
+        /** Compares a complete numbering with the best so far. */
+        private int leaf(int level) {
+            long[] bonds = canonicalBonds(graph, rank);
+            if (firstRank == null) {
+                firstPath = Arrays.copyOf(path, level);
+                firstRank = rank.clone();
+                firstBonds = bonds;
+                bestRank = firstRank;
+                bestBonds = bonds;
+                return level;
+            }
+            if (Arrays.equals(bonds, firstBonds)) {
+                // Everything below where this path left the first one maps onto what is already tried
+                automorphisms.add(mapping(firstRank));
+                int common = 0;
+                while (common < level && path[common] == firstPath[common]) common++;
+                return common;
+            }
+            int c = Arrays.compare(bonds, bestBonds);
+            if (c < 0) {
+                bestRank = rank.clone();
+                bestBonds = bonds;
+            } else if (c == 0) {
+                automorphisms.add(mapping(bestRank));
+            }
+            return level;
+        }
+
+        /** The automorphism taking each atom to the one at its position in the current numbering. */
+        private int[] mapping(int[] from) {
+            int[] byRank = new int[n];
+            for (int i = 0; i < n; i++) byRank[rank[i]] = i;
+            int[] image = new int[n];
+            for (int i = 0; i < n; i++) image[i] = byRank[from[i]];
+            return image;
+        }
+
+        /**
+         * Whether an automorphism fixing the atoms promoted on the first path above
+         * {@code level} takes {@code cell[t]} to an atom tried before it.
+         */
+        private boolean sameOrbit(int level, int[] cell, int t) {
+            int[] parent = new int[n];
+            for (int i = 0; i < n; i++) parent[i] = i;
+            for (int[] image : automorphisms) {
+                boolean fixes = true;
+                for (int l = 0; l < level && fixes; l++) fixes = image[firstPath[l]] == firstPath[l];
+                if (!fixes) continue;
+                for (int i = 0; i < n; i++) {
+                    int a = root(parent, i), b = root(parent, image[i]);
+                    if (a != b) parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+            int orbit = root(parent, cell[t]);
+            for (int u = 0; u < t; u++) {
+                if (root(parent, cell[u]) == orbit) return true;
+            }
+            return false;
+        }
+
+        private static int root(int[] parent, int i) {
+            while (parent[i] != i) i = parent[i] = parent[parent[i]];
+            return i;
+        }
+
+        /** Splits classes by neighbour signatures until the number of classes stops growing. */
+        private int refine(int classes) {
+            while (true) {
+                for (int i = 0; i < n; i++) {
+                    int first = graph.firstEdge(i);
+                    int end = graph.endEdge(i);
+                    for (int e = first; e < end; e++) {
+                        signatures[e] = (long) rank[graph.neighbor(e)] << 8 | graph.orderClass(e);
+                    }
+                    Arrays.sort(signatures, first, end);
+                }
+                sort(this::compareRefined);
+                int refined = assign(this::compareRefined);
+                if (refined == classes) return classes;
+                classes = refined;
+            }
+        }
+
+        /**
+         * Orders atoms by current rank, then by signature. Equal ranks imply equal degrees, since
+         * the initial ranking separates degrees and ranks are only ever split.
+         */
+        private int compareRefined(int a, int b) {
+            int c = Integer.compare(rank[a], rank[b]);
+            if (c != 0) return c;
+            int ea = graph.firstEdge(a);
+            int eb = graph.firstEdge(b);
+            for (int t = 0; t < graph.degree(a); t++) {
+                c = Long.compare(signatures[ea + t], signatures[eb + t]);
+                if (c != 0) return c;
+            }
+            return 0;
+        }
+
+        /** Assigns dense ranks along {@link #order}, which must be sorted by {@code cmp}. */
+        private int assign(AtomComparator cmp) {
+            int classes = 1;
+            buffer[order[0]] = 0;
+            for (int k = 1; k < n; k++) {
+                if (cmp.compare(order[k - 1], order[k]) != 0) classes++;
+                buffer[order[k]] = classes - 1;
+            }
+            System.arraycopy(buffer, 0, rank, 0, n);
+            return classes;
+        }
+
+        /** Stable bottom-up merge sort of {@link #order}, avoiding boxed comparators. */
+        private void sort(AtomComparator cmp) {
+            int[] src = order;
+            int[] dst = buffer;
+            for (int width = 1; width < n; width <<= 1) {
+                for (int lo = 0; lo < n; lo += 2 * width) {
+                    int mid = Math.min(lo + width, n);
+                    int hi = Math.min(lo + 2 * width, n);
+                    int i = lo, j = mid, k = lo;
+                    while (i < mid && j < hi) dst[k++] = cmp.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+                    while (i < mid) dst[k++] = src[i++];
+                    while (j < hi) dst[k++] = src[j++];
+                }
+                int[] t = src;
+                src = dst;
+                dst = t;
+            }
+            if (src != order) System.arraycopy(src, 0, order, 0, n);
+        }
+    }
+
+    @FunctionalInterface
+    private interface AtomComparator {
+        int compare(int a, int b);
+    }
+}
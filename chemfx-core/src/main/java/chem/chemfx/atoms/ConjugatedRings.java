@@ -0,0 +1,159 @@
+package chem.chemfx.atoms;
+
+import java.util.Arrays;
+
+/**
+ * Finds the bonds whose order depends on which Kekulé structure a molecule was written in, for
+ * {@link MoleculeGraph#orderClass(int)}.
+ * <p>
+ * Atoms with exactly one double bond, to another such atom, take part; their double bonds form a
+ * perfect matching M of them. Any other Kekulé structure of the molecule differs from this one
+ * by swapping single and double bonds around M-alternating cycles, so a bond changes order
+ * between structures exactly when it lies on such a cycle. A cycle through the single bond
+ * {@code u–w} goes on along the double bond from {@code w} to its mate {@code w'}, so the
+ * alternating cycles are the directed cycles of the graph with an arc {@code u → w'} for each
+ * single bond {@code u–w} between taking part atoms: the bond lies on one exactly when {@code u}
+ * and {@code w'} are in the same strongly connected component. A double bond lies on one exactly
+ * when a single bond next to it does.
+ * <p>
+ * Since switching a cycle keeps every atom at one double bond, any Kekulé structure of a
+ * molecule gives the same classes, and the classes do not depend on atom numbering.
+ */
+final class ConjugatedRings {
+
+    private ConjugatedRings() {
+    }
+
+    /**
+     * Classifies the edge slots of a graph.
+     *
+     * @param graph  The molecule.
+     * @param orders Bond order of each edge slot of the graph.
+     * @return The class of each edge slot; {@code orders} itself if no bond alternates.
+     */
+    static byte[] classify(MoleculeGraph graph, byte[] orders) {
+        int n = graph.atomCount();
+        // Mate of each taking part atom across its double bond, or -1
+        int[] mates = new int[n];
+        boolean any = false;
+        for (int i = 0; i < n; i++) {
+            mates[i] = -1;
+            for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                if (orders[e] != 2) continue;
+                if (mates[i] != -1) {
+                    mates[i] = -2; // cumulated
+                    break;
+                }
+                mates[i] = graph.neighbor(e);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (mates[i] >= 0 && mates[mates[i]] != i) mates[i] = -1;
+            else if (mates[i] == -2) mates[i] = -1;
+            any |= mates[i] >= 0;
+        }
+        if (!any) return orders;
+
+        int[] components = new Components(graph, orders, mates).run();
+        byte[] classes = null;
+        boolean[] alternating = new boolean[n];
+        for (int u = 0; u < n; u++) {
+            if (mates[u] < 0) continue;
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int w = graph.neighbor(e);
+                if (orders[e] != 1 || mates[w] < 0 || components[u] != components[mates[w]]) continue;
+                if (classes == null) classes = Arrays.copyOf(orders, orders.length);
+                classes[e] = MoleculeGraph.AROMATIC;
+                alternating[u] = true;
+            }
+        }
+        if (classes == null) return orders;
+        for (int u = 0; u < n; u++) {
+            if (!alternating[u]) continue;
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                if (graph.neighbor(e) == mates[u]) classes[e] = MoleculeGraph.AROMATIC;
+            }
+        }
+        return classes;
+    }
+
+    /** Iterative Tarjan search for the strongly connected components of the arc graph. */
+    private static final class Components {
+
+        private final MoleculeGraph graph;
+        private final byte[] orders;
+        private final int[] mates;
+
+        /** Visit number of each atom, or -1 if not visited yet. */
+        private final int[] index;
+        private final int[] low;
+
+        /** Component of each atom, or -1 while it is on the stack. */
+        private final int[] components;
+
+        /** Next edge slot to follow from each atom on the search path. */
+        private final int[] cursor;
+        private final int[] path;
+        private final int[] stack;
+
+        Components(MoleculeGraph graph, byte[] orders, int[] mates) {
+            int n = graph.atomCount();
+            this.graph = graph;
+            this.orders = orders;
+            this.mates = mates;
+            this.index = new int[n];
+            this.low = new int[n];
+            this.components = new int[n];
+            this.cursor = new int[n];
+            this.path = new int[n];
+            this.stack = new int[n];
+            Arrays.fill(index, -1);
+            Arrays.fill(components, -1);
+        }
+
+        int[] run() {
+            int visited = 0;
+            int top = 0;
+            for (int root = 0; root < index.length; root++) {
+                if (mates[root] < 0 || index[root] >= 0) continue;
+                int depth = 0;
+                path[depth++] = root;
+                index[root] = low[root] = visited++;
+                cursor[root] = graph.firstEdge(root);
+                stack[top++] = root;
+                while (depth > 0) {
+                    int u = path[depth - 1];
+                    if (cursor[u] < graph.endEdge(u)) {
+                        int v = target(cursor[u]++);
+                        if (v < 0) continue;
+                        if (index[v] < 0) {
+                            index[v] = low[v] = visited++;
+                            cursor[v] = graph.firstEdge(v);
+                            stack[top++] = v;
+                            path[depth++] = v;
+                        } else if (components[v] < 0) {
+                            low[u] = Math.min(low[u], index[v]);
+                        }
+                        continue;
+                    }
+                    depth--;
+                    if (low[u] == index[u]) {
+                        int v;
+                        do {
+                            v = stack[--top];
+                            components[v] = u;
+                        } while (v != u);
+                    }
+                    if (depth > 0) low[path[depth - 1]] = Math.min(low[path[depth - 1]], low[u]);
+                }
+            }
+            return components;
+        }
+
+        /** Head of the arc along a single bond, or -1 if the edge slot gives none. */
+        private int target(int edge) {
+            if (orders[edge] != 1) return -1;
+            return mates[graph.neighbor(edge)];
+        }
+    }
+}
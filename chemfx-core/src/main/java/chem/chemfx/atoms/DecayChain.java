@@ -0,0 +1,328 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable description of a radioactive decay chain: its nuclides, their half-lives and the
+ * branches by which each decays into the next.
+ * <p>
+ * Nuclides are numbered {@code 0..size()-1} with every parent before its daughters, and the
+ * branches of nuclide {@code i} occupy the slots {@code firstBranch(i)} (inclusive) to
+ * {@code endBranch(i)} (exclusive), as in {@link MoleculeGraph}. Nuclide 0 starts the chain.
+ * Decay changes the nucleus as {@link BohrAtom#alphaDecay()} and {@link BohrAtom#betaDecay(boolean)}
+ * do, but a chain only holds numbers, so simulating a population never builds atoms.
+ * <p>
+ * Times are in seconds.
+ */
+public final class DecayChain {
+
+    /** Seconds in a Julian year, the unit half-lives are usually given in. */
+    public static final double YEAR = 365.25 * 86_400;
+    /** Seconds in a day. */
+    public static final double DAY = 86_400;
+    /** Seconds in a minute. */
+    public static final double MINUTE = 60;
+
+    /**
+     * A way a nucleus decays.
+     */
+    public enum Mode {
+        ALPHA(-2, -4),
+        BETA_MINUS(1, 0),
+        BETA_PLUS(-1, 0);
+
+        private final int protonChange;
+        private final int massChange;
+
+        Mode(int protonChange, int massChange) {
+            this.protonChange = protonChange;
+            this.massChange = massChange;
+        }
+
+        /**
+         * @return Change of the atomic number.
+         */
+        public int protonChange() {
+            return protonChange;
+        }
+
+        /**
+         * @return Change of the mass number.
+         */
+        public int massChange() {
+            return massChange;
+        }
+    }
+
+    private final String[] labels;
+    private final int[] atomicNumbers;
+    private final int[] massNumbers;
+    private final double[] halfLives;
+    private final double[] decayConstants;
+    /** Start of each nuclide's branch slots; {@code branchOffsets[size]} is the number of slots. */
+    private final int[] branchOffsets;
+    private final int[] daughters;
+    private final Mode[] modes;
+    private final double[] fractions;
+
+    private DecayChain(Builder builder) {
+        int n = builder.nuclides.size();
+        labels = new String[n];
+        atomicNumbers = new int[n];
+        massNumbers = new int[n];
+        halfLives = new double[n];
+        decayConstants = new double[n];
+        branchOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Builder.Nuclide nuclide = builder.nuclides.get(i);
+            labels[i] = nuclide.label;
+            atomicNumbers[i] = nuclide.atomicNumber;
+            massNumbers[i] = nuclide.massNumber;
+            halfLives[i] = nuclide.halfLife;
+            decayConstants[i] = Double.isInfinite(nuclide.halfLife) ? 0 : Math.log(2) / nuclide.halfLife;
+            branchOffsets[i + 1] = branchOffsets[i] + nuclide.modes.size();
+        }
+
+        int m = branchOffsets[n];
+        daughters = new int[m];
+        modes = new Mode[m];
+        fractions = new double[m];
+        for (int i = 0; i < n; i++) {
+            Builder.Nuclide nuclide = builder.nuclides.get(i);
+            double total = 0;
+            for (int k = 0; k < nuclide.modes.size(); k++) {
+                Mode mode = nuclide.modes.get(k);
+                int z = nuclide.atomicNumber + mode.protonChange;
+                int a = nuclide.massNumber + mode.massChange;
+                int daughter = builder.indexOf(z, a, i + 1);
+                if (daughter < 0) {
+                    throw new IllegalArgumentException(labels[i] + " decays by " + mode + " into Z=" + z + ", A=" + a
+                            + ", which is not listed after it");
+                }
+                int slot = branchOffsets[i] + k;
+                daughters[slot] = daughter;
+                modes[slot] = mode;
+                fractions[slot] = nuclide.fractions.get(k);
+                total += fractions[slot];
+            }
+            if (decayConstants[i] > 0 && Math.abs(total - 1) > 1e-9) {
+                throw new IllegalArgumentException("Branch fractions of " + labels[i] + " add up to " + total);
+            }
+        }
+    }
+
+    /**
+     * The uranium series from U-238 to stable Pb-206, with its minor branches through At-218 and
+     * Tl-210. Pa-234 enters as its metastable state Pa-234m, which the chain passes through.
+     * Half-lives are rounded evaluated values.
+     *
+     * @return The chain.
+     */
+    public static DecayChain uranium238() {
+        return new Builder()
+                .nuclide("U-238", 92, 238, 4.468e9 * YEAR).decays(Mode.ALPHA, 1)
+                .nuclide("Th-234", 90, 234, 24.10 * DAY).decays(Mode.BETA_MINUS, 1)
+                .nuclide("Pa-234m", 91, 234, 1.159 * MINUTE).decays(Mode.BETA_MINUS, 1)
+                .nuclide("U-234", 92, 234, 2.455e5 * YEAR).decays(Mode.ALPHA, 1)
+                .nuclide("Th-230", 90, 230, 7.538e4 * YEAR).decays(Mode.ALPHA, 1)
+                .nuclide("Ra-226", 88, 226, 1600 * YEAR).decays(Mode.ALPHA, 1)
+                .nuclide("Rn-222", 86, 222, 3.8235 * DAY).decays(Mode.ALPHA, 1)
+                .nuclide("Po-218", 84, 218, 3.098 * MINUTE).decays(Mode.ALPHA, 0.9998).decays(Mode.BETA_MINUS, 0.0002)
+                .nuclide("At-218", 85, 218, 1.5).decays(Mode.ALPHA, 1)
+                .nuclide("Pb-214", 82, 214, 26.8 * MINUTE).decays(Mode.BETA_MINUS, 1)
+                .nuclide("Bi-214", 83, 214, 19.9 * MINUTE).decays(Mode.BETA_MINUS, 0.99979).decays(Mode.ALPHA, 0.00021)
+                .nuclide("Po-214", 84, 214, 164.3e-6).decays(Mode.ALPHA, 1)
+                .nuclide("Tl-210", 81, 210, 1.30 * MINUTE).decays(Mode.BETA_MINUS, 1)
+                .nuclide("Pb-210", 82, 210, 22.2 * YEAR).decays(Mode.BETA_MINUS, 1)
+                .nuclide("Bi-210", 83, 210, 5.012 * DAY).decays(Mode.BETA_MINUS, 1)
+                .nuclide("Po-210", 84, 210, 138.376 * DAY).decays(Mode.ALPHA, 1)
+                .stable("Pb-206", 82, 206)
+                .build();
+    }
+
+    /**
+     * @return Number of nuclides.
+     */
+    public int size() {
+        return labels.length;
+    }
+
+    /**
+     * @param nuclide Nuclide number.
+     * @return Label of the nuclide, e.g. {@code "U-238"}.
+     */
+    public String label(int nuclide) {
+        return labels[nuclide];
+    }
+
+    /**
+     * @param nuclide Nuclide number.
+     * @return Atomic number of the nuclide.
+     */
+    public int atomicNumber(int nuclide) {
+        return atomicNumbers[nuclide];
+    }
+
+    /**
+     * @param nuclide Nuclide number.
+     * @return Mass number of the nuclide.
+     */
+    public int massNumber(int nuclide) {
+        return massNumbers[nuclide];
+    }
+
+    /**
+     * @param nuclide Nuclide number.
+     * @return Half-life of the nuclide in seconds; infinite if it is stable.
+     */
+    public double halfLife(int nuclide) {
+        return halfLives[nuclide];
+    }
+
+    /**
+     * @param nuclide Nuclide number.
+     * @return Decay constant of the nuclide per second; 0 if it is stable.
+     */
+    public double decayConstant(int nuclide) {
+        return decayConstants[nuclide];
+    }
+
+    /**
+     * @param nuclide Nuclide number.
+     * @return First branch slot of the nuclide.
+     */
+    public int firstBranch(int nuclide) {
+        return branchOffsets[nuclide];
+    }
+
+    /**
+     * @param nuclide Nuclide number.
+     * @return One past the last branch slot of the nuclide.
+     */
+    public int endBranch(int nuclide) {
+        return branchOffsets[nuclide + 1];
+    }
+
+    /**
+     * @param branch Branch slot.
+     * @return Nuclide the branch decays into; always after its parent.
+     */
+    public int daughter(int branch) {
+        return daughters[branch];
+    }
+
+    /**
+     * @param branch Branch slot.
+     * @return How the branch decays.
+     */
+    public Mode mode(int branch) {
+        return modes[branch];
+    }
+
+    /**
+     * @param branch Branch slot.
+     * @return Fraction of decays of the parent that take this branch.
+     */
+    public double fraction(int branch) {
+        return fractions[branch];
+    }
+
+    @Override
+    public String toString() {
+        return "DecayChain" + Arrays.toString(labels);
+    }
+
+    /**
+     * Lists the nuclides of a chain, parents before daughters. Each nuclide's decay branches
+     * follow it with {@link #decays}; a nuclide without branches must be {@link #stable}.
+     */
+    public static final class Builder {
+
+        private static final class Nuclide {
+            final String label;
+            final int atomicNumber;
+            final int massNumber;
+            final double halfLife;
+            final List<Mode> modes = new ArrayList<>();
+            final List<Double> fractions = new ArrayList<>();
+
+            Nuclide(String label, int atomicNumber, int massNumber, double halfLife) {
+                this.label = label;
+                this.atomicNumber = atomicNumber;
+                this.massNumber = massNumber;
+                this.halfLife = halfLife;
+            }
+        }
+
+        private final List<Nuclide> nuclides = new ArrayList<>();
+
+        /**
+         * Adds a radioactive nuclide.
+         *
+         * @param label        Label of the nuclide.
+         * @param atomicNumber Atomic number.
+         * @param massNumber   Mass number.
+         * @param halfLife     Half-life in seconds.
+         * @return This builder.
+         * @throws IllegalArgumentException if the half-life is not positive and finite.
+         */
+        public Builder nuclide(String label, int atomicNumber, int massNumber, double halfLife) {
+            if (!(halfLife > 0) || Double.isInfinite(halfLife)) {
+                throw new IllegalArgumentException("Half-life of " + label + " must be positive and finite: " + halfLife);
+            }
+            nuclides.add(new Nuclide(label, atomicNumber, massNumber, halfLife));
+            return this;
+        }
+
+        /**
+         * Adds a stable nuclide.
+         *
+         * @param label        Label of the nuclide.
+         * @param atomicNumber Atomic number.
+         * @param massNumber   Mass number.
+         * @return This builder.
+         */
+        public Builder stable(String label, int atomicNumber, int massNumber) {
+            nuclides.add(new Nuclide(label, atomicNumber, massNumber, Double.POSITIVE_INFINITY));
+            return this;
+        }
+
+        /**
+         * Adds a decay branch to the nuclide added last. Its daughter must be added later.
+         *
+         * @param mode     How the nuclide decays.
+         * @param fraction Fraction of its decays that take this branch.
+         * @return This builder.
+         * @throws IllegalStateException if the last nuclide is stable or there is none.
+         */
+        public Builder decays(Mode mode, double fraction) {
+            if (nuclides.isEmpty()) throw new IllegalStateException("No nuclide to decay");
+            Nuclide last = nuclides.get(nuclides.size() - 1);
+            if (Double.isInfinite(last.halfLife)) throw new IllegalStateException(last.label + " is stable");
+            last.modes.add(mode);
+            last.fractions.add(fraction);
+            return this;
+        }
+
+        /**
+         * @return The chain.
+         * @throws IllegalArgumentException if a daughter is missing or listed before its parent,
+         *                                  a radioactive nuclide has no branches, or the branch
+         *                                  fractions of a nuclide do not add up to 1.
+         */
+        public DecayChain build() {
+            if (nuclides.isEmpty()) throw new IllegalArgumentException("A chain needs at least one nuclide");
+            return new DecayChain(this);
+        }
+
+        private int indexOf(int atomicNumber, int massNumber, int from) {
+            for (int i = from; i < nuclides.size(); i++) {
+                Nuclide nuclide = nuclides.get(i);
+                if (nuclide.atomicNumber == atomicNumber && nuclide.massNumber == massNumber) return i;
+            }
+            return -1;
+        }
+    }
+}
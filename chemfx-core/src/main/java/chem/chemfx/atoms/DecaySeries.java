@@ -0,0 +1,71 @@
+package chem.chemfx.atoms;
+
+import java.util.Arrays;
+
+/**
+ * Abundance of every nuclide of a {@link DecayChain} at evenly spaced times, as produced by
+ * {@link DecaySimulator}. Sample {@code 0} is at time 0 and sample {@code samples() - 1} at the
+ * end of the simulated span.
+ */
+public final class DecaySeries {
+
+    private final DecayChain chain;
+    private final double duration;
+    private final int samples;
+    /** Abundances, one row of {@code chain.size()} values per sample. */
+    private final double[] abundances;
+
+    DecaySeries(DecayChain chain, double duration, int samples, double[] abundances) {
+        this.chain = chain;
+        this.duration = duration;
+        this.samples = samples;
+        this.abundances = abundances;
+    }
+
+    /**
+     * @return The chain simulated.
+     */
+    public DecayChain chain() {
+        return chain;
+    }
+
+    /**
+     * @return Number of sampled times.
+     */
+    public int samples() {
+        return samples;
+    }
+
+    /**
+     * @param sample Sample number.
+     * @return Time of the sample in seconds.
+     */
+    public double time(int sample) {
+        return samples == 1 ? 0 : duration * sample / (samples - 1);
+    }
+
+    /**
+     * @param sample  Sample number.
+     * @param nuclide Nuclide number in the chain.
+     * @return Number of atoms of the nuclide at the time of the sample.
+     */
+    public double abundance(int sample, int nuclide) {
+        return abundances[sample * chain.size() + nuclide];
+    }
+
+    /**
+     * @param nuclide Nuclide number in the chain.
+     * @return Number of atoms of the nuclide at every sampled time.
+     */
+    public double[] abundances(int nuclide) {
+        double[] series = new double[samples];
+        for (int s = 0; s < samples; s++) series[s] = abundances[s * chain.size() + nuclide];
+        return series;
+    }
+
+    @Override
+    public String toString() {
+        return "DecaySeries[" + chain + ", " + samples + " samples over " + duration + " s, last "
+                + Arrays.toString(Arrays.copyOfRange(abundances, (samples - 1) * chain.size(), samples * chain.size())) + "]";
+    }
+}
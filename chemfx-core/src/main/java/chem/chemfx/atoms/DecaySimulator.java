@@ -0,0 +1,276 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Simulates populations of radioactive atoms along a {@link DecayChain}, either by Monte Carlo
+ * or by solving the Bateman equations. Both give the abundance of every nuclide at evenly
+ * spaced times as a {@link DecaySeries}, starting from atoms of the first nuclide only.
+ * <p>
+ * The Monte Carlo mode follows every atom through the chain one decay at a time, drawing the
+ * exponential waiting time of each decay and the branch it takes, so it has no time step and
+ * its cost is the number of decays rather than atoms times samples. An atom adds +1 to the
+ * first sample at or after it becomes a nuclide and -1 to the first sample at or after it
+ * decays, into a per-task table of {@code long} counters that is prefix-summed at the end.
+ * The population is split into a fixed number of tasks, and each task draws from its own
+ * {@link SplittableRandom} split from the seed on the calling thread, so a given seed gives
+ * the same series whatever the pool.
+ */
+public final class DecaySimulator {
+
+    /**
+     * Number of tasks the population is split into. Fixed rather than derived from the pool, so
+     * that the same seed draws the same numbers for the same atoms on any pool; enough to keep
+     * the workers of a large machine busy when some tasks run long.
+     */
+    private static final int TASKS = 64;
+
+    private DecaySimulator() {
+    }
+
+    /**
+     * Simulates a population by Monte Carlo on the common pool.
+     *
+     * @param chain      The chain.
+     * @param population Atoms of the first nuclide at time 0.
+     * @param duration   Time span in seconds.
+     * @param samples    Number of sampled times, at least 2.
+     * @param seed       Seed of the random numbers.
+     * @return Atom counts at each sampled time.
+     */
+    public static DecaySeries monteCarlo(DecayChain chain, long population, double duration, int samples, long seed) {
+        return monteCarlo(chain, population, duration, samples, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Simulates a population by Monte Carlo.
+     *
+     * @param chain      The chain.
+     * @param population Atoms of the first nuclide at time 0.
+     * @param duration   Time span in seconds.
+     * @param samples    Number of sampled times, at least 2.
+     * @param seed       Seed of the random numbers.
+     * @param pool       Pool to simulate on.
+     * @return Atom counts at each sampled time.
+     * @throws IllegalArgumentException if the population is negative, the duration not
+     *                                  positive or there are fewer than 2 samples.
+     */
+    public static DecaySeries monteCarlo(DecayChain chain, long population, double duration, int samples, long seed,
+                                         ForkJoinPool pool) {
+        checkArguments(population, duration, samples);
+        int tasks = (int) Math.max(1, Math.min(population, TASKS));
+        SplittableRandom root = new SplittableRandom(seed);
+        List<ForkJoinTask<long[]>> running = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            long atoms = population / tasks + (t < population % tasks ? 1 : 0);
+            SplittableRandom random = root.split();
+            running.add(pool.submit(() -> simulate(chain, atoms, duration, samples, random)));
+        }
+
+        int n = chain.size();
+        long[] changes = new long[samples * n];
+        for (ForkJoinTask<long[]> task : running) {
+            long[] partial = task.join();
+            for (int k = 0; k < changes.length; k++) changes[k] += partial[k];
+        }
+
+        double[] abundances = new double[samples * n];
+        long[] count = new long[n];
+        for (int s = 0; s < samples; s++) {
+            for (int i = 0; i < n; i++) {
+                count[i] += changes[s * n + i];
+                abundances[s * n + i] = count[i];
+            }
+        }
+        return new DecaySeries(chain, duration, samples, abundances);
+    }
+
+    /**
+     * Follows atoms through the chain, returning for each sample and nuclide the net number of
+     * atoms that became that nuclide since the previous sample.
+     */
+    private static long[] simulate(DecayChain chain, long atoms, double duration, int samples, SplittableRandom random) {
+        int n = chain.size();
+        long[] changes = new long[samples * n];
+        double perSample = (samples - 1) / duration;
+        changes[0] += atoms;
+        for (long a = 0; a < atoms; a++) {
+            int nuclide = 0;
+            double time = 0;
+            while (true) {
+                double lambda = chain.decayConstant(nuclide);
+                if (lambda == 0) break;
+                time -= Math.log(1 - random.nextDouble()) / lambda;
+                if (time > duration) break;
+
+                int branch = chain.firstBranch(nuclide);
+                int last = chain.endBranch(nuclide) - 1;
+                if (branch < last) {
+                    double u = random.nextDouble();
+                    while (branch < last && (u -= chain.fraction(branch)) >= 0) branch++;
+                }
+                int daughter = chain.daughter(branch);
+                int sample = Math.min(samples - 1, (int) Math.ceil(time * perSample));
+                changes[sample * n + nuclide]--;
+                changes[sample * n + daughter]++;
+                nuclide = daughter;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Solves the Bateman equations for a population.
+     * <p>
+     * Every abundance is a sum over the decay paths from the first nuclide to it,
+     * {@code N_i(t) = N_0 sum_paths prod_p b_p lambda_p D(lambda_1, ..., lambda_i)}, where the
+     * product runs over the branches taken and {@code D} is the convolution of the exponentials
+     * {@code exp(-lambda t)} of the nuclides on the path. {@code D} is the divided difference of
+     * {@code exp(-lambda t)} up to sign, the textbook sum of exponentials, but that sum cancels
+     * catastrophically once the chain is in equilibrium: a tiny abundance then comes out as the
+     * difference of terms near {@code N_0}. It is evaluated with the decay constants sorted,
+     * instead, by splitting off the widest and narrowest constants while they are far apart
+     * and summing the Taylor series of the reflected exponential, whose terms are all positive,
+     * once they are close; every abundance is then accurate to a few ulps, however small. Equal
+     * decay constants are allowed.
+     *
+     * @param chain      The chain.
+     * @param population Atoms of the first nuclide at time 0.
+     * @param duration   Time span in seconds.
+     * @param samples    Number of sampled times, at least 2.
+     * @return Expected atom counts at each sampled time.
+     * @throws IllegalArgumentException if the population is negative, the duration not
+     *                                  positive or there are fewer than 2 samples.
+     */
+    public static DecaySeries bateman(DecayChain chain, double population, double duration, int samples) {
+        checkArguments(population, duration, samples);
+        int n = chain.size();
+        // Parents come before their daughters, so every path to a parent is known when it is reached
+        List<List<Path>> paths = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) paths.add(new ArrayList<>());
+        paths.get(0).add(new Path(new double[] {chain.decayConstant(0)}, 1));
+        for (int p = 0; p < n; p++) {
+            double rate = chain.decayConstant(p);
+            for (int b = chain.firstBranch(p); b < chain.endBranch(p); b++) {
+                int i = chain.daughter(b);
+                double feed = chain.fraction(b) * rate;
+                if (feed == 0) continue;
+                for (Path path : paths.get(p)) paths.get(i).add(path.to(chain.decayConstant(i), feed));
+            }
+        }
+        for (List<Path> into : paths) into.replaceAll(Path::sorted);
+
+        double[] abundances = new double[samples * n];
+        for (int s = 0; s < samples; s++) {
+            double time = duration * s / (samples - 1);
+            for (int i = 0; i < n; i++) {
+                double value = 0;
+                for (Path path : paths.get(i)) value += path.weight() * path.convolution(time);
+                abundances[s * n + i] = population * value;
+            }
+        }
+        return new DecaySeries(chain, duration, samples, abundances);
+    }
+
+    /**
+     * A decay path from the first nuclide.
+     *
+     * @param rates  Decay constants of the nuclides on the path, sorted once the path is complete.
+     * @param weight Product of the branch fractions and decay constants of the decays taken.
+     * @param memo   Convolutions over runs of the sorted rates at the time being evaluated.
+     */
+    private record Path(double[] rates, double weight, double[] memo) {
+
+        /**
+         * Widest spread of decay constants, times the time, over which the convolution is summed
+         * as a series. Below it the series needs a few dozen terms; above it splitting the rates
+         * loses at most a small factor of accuracy per level.
+         */
+        private static final double SERIES_SPREAD = 40;
+
+        Path(double[] rates, double weight) {
+            this(rates, weight, null);
+        }
+
+        Path to(double rate, double feed) {
+            double[] longer = Arrays.copyOf(rates, rates.length + 1);
+            longer[rates.length] = rate;
+            return new Path(longer, weight * feed);
+        }
+
+        Path sorted() {
+            double[] sorted = rates.clone();
+            Arrays.sort(sorted);
+            return new Path(sorted, weight, new double[sorted.length * sorted.length]);
+        }
+
+        double convolution(double time) {
+            Arrays.fill(memo, Double.NaN);
+            return convolution(0, rates.length - 1, time);
+        }
+
+        /**
+         * Convolution of the exponentials of {@code rates[first..last]}, by the recurrence of
+         * divided differences, {@code D(first..last) = (D(first..last-1) - D(first+1..last)) /
+         * (rates[last] - rates[first])}, while the spread is wide enough for the difference not
+         * to cancel.
+         */
+        private double convolution(int first, int last, double time) {
+            int k = rates.length;
+            double value = memo[first * k + last];
+            if (!Double.isNaN(value)) return value;
+            double spread = rates[last] - rates[first];
+            if (first == last) {
+                value = Math.exp(-rates[first] * time);
+            } else if (spread * time <= SERIES_SPREAD) {
+                value = series(first, last, time);
+            } else {
+                value = (convolution(first, last - 1, time) - convolution(first + 1, last, time)) / spread;
+            }
+            memo[first * k + last] = value;
+            return value;
+        }
+
+        /**
+         * Convolution of the exponentials of {@code rates[first..last]} as
+         * {@code exp(-rates[last] t) t^(k-1) sum_r h_r(z) / (r + k - 1)!}, the divided difference
+         * of {@code exp(z)} at {@code z_j = (rates[last] - rates[j]) t}, where {@code h_r} is the
+         * complete homogeneous symmetric polynomial of degree {@code r}. The {@code z_j} are
+         * non-negative, so no term cancels.
+         */
+        private double series(int first, int last, double time) {
+            int k = last - first + 1;
+            double top = rates[last];
+            double spread = (top - rates[first]) * time;
+            // terms[j] holds h_r(z_0..z_j) / (r + k - 1)!
+            double[] terms = new double[k];
+            double term = 1;
+            for (int m = 2; m < k; m++) term /= m;
+            Arrays.fill(terms, term);
+            double sum = term;
+            for (int r = 1; r <= spread || term > sum * 0x1p-53; r++) {
+                double previous = 0;
+                for (int j = 0; j < k; j++) {
+                    previous += (top - rates[first + j]) * time * terms[j] / (r + k - 1);
+                    terms[j] = previous;
+                }
+                term = terms[k - 1];
+                sum += term;
+            }
+            return sum * Math.exp((k - 1) * Math.log(time) - top * time);
+        }
+    }
+
+    private static void checkArguments(double population, double duration, int samples) {
+        if (population < 0) throw new IllegalArgumentException("Population must not be negative: " + population);
+        if (!(duration > 0) || Double.isInfinite(duration)) {
+            throw new IllegalArgumentException("Duration must be positive and finite: " + duration);
+        }
+        if (samples < 2) throw new IllegalArgumentException("At least 2 samples are needed: " + samples);
+    }
+}
@@ -0,0 +1,200 @@
+package chem.chemfx.atoms;
+
+/**
+ * Immutable table of precomputed electron configurations for every element and every
+ * charge state from {@link #MIN_CHARGE} to {@link #MAX_CHARGE}.
+ * <p>
+ * The table is built once at class initialisation by running the same Aufbau filling used by
+ * {@link BohrAtom#fill(int)}, and is stored as packed primitive arrays: one row of subshell
+ * occupancies per (element, charge) state, flattened shell by shell in the same layout as
+ * {@link BohrAtom#getOrbitals()}. {@link BohrAtom} instances point at a row of this table and
+ * only copy it into their own orbital array when they are mutated.
+ */
+public final class ElectronConfigurations {
+
+    /** Most negative tabulated charge (electrons gained). */
+    public static final int MIN_CHARGE = -8;
+
+    /** Most positive tabulated charge (electrons lost). */
+    public static final int MAX_CHARGE = 8;
+
+    /** Number of tabulated elements. */
+    private static final int ELEMENTS = 118;
+
+    /** Number of tabulated charge states per element. */
+    private static final int CHARGE_STATES = MAX_CHARGE - MIN_CHARGE + 1;
+
+    /** Start of each shell in a packed row; the last entry is the row length. */
+    private static final int[] shellOffsets;
+
+    /** Packed subshell occupancies, {@code rowLength} entries per state. */
+    private static final byte[] occupancies;
+
+    /** Zero-based index of the valence shell of each state, or -1 if all shells are empty. */
+    private static final byte[] valenceShells;
+
+    /** Number of electrons in the valence shell of each state. */
+    private static final byte[] valenceElectrons;
+
+    /** Electron capacity of the valence shell of each state, 0 if all shells are empty. */
+    private static final byte[] valenceCapacities;
+
+    static {
+        int[][] shape = BohrAtom.emptyOrbitals();
+        shellOffsets = new int[shape.length + 1];
+        for (int n = 0; n < shape.length; n++) {
+            shellOffsets[n + 1] = shellOffsets[n] + shape[n].length;
+        }
+        int rowLength = shellOffsets[shape.length];
+
+        int states = ELEMENTS * CHARGE_STATES;
+        occupancies = new byte[states * rowLength];
+        valenceShells = new byte[states];
+        valenceElectrons = new byte[states];
+        valenceCapacities = new byte[states];
+
+        for (int z = 1; z <= ELEMENTS; z++) {
+            for (int charge = MIN_CHARGE; charge <= MAX_CHARGE; charge++) {
+                int[][] orbitals = BohrAtom.emptyOrbitals();
+                BohrAtom.aufbau(orbitals, z, z - charge);
+
+                int state = state(z, charge);
+                int valence = -1;
+                for (int n = 0; n < orbitals.length; n++) {
+                    for (int l = 0; l < orbitals[n].length; l++) {
+                        occupancies[state * rowLength + shellOffsets[n] + l] = (byte) orbitals[n][l];
+                    }
+                    if (orbitals[n][0] != 0) valence = n;
+                }
+                valenceShells[state] = (byte) valence;
+                valenceElectrons[state] = (byte) (valence < 0 ? 0 : BohrAtom.getNumberOfElectrons(orbitals[valence]));
+                valenceCapacities[state] = (byte) (valence < 0 ? 0 : BohrAtom.shellCapacity(valence));
+            }
+        }
+    }
+
+    private ElectronConfigurations() {
+    }
+
+    private static int state(int atomicNumber, int charge) {
+        return (atomicNumber - 1) * CHARGE_STATES + (charge - MIN_CHARGE);
+    }
+
+    /**
+     * Finds the table row for an element carrying the given number of electrons.
+     *
+     * @param atomicNumber   Number of protons.
+     * @param electronNumber Number of electrons.
+     * @return Row index, or -1 if the element or charge state is not tabulated.
+     */
+    static int indexOf(int atomicNumber, int electronNumber) {
+        int charge = atomicNumber - electronNumber;
+        if (atomicNumber < 1 || atomicNumber > ELEMENTS || charge < MIN_CHARGE || charge > MAX_CHARGE) {
+            return -1;
+        }
+        return state(atomicNumber, charge);
+    }
+
+    /**
+     * Copies a table row into a new orbital array owned by the caller.
+     *
+     * @param state Row index returned by {@link #indexOf(int, int)}.
+     * @return A new jagged orbital array.
+     */
+    static int[][] unpack(int state) {
+        int[][] orbitals = BohrAtom.emptyOrbitals();
+        int base = state * shellOffsets[orbitals.length];
+        for (int n = 0; n < orbitals.length; n++) {
+            int[] shell = orbitals[n];
+            for (int l = 0; l < shell.length; l++) {
+                shell[l] = occupancies[base + shellOffsets[n] + l];
+            }
+        }
+        return orbitals;
+    }
+
+    /**
+     * Gets the valence shell of a table row.
+     *
+     * @param state Row index returned by {@link #indexOf(int, int)}.
+     * @return Zero-based shell index, or -1 if all shells are empty.
+     */
+    static int valenceShell(int state) {
+        return valenceShells[state];
+    }
+
+    /**
+     * Checks whether a charge state is covered by the table.
+     *
+     * @param atomicNumber Number of protons.
+     * @param charge       Net charge of the atom.
+     * @return {@code true} if the configuration is precomputed.
+     */
+    public static boolean contains(int atomicNumber, int charge) {
+        return indexOf(atomicNumber, atomicNumber - charge) >= 0;
+    }
+
+    /**
+     * Gets the number of electrons in one subshell of a precomputed configuration.
+     *
+     * @param atomicNumber Number of protons.
+     * @param charge       Net charge of the atom.
+     * @param shell        Zero-based shell index.
+     * @param subshell     Zero-based subshell index (s, p, d, f).
+     * @return Number of electrons in the subshell.
+     * @throws AtomConstructionException if the state, shell or subshell is out of range.
+     */
+    public static int electronsIn(int atomicNumber, int charge, int shell, int subshell) {
+        int state = checkedState(atomicNumber, charge);
+        if (shell < 0 || shell >= shellOffsets.length - 1 || subshell < 0
+                || subshell >= shellOffsets[shell + 1] - shellOffsets[shell]) {
+            throw new AtomConstructionException("Principal Quantum Number and Angular Momentum Number out of bounds");
+        }
+        return occupancies[state * shellOffsets[shellOffsets.length - 1] + shellOffsets[shell] + subshell];
+    }
+
+    /**
+     * Gets the valence shell of a precomputed configuration.
+     *
+     * @param atomicNumber Number of protons.
+     * @param charge       Net charge of the atom.
+     * @return Zero-based shell index, or -1 if all shells are empty.
+     * @throws AtomConstructionException if the state is not tabulated.
+     */
+    public static int valenceShell(int atomicNumber, int charge) {
+        return valenceShells[checkedState(atomicNumber, charge)];
+    }
+
+    /**
+     * Gets the number of valence electrons of a precomputed configuration.
+     *
+     * @param atomicNumber Number of protons.
+     * @param charge       Net charge of the atom.
+     * @return Number of electrons in the valence shell.
+     * @throws AtomConstructionException if the state is not tabulated.
+     */
+    public static int valenceElectrons(int atomicNumber, int charge) {
+        return valenceElectrons[checkedState(atomicNumber, charge)];
+    }
+
+    /**
+     * Gets the electron capacity of the valence shell of a precomputed configuration,
+     * as returned by {@link BohrAtom#getMaxCapacityValence()}.
+     *
+     * @param atomicNumber Number of protons.
+     * @param charge       Net charge of the atom.
+     * @return Capacity of the valence shell, or 0 if all shells are empty.
+     * @throws AtomConstructionException if the state is not tabulated.
+     */
+    public static int maxCapacityValence(int atomicNumber, int charge) {
+        return valenceCapacities[checkedState(atomicNumber, charge)];
+    }
+
+    private static int checkedState(int atomicNumber, int charge) {
+        int state = indexOf(atomicNumber, atomicNumber - charge);
+        if (state < 0) {
+            throw new AtomConstructionException("No precomputed configuration for Z=" + atomicNumber + ", charge " + charge);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,289 @@
+package chem.chemfx.atoms;
+
+import java.util.Arrays;
+
+/**
+ * Registry of the 118 known elements with constant-time lookup by atomic number,
+ * symbol and name.
+ * <p>
+ * Symbol and name lookups are case-insensitive and allocation-free:
+ * <ul>
+ *     <li>Symbols are one or two ASCII letters, so the low five bits of each letter form a
+ *     collision-free 10-bit key into a direct lookup table.</li>
+ *     <li>Names use a perfect hash whose seed is searched once at class initialisation, so
+ *     every lookup costs one hash and one comparison.</li>
+ * </ul>
+ * The {@code indexOf...} methods return 0 for unknown input and never throw, for parsers that
+ * need a fast failure path; the {@code by...} methods throw {@link AtomConstructionException}.
+ */
+public final class ElementTable {
+
+    /**
+     * An immutable element record.
+     *
+     * @param atomicNumber Number of protons.
+     * @param symbol       Element symbol (e.g., "He").
+     * @param name         Full element name (e.g., "Helium").
+     */
+    public record Element(int atomicNumber, String symbol, String name) {
+    }
+
+    /** Number of known elements. */
+    public static final int SIZE = 118;
+
+    /** Element names indexed by atomic number - 1. */
+    private static final String[] names = {
+            "Hydrogen", "Helium", "Lithium", "Beryllium", "Boron", "Carbon", "Nitrogen", "Oxygen", "Fluorine", "Neon",
+            "Sodium", "Magnesium", "Aluminium", "Silicon", "Phosphorus", "Sulfur", "Chlorine", "Argon", "Potassium", "Calcium",
+            "Scandium", "Titanium", "Vanadium", "Chromium", "Manganese", "Iron", "Cobalt", "Nickel", "Copper", "Zinc",
+            "Gallium", "Germanium", "Arsenic", "Selenium", "Bromine", "Krypton", "Rubidium", "Strontium", "Yttrium", "Zirconium",
+            "Niobium", "Molybdenum", "Technetium", "Ruthenium", "Rhodium", "Palladium", "Silver", "Cadmium", "Indium", "Tin",
+            "Antimony", "Tellurium", "Iodine", "Xenon", "Cesium", "Barium", "Lanthanum", "Cerium", "Praseodymium", "Neodymium",
+            "Promethium", "Samarium", "Europium", "Gadolinium", "Terbium", "Dysprosium", "Holmium", "Erbium", "Thulium", "Ytterbium",
+            "Lutetium", "Hafnium", "Tantalum", "Tungsten", "Rhenium", "Osmium", "Iridium", "Platinum", "Gold", "Mercury",
+            "Thallium", "Lead", "Bismuth", "Polonium", "Astatine", "Radon", "Francium", "Radium", "Actinium", "Thorium",
+            "Protactinium", "Uranium", "Neptunium", "Plutonium", "Americium", "Curium", "Berkelium", "Californium", "Einsteinium", "Fermium",
+            "Mendelevium", "Nobelium", "Lawrencium", "Rutherfordium", "Dubnium", "Seaborgium", "Bohrium", "Hassium", "Meitnerium", "Darmstadtium",
+            "Roentgenium", "Copernicium", "Nihonium", "Flerovium", "Moscovium", "Livermorium", "Tennessine", "Oganesson"
+    };
+
+    /** Element symbols indexed by atomic number - 1. */
+    private static final String[] symbols = {
+            "H", "He", "Li", "Be", "B", "C", "N", "O", "F", "Ne",
+            "Na", "Mg", "Al", "Si", "P", "S", "Cl", "Ar", "K", "Ca",
+            "Sc", "Ti", "V", "Cr", "Mn", "Fe", "Co", "Ni", "Cu", "Zn",
+            "Ga", "Ge", "As", "Se", "Br", "Kr", "Rb", "Sr", "Y", "Zr",
+            "Nb", "Mo", "Tc", "Ru", "Rh", "Pd", "Ag", "Cd", "In", "Sn",
+            "Sb", "Te", "I", "Xe", "Cs", "Ba", "La", "Ce", "Pr", "Nd",
+            "Pm", "Sm", "Eu", "Gd", "Tb", "Dy", "Ho", "Er", "Tm", "Yb",
+            "Lu", "Hf", "Ta", "W", "Re", "Os", "Ir", "Pt", "Au", "Hg",
+            "Tl", "Pb", "Bi", "Po", "At", "Rn", "Fr", "Ra", "Ac", "Th",
+            "Pa", "U", "Np", "Pu", "Am", "Cm", "Bk", "Cf", "Es", "Fm",
+            "Md", "No", "Lr", "Rf", "Db", "Sg", "Bh", "Hs", "Mt", "Ds",
+            "Rg", "Cn", "Nh", "Fl", "Mc", "Lv", "Ts", "Og"
+    };
+
+    /**
+     * Standard atomic weights in unified atomic mass units, indexed by atomic number - 1.
+     * Elements without stable isotopes use the mass number of their longest-lived isotope.
+     */
+    private static final double[] averageMasses = {
+            1.008, 4.0026, 6.94, 9.0122, 10.81, 12.011, 14.007, 15.999, 18.998, 20.180,
+            22.990, 24.305, 26.982, 28.085, 30.974, 32.06, 35.45, 39.95, 39.098, 40.078,
+            44.956, 47.867, 50.942, 51.996, 54.938, 55.845, 58.933, 58.693, 63.546, 65.38,
+            69.723, 72.630, 74.922, 78.971, 79.904, 83.798, 85.468, 87.62, 88.906, 91.224,
+            92.906, 95.95, 98.0, 101.07, 102.91, 106.42, 107.87, 112.41, 114.82, 118.71,
+            121.76, 127.60, 126.90, 131.29, 132.91, 137.33, 138.91, 140.12, 140.91, 144.24,
+            145.0, 150.36, 151.96, 157.25, 158.93, 162.50, 164.93, 167.26, 168.93, 173.05,
+            174.97, 178.49, 180.95, 183.84, 186.21, 190.23, 192.22, 195.08, 196.97, 200.59,
+            204.38, 207.2, 208.98, 209.0, 210.0, 222.0, 223.0, 226.0, 227.0, 232.04,
+            231.04, 238.03, 237.0, 244.0, 243.0, 247.0, 247.0, 251.0, 252.0, 257.0,
+            258.0, 259.0, 266.0, 267.0, 268.0, 269.0, 270.0, 277.0, 278.0, 281.0,
+            282.0, 285.0, 286.0, 289.0, 290.0, 293.0, 294.0, 294.0
+    };
+
+    /** Element records indexed by atomic number; index 0 is unused. */
+    private static final Element[] elements = new Element[SIZE + 1];
+
+    /** Atomic numbers keyed by the 10-bit symbol key, 0 for unused slots. */
+    private static final byte[] symbolSlots = new byte[1 << 10];
+
+    /** Atomic numbers keyed by the perfect hash of the name, 0 for unused slots. */
+    private static final byte[] nameSlots;
+
+    /** Seed of the name hash, chosen so that no two names share a slot. */
+    private static final int nameSeed;
+
+    static {
+        for (int z = 1; z <= SIZE; z++) {
+            elements[z] = new Element(z, symbols[z - 1], names[z - 1]);
+            symbolSlots[symbolKey(symbols[z - 1])] = (byte) z;
+        }
+
+        int size = 4096;
+        int seed = 0;
+        byte[] slots = new byte[size];
+        search:
+        while (true) {
+            for (int z = 1; z <= SIZE; z++) {
+                int slot = nameHash(names[z - 1], seed) & (size - 1);
+                if (slots[slot] != 0) {
+                    Arrays.fill(slots, (byte) 0);
+                    if (++seed == 1024) {
+                        seed = 0;
+                        size <<= 1;
+                        slots = new byte[size];
+                    }
+                    continue search;
+                }
+                slots[slot] = (byte) z;
+            }
+            break;
+        }
+        nameSlots = slots;
+        nameSeed = seed;
+    }
+
+    private ElementTable() {
+    }
+
+    private static boolean isLetter(char c) {
+        return (char) ((c | 0x20) - 'a') < 26;
+    }
+
+    /**
+     * Computes the symbol key: the low five bits of each letter, so upper- and lower-case
+     * letters map to the same key. Callers must check that the characters are letters.
+     */
+    private static int symbolKey(CharSequence symbol) {
+        int key = (symbol.charAt(0) & 0x1F) << 5;
+        return symbol.length() == 2 ? key | (symbol.charAt(1) & 0x1F) : key;
+    }
+
+    /** Case-insensitive FNV-1a hash of an element name. */
+    private static int nameHash(CharSequence name, int seed) {
+        int h = 0x811C9DC5 ^ seed;
+        for (int i = 0; i < name.length(); i++) {
+            h = (h ^ (name.charAt(i) | 0x20)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Looks up the atomic number for an element symbol, ignoring case.
+     *
+     * @param symbol Element symbol.
+     * @return Atomic number, or 0 if the symbol is unknown.
+     */
+    public static int indexOfSymbol(CharSequence symbol) {
+        int length = symbol.length();
+        if (length == 0 || length > 2 || !isLetter(symbol.charAt(0))
+                || (length == 2 && !isLetter(symbol.charAt(1)))) {
+            return 0;
+        }
+        return symbolSlots[symbolKey(symbol)];
+    }
+
+    /**
+     * Looks up the atomic number for a symbol given as separate letters, ignoring case, so that
+     * tokenizers can resolve symbols without building a string.
+     *
+     * @param first  First letter of the symbol.
+     * @param second Second letter of the symbol, or {@code 0} for a one-letter symbol.
+     * @return Atomic number, or 0 if the symbol is unknown.
+     */
+    public static int indexOfSymbol(char first, char second) {
+        if (!isLetter(first) || (second != 0 && !isLetter(second))) return 0;
+        int key = (first & 0x1F) << 5;
+        return symbolSlots[second == 0 ? key : key | (second & 0x1F)];
+    }
+
+    /**
+     * Looks up the atomic number for an element name, ignoring case.
+     *
+     * @param name Element name.
+     * @return Atomic number, or 0 if the name is unknown.
+     */
+    public static int indexOfName(CharSequence name) {
+        int z = nameSlots[nameHash(name, nameSeed) & (nameSlots.length - 1)];
+        if (z == 0) return 0;
+        String candidate = names[z - 1];
+        if (candidate.length() != name.length()) return 0;
+        for (int i = 0; i < candidate.length(); i++) {
+            if ((candidate.charAt(i) | 0x20) != (name.charAt(i) | 0x20)) return 0;
+        }
+        return z;
+    }
+
+    /**
+     * Gets the element with the given atomic number.
+     *
+     * @param atomicNumber Number of protons (1-118).
+     * @return The element record.
+     * @throws AtomConstructionException if the atomic number is out of range.
+     */
+    public static Element byNumber(int atomicNumber) {
+        if (atomicNumber < 1 || atomicNumber > SIZE) {
+            throw new AtomConstructionException("Atomic number must be 1-" + SIZE + ": " + atomicNumber);
+        }
+        return elements[atomicNumber];
+    }
+
+    /**
+     * Gets the element with the given symbol, ignoring case.
+     *
+     * @param symbol Element symbol.
+     * @return The element record.
+     * @throws AtomConstructionException if the symbol is unknown.
+     */
+    public static Element bySymbol(CharSequence symbol) {
+        int z = indexOfSymbol(symbol);
+        if (z == 0) throw new AtomConstructionException("Unknown element symbol: " + symbol);
+        return elements[z];
+    }
+
+    /**
+     * Gets the element with the given name, ignoring case.
+     *
+     * @param name Element name.
+     * @return The element record.
+     * @throws AtomConstructionException if the name is unknown.
+     */
+    public static Element byName(CharSequence name) {
+        int z = indexOfName(name);
+        if (z == 0) throw new AtomConstructionException("Unknown element name: " + name);
+        return elements[z];
+    }
+
+    /**
+     * Resolves user input that may be an atomic number, a symbol or a name.
+     *
+     * @param text Atomic number, symbol or name, surrounding whitespace ignored.
+     * @return The element record.
+     * @throws AtomConstructionException if the input does not identify an element.
+     */
+    public static Element parse(String text) {
+        String trimmed = text.strip();
+        if (!trimmed.isEmpty() && Character.isDigit(trimmed.charAt(0))) {
+            try {
+                return byNumber(Integer.parseInt(trimmed));
+            } catch (NumberFormatException e) {
+                throw new AtomConstructionException("Invalid atomic number: " + trimmed);
+            }
+        }
+        int z = indexOfSymbol(trimmed);
+        if (z == 0) z = indexOfName(trimmed);
+        if (z == 0) throw new AtomConstructionException("Unknown element: " + trimmed);
+        return elements[z];
+    }
+
+    /**
+     * Gets the standard atomic weight of an element, averaged over its natural isotopes.
+     *
+     * @param atomicNumber Number of protons (1-118).
+     * @return Average atomic mass in unified atomic mass units.
+     * @throws AtomConstructionException if the atomic number is out of range.
+     */
+    public static double averageMass(int atomicNumber) {
+        byNumber(atomicNumber);
+        return averageMasses[atomicNumber - 1];
+    }
+
+    /**
+     * Copies the element names, indexed by atomic number - 1.
+     *
+     * @return A new array of names.
+     */
+    public static String[] names() {
+        return names.clone();
+    }
+
+    /**
+     * Copies the element symbols, indexed by atomic number - 1.
+     *
+     * @return A new array of symbols.
+     */
+    public static String[] symbols() {
+        return symbols.clone();
+    }
+}
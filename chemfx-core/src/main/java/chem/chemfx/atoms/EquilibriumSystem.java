@@ -0,0 +1,632 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A set of simultaneous reactions in solution, each with an equilibrium constant, that solves
+ * for equilibrium concentrations from initial ones.
+ * <p>
+ * Concentrations are in mol/L and equilibrium constants are the matching {@code Kc}. The
+ * unknowns are the extents {@code xi} of the reactions, so every composition tried satisfies
+ * the mass balance {@code c = c0 + nu^T xi} exactly, as in an ICE table. Equilibrium is where
+ * {@code sum_s nu_rs ln c_s = ln K_r} for every reaction {@code r}, which is where the
+ * convex function {@code G(xi) = sum_s c_s (ln c_s - 1) - sum_r xi_r ln K_r} is least. Newton's
+ * method on {@code G} converges from any composition with all concentrations positive; each
+ * step is damped so that no concentration falls by more than 99% and so that {@code G}
+ * decreases, which keeps it inside that region and makes it converge even for constants many
+ * orders of magnitude from 1. The steps come from a factor of the Hessian built without
+ * forming it, so that species many orders of magnitude scarcer than the rest, such as the
+ * intermediate between a weak acid and a strong complex, still resolve; reactions whose
+ * coefficients combine those of others take no steps of their own.
+ * <p>
+ * The start is found by running each reaction in turn to the middle of the range the current
+ * concentrations allow, which leaves all of its species present, and repeating for reactions
+ * that only become possible once others have made their species. A reaction that never becomes
+ * possible, because both sides lack a species, stays where it is.
+ * <p>
+ * {@link #solveAll} splits a batch of initial conditions across a fork/join pool, with one
+ * set of scratch arrays per leaf task; {@link #batch()} offers the same as a
+ * {@link BatchCalculation} for {@code CsvBatch}.
+ */
+public final class EquilibriumSystem {
+
+    /** Largest residual {@code |sum_s nu_rs ln c_s - ln K_r|} accepted as converged. */
+    private static final double TOLERANCE = 1e-10;
+
+    private static final int MAX_ITERATIONS = 200;
+
+    /** Fraction of the distance to zero a concentration may fall in one step. */
+    private static final double TO_BOUNDARY = 0.99;
+
+    /**
+     * Newton decrement squared below which full steps are taken without checking that
+     * {@code G} falls, as the fall is then lost to rounding.
+     */
+    private static final double NEAR = 1e-8;
+
+    /** Number of cases below which a batch task stops splitting. */
+    private static final int THRESHOLD = 64;
+
+    /** Suffix of the equilibrium concentration columns of {@link #batch()}. */
+    public static final String EQUILIBRIUM_SUFFIX = "_eq";
+
+    /**
+     * Outcome of solving one case.
+     *
+     * @param concentrations Equilibrium concentration of each species, or {@code NaN}s if the
+     *                       case could not be solved.
+     * @param extents        Extent of each reaction in mol/L.
+     * @param iterations     Newton steps taken.
+     * @param converged      Whether the residual fell below the tolerance.
+     */
+    public record Result(double[] concentrations, double[] extents, int iterations, boolean converged) {
+    }
+
+    private final String[] species;
+    private final String[] equations;
+    private final int reactionCount;
+    /** Stoichiometric coefficients, row by reaction: negative for reactants, positive for products. */
+    private final double[] nu;
+    private final double[] logK;
+
+    private EquilibriumSystem(List<String> species, List<String> equations, List<double[]> rows, List<Double> constants) {
+        this.species = species.toArray(new String[0]);
+        this.equations = equations.toArray(new String[0]);
+        reactionCount = rows.size();
+        int n = this.species.length;
+        nu = new double[reactionCount * n];
+        logK = new double[reactionCount];
+        for (int r = 0; r < reactionCount; r++) {
+            double[] row = rows.get(r);
+            System.arraycopy(row, 0, nu, r * n, row.length);
+            logK[r] = Math.log(constants.get(r));
+        }
+    }
+
+    /* ------------------ Parsing ------------------ */
+
+    private static final Pattern ARROW = Pattern.compile("\\s*(?:<=>|<->|⇌|=)\\s*");
+    private static final Pattern PLUS = Pattern.compile("\\s+\\+\\s+");
+    private static final Pattern TERM = Pattern.compile("(\\d+(?:\\.\\d+)?|\\.\\d+)?\\s*(\\S+)");
+    private static final Pattern CONSTANT = Pattern.compile("\\s*[,;]\\s*(?:K[a-z]*\\s*=\\s*)?(\\S+)\\s*$");
+
+    /**
+     * Parses reactions, one per line, each an equation followed by its equilibrium constant:
+     * <pre>
+     *     N2 + 3 H2 &lt;=&gt; 2 NH3, K = 0.5
+     *     CH3COOH &lt;=&gt; CH3COO- + H+; 1.8e-5
+     * </pre>
+     * Terms are separated by {@code " + "} with spaces on both sides, so that charges such as
+     * {@code H+} stay part of the species. A coefficient may precede a species, with or without
+     * a space. Blank lines and lines starting with {@code #} are skipped. Species are numbered
+     * in order of first appearance.
+     *
+     * @param text The reactions.
+     * @return The system.
+     * @throws IllegalArgumentException if a line is not a reaction or there are none.
+     */
+    public static EquilibriumSystem parse(String text) {
+        Builder builder = new Builder();
+        String[] lines = text.split("\\R");
+        for (int l = 0; l < lines.length; l++) {
+            String line = lines[l].strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            Matcher constant = CONSTANT.matcher(line);
+            if (!constant.find()) throw new IllegalArgumentException("Line " + (l + 1) + ": missing equilibrium constant");
+            double k;
+            try {
+                k = Double.parseDouble(constant.group(1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (l + 1) + ": bad equilibrium constant " + constant.group(1));
+            }
+            try {
+                builder.reaction(line.substring(0, constant.start()), k);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (l + 1) + ": " + e.getMessage());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects reactions for a system.
+     */
+    public static final class Builder {
+
+        private final Map<String, Integer> species = new LinkedHashMap<>();
+        private final List<String> equations = new ArrayList<>();
+        private final List<Map<Integer, Double>> reactions = new ArrayList<>();
+        private final List<Double> constants = new ArrayList<>();
+
+        /**
+         * Adds a reaction.
+         *
+         * @param equation Equation such as {@code "2 SO2 + O2 <=> 2 SO3"}.
+         * @param k        Equilibrium constant.
+         * @return This builder.
+         * @throws IllegalArgumentException if the equation is malformed, a side is empty or the
+         *                                  constant is not positive and finite.
+         */
+        public Builder reaction(String equation, double k) {
+            if (!(k > 0) || Double.isInfinite(k)) {
+                throw new IllegalArgumentException("Equilibrium constant must be positive and finite: " + k);
+            }
+            String[] sides = ARROW.split(equation.strip(), -1);
+            if (sides.length != 2) throw new IllegalArgumentException("Expected one '<=>' in " + equation);
+            if (sides[0].isBlank() || sides[1].isBlank()) throw new IllegalArgumentException("Both sides need a species: " + equation);
+
+            Map<Integer, Double> coefficients = new LinkedHashMap<>();
+            for (int side = 0; side < 2; side++) {
+                for (String term : PLUS.split(sides[side].strip())) {
+                    Matcher matcher = TERM.matcher(term.strip());
+                    if (!matcher.matches()) throw new IllegalArgumentException("Bad term '" + term + "'");
+                    double coefficient = matcher.group(1) == null ? 1 : Double.parseDouble(matcher.group(1));
+                    if (coefficient <= 0) throw new IllegalArgumentException("Bad coefficient in '" + term + "'");
+                    int s = species.computeIfAbsent(matcher.group(2), name -> species.size());
+                    coefficients.merge(s, side == 0 ? -coefficient : coefficient, Double::sum);
+                }
+            }
+            coefficients.values().removeIf(c -> c == 0);
+            if (coefficients.isEmpty()) throw new IllegalArgumentException("The two sides are the same: " + equation);
+            equations.add(equation.strip());
+            reactions.add(coefficients);
+            constants.add(k);
+            return this;
+        }
+
+        /**
+         * @return The system.
+         * @throws IllegalArgumentException if there are no reactions.
+         */
+        public EquilibriumSystem build() {
+            if (reactions.isEmpty()) throw new IllegalArgumentException("No reactions");
+            List<double[]> rows = new ArrayList<>();
+            for (Map<Integer, Double> reaction : reactions) {
+                double[] row = new double[species.size()];
+                reaction.forEach((s, c) -> row[s] = c);
+                rows.add(row);
+            }
+            return new EquilibriumSystem(new ArrayList<>(species.keySet()), equations, rows, constants);
+        }
+    }
+
+    /* ------------------ Accessors ------------------ */
+
+    /**
+     * @return Names of the species, in order of first appearance.
+     */
+    public List<String> species() {
+        return List.of(species);
+    }
+
+    /**
+     * @return Number of reactions.
+     */
+    public int reactionCount() {
+        return reactionCount;
+    }
+
+    /**
+     * @param reaction Reaction number.
+     * @return The reaction's equation as given.
+     */
+    public String equation(int reaction) {
+        return equations[reaction];
+    }
+
+    /**
+     * @param reaction Reaction number.
+     * @param species  Species number.
+     * @return Stoichiometric coefficient: negative for a reactant, positive for a product, 0 if
+     * the species does not take part.
+     */
+    public double coefficient(int reaction, int species) {
+        return nu[reaction * this.species.length + species];
+    }
+
+    /**
+     * @param reaction Reaction number.
+     * @return Equilibrium constant of the reaction.
+     */
+    public double constant(int reaction) {
+        return Math.exp(logK[reaction]);
+    }
+
+    @Override
+    public String toString() {
+        return "EquilibriumSystem" + Arrays.toString(equations);
+    }
+
+    /* ------------------ Solving ------------------ */
+
+    /**
+     * Solves one case.
+     *
+     * @param initial Initial concentration of each species; missing species may be left out
+     *                at the end and count as 0.
+     * @return The equilibrium.
+     * @throws IllegalArgumentException if a concentration is negative or not a number, or
+     *                                  there are more than there are species.
+     */
+    public Result solve(double... initial) {
+        if (initial.length > species.length) {
+            throw new IllegalArgumentException("Expected at most " + species.length + " concentrations, got " + initial.length);
+        }
+        double[] c0 = Arrays.copyOf(initial, species.length);
+        for (double c : c0) {
+            if (!(c >= 0) || Double.isInfinite(c)) throw new IllegalArgumentException("Bad concentration: " + c);
+        }
+        Scratch scratch = new Scratch();
+        boolean converged = scratch.solve(c0);
+        double[] concentrations = converged ? scratch.c.clone() : nanArray(species.length);
+        return new Result(concentrations, scratch.xi.clone(), scratch.iterations, converged);
+    }
+
+    /**
+     * Solves many cases in parallel on the common pool.
+     *
+     * @see #solveAll(double[][], double[][], int, int, ForkJoinPool)
+     */
+    public void solveAll(double[][] initial, double[][] equilibrium, int from, int to) {
+        solveAll(initial, equilibrium, from, to, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves many cases in parallel. Cases are stored column by column: one array per species,
+     * indexed by case. A case with a negative or missing ({@code NaN}) initial concentration, or
+     * one that does not converge, gets {@code NaN} equilibrium concentrations.
+     *
+     * @param initial     Initial concentrations, one column per species.
+     * @param equilibrium Receives the equilibrium concentrations, one column per species; may
+     *                    be the same arrays as {@code initial}.
+     * @param from        First case.
+     * @param to          One past the last case.
+     * @param pool        Pool to solve on.
+     */
+    public void solveAll(double[][] initial, double[][] equilibrium, int from, int to, ForkJoinPool pool) {
+        if (initial.length != species.length || equilibrium.length != species.length) {
+            throw new IllegalArgumentException("Expected " + species.length + " columns");
+        }
+        pool.invoke(new Task(initial, equilibrium, from, to));
+    }
+
+    /**
+     * Solves a range of cases, splitting it in half until it is small enough.
+     */
+    private final class Task extends RecursiveAction {
+        private final double[][] initial;
+        private final double[][] equilibrium;
+        private final int from;
+        private final int to;
+
+        Task(double[][] initial, double[][] equilibrium, int from, int to) {
+            this.initial = initial;
+            this.equilibrium = equilibrium;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                Scratch scratch = new Scratch();
+                double[] c0 = new double[species.length];
+                for (int i = from; i < to; i++) {
+                    boolean valid = true;
+                    for (int s = 0; s < species.length; s++) {
+                        c0[s] = initial[s][i];
+                        valid &= c0[s] >= 0 && !Double.isInfinite(c0[s]);
+                    }
+                    boolean converged = valid && scratch.solve(c0);
+                    for (int s = 0; s < species.length; s++) equilibrium[s][i] = converged ? scratch.c[s] : Double.NaN;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Task(initial, equilibrium, from, mid), new Task(initial, equilibrium, mid, to));
+        }
+    }
+
+    /**
+     * The system as a batch calculation: the initial concentration of each species in, then
+     * its equilibrium concentration out, in a column named with {@link #EQUILIBRIUM_SUFFIX}.
+     * Missing initial concentrations count as 0.
+     *
+     * @return The calculation.
+     */
+    public BatchCalculation batch() {
+        List<String> columns = new ArrayList<>(species());
+        for (String name : species) columns.add(name + EQUILIBRIUM_SUFFIX);
+        List<String> names = List.copyOf(columns);
+        return new BatchCalculation() {
+            @Override
+            public List<String> columns() {
+                return names;
+            }
+
+            @Override
+            public int inputs() {
+                return species.length;
+            }
+
+            @Override
+            public void compute(double[][] columns, int from, int to) {
+                int n = species.length;
+                double[][] initial = Arrays.copyOfRange(columns, 0, n);
+                double[][] equilibrium = Arrays.copyOfRange(columns, n, 2 * n);
+                for (double[] column : initial) {
+                    for (int i = from; i < to; i++) column[i] = column[i] == column[i] ? column[i] : 0;
+                }
+                solveAll(initial, equilibrium, from, to);
+            }
+        };
+    }
+
+    private static double[] nanArray(int length) {
+        double[] array = new double[length];
+        Arrays.fill(array, Double.NaN);
+        return array;
+    }
+
+    /**
+     * Working arrays for solving one case at a time, reused across cases.
+     */
+    private final class Scratch {
+        final double[] c = new double[species.length];
+        final double[] logC = new double[species.length];
+        final double[] trial = new double[species.length];
+        final double[] dc = new double[species.length];
+        final double[] xi = new double[reactionCount];
+        final double[] residual = new double[reactionCount];
+        final double[] step = new double[reactionCount];
+        final boolean[] active = new boolean[reactionCount];
+        /** Active reactions independent of the ones before them; only these take Newton steps. */
+        final int[] free = new int[reactionCount];
+        int freeCount;
+        /** Rows of {@code nu} reduced against the free reactions before them, for {@link #findFree}. */
+        final double[] basis = new double[reactionCount * species.length];
+        final int[] pivot = new int[reactionCount];
+        /** Upper triangular factor of the Hessian over the free reactions, {@code freeCount} wide. */
+        final double[] factor = new double[reactionCount * reactionCount];
+        /** Givens rotation folding each species' row into {@link #factor}, species by free reaction. */
+        final double[] cosine = new double[species.length * reactionCount];
+        final double[] sine = new double[species.length * reactionCount];
+        /** Moving species, scarcest first, the order their rows are folded in. */
+        final int[] order = new int[species.length];
+        int orderCount;
+        final double[] row = new double[reactionCount];
+        final double[] z = new double[reactionCount + species.length];
+        /** Species taking part in an active reaction; the others keep their initial value. */
+        final boolean[] moving = new boolean[species.length];
+        int iterations;
+
+        /** Solves from {@code c0}, leaving the equilibrium in {@link #c} and {@link #xi}. */
+        boolean solve(double[] c0) {
+            int n = species.length;
+            int m = reactionCount;
+            System.arraycopy(c0, 0, c, 0, n);
+            Arrays.fill(xi, 0);
+            Arrays.fill(moving, false);
+            iterations = 0;
+
+            // Run each reaction that can go to the middle of its range, until no more can
+            Arrays.fill(active, false);
+            for (boolean started = true; started; ) {
+                started = false;
+                for (int r = 0; r < m; r++) {
+                    if (active[r]) continue;
+                    double low = Double.NEGATIVE_INFINITY, high = Double.POSITIVE_INFINITY;
+                    for (int s = 0; s < n; s++) {
+                        double v = nu[r * n + s];
+                        if (v < 0) high = Math.min(high, c[s] / -v);
+                        else if (v > 0) low = Math.max(low, -c[s] / v);
+                    }
+                    if (!(high > low)) continue;
+                    xi[r] = (low + high) / 2;
+                    for (int s = 0; s < n; s++) {
+                        double v = nu[r * n + s];
+                        if (v == 0) continue;
+                        c[s] += v * xi[r];
+                        moving[s] = true;
+                    }
+                    active[r] = started = true;
+                }
+            }
+            for (int s = 0; s < n; s++) {
+                if (moving[s] && !(c[s] > 0)) return false;
+            }
+            findFree();
+            double g = energy(c, xi);
+
+            for (; iterations < MAX_ITERATIONS; iterations++) {
+                for (int s = 0; s < n; s++) logC[s] = moving[s] ? Math.log(c[s]) : 0;
+                double worst = 0;
+                for (int r = 0; r < m; r++) {
+                    double f = 0;
+                    if (active[r]) {
+                        f = -logK[r];
+                        for (int s = 0; s < n; s++) f += nu[r * n + s] * logC[s];
+                    }
+                    residual[r] = f;
+                    worst = Math.max(worst, Math.abs(f));
+                }
+                if (worst < TOLERANCE) return true;
+
+                // Newton step on G: its Hessian is nu diag(1/c) nu^T
+                if (!newtonStep()) return false;
+                double slope = 0;
+                for (int r = 0; r < m; r++) slope += residual[r] * step[r];
+                double alpha = 1;
+                for (int s = 0; s < n; s++) {
+                    if (dc[s] < 0) alpha = Math.min(alpha, TO_BOUNDARY * c[s] / -dc[s]);
+                }
+
+                // Backtrack until G falls enough, unless so close that the fall is below rounding
+                double trialEnergy = Double.NaN;
+                for (int halvings = 0; halvings < 60; halvings++) {
+                    for (int s = 0; s < n; s++) trial[s] = c[s] + alpha * dc[s];
+                    trialEnergy = energyAlong(trial, alpha);
+                    if (-slope < NEAR || trialEnergy <= g + 1e-4 * alpha * slope) break;
+                    alpha /= 2;
+                }
+                boolean moved = false;
+                for (int s = 0; s < n; s++) {
+                    if (!moving[s]) continue;
+                    if (!(trial[s] > 0)) return false;
+                    moved |= trial[s] != c[s];
+                    c[s] = trial[s];
+                }
+                for (int r = 0; r < m; r++) xi[r] += alpha * step[r];
+                g = trialEnergy;
+                if (!moved) return false;
+            }
+            return false;
+        }
+
+        /**
+         * Marks as free each active reaction whose coefficients are not a combination of those
+         * of the free reactions before it. The others follow from the free ones: their residual
+         * vanishes with the free ones' if their constants agree, and never does if not.
+         */
+        private void findFree() {
+            int n = species.length;
+            freeCount = 0;
+            for (int r = 0; r < reactionCount; r++) {
+                if (!active[r]) continue;
+                int k = freeCount;
+                System.arraycopy(nu, r * n, basis, k * n, n);
+                double scale = 0;
+                for (int s = 0; s < n; s++) scale = Math.max(scale, Math.abs(basis[k * n + s]));
+                for (int j = 0; j < k; j++) {
+                    double f = basis[k * n + pivot[j]] / basis[j * n + pivot[j]];
+                    if (f == 0) continue;
+                    for (int s = 0; s < n; s++) basis[k * n + s] -= f * basis[j * n + s];
+                }
+                int best = 0;
+                for (int s = 1; s < n; s++) {
+                    if (Math.abs(basis[k * n + s]) > Math.abs(basis[k * n + best])) best = s;
+                }
+                if (!(Math.abs(basis[k * n + best]) > 1e-9 * scale)) continue;
+                pivot[k] = best;
+                free[freeCount++] = r;
+            }
+        }
+
+        /**
+         * Sets {@link #step} to the Newton step for the free reactions and {@link #dc} to the
+         * change in concentrations it makes.
+         * <p>
+         * The Hessian is {@code B^T B} for {@code B = diag(c^-1/2) nu^T} restricted to the free
+         * reactions, and it is never formed: a species far scarcer than the others has a term
+         * {@code 1/c} that would swamp the rest of its rows. Instead {@code B = Q R} is factored
+         * by Givens rotations, folding in the rows of the scarcest species first, which keeps
+         * {@code R} accurate however widely the concentrations are spread. The change in each
+         * species is then {@code -c^1/2 Q R^-T residual}, taken from the rotations rather than
+         * as {@code nu^T step}, which would cancel between reactions that make and consume a
+         * scarce species.
+         *
+         * @return Whether the factor was nonsingular.
+         */
+        private boolean newtonStep() {
+            int n = species.length;
+            int k = freeCount;
+            orderCount = 0;
+            for (int s = 0; s < n; s++) {
+                if (!moving[s]) continue;
+                int at = orderCount++;
+                while (at > 0 && c[order[at - 1]] > c[s]) {
+                    order[at] = order[at - 1];
+                    at--;
+                }
+                order[at] = s;
+            }
+
+            Arrays.fill(factor, 0, k * k, 0);
+            for (int o = 0; o < orderCount; o++) {
+                int s = order[o];
+                double weight = 1 / Math.sqrt(c[s]);
+                for (int j = 0; j < k; j++) row[j] = nu[free[j] * n + s] * weight;
+                for (int j = 0; j < k; j++) {
+                    double cos = 1, sin = 0;
+                    if (row[j] != 0) {
+                        double diagonal = factor[j * k + j];
+                        double r = Math.hypot(diagonal, row[j]);
+                        cos = diagonal / r;
+                        sin = row[j] / r;
+                        factor[j * k + j] = r;
+                        for (int l = j + 1; l < k; l++) {
+                            double t = factor[j * k + l];
+                            factor[j * k + l] = cos * t + sin * row[l];
+                            row[l] = cos * row[l] - sin * t;
+                        }
+                    }
+                    cosine[o * reactionCount + j] = cos;
+                    sine[o * reactionCount + j] = sin;
+                }
+            }
+
+            // R^T z = residual
+            for (int j = 0; j < k; j++) {
+                double d = factor[j * k + j];
+                if (!(d != 0) || Double.isInfinite(d)) return false;
+                double v = residual[free[j]];
+                for (int i = 0; i < j; i++) v -= factor[i * k + j] * z[i];
+                z[j] = v / d;
+            }
+            // R step = -z
+            Arrays.fill(step, 0);
+            for (int j = k - 1; j >= 0; j--) {
+                double v = -z[j];
+                for (int l = j + 1; l < k; l++) v -= factor[j * k + l] * step[free[l]];
+                step[free[j]] = v / factor[j * k + j];
+            }
+            // Q z, undoing the rotations in reverse with the species' rows starting at 0
+            Arrays.fill(z, k, k + orderCount, 0);
+            for (int o = orderCount - 1; o >= 0; o--) {
+                for (int j = k - 1; j >= 0; j--) {
+                    double cos = cosine[o * reactionCount + j], sin = sine[o * reactionCount + j];
+                    double a = z[j], b = z[k + o];
+                    z[j] = cos * a - sin * b;
+                    z[k + o] = sin * a + cos * b;
+                }
+            }
+            Arrays.fill(dc, 0);
+            for (int o = 0; o < orderCount; o++) {
+                int s = order[o];
+                dc[s] = -Math.sqrt(c[s]) * z[k + o];
+            }
+            return true;
+        }
+
+        /** {@code G} at concentrations {@code c} and extents {@code xi + alpha * step}. */
+        private double energyAlong(double[] c, double alpha) {
+            double g = 0;
+            for (int s = 0; s < species.length; s++) {
+                if (moving[s]) g += c[s] * (Math.log(c[s]) - 1);
+            }
+            for (int r = 0; r < reactionCount; r++) {
+                if (active[r]) g -= (xi[r] + alpha * step[r]) * logK[r];
+            }
+            return g != g ? Double.POSITIVE_INFINITY : g;
+        }
+
+        private double energy(double[] c, double[] xi) {
+            double g = 0;
+            for (int s = 0; s < species.length; s++) {
+                if (moving[s]) g += c[s] * (Math.log(c[s]) - 1);
+            }
+            for (int r = 0; r < reactionCount; r++) {
+                if (active[r]) g -= xi[r] * logK[r];
+            }
+            return g;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package chem.chemfx.atoms;
+
+import java.util.Arrays;
+
+/**
+ * Path fingerprint of a molecule, used to screen substructure searches.
+ * <p>
+ * Every simple path of up to {@value #MAX_PATH_BONDS} bonds is written as its alternating
+ * element and {@link MoleculeGraph#orderClass(int) order class} sequence, read in whichever
+ * direction hashes lower, and hashed to one of {@value #BITS} bits. A substructure match maps
+ * each path of the query onto a path of the target with the same sequence, so if the query's
+ * bits are not all set in the target's fingerprint the target cannot contain the query. The
+ * converse does not hold: a passing screen still needs a full match.
+ * <p>
+ * Paths through wildcard atoms (atomic number 0) match any sequence and are not recorded in
+ * query fingerprints; use {@link #ofQuery(MoleculeGraph)} for queries that may contain them.
+ */
+public final class Fingerprint {
+
+    /** Fingerprint length in bits. */
+    public static final int BITS = 1024;
+
+    /** Longest path recorded, in bonds. */
+    public static final int MAX_PATH_BONDS = 5;
+
+    private static final int WORDS = BITS / Long.SIZE;
+
+    private final long[] words;
+
+    private Fingerprint(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Fingerprints a molecule to be searched.
+     *
+     * @param graph The molecule.
+     * @return Its fingerprint.
+     */
+    public static Fingerprint of(MoleculeGraph graph) {
+        return new PathWalker(graph, false).run();
+    }
+
+    /**
+     * Fingerprints a query, leaving out paths through wildcard atoms.
+     *
+     * @param graph The query.
+     * @return Its fingerprint.
+     */
+    public static Fingerprint ofQuery(MoleculeGraph graph) {
+        return new PathWalker(graph, true).run();
+    }
+
+    /**
+     * Tests whether this fingerprint has every bit of another set.
+     *
+     * @param query Fingerprint of a query.
+     * @return {@code false} if a molecule with this fingerprint cannot contain the query.
+     */
+    public boolean screens(Fingerprint query) {
+        for (int w = 0; w < WORDS; w++) {
+            if ((query.words[w] & ~words[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of bits set.
+     */
+    public int cardinality() {
+        int bits = 0;
+        for (long word : words) bits += Long.bitCount(word);
+        return bits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Fingerprint other && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    /** Depth-first enumeration of simple paths from every atom. */
+    private static final class PathWalker {
+
+        private final MoleculeGraph graph;
+        private final boolean skipWildcards;
+        private final long[] words = new long[WORDS];
+        private final boolean[] onPath;
+
+        /** Elements along the current path, and the order classes of the bonds between them. */
+        private final int[] elements = new int[MAX_PATH_BONDS + 1];
+        private final int[] orders = new int[MAX_PATH_BONDS];
+
+        PathWalker(MoleculeGraph graph, boolean skipWildcards) {
+            this.graph = graph;
+            this.skipWildcards = skipWildcards;
+            this.onPath = new boolean[graph.atomCount()];
+        }
+
+        Fingerprint run() {
+            for (int i = 0; i < graph.atomCount(); i++) {
+                if (skipWildcards && graph.element(i) == 0) continue;
+                walk(i, 0);
+            }
+            return new Fingerprint(words);
+        }
+
+        private void walk(int atom, int length) {
+            elements[length] = graph.element(atom);
+            record(length);
+            if (length == MAX_PATH_BONDS) return;
+            onPath[atom] = true;
+            for (int e = graph.firstEdge(atom); e < graph.endEdge(atom); e++) {
+                int next = graph.neighbor(e);
+                if (onPath[next] || (skipWildcards && graph.element(next) == 0)) continue;
+                orders[length] = graph.orderClass(e);
+                walk(next, length + 1);
+            }
+            onPath[atom] = false;
+        }
+
+        private void record(int length) {
+            long forward = elements[0];
+            long backward = elements[length];
+            for (int k = 0; k < length; k++) {
+                forward = (forward * 31 + orders[k]) * 131 + elements[k + 1];
+                backward = (backward * 31 + orders[length - 1 - k]) * 131 + elements[length - 1 - k];
+            }
+            int bit = (int) (mix(Math.min(forward, backward) * 8 + length) & (BITS - 1));
+            words[bit >>> 6] |= 1L << bit;
+        }
+
+        private static long mix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
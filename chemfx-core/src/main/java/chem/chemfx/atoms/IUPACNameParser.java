@@ -0,0 +1,454 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses systematic IUPAC names of acyclic and monocyclic compounds into heavy-atom
+ * {@link MoleculeGraph} templates, with carbon atoms of the parent chain numbered first.
+ * <p>
+ * The accepted grammar is
+ * <pre>
+ *     name        = { [locants "-"] [multiplier] substituent ["-"] } parent
+ *     parent      = ["cyclo"] stem ( "an" | unsaturation { "-" unsaturation } ) ending
+ *     unsaturation = ["a"] ["-" locants "-"] [multiplier] ( "en" | "yn" )
+ *     ending      = "e" | ["e"] ["-" locants "-"] [multiplier] suffix
+ * </pre>
+ * covering e.g. {@code 3-ethyl-2,2-dimethylhexane}, {@code buta-1,3-diene},
+ * {@code pent-4-en-2-ol}, {@code ethane-1,2-diol}, {@code butanoic acid} and
+ * {@code chlorocyclohexane}. Missing locants default to 1, except for ketones and alkyl groups
+ * on a chain, which default to 2.
+ * <p>
+ * Morphemes are matched against a trie compiled once at class initialisation, so each match
+ * walks the name once instead of testing every known morpheme. Where morphemes overlap (e.g.
+ * the multiplier {@code tetra} and the stem {@code tetradec}) the parser backtracks, trying
+ * the longest match first. A parser is used for one name.
+ */
+final class IUPACNameParser {
+
+    /** Morpheme kinds, each with its own values in the trie. */
+    private static final int STEM = 0, MULTIPLIER = 1, SUBSTITUENT = 2, SUFFIX = 3;
+
+    /** Suffix values. */
+    private static final int OL = 0, AL = 1, ONE = 2, OIC_ACID = 3, AMINE = 4, NITRILE = 5, THIOL = 6;
+
+    /** Letters a-z and space. */
+    private static final int ALPHABET = 27;
+
+    private static final int MAX_NODES = 512;
+
+    /** Child of each node for each letter, 0 if absent; node 0 is the root. */
+    private static final int[] trie = new int[MAX_NODES * ALPHABET];
+
+    /** Value of the morpheme ending at each node, per kind; -1 if none. */
+    private static final int[][] values = new int[4][MAX_NODES];
+
+    private static int nodeCount = 1;
+
+    /**
+     * A group that can be attached to the parent chain.
+     *
+     * @param elements    Atomic number of each atom; atom 0 attaches to the chain.
+     * @param bonds       Bonds as (atom, atom, order) triples.
+     * @param attachOrder Order of the bond to the chain.
+     * @param alkyl       Whether the group is an alkyl group, for default locants.
+     */
+    private record Fragment(byte[] elements, int[] bonds, int attachOrder, boolean alkyl) {
+    }
+
+    private static final Fragment[] fragments = {
+            new Fragment(new byte[]{9}, new int[0], 1, false),
+            new Fragment(new byte[]{17}, new int[0], 1, false),
+            new Fragment(new byte[]{35}, new int[0], 1, false),
+            new Fragment(new byte[]{53}, new int[0], 1, false),
+            new Fragment(new byte[]{8}, new int[0], 1, false),
+            new Fragment(new byte[]{7}, new int[0], 1, false),
+            new Fragment(new byte[]{8}, new int[0], 2, false),
+            new Fragment(new byte[]{6, 6, 6, 6, 6, 6},
+                    new int[]{0, 1, 2, 1, 2, 1, 2, 3, 2, 3, 4, 1, 4, 5, 2, 5, 0, 1}, 1, false),
+            new Fragment(new byte[]{6, 6}, new int[]{0, 1, 2}, 1, false),
+            new Fragment(new byte[]{6, 6, 6}, new int[]{0, 1, 1, 0, 2, 1}, 1, true),
+            new Fragment(new byte[]{6, 6, 6, 6}, new int[]{0, 1, 1, 1, 2, 1, 1, 3, 1}, 1, true),
+    };
+
+    static {
+        for (int[] row : values) Arrays.fill(row, -1);
+        String[] stems = {"meth", "eth", "prop", "but", "pent", "hex", "hept", "oct", "non", "dec",
+                "undec", "dodec", "tridec", "tetradec", "pentadec", "hexadec", "heptadec", "octadec", "nonadec", "icos"};
+        for (int i = 0; i < stems.length; i++) add(stems[i], STEM, i + 1);
+        String[] multipliers = {"di", "tri", "tetra", "penta", "hexa", "hepta", "octa", "nona", "deca"};
+        for (int i = 0; i < multipliers.length; i++) add(multipliers[i], MULTIPLIER, i + 2);
+        String[] substituents = {"fluoro", "chloro", "bromo", "iodo", "hydroxy", "amino", "oxo", "phenyl",
+                "vinyl", "isopropyl", "isobutyl"};
+        for (int i = 0; i < substituents.length; i++) add(substituents[i], SUBSTITUENT, i);
+        add("ethenyl", SUBSTITUENT, 8);
+        add("ol", SUFFIX, OL);
+        add("al", SUFFIX, AL);
+        add("one", SUFFIX, ONE);
+        add("oic acid", SUFFIX, OIC_ACID);
+        add("amine", SUFFIX, AMINE);
+        add("nitrile", SUFFIX, NITRILE);
+        add("thiol", SUFFIX, THIOL);
+    }
+
+    private static void add(String morpheme, int kind, int value) {
+        int node = 0;
+        for (int i = 0; i < morpheme.length(); i++) {
+            int slot = node * ALPHABET + letter(morpheme.charAt(i));
+            if (trie[slot] == 0) trie[slot] = nodeCount++;
+            node = trie[slot];
+        }
+        values[kind][node] = value;
+    }
+
+    private static int letter(char c) {
+        if (c == ' ') return 26;
+        return c >= 'a' && c <= 'z' ? c - 'a' : -1;
+    }
+
+    /** A substituent group: a fragment and the chain locants it is attached at. */
+    private record Group(int[] locants, int count, Fragment fragment) {
+    }
+
+    private final String original;
+    private final String s;
+    private final int length;
+
+    /** Value of the last morpheme matched, and end of the last locant list parsed. */
+    private int matchedValue;
+    private int cursor;
+
+    private final List<Group> groups = new ArrayList<>();
+
+    /** Parent chain: carbon count, ring flag, multiple bonds as (locant, order) and the suffix. */
+    private int chainLength;
+    private boolean ring;
+    private final List<int[]> unsaturations = new ArrayList<>();
+    private int suffix = -1;
+    private int suffixCount;
+    private int[] suffixLocants;
+
+    IUPACNameParser(String name) {
+        this.original = name;
+        this.s = name.strip().toLowerCase(Locale.ROOT);
+        this.length = s.length();
+    }
+
+    /**
+     * @return The heavy-atom structure named.
+     * @throws IllegalArgumentException if the name cannot be parsed or its locants are out of range.
+     * @throws CovalentBondException     if the structure breaks the bonding rules.
+     */
+    MoleculeGraph parse() {
+        if (!name(0)) throw new IllegalArgumentException("Cannot parse IUPAC name: " + original);
+        MoleculeGraph graph = build();
+        BondValidationReport report = BondValidator.validate(graph);
+        if (!report.isValid()) throw report.diagnostics().getFirst().violation().toException();
+        return graph;
+    }
+
+    /**
+     * Finds the longest morpheme of a kind starting at {@code p} and ending before {@code limit},
+     * so that callers can retry with shorter matches.
+     *
+     * @return End of the match, or -1; the value is left in {@link #matchedValue}.
+     */
+    private int match(int p, int kind, int limit) {
+        int node = 0;
+        int end = -1;
+        for (int i = p; i < length && i < limit; i++) {
+            int c = letter(s.charAt(i));
+            if (c < 0) break;
+            node = trie[node * ALPHABET + c];
+            if (node == 0) break;
+            if (values[kind][node] >= 0 && i + 1 < limit) {
+                end = i + 1;
+                matchedValue = values[kind][node];
+            }
+        }
+        return end;
+    }
+
+    private boolean isDigit(int p) {
+        return p < length && s.charAt(p) >= '0' && s.charAt(p) <= '9';
+    }
+
+    private boolean at(int p, char c) {
+        return p < length && s.charAt(p) == c;
+    }
+
+    /** Parses {@code n(,n)*} followed by '-', leaving {@link #cursor} after the hyphen. */
+    private int[] locants(int p) {
+        if (!isDigit(p)) return null;
+        int[] result = new int[4];
+        int count = 0;
+        while (true) {
+            int value = 0;
+            while (isDigit(p)) value = value * 10 + s.charAt(p++) - '0';
+            if (count == result.length) result = Arrays.copyOf(result, 2 * count);
+            result[count++] = value;
+            if (at(p, ',') && isDigit(p + 1)) {
+                p++;
+            } else {
+                break;
+            }
+        }
+        if (!at(p, '-')) return null;
+        cursor = p + 1;
+        return Arrays.copyOf(result, count);
+    }
+
+    private boolean name(int p) {
+        if (parent(p)) return true;
+
+        int[] locants = null;
+        int q = p;
+        if (isDigit(q)) {
+            locants = locants(q);
+            if (locants == null) return false;
+            q = cursor;
+        }
+        // With the longest multiplier first, then shorter ones, then none
+        int limit = length + 1;
+        while (true) {
+            int end = match(q, MULTIPLIER, limit);
+            int count = end < 0 ? 1 : matchedValue;
+            int start = end < 0 ? q : end;
+            if (locants == null || locants.length == count) {
+                if (substituent(start, locants, count)) return true;
+            }
+            if (end < 0) return false;
+            limit = end;
+        }
+    }
+
+    /** Tries each substituent spelling at {@code p}, then the rest of the name after it. */
+    private boolean substituent(int p, int[] locants, int count) {
+        int limit = length + 1;
+        int end;
+        while ((end = match(p, SUBSTITUENT, limit)) >= 0) {
+            if (rest(end, new Group(locants, count, fragments[matchedValue]))) return true;
+            limit = end;
+        }
+
+        boolean cyclic = s.startsWith("cyclo", p);
+        int stemStart = cyclic ? p + 5 : p;
+        limit = length + 1;
+        while ((end = match(stemStart, STEM, limit)) >= 0) {
+            int carbons = matchedValue;
+            if (s.startsWith("yl", end) && (!cyclic || carbons >= 3)) {
+                if (rest(end + 2, new Group(locants, count, alkyl(carbons, cyclic)))) return true;
+            }
+            limit = end;
+        }
+        return false;
+    }
+
+    private boolean rest(int p, Group group) {
+        groups.add(group);
+        int next = at(p, '-') && isDigit(p + 1) ? p + 1 : p;
+        if (next < length && name(next)) return true;
+        groups.removeLast();
+        return false;
+    }
+
+    private static Fragment alkyl(int carbons, boolean cyclic) {
+        byte[] elements = new byte[carbons];
+        Arrays.fill(elements, (byte) 6);
+        int bondCount = cyclic ? carbons : carbons - 1;
+        int[] bonds = new int[3 * bondCount];
+        for (int i = 0; i < bondCount; i++) {
+            bonds[3 * i] = i;
+            bonds[3 * i + 1] = (i + 1) % carbons;
+            bonds[3 * i + 2] = 1;
+        }
+        return new Fragment(elements, bonds, 1, !cyclic);
+    }
+
+    private boolean parent(int p) {
+        boolean cyclic = s.startsWith("cyclo", p);
+        int stemStart = cyclic ? p + 5 : p;
+        int limit = length + 1;
+        int end;
+        while ((end = match(stemStart, STEM, limit)) >= 0) {
+            int carbons = matchedValue;
+            if ((!cyclic || carbons >= 3) && saturation(end)) {
+                chainLength = carbons;
+                ring = cyclic;
+                return true;
+            }
+            limit = end;
+        }
+        return false;
+    }
+
+    private boolean saturation(int p) {
+        unsaturations.clear();
+        if (s.startsWith("an", p)) return ending(p + 2);
+
+        boolean any = false;
+        while (true) {
+            int q = p;
+            if (any) {
+                if (!at(q, '-')) break;
+            } else if (at(q, 'a') && at(q + 1, '-')) {
+                q++;
+            }
+            int[] locants = null;
+            if (at(q, '-')) {
+                locants = locants(q + 1);
+                if (locants == null) break;
+                q = cursor;
+            }
+            int count = 1;
+            int end = match(q, MULTIPLIER, length + 1);
+            if (end >= 0 && (s.startsWith("en", end) || s.startsWith("yn", end))) {
+                count = matchedValue;
+                q = end;
+            }
+            int order;
+            if (s.startsWith("en", q)) {
+                order = 2;
+            } else if (s.startsWith("yn", q)) {
+                order = 3;
+            } else {
+                break;
+            }
+            if (locants != null && locants.length != count) break;
+            for (int i = 0; i < count; i++) unsaturations.add(new int[]{locants == null ? 1 : locants[i], order});
+            p = q + 2;
+            any = true;
+        }
+        return any && ending(p);
+    }
+
+    private boolean ending(int p) {
+        suffix = -1;
+        if (at(p, 'e') && p + 1 == length) return true;
+
+        int q = at(p, 'e') ? p + 1 : p;
+        int[] locants = null;
+        if (at(q, '-')) {
+            locants = locants(q + 1);
+            if (locants == null) return false;
+            q = cursor;
+        }
+        int limit = length + 1;
+        while (true) {
+            int end = match(q, MULTIPLIER, limit);
+            int count = end < 0 ? 1 : matchedValue;
+            int start = end < 0 ? q : end;
+            if (match(start, SUFFIX, length + 1) == length && (locants == null || locants.length == count)) {
+                suffix = matchedValue;
+                suffixCount = count;
+                suffixLocants = locants;
+                return true;
+            }
+            if (end < 0) return false;
+            limit = end;
+        }
+    }
+
+    /** Assembles the parsed parts; parent chain atoms come first, numbered by locant - 1. */
+    private MoleculeGraph build() {
+        Assembly assembly = new Assembly();
+        int n = chainLength;
+        for (int i = 0; i < n; i++) assembly.atom(6);
+        for (int i = 0; i + 1 < n; i++) assembly.bond(i, i + 1, 1);
+        if (ring) assembly.bond(n - 1, 0, 1);
+
+        for (int[] unsaturation : unsaturations) {
+            int locant = unsaturation[0];
+            if (locant < 1 || locant > (ring ? n : n - 1)) throw outOfRange(locant);
+            if (assembly.orders[locant - 1] != 1) {
+                throw new IllegalArgumentException("Multiple bond at locant " + locant + " given twice in " + original);
+            }
+            assembly.orders[locant - 1] = (byte) unsaturation[1];
+        }
+
+        if (suffix >= 0) {
+            for (int i = 0; i < suffixCount; i++) {
+                switch (suffix) {
+                    case AL -> assembly.attach(end(i), 8, 2);
+                    case OIC_ACID -> {
+                        assembly.attach(end(i), 8, 2);
+                        assembly.attach(end(i), 8, 1);
+                    }
+                    case NITRILE -> assembly.attach(end(i), 7, 3);
+                    default -> {
+                        int fallback = suffix == ONE && !ring ? 2 + i : 1 + i;
+                        int locant = checked(suffixLocants == null ? fallback : suffixLocants[i]);
+                        int z = switch (suffix) {
+                            case OL, ONE -> 8;
+                            case AMINE -> 7;
+                            default -> 16;
+                        };
+                        assembly.attach(locant - 1, z, suffix == ONE ? 2 : 1);
+                    }
+                }
+            }
+        }
+
+        for (Group group : groups) {
+            Fragment fragment = group.fragment();
+            for (int i = 0; i < group.count(); i++) {
+                int fallback = ring ? 1 + i : fragment.alkyl() ? 2 : 1;
+                int locant = checked(group.locants() == null ? fallback : group.locants()[i]);
+                int first = assembly.atomCount;
+                for (byte z : fragment.elements()) assembly.atom(z);
+                int[] bonds = fragment.bonds();
+                for (int b = 0; b < bonds.length; b += 3) {
+                    assembly.bond(first + bonds[b], first + bonds[b + 1], bonds[b + 2]);
+                }
+                assembly.bond(locant - 1, first, fragment.attachOrder());
+            }
+        }
+        return MoleculeGraph.of(assembly.elements, assembly.atomCount, assembly.bondAtoms, assembly.orders, assembly.bondCount);
+    }
+
+    /** Chain end carrying the {@code i}-th terminal group (-al, -oic acid, -nitrile). */
+    private int end(int i) {
+        if (ring || i > 1) throw new IllegalArgumentException("Too many terminal groups in " + original);
+        return i == 0 ? 0 : chainLength - 1;
+    }
+
+    private int checked(int locant) {
+        if (locant < 1 || locant > chainLength) throw outOfRange(locant);
+        return locant;
+    }
+
+    private IllegalArgumentException outOfRange(int locant) {
+        return new IllegalArgumentException("Locant " + locant + " is out of range in " + original);
+    }
+
+    /** Growable flat arrays for {@link MoleculeGraph#of(byte[], int, int[], byte[], int)}. */
+    private static final class Assembly {
+        byte[] elements = new byte[16];
+        int atomCount;
+        int[] bondAtoms = new int[32];
+        byte[] orders = new byte[16];
+        int bondCount;
+
+        int atom(int z) {
+            if (atomCount == elements.length) elements = Arrays.copyOf(elements, 2 * atomCount);
+            elements[atomCount] = (byte) z;
+            return atomCount++;
+        }
+
+        void bond(int a1, int a2, int order) {
+            if (bondCount == orders.length) {
+                orders = Arrays.copyOf(orders, 2 * bondCount);
+                bondAtoms = Arrays.copyOf(bondAtoms, 4 * bondCount);
+            }
+            bondAtoms[2 * bondCount] = a1;
+            bondAtoms[2 * bondCount + 1] = a2;
+            orders[bondCount++] = (byte) order;
+        }
+
+        void attach(int atom, int z, int order) {
+            bond(atom, atom(z), order);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package chem.chemfx.atoms;
+
+import java.util.Arrays;
+
+/**
+ * Running molecular formula and mass of a changing set of atoms.
+ * <p>
+ * Instead of re-walking every atom after an edit, the owner reports each change: an atom added
+ * or removed, or the total bond order of an atom changing. Each report costs O(1). Hydrogens
+ * are counted both as explicit atoms and as implicit hydrogens filling the free bonding
+ * capacity of every atom: {@code min(v, c - v)} for {@code v} valence electrons of the neutral
+ * element and {@code c} = 8, or 2 for hydrogen and helium.
+ * <p>
+ * Masses are kept in fixed point (nano-u) so that any sequence of additions and removals
+ * returns exactly to the starting value:
+ * <ul>
+ *     <li>The exact mass uses the isotope given by each atom's neutron number; implicit
+ *     hydrogens are protium. Only common nuclides have measured masses here; the others are
+ *     estimated to a few hundredths of a u, and {@link #isExactMassMeasured()} tells whether any
+ *     atom needed an estimate.</li>
+ *     <li>The average mass uses {@link ElementTable#averageMass(int) standard atomic weights}.</li>
+ * </ul>
+ * Not thread-safe.
+ */
+public final class MolecularFormula {
+
+    /** Fixed-point units per unified atomic mass unit. */
+    private static final double SCALE = 1e9;
+
+    private static final double PROTIUM_MASS = 1.00782503207;
+    private static final double NEUTRON_MASS = 1.00866491595;
+
+    /** MeV per unified atomic mass unit. */
+    private static final double MEV_PER_U = 931.49410242;
+
+    /**
+     * Measured masses of common nuclides as (Z, N, mass) rows; other nuclides use the
+     * semi-empirical mass formula.
+     */
+    private static final double[][] measuredMasses = {
+            {1, 0, 1.00782503207}, {1, 1, 2.0141017778}, {1, 2, 3.0160492777},
+            {2, 2, 4.00260325415}, {3, 4, 7.01600455}, {5, 6, 11.0093054},
+            {6, 6, 12.0}, {6, 7, 13.0033548378}, {6, 8, 14.003241989},
+            {7, 7, 14.0030740048}, {7, 8, 15.0001088982},
+            {8, 8, 15.99491461956}, {8, 9, 16.99913170}, {8, 10, 17.9991610},
+            {9, 10, 18.99840322}, {11, 12, 22.9897692809}, {14, 14, 27.9769265325},
+            {15, 16, 30.97376163}, {16, 16, 31.97207100}, {16, 18, 33.96786690},
+            {17, 18, 34.96885268}, {17, 20, 36.96590259},
+            {35, 44, 78.9183371}, {35, 46, 80.9162906}, {53, 74, 126.904473}
+    };
+
+    /** Free bonding capacity of each neutral element, indexed by atomic number. */
+    private static final byte[] bondingCapacity = new byte[ElementTable.SIZE + 1];
+
+    /** Standard atomic weight of each element in fixed point, indexed by atomic number. */
+    private static final long[] averageMasses = new long[ElementTable.SIZE + 1];
+
+    static {
+        for (int z = 1; z <= ElementTable.SIZE; z++) {
+            int valence = ElectronConfigurations.valenceElectrons(z, 0);
+            int capacity = z <= 2 ? 2 : 8;
+            bondingCapacity[z] = (byte) Math.max(0, Math.min(valence, capacity - valence));
+            averageMasses[z] = Math.round(ElementTable.averageMass(z) * SCALE);
+        }
+    }
+
+    /** Explicit atoms of each element, indexed by atomic number. */
+    private final int[] counts = new int[ElementTable.SIZE + 1];
+    private int atomCount;
+    private int implicitHydrogens;
+    private long exactMass;
+    private long averageMass;
+
+    /** Atoms whose isotope has no measured mass. */
+    private int estimatedAtoms;
+
+    /**
+     * Computes the mass of a neutral atom of one isotope. Nuclides without a measured mass
+     * (see {@link #isMeasured}) are estimated with the semi-empirical mass formula, which is off
+     * by up to a few hundredths of a u.
+     *
+     * @param atomicNumber  Number of protons.
+     * @param neutronNumber Number of neutrons.
+     * @return Atomic mass in unified atomic mass units, electrons included.
+     */
+    public static double isotopicMass(int atomicNumber, int neutronNumber) {
+        double[] row = measured(atomicNumber, neutronNumber);
+        if (row != null) return row[2];
+        int a = atomicNumber + neutronNumber;
+        if (a <= 1) return atomicNumber * PROTIUM_MASS + neutronNumber * NEUTRON_MASS;
+
+        // Bethe-Weizsaecker binding energy in MeV
+        double cubeRoot = Math.cbrt(a);
+        double asymmetry = a - 2.0 * atomicNumber;
+        double binding = 15.75 * a - 17.8 * cubeRoot * cubeRoot
+                - 0.711 * atomicNumber * (atomicNumber - 1) / cubeRoot
+                - 23.7 * asymmetry * asymmetry / a;
+        if (a % 2 == 0) binding += (atomicNumber % 2 == 0 ? 11.18 : -11.18) / Math.sqrt(a);
+        return atomicNumber * PROTIUM_MASS + neutronNumber * NEUTRON_MASS - binding / MEV_PER_U;
+    }
+
+    /**
+     * @param atomicNumber  Number of protons.
+     * @param neutronNumber Number of neutrons.
+     * @return Whether {@link #isotopicMass} gives the measured mass of the nuclide rather than
+     * an estimate.
+     */
+    public static boolean isMeasured(int atomicNumber, int neutronNumber) {
+        return measured(atomicNumber, neutronNumber) != null;
+    }
+
+    private static double[] measured(int atomicNumber, int neutronNumber) {
+        for (double[] row : measuredMasses) {
+            if (row[0] == atomicNumber && row[1] == neutronNumber) return row;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of single bonds a neutral atom of an element can form, which is the
+     * number of implicit hydrogens it carries while unbonded.
+     *
+     * @param atomicNumber Number of protons (1-118).
+     * @return Bonding capacity.
+     */
+    public static int bondingCapacity(int atomicNumber) {
+        ElementTable.byNumber(atomicNumber);
+        return bondingCapacity[atomicNumber];
+    }
+
+    private static int implicitHydrogens(int atomicNumber, int valence) {
+        return Math.max(0, bondingCapacity[atomicNumber] - valence);
+    }
+
+    private static long fixed(double mass) {
+        return Math.round(mass * SCALE);
+    }
+
+    /**
+     * Records a new, unbonded atom.
+     *
+     * @param atomicNumber  Number of protons (1-118).
+     * @param neutronNumber Number of neutrons, for the exact mass.
+     */
+    public void addAtom(int atomicNumber, int neutronNumber) {
+        ElementTable.byNumber(atomicNumber);
+        counts[atomicNumber]++;
+        atomCount++;
+        int hydrogens = bondingCapacity[atomicNumber];
+        implicitHydrogens += hydrogens;
+        exactMass += fixed(isotopicMass(atomicNumber, neutronNumber)) + hydrogens * fixed(PROTIUM_MASS);
+        averageMass += averageMasses[atomicNumber] + hydrogens * averageMasses[1];
+        if (!isMeasured(atomicNumber, neutronNumber)) estimatedAtoms++;
+    }
+
+    /**
+     * Records the removal of an atom.
+     *
+     * @param atomicNumber  Number of protons, as given to {@link #addAtom}.
+     * @param neutronNumber Number of neutrons, as given to {@link #addAtom}.
+     * @param valence       Total order of the bonds the atom still has.
+     */
+    public void removeAtom(int atomicNumber, int neutronNumber, int valence) {
+        counts[atomicNumber]--;
+        atomCount--;
+        int hydrogens = implicitHydrogens(atomicNumber, valence);
+        implicitHydrogens -= hydrogens;
+        exactMass -= fixed(isotopicMass(atomicNumber, neutronNumber)) + hydrogens * fixed(PROTIUM_MASS);
+        averageMass -= averageMasses[atomicNumber] + hydrogens * averageMasses[1];
+        if (!isMeasured(atomicNumber, neutronNumber)) estimatedAtoms--;
+    }
+
+    /**
+     * Records a change in the total bond order of an atom, which frees or uses up implicit
+     * hydrogens.
+     *
+     * @param atomicNumber Number of protons of the atom.
+     * @param before       Total bond order before the change.
+     * @param after        Total bond order after the change.
+     */
+    public void changeValence(int atomicNumber, int before, int after) {
+        int delta = implicitHydrogens(atomicNumber, after) - implicitHydrogens(atomicNumber, before);
+        implicitHydrogens += delta;
+        exactMass += delta * fixed(PROTIUM_MASS);
+        averageMass += delta * averageMasses[1];
+    }
+
+    /**
+     * Forgets every atom.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        atomCount = 0;
+        implicitHydrogens = 0;
+        exactMass = 0;
+        averageMass = 0;
+        estimatedAtoms = 0;
+    }
+
+    /**
+     * @return Number of explicit atoms.
+     */
+    public int atomCount() {
+        return atomCount;
+    }
+
+    /**
+     * @param atomicNumber Number of protons (1-118).
+     * @return Number of atoms of the element, implicit hydrogens included.
+     */
+    public int count(int atomicNumber) {
+        ElementTable.byNumber(atomicNumber);
+        return atomicNumber == 1 ? counts[1] + implicitHydrogens : counts[atomicNumber];
+    }
+
+    /**
+     * @return Monoisotopic mass in unified atomic mass units, using each atom's isotope; an
+     * estimate unless {@link #isExactMassMeasured()}.
+     */
+    public double exactMass() {
+        return exactMass / SCALE;
+    }
+
+    /**
+     * @return Whether every atom's isotope has a measured mass, so that {@link #exactMass()} is
+     * not an estimate.
+     */
+    public boolean isExactMassMeasured() {
+        return estimatedAtoms == 0;
+    }
+
+    /**
+     * @return Average molecular mass in unified atomic mass units (g/mol).
+     */
+    public double averageMass() {
+        return averageMass / SCALE;
+    }
+
+    /**
+     * Writes the formula in Hill order: carbon, then hydrogen, then the other elements
+     * alphabetically; without carbon, all elements alphabetically. Counts of 1 are omitted.
+     *
+     * @return The formula, e.g. "C2H6O", or an empty string if there are no atoms.
+     */
+    public String hillFormula() {
+        StringBuilder out = new StringBuilder();
+        boolean carbon = counts[6] > 0;
+        if (carbon) {
+            append(out, 6);
+            append(out, 1);
+        }
+        for (int z : HillOrder.ALPHABETICAL) {
+            if (!carbon || (z != 6 && z != 1)) append(out, z);
+        }
+        return out.toString();
+    }
+
+    private void append(StringBuilder out, int z) {
+        int count = count(z);
+        if (count == 0) return;
+        out.append(ElementTable.byNumber(z).symbol());
+        if (count > 1) out.append(count);
+    }
+
+    @Override
+    public String toString() {
+        return hillFormula();
+    }
+
+    /** Atomic numbers sorted by symbol, built on first use of {@link #hillFormula()}. */
+    private static final class HillOrder {
+        static final int[] ALPHABETICAL;
+
+        static {
+            String[] symbols = ElementTable.symbols();
+            Integer[] order = new Integer[ElementTable.SIZE];
+            for (int i = 0; i < order.length; i++) order[i] = i + 1;
+            Arrays.sort(order, (a, b) -> symbols[a - 1].compareTo(symbols[b - 1]));
+            ALPHABETICAL = Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
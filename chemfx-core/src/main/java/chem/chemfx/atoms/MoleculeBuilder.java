@@ -0,0 +1,63 @@
+package chem.chemfx.atoms;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds molecules from systematic IUPAC names.
+ * <p>
+ * Names are parsed into immutable {@link MoleculeGraph} templates, which are kept in a
+ * least-recently-used cache so that bulk jobs repeating the same names parse each one once.
+ * Every build then creates fresh atoms from the template.
+ */
+public class MoleculeBuilder {
+
+    /** Number of parsed names to keep. */
+    private static final int CACHE_SIZE = 4096;
+
+    /** Templates by normalised name, in access order; guarded by itself. */
+    private static final Map<String, MoleculeGraph> templates = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MoleculeGraph> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Builds the heavy atoms of a named molecule, bonded as named. Hydrogens are left implicit.
+     *
+     * @param name IUPAC name, e.g. "2-methylbutan-2-ol"; case and surrounding whitespace are ignored.
+     * @return New atoms; the parent chain comes first, numbered by locant.
+     * @throws IllegalArgumentException if the name cannot be parsed.
+     * @throws CovalentBondException     if the named structure breaks the bonding rules.
+     */
+    public static List<BohrAtom> buildIUPACChain(String name) {
+        return parseIUPACName(name).toBohrAtoms();
+    }
+
+    /**
+     * Parses an IUPAC name into a structure template, using the cache.
+     *
+     * @param name IUPAC name; case and surrounding whitespace are ignored.
+     * @return The heavy-atom structure.
+     * @throws IllegalArgumentException if the name cannot be parsed.
+     * @throws CovalentBondException     if the named structure breaks the bonding rules.
+     */
+    public static MoleculeGraph parseIUPACName(String name) {
+        String key = name.strip().toLowerCase(Locale.ROOT);
+        MoleculeGraph template;
+        synchronized (templates) {
+            template = templates.get(key);
+        }
+        if (template == null) {
+            // Parse outside the lock; a concurrent parse of the same name yields an equal template
+            template = new IUPACNameParser(key).parse();
+            synchronized (templates) {
+                templates.put(key, template);
+            }
+        }
+        return template;
+    }
+}
@@ -0,0 +1,393 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the connectivity of a set of {@link Atom}s, stored in
+ * compressed-sparse-row (CSR) form.
+ * <p>
+ * Atoms are numbered {@code 0..atomCount()-1}. The bonds of atom {@code i} occupy the edge
+ * slots {@code firstEdge(i)} (inclusive) to {@code endEdge(i)} (exclusive); each slot holds the
+ * neighbouring atom and the bond order. Every bond therefore appears twice, once from each end.
+ * Traversal through these accessors reads flat primitive arrays and allocates nothing:
+ * <pre>
+ *     for (int e = graph.firstEdge(i); e &lt; graph.endEdge(i); e++) {
+ *         int j = graph.neighbor(e);
+ *         int order = graph.order(e);
+ *     }
+ * </pre>
+ * Where bonds need numbering, they are numbered by walking the atoms in ascending order and,
+ * for each atom, its edges to higher-numbered neighbours.
+ * <p>
+ * Bond orders are those of one Kekulé structure, which depends on how the molecule was drawn or
+ * written. Code that compares molecules should use {@link #orderClass(int)}, which is the same
+ * for every Kekulé structure of a molecule.
+ * <p>
+ * Bonds to atoms outside the snapshot are dropped. Use a {@link Builder} to rebuild snapshots
+ * repeatedly (e.g. after every edit) without reallocating its scratch space.
+ */
+public final class MoleculeGraph {
+
+    /**
+     * Order class of bonds that are single in some Kekulé structures of a molecule and double in
+     * others, such as the ring bonds of benzene; larger than any bond order.
+     */
+    public static final int AROMATIC = 64;
+
+    /** Atoms of the snapshot, indexed by atom number. */
+    private final Atom[] atoms;
+
+    /** Start of each atom's edge slots; {@code offsets[atomCount]} is the number of slots. */
+    private final int[] offsets;
+
+    /** Neighbouring atom number of each edge slot. */
+    private final int[] neighbors;
+
+    /** Bond order of each edge slot. */
+    private final byte[] orders;
+
+    /** Atomic number of each atom. */
+    private final byte[] elements;
+
+    /** Order class of each edge slot, found on first use; {@link #orders} itself if none alternate. */
+    private volatile byte[] classes;
+
+    private MoleculeGraph(Atom[] atoms, int[] offsets, int[] neighbors, byte[] orders, byte[] elements) {
+        this.atoms = atoms;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.orders = orders;
+        this.elements = elements;
+    }
+
+    /**
+     * Freezes the connectivity of the given atoms.
+     *
+     * @param atoms The atoms to include, numbered in iteration order.
+     * @return A new snapshot.
+     */
+    public static MoleculeGraph of(Collection<? extends Atom> atoms) {
+        return new Builder().build(atoms);
+    }
+
+    /**
+     * Builds a graph from flat arrays, e.g. from a parser or a molecule description.
+     * The resulting graph has no {@link Atom}s attached.
+     *
+     * @param elements   Atomic number of each atom.
+     * @param bondAtoms  Atom numbers of the two ends of each bond, as consecutive pairs.
+     * @param bondOrders Order of each bond.
+     * @return A new snapshot.
+     * @throws IllegalArgumentException if a bond is malformed, joins an atom to itself or is listed twice.
+     */
+    public static MoleculeGraph of(byte[] elements, int[] bondAtoms, byte[] bondOrders) {
+        if (bondAtoms.length != 2 * bondOrders.length) {
+            throw new IllegalArgumentException("Expected " + 2 * bondOrders.length + " bond atoms, got " + bondAtoms.length);
+        }
+        return of(elements, elements.length, bondAtoms, bondOrders, bondOrders.length);
+    }
+
+    /**
+     * Builds a graph from the leading part of flat arrays, so that parsers can pass reusable
+     * buffers without trimming them first. The arrays are copied.
+     *
+     * @param elements   Atomic number of each atom.
+     * @param n          Number of atoms to read from {@code elements}.
+     * @param bondAtoms  Atom numbers of the two ends of each bond, as consecutive pairs.
+     * @param bondOrders Order of each bond.
+     * @param m          Number of bonds to read.
+     * @return A new snapshot.
+     * @throws IllegalArgumentException if a bond is malformed, joins an atom to itself or is listed twice.
+     */
+    public static MoleculeGraph of(byte[] elements, int n, int[] bondAtoms, byte[] bondOrders, int m) {
+        int[] offsets = new int[n + 1];
+        for (int b = 0; b < 2 * m; b++) {
+            int atom = bondAtoms[b];
+            if (atom < 0 || atom >= n) throw new IllegalArgumentException("No atom " + atom + " for bond " + b / 2);
+            offsets[atom + 1]++;
+        }
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+
+        int[] neighbors = new int[2 * m];
+        byte[] orders = new byte[2 * m];
+        int[] cursor = Arrays.copyOf(offsets, n);
+        for (int b = 0; b < m; b++) {
+            int a1 = bondAtoms[2 * b];
+            int a2 = bondAtoms[2 * b + 1];
+            if (a1 == a2) throw new IllegalArgumentException("Bond " + b + " joins atom " + a1 + " to itself");
+            for (int e = offsets[a1]; e < cursor[a1]; e++) {
+                if (neighbors[e] == a2) throw new IllegalArgumentException("Bond " + b + " is listed twice");
+            }
+            neighbors[cursor[a1]] = a2;
+            orders[cursor[a1]++] = bondOrders[b];
+            neighbors[cursor[a2]] = a1;
+            orders[cursor[a2]++] = bondOrders[b];
+        }
+        return new MoleculeGraph(new Atom[n], offsets, neighbors, orders, Arrays.copyOf(elements, n));
+    }
+
+    /**
+     * @return Number of atoms.
+     */
+    public int atomCount() {
+        return elements.length;
+    }
+
+    /**
+     * @return Number of bonds (each counted once).
+     */
+    public int bondCount() {
+        return neighbors.length / 2;
+    }
+
+    /**
+     * @param atom Atom number.
+     * @return Atomic number of the atom.
+     */
+    public int element(int atom) {
+        return elements[atom];
+    }
+
+    /**
+     * @param atom Atom number.
+     * @return Number of bonds of the atom.
+     */
+    public int degree(int atom) {
+        return offsets[atom + 1] - offsets[atom];
+    }
+
+    /**
+     * @param atom Atom number.
+     * @return First edge slot of the atom.
+     */
+    public int firstEdge(int atom) {
+        return offsets[atom];
+    }
+
+    /**
+     * @param atom Atom number.
+     * @return One past the last edge slot of the atom.
+     */
+    public int endEdge(int atom) {
+        return offsets[atom + 1];
+    }
+
+    /**
+     * @param edge Edge slot.
+     * @return Atom number at the far end of the edge.
+     */
+    public int neighbor(int edge) {
+        return neighbors[edge];
+    }
+
+    /**
+     * @param edge Edge slot.
+     * @return Bond order of the edge.
+     */
+    public int order(int edge) {
+        return orders[edge];
+    }
+
+    /**
+     * Finds the order of the bond between two atoms in O(degree).
+     *
+     * @param atom  First atom number.
+     * @param other Second atom number.
+     * @return Bond order, or 0 if the atoms are not bonded.
+     */
+    public int bondOrder(int atom, int other) {
+        for (int e = offsets[atom]; e < offsets[atom + 1]; e++) {
+            if (neighbors[e] == other) return orders[e];
+        }
+        return 0;
+    }
+
+    /**
+     * Gives the order of a bond as it is independent of the Kekulé structure: bonds that lie on
+     * a cycle of alternating single and double bonds, and so swap order in another Kekulé
+     * structure of the molecule, are {@link #AROMATIC}; the rest keep their order. Graphs of
+     * the same molecule drawn with different Kekulé structures have the same classes.
+     *
+     * @param edge Edge slot.
+     * @return Order class of the edge.
+     */
+    public int orderClass(int edge) {
+        byte[] c = classes;
+        if (c == null) classes = c = ConjugatedRings.classify(this, orders);
+        return c[edge];
+    }
+
+    /**
+     * Finds the {@link #orderClass(int) order class} of the bond between two atoms in O(degree).
+     *
+     * @param atom  First atom number.
+     * @param other Second atom number.
+     * @return Order class, or 0 if the atoms are not bonded.
+     */
+    public int bondOrderClass(int atom, int other) {
+        for (int e = offsets[atom]; e < offsets[atom + 1]; e++) {
+            if (neighbors[e] == other) return orderClass(e);
+        }
+        return 0;
+    }
+
+    /**
+     * @param atom Atom number.
+     * @return The atom the snapshot was built from, or {@code null} if it was built from arrays.
+     */
+    public Atom atom(int atom) {
+        return atoms[atom];
+    }
+
+    /**
+     * Builds a new {@link BohrAtom} for every atom and bonds them as described by this graph,
+     * in bond-number order.
+     *
+     * @return The new atoms, indexed by atom number.
+     * @throws AtomConstructionException if an atom is not a known element.
+     * @throws CovalentBondException     if a bond breaks the bonding rules.
+     */
+    public List<BohrAtom> toBohrAtoms() {
+        List<BohrAtom> result = new ArrayList<>(atomCount());
+        for (int i = 0; i < atomCount(); i++) {
+            result.add(new BohrAtom(elements[i]));
+        }
+        for (int i = 0; i < atomCount(); i++) {
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                if (neighbors[e] > i) result.get(i).bond(result.get(neighbors[e]), orders[e]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compares connectivity and elements atom by atom. Two snapshots of the same molecule
+     * with atoms numbered differently are not equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MoleculeGraph other)) return false;
+        return Arrays.equals(elements, other.elements)
+                && Arrays.equals(offsets, other.offsets)
+                && Arrays.equals(neighbors, other.neighbors)
+                && Arrays.equals(orders, other.orders);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Arrays.hashCode(elements);
+        h = 31 * h + Arrays.hashCode(neighbors);
+        return 31 * h + Arrays.hashCode(orders);
+    }
+
+    @Override
+    public String toString() {
+        return "MoleculeGraph[atoms=" + atomCount() + ", bonds=" + bondCount() + "]";
+    }
+
+    /**
+     * Builds {@link MoleculeGraph} snapshots, keeping its atom numbering table and scratch
+     * arrays between builds so that rebuilding after an edit only allocates the snapshot itself.
+     * Not thread-safe.
+     */
+    public static final class Builder {
+
+        /** Open-addressing identity table from atom to atom number. */
+        private Atom[] keys = new Atom[16];
+        private int[] ids = new int[16];
+
+        /** Atoms of the build in progress. */
+        private Atom[] atoms = new Atom[8];
+
+        /** Edge slot cursor of each atom of the build in progress. */
+        private int[] cursor = new int[9];
+
+        /**
+         * Freezes the connectivity of the given atoms.
+         *
+         * @param source The atoms to include, numbered in iteration order.
+         * @return A new snapshot.
+         */
+        public MoleculeGraph build(Collection<? extends Atom> source) {
+            int n = source.size();
+            prepare(n);
+
+            int i = 0;
+            for (Atom atom : source) {
+                atoms[i] = atom;
+                put(atom, i++);
+            }
+
+            // Count the edge slots of each atom, keeping only bonds inside the snapshot
+            int[] offsets = new int[n + 1];
+            for (i = 0; i < n; i++) {
+                int degree = 0;
+                for (BondEntry bond : atoms[i].getBondedTo()) {
+                    if (get(bond.atom()) >= 0) degree++;
+                }
+                offsets[i + 1] = offsets[i] + degree;
+            }
+
+            int[] neighbors = new int[offsets[n]];
+            byte[] orders = new byte[offsets[n]];
+            byte[] elements = new byte[n];
+            System.arraycopy(offsets, 0, cursor, 0, n);
+            for (i = 0; i < n; i++) {
+                elements[i] = (byte) atoms[i].getAtomicNumber();
+                for (BondEntry bond : atoms[i].getBondedTo()) {
+                    int j = get(bond.atom());
+                    if (j >= 0) {
+                        neighbors[cursor[i]] = j;
+                        orders[cursor[i]++] = (byte) bond.order();
+                    }
+                }
+            }
+
+            MoleculeGraph graph = new MoleculeGraph(Arrays.copyOf(atoms, n), offsets, neighbors, orders, elements);
+            clear(n);
+            return graph;
+        }
+
+        /** Grows the scratch arrays to fit {@code n} atoms at a load factor of at most 1/2. */
+        private void prepare(int n) {
+            if (atoms.length < n) {
+                atoms = new Atom[n];
+                cursor = new int[n + 1];
+            }
+            int capacity = keys.length;
+            while (capacity < 2 * n) capacity <<= 1;
+            if (capacity != keys.length) {
+                keys = new Atom[capacity];
+                ids = new int[capacity];
+            }
+        }
+
+        /** Drops references to the atoms of the last build. */
+        private void clear(int n) {
+            Arrays.fill(atoms, 0, n, null);
+            Arrays.fill(keys, null);
+        }
+
+        private void put(Atom atom, int id) {
+            int mask = keys.length - 1;
+            int slot = System.identityHashCode(atom) & mask;
+            while (keys[slot] != null && keys[slot] != atom) slot = (slot + 1) & mask;
+            keys[slot] = atom;
+            ids[slot] = id;
+        }
+
+        private int get(Atom atom) {
+            int mask = keys.length - 1;
+            int slot = System.identityHashCode(atom) & mask;
+            while (keys[slot] != null) {
+                if (keys[slot] == atom) return ids[slot];
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package chem.chemfx.atoms;
+
+/**
+ * A 128-bit hash of the canonical structure of a molecule: equal for any two graphs of the
+ * same molecule, whatever their atom numbering and Kekulé structure, and different for
+ * different molecules except with negligible probability (about {@code n^2 / 2^129} for
+ * {@code n} molecules).
+ * <p>
+ * The hash is MurmurHash3 (x64, 128-bit) over the atom count, the elements in canonical order
+ * and the {@link CanonicalLabeling#canonicalBonds canonical bond list}, so it is stable across
+ * runs and platforms.
+ *
+ * @param high Upper 64 bits.
+ * @param low  Lower 64 bits.
+ */
+public record MoleculeHash(long high, long low) {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * Hashes the canonical structure of a molecule.
+     *
+     * @param graph The molecule.
+     * @return The hash.
+     */
+    public static MoleculeHash of(MoleculeGraph graph) {
+        int[] ranks = CanonicalLabeling.ranks(graph);
+        int n = graph.atomCount();
+        long[] bonds = CanonicalLabeling.canonicalBonds(graph, ranks);
+
+        // Elements in canonical order, eight per word
+        long[] data = new long[1 + (n + 7) / 8 + bonds.length];
+        data[0] = (long) n << 32 | bonds.length;
+        for (int i = 0; i < n; i++) {
+            int r = ranks[i];
+            data[1 + r / 8] |= (long) (graph.element(i) & 0xFF) << (8 * (r % 8));
+        }
+        System.arraycopy(bonds, 0, data, 1 + (n + 7) / 8, bonds.length);
+        return murmur3(data);
+    }
+
+    private static MoleculeHash murmur3(long[] data) {
+        long h1 = 0;
+        long h2 = 0;
+        int i = 0;
+        for (; i + 1 < data.length; i += 2) {
+            h1 ^= mixK1(data[i]);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(data[i + 1]);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        if (i < data.length) h1 ^= mixK1(data[i]);
+
+        long length = 8L * data.length;
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new MoleculeHash(h1, h2);
+    }
+
+    private static long mixK1(long k) {
+        return Long.rotateLeft(k * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k) {
+        return Long.rotateLeft(k * C2, 33) * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * @return The hash as 32 hexadecimal digits.
+     */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -0,0 +1,362 @@
+package chem.chemfx.atoms;
+
+import java.util.Objects;
+
+/**
+ * Immutable map from {@code long} keys to values, where every update returns a new map that
+ * shares all unchanged structure with the old one. Editors keep one map per version of a
+ * document: a put or remove copies only the O(log n) nodes on the path to the key, and
+ * comparing two versions skips every subtree they share.
+ * <p>
+ * The map is a hash array mapped trie with 32-way nodes. Keys are scrambled by a bijective
+ * mix before indexing, so sequential keys spread evenly and distinct keys never collide.
+ * Removal collapses nodes left holding a single entry, which keeps the shape of the trie a
+ * function of its keys alone.
+ *
+ * @param <V> Type of the values; {@code null} is not allowed.
+ */
+public final class PersistentLongMap<V> {
+
+    /** Estimated bytes of a trie node with no slots. */
+    private static final int NODE_BYTES = 32;
+    /** Estimated bytes of one slot of a node. */
+    private static final int SLOT_BYTES = 4;
+    /** Estimated bytes of an entry together with a small value object. */
+    private static final int ENTRY_BYTES = 64;
+
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(new Node(0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentLongMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <V> Type of the values.
+     * @return The empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    /**
+     * @return Number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Whether the map has no entries.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param key The key.
+     * @return The value of the key, or {@code null} if it is absent.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = mix(key);
+        Node node = root;
+        for (int shift = 0; ; shift += 5) {
+            int bit = bit(hash, shift);
+            if ((node.bitmap & bit) == 0) return null;
+            Object slot = node.slots[node.index(bit)];
+            if (slot instanceof Entry entry) return entry.key == key ? (V) entry.value : null;
+            node = (Node) slot;
+        }
+    }
+
+    /**
+     * @param key The key.
+     * @return Whether the key has a value.
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key   The key.
+     * @param value The new value.
+     * @return A map with the key set to the value; this map if the key already had exactly
+     * that value.
+     */
+    public PersistentLongMap<V> put(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        Entry entry = new Entry(key, mix(key), value);
+        boolean[] added = new boolean[1];
+        Node updated = put(root, entry, 0, added);
+        return updated == root ? this : new PersistentLongMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    private static Node put(Node node, Entry entry, int shift, boolean[] added) {
+        int bit = bit(entry.hash, shift);
+        int index = node.index(bit);
+        if ((node.bitmap & bit) == 0) {
+            added[0] = true;
+            return node.inserted(bit, index, entry);
+        }
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Entry existing) {
+            if (existing.key == entry.key) {
+                if (existing.value == entry.value) return node;
+                replacement = entry;
+            } else {
+                added[0] = true;
+                replacement = pair(existing, entry, shift + 5);
+            }
+        } else {
+            Node child = put((Node) slot, entry, shift + 5, added);
+            if (child == slot) return node;
+            replacement = child;
+        }
+        return node.replaced(index, replacement);
+    }
+
+    /** Builds the smallest subtree holding two entries whose hashes agree below {@code shift}. */
+    private static Node pair(Entry a, Entry b, int shift) {
+        int bitA = bit(a.hash, shift);
+        int bitB = bit(b.hash, shift);
+        if (bitA == bitB) return new Node(bitA, new Object[]{pair(a, b, shift + 5)});
+        return new Node(bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[]{a, b} : new Object[]{b, a});
+    }
+
+    /**
+     * @param key The key.
+     * @return A map without the key; this map if the key was absent.
+     */
+    public PersistentLongMap<V> remove(long key) {
+        Object updated = remove(root, key, mix(key), 0);
+        if (updated == root) return this;
+        Node node = updated == null ? new Node(0, new Object[0])
+                : updated instanceof Entry entry ? new Node(bit(entry.hash, 0), new Object[]{entry})
+                : (Node) updated;
+        return new PersistentLongMap<>(node, size - 1);
+    }
+
+    /**
+     * @return The node without the key, a lone entry if only one remains, or {@code null} if
+     * nothing remains; {@code node} itself if the key was absent.
+     */
+    private static Object remove(Node node, long key, long hash, int shift) {
+        int bit = bit(hash, shift);
+        if ((node.bitmap & bit) == 0) return node;
+        int index = node.index(bit);
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Entry entry) {
+            if (entry.key != key) return node;
+            replacement = null;
+        } else {
+            replacement = remove((Node) slot, key, hash, shift + 5);
+            if (replacement == slot) return node;
+        }
+        if (replacement != null) {
+            // A lone entry moves up until it shares a node with something else
+            if (replacement instanceof Entry && node.slots.length == 1) return replacement;
+            return node.replaced(index, replacement);
+        }
+        if (node.slots.length == 1) return null;
+        if (node.slots.length == 2 && node.slots[1 - index] instanceof Entry remaining) return remaining;
+        return node.removed(bit, index);
+    }
+
+    /**
+     * Receives entries of a map.
+     *
+     * @param <V> Type of the values.
+     */
+    @FunctionalInterface
+    public interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    /**
+     * Visits every entry, in no particular order.
+     *
+     * @param visitor Receives each entry.
+     */
+    public void forEach(Visitor<? super V> visitor) {
+        forEach(root, visitor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Object slot, Visitor<? super V> visitor) {
+        if (slot instanceof Entry entry) {
+            visitor.visit(entry.key, (V) entry.value);
+        } else {
+            for (Object child : ((Node) slot).slots) forEach(child, visitor);
+        }
+    }
+
+    /**
+     * Receives the differences between two maps.
+     *
+     * @param <V> Type of the values.
+     */
+    @FunctionalInterface
+    public interface Changes<V> {
+        /**
+         * @param key    A key whose value differs.
+         * @param before Its value in the first map, or {@code null} if absent there.
+         * @param after  Its value in the second map, or {@code null} if absent there.
+         */
+        void changed(long key, V before, V after);
+    }
+
+    /**
+     * Reports every key whose value differs between this map and another, in no particular
+     * order. Values are compared by identity. Subtrees the maps share are skipped, so diffing
+     * two versions a few edits apart costs time proportional to those edits, not to the size
+     * of the maps.
+     *
+     * @param target  The map to compare against.
+     * @param changes Receives each key whose value differs.
+     */
+    public void diff(PersistentLongMap<V> target, Changes<? super V> changes) {
+        diff(root, target.root, 0, changes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void diff(Object before, Object after, int shift, Changes<? super V> changes) {
+        if (before == after) return;
+        if (before == null) {
+            forEach(after, (key, value) -> changes.changed(key, null, (V) value));
+        } else if (after == null) {
+            forEach(before, (key, value) -> changes.changed(key, (V) value, null));
+        } else if (before instanceof Node a && after instanceof Node b) {
+            int bits = a.bitmap | b.bitmap;
+            while (bits != 0) {
+                int bit = Integer.lowestOneBit(bits);
+                bits &= bits - 1;
+                Object x = (a.bitmap & bit) != 0 ? a.slots[a.index(bit)] : null;
+                Object y = (b.bitmap & bit) != 0 ? b.slots[b.index(bit)] : null;
+                diff(x, y, shift + 5, changes);
+            }
+        } else if (before instanceof Entry x && after instanceof Entry y) {
+            if (x.key == y.key) {
+                if (x.value != y.value) changes.changed(x.key, (V) x.value, (V) y.value);
+            } else {
+                changes.changed(x.key, (V) x.value, null);
+                changes.changed(y.key, null, (V) y.value);
+            }
+        } else if (before instanceof Entry x) {
+            diffEntry(x, (Node) after, shift, false, changes);
+        } else {
+            diffEntry((Entry) after, (Node) before, shift, true, changes);
+        }
+    }
+
+    /** Compares a lone entry of one map against a subtree of the other. */
+    @SuppressWarnings("unchecked")
+    private static <V> void diffEntry(Entry entry, Node node, int shift, boolean entryIsAfter, Changes<? super V> changes) {
+        boolean[] found = new boolean[1];
+        forEach(node, (key, value) -> {
+            if (key == entry.key) {
+                found[0] = true;
+                if (value == entry.value) return;
+                if (entryIsAfter) changes.changed(key, (V) value, (V) entry.value);
+                else changes.changed(key, (V) entry.value, (V) value);
+            } else if (entryIsAfter) {
+                changes.changed(key, (V) value, null);
+            } else {
+                changes.changed(key, null, (V) value);
+            }
+        });
+        if (!found[0]) {
+            if (entryIsAfter) changes.changed(entry.key, null, (V) entry.value);
+            else changes.changed(entry.key, (V) entry.value, null);
+        }
+    }
+
+    /**
+     * Estimates the memory this map holds that another version does not share: the nodes and
+     * entries reached from this map's root that are not the very same objects at the same
+     * place in {@code other}. Values are counted as small fixed-size objects.
+     *
+     * @param other Another version, typically the one this map was derived from or into.
+     * @return Estimated bytes freed if this map became unreachable while {@code other} stayed.
+     */
+    public long unsharedBytes(PersistentLongMap<?> other) {
+        return unsharedBytes(root, other == null ? null : other.root);
+    }
+
+    private static long unsharedBytes(Object slot, Object other) {
+        if (slot == other) return 0;
+        if (slot instanceof Entry) return ENTRY_BYTES;
+        Node node = (Node) slot;
+        long bytes = NODE_BYTES + (long) SLOT_BYTES * node.slots.length;
+        Node counterpart = other instanceof Node n ? n : null;
+        for (int bits = node.bitmap; bits != 0; bits &= bits - 1) {
+            int bit = Integer.lowestOneBit(bits);
+            Object child = node.slots[node.index(bit)];
+            Object otherChild = counterpart != null && (counterpart.bitmap & bit) != 0
+                    ? counterpart.slots[counterpart.index(bit)] : null;
+            bytes += unsharedBytes(child, otherChild);
+        }
+        return bytes;
+    }
+
+    /* ------------------ Structure ------------------ */
+
+    /** The 64-bit finalizer of MurmurHash3: a bijection that spreads every key bit. */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static int bit(long hash, int shift) {
+        return 1 << ((int) (hash >>> shift) & 31);
+    }
+
+    private record Entry(long key, long hash, Object value) {
+    }
+
+    /** Trie node: one slot per set bit of the bitmap, each an {@link Entry} or a child node. */
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Node inserted(int bit, int index, Object slot) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            copy[index] = slot;
+            System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+            return new Node(bitmap | bit, copy);
+        }
+
+        Node replaced(int index, Object slot) {
+            Object[] copy = slots.clone();
+            copy[index] = slot;
+            return new Node(bitmap, copy);
+        }
+
+        Node removed(int bit, int index) {
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, slots.length - index - 1);
+            return new Node(bitmap & ~bit, copy);
+        }
+    }
+}
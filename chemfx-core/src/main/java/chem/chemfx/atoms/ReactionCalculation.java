@@ -0,0 +1,74 @@
+package chem.chemfx.atoms;
+
+import java.util.List;
+
+/**
+ * The fixed calculations of the reaction view, as {@link BatchCalculation}s.
+ * <p>
+ * The loops run straight down the arrays with no calls or branches in their bodies, picking
+ * results with conditional expressions, which the JIT compiles to vector instructions where the
+ * hardware has them. A single case is a batch of one.
+ */
+public enum ReactionCalculation implements BatchCalculation {
+
+    /**
+     * {@code PV = nRT} in atm, L, K and mol. The one missing quantity of each case is solved
+     * for; cases missing more stay missing.
+     */
+    IDEAL_GAS(4, "P", "V", "T", "n") {
+        @Override
+        public void compute(double[][] columns, int from, int to) {
+            double[] p = columns[0], v = columns[1], t = columns[2], n = columns[3];
+            final double r = GAS_CONSTANT;
+            for (int i = from; i < to; i++) {
+                double x = p[i];
+                p[i] = x == x ? x : n[i] * r * t[i] / v[i];
+            }
+            for (int i = from; i < to; i++) {
+                double x = v[i];
+                v[i] = x == x ? x : n[i] * r * t[i] / p[i];
+            }
+            for (int i = from; i < to; i++) {
+                double x = t[i];
+                t[i] = x == x ? x : p[i] * v[i] / (n[i] * r);
+            }
+            for (int i = from; i < to; i++) {
+                double x = n[i];
+                n[i] = x == x ? x : p[i] * v[i] / (r * t[i]);
+            }
+        }
+    },
+
+    /**
+     * Equilibrium constant {@code Kc = [C][D] / ([A][B])} of {@code A + B <=> C + D} from
+     * equilibrium concentrations in mol/L.
+     */
+    EQUILIBRIUM(4, "A", "B", "C", "D", "Kc") {
+        @Override
+        public void compute(double[][] columns, int from, int to) {
+            double[] a = columns[0], b = columns[1], c = columns[2], d = columns[3], kc = columns[4];
+            for (int i = from; i < to; i++) kc[i] = c[i] * d[i] / (a[i] * b[i]);
+        }
+    };
+
+    /** Gas constant in L·atm/(mol·K). */
+    public static final double GAS_CONSTANT = 0.08206;
+
+    private final int inputs;
+    private final String[] columns;
+
+    ReactionCalculation(int inputs, String... columns) {
+        this.inputs = inputs;
+        this.columns = columns;
+    }
+
+    @Override
+    public List<String> columns() {
+        return List.of(columns);
+    }
+
+    @Override
+    public int inputs() {
+        return inputs;
+    }
+}
@@ -0,0 +1,817 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Computes 2D coordinates for a {@link MoleculeGraph}.
+ * <p>
+ * Layout runs in two stages:
+ * <ol>
+ *     <li><b>Templates</b> ({@link #initialCoordinates()}). Rings are drawn as regular polygons,
+ *     fused and bridged rings are attached to the side of the rings they share atoms with, and
+ *     chains grow outwards in a 120° zig-zag, straight through sp atoms. Substituents fill the
+ *     widest free angle around their atom. Disconnected fragments are placed side by side.</li>
+ *     <li><b>Refinement</b> ({@link #refine}). A force-directed pass keeps every bond and every
+ *     angle (as a 1-3 distance) near its template value while all atoms repel each other, which
+ *     pushes apart fragments that the templates made overlap. Repulsion is approximated with a
+ *     Barnes-Hut quadtree, so each iteration costs O(n log n), and forces are computed in parallel
+ *     for large structures.</li>
+ * </ol>
+ * Coordinates are returned interleaved, {@code x0, y0, x1, y1, ...}, in units of one
+ * {@link #BOND_LENGTH}, with y growing downwards as on screen.
+ */
+public final class StructureLayout {
+
+    /** Length of every bond in the template coordinates. */
+    public static final double BOND_LENGTH = 1.0;
+
+    /** Refinement iterations used by {@link #layout()}. */
+    public static final int DEFAULT_ITERATIONS = 200;
+
+    /** Barnes-Hut opening angle: cells smaller than this fraction of their distance are approximated. */
+    private static final double THETA = 0.8;
+
+    /** Strength of the pairwise repulsion, relative to a bond spring stretched by one bond length. */
+    private static final double REPULSION = 0.05;
+
+    /** Stiffness of the 1-3 (angle) springs relative to bond springs. */
+    private static final double ANGLE_STIFFNESS = 0.5;
+
+    /** Atoms below which forces are computed on the calling thread. */
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    /**
+     * Receives intermediate coordinates during refinement.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * @param coordinates A copy of the current coordinates.
+         * @param iteration   Iterations completed so far.
+         */
+        void update(double[] coordinates, int iteration);
+    }
+
+    private final MoleculeGraph graph;
+    private final int n;
+
+    /** Edge slot of the same bond seen from the other atom. */
+    private final int[] reverse;
+
+    /** Smallest rings, each as atoms in cycle order. */
+    private final int[][] rings;
+
+    /** Indices into {@link #rings} of the rings containing each atom. */
+    private final int[][] ringsOfAtom;
+
+    /**
+     * Prepares a layout, perceiving the rings of the molecule.
+     *
+     * @param graph The molecule.
+     */
+    public StructureLayout(MoleculeGraph graph) {
+        this.graph = graph;
+        this.n = graph.atomCount();
+        this.reverse = reverseEdges();
+        this.rings = findRings();
+
+        int[] counts = new int[n];
+        for (int[] ring : rings) for (int atom : ring) counts[atom]++;
+        this.ringsOfAtom = new int[n][];
+        for (int i = 0; i < n; i++) ringsOfAtom[i] = new int[counts[i]];
+        Arrays.fill(counts, 0);
+        for (int r = 0; r < rings.length; r++) {
+            for (int atom : rings[r]) ringsOfAtom[atom][counts[atom]++] = r;
+        }
+    }
+
+    /**
+     * Lays out a molecule with templates and {@value #DEFAULT_ITERATIONS} refinement iterations on
+     * the common pool.
+     *
+     * @return Interleaved coordinates.
+     */
+    public double[] layout() {
+        return refine(initialCoordinates(), DEFAULT_ITERATIONS, ForkJoinPool.commonPool(), 0, null, () -> false);
+    }
+
+    /**
+     * @return The rings used as templates, each as atom numbers in cycle order.
+     */
+    public int[][] rings() {
+        int[][] copy = new int[rings.length][];
+        for (int r = 0; r < rings.length; r++) copy[r] = rings[r].clone();
+        return copy;
+    }
+
+    /* ------------------ Ring perception ------------------ */
+
+    private int[] reverseEdges() {
+        int[] rev = new int[2 * graph.bondCount()];
+        for (int i = 0; i < n; i++) {
+            for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                int j = graph.neighbor(e);
+                if (j < i) continue;
+                for (int f = graph.firstEdge(j); f < graph.endEdge(j); f++) {
+                    if (graph.neighbor(f) == i) {
+                        rev[e] = f;
+                        rev[f] = e;
+                        break;
+                    }
+                }
+            }
+        }
+        return rev;
+    }
+
+    /** Marks the edges that lie on a cycle, i.e. are not bridges (iterative Tarjan). */
+    private boolean[] ringEdges() {
+        boolean[] ring = new boolean[reverse.length];
+        Arrays.fill(ring, true);
+        int[] discovered = new int[n];
+        int[] low = new int[n];
+        int[] parentEdge = new int[n];
+        int[] cursor = new int[n];
+        int[] stack = new int[n];
+        Arrays.fill(discovered, -1);
+        int time = 0;
+        for (int root = 0; root < n; root++) {
+            if (discovered[root] >= 0) continue;
+            int top = 0;
+            stack[top++] = root;
+            discovered[root] = low[root] = time++;
+            parentEdge[root] = -1;
+            cursor[root] = graph.firstEdge(root);
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (cursor[v] < graph.endEdge(v)) {
+                    int e = cursor[v]++;
+                    if (parentEdge[v] >= 0 && e == reverse[parentEdge[v]]) continue;
+                    int w = graph.neighbor(e);
+                    if (discovered[w] < 0) {
+                        discovered[w] = low[w] = time++;
+                        parentEdge[w] = e;
+                        cursor[w] = graph.firstEdge(w);
+                        stack[top++] = w;
+                    } else {
+                        low[v] = Math.min(low[v], discovered[w]);
+                    }
+                } else {
+                    top--;
+                    int e = parentEdge[v];
+                    if (e < 0) continue;
+                    int u = graph.neighbor(reverse[e]);
+                    low[u] = Math.min(low[u], low[v]);
+                    if (low[v] > discovered[u]) {
+                        ring[e] = false;
+                        ring[reverse[e]] = false;
+                    }
+                }
+            }
+        }
+        return ring;
+    }
+
+    /**
+     * Finds a small set of smallest rings: the shortest cycle through every ring bond, kept
+     * smallest first as long as it covers a bond no kept ring covers.
+     */
+    private int[][] findRings() {
+        boolean[] ringEdge = ringEdges();
+        List<int[]> candidates = new ArrayList<>();
+        HashSet<List<Integer>> seen = new HashSet<>();
+
+        int[] previous = new int[n];
+        int[] visited = new int[n];
+        int[] queue = new int[n];
+        int stamp = 0;
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int v = graph.neighbor(e);
+                if (v < u || !ringEdge[e]) continue;
+
+                // Shortest path from u to v that does not use the bond itself
+                stamp++;
+                int head = 0, tail = 0;
+                queue[tail++] = u;
+                visited[u] = stamp;
+                previous[u] = -1;
+                while (head < tail && visited[v] != stamp) {
+                    int a = queue[head++];
+                    for (int f = graph.firstEdge(a); f < graph.endEdge(a); f++) {
+                        int b = graph.neighbor(f);
+                        if (!ringEdge[f] || f == e || f == reverse[e] || visited[b] == stamp) continue;
+                        visited[b] = stamp;
+                        previous[b] = a;
+                        queue[tail++] = b;
+                    }
+                }
+                if (visited[v] != stamp) continue;
+
+                int size = 0;
+                for (int a = v; a >= 0; a = previous[a]) size++;
+                int[] cycle = new int[size];
+                int k = 0;
+                for (int a = v; a >= 0; a = previous[a]) cycle[k++] = a;
+                List<Integer> key = new ArrayList<>(size);
+                for (int a : cycle) key.add(a);
+                key.sort(null);
+                if (seen.add(key)) candidates.add(cycle);
+            }
+        }
+
+        candidates.sort(Comparator.comparingInt(c -> c.length));
+        boolean[] covered = new boolean[reverse.length];
+        List<int[]> kept = new ArrayList<>();
+        for (int[] cycle : candidates) {
+            boolean fresh = false;
+            for (int k = 0; k < cycle.length; k++) {
+                int e = edge(cycle[k], cycle[(k + 1) % cycle.length]);
+                if (!covered[e]) {
+                    fresh = true;
+                    covered[e] = true;
+                    covered[reverse[e]] = true;
+                }
+            }
+            if (fresh) kept.add(cycle);
+        }
+        return kept.toArray(new int[0][]);
+    }
+
+    private int edge(int a, int b) {
+        for (int e = graph.firstEdge(a); e < graph.endEdge(a); e++) {
+            if (graph.neighbor(e) == b) return e;
+        }
+        throw new IllegalStateException("Atoms " + a + " and " + b + " are not bonded");
+    }
+
+    /* ------------------ Templates ------------------ */
+
+    /**
+     * Computes template coordinates: polygons for rings, zig-zags for chains.
+     *
+     * @return Interleaved coordinates.
+     */
+    public double[] initialCoordinates() {
+        return new TemplatePlacer().run();
+    }
+
+    /** Scratch state of one template placement. */
+    private final class TemplatePlacer {
+
+        private final double[] xy = new double[2 * n];
+        private final boolean[] placed = new boolean[n];
+        private final boolean[] ringPlaced = new boolean[rings.length];
+
+        /** Side (+1 or -1) the next chain bond turns to, for zig-zags. */
+        private final int[] turn = new int[n];
+
+        private final int[] queue = new int[n];
+        private int head;
+        private int tail;
+
+        /** Atoms placed in the current fragment. */
+        private final int[] fragment = new int[n];
+        private int fragmentSize;
+
+        double[] run() {
+            double offset = 0;
+            int[] ringOfFragment = largestRingPerFragment();
+            for (int start = 0; start < n; start++) {
+                if (placed[start]) continue;
+                fragmentSize = 0;
+                head = tail = 0;
+                int ring = ringOfFragment[start];
+                if (ring >= 0) {
+                    placePolygon(ring);
+                } else {
+                    place(start, 0, 0);
+                    turn[start] = 1;
+                }
+                while (head < tail) expand(queue[head++]);
+                offset = shiftFragment(offset);
+            }
+            return xy;
+        }
+
+        /** For the first atom of each fragment, the fragment's largest ring or -1; other atoms -1. */
+        private int[] largestRingPerFragment() {
+            int[] fragmentOf = new int[n];
+            Arrays.fill(fragmentOf, -1);
+            int[] first = new int[n];
+            int[] stack = new int[n];
+            int count = 0;
+            for (int s = 0; s < n; s++) {
+                if (fragmentOf[s] >= 0) continue;
+                first[count] = s;
+                int top = 0;
+                stack[top++] = s;
+                fragmentOf[s] = count;
+                while (top > 0) {
+                    int a = stack[--top];
+                    for (int e = graph.firstEdge(a); e < graph.endEdge(a); e++) {
+                        int b = graph.neighbor(e);
+                        if (fragmentOf[b] < 0) {
+                            fragmentOf[b] = count;
+                            stack[top++] = b;
+                        }
+                    }
+                }
+                count++;
+            }
+            int[] best = new int[n];
+            Arrays.fill(best, -1);
+            for (int r = 0; r < rings.length; r++) {
+                int s = first[fragmentOf[rings[r][0]]];
+                if (best[s] < 0 || rings[r].length > rings[best[s]].length) best[s] = r;
+            }
+            return best;
+        }
+
+        private void place(int atom, double x, double y) {
+            xy[2 * atom] = x;
+            xy[2 * atom + 1] = y;
+            placed[atom] = true;
+            queue[tail++] = atom;
+            fragment[fragmentSize++] = atom;
+        }
+
+        private void placePolygon(int ring) {
+            int[] cycle = rings[ring];
+            double radius = polygonRadius(cycle.length);
+            for (int k = 0; k < cycle.length; k++) {
+                double angle = Math.PI / 2 + 2 * Math.PI * k / cycle.length;
+                place(cycle[k], radius * Math.cos(angle), radius * Math.sin(angle));
+            }
+            ringPlaced[ring] = true;
+            for (int atom : cycle) placeRingsAround(atom);
+        }
+
+        /** Places every unplaced ring sharing atoms with the given atom, and rings fused to those. */
+        private void placeRingsAround(int atom) {
+            for (int r : ringsOfAtom[atom]) {
+                if (ringPlaced[r]) continue;
+                ringPlaced[r] = true;
+                int[] added = placeAttachedRing(rings[r]);
+                for (int a : added) placeRingsAround(a);
+            }
+        }
+
+        /**
+         * Places the unplaced atoms of a ring with at least one placed atom. The unplaced atoms go
+         * on an arc of a circle through the ends of the longest placed run, on the side away from
+         * what is already drawn there.
+         *
+         * @return The atoms placed.
+         */
+        private int[] placeAttachedRing(int[] cycle) {
+            int k = cycle.length;
+            // Longest run of consecutive placed atoms
+            int bestStart = -1, bestLength = 0;
+            for (int s = 0; s < k; s++) {
+                if (!placed[cycle[s]] || placed[cycle[(s + k - 1) % k]]) continue;
+                int length = 0;
+                while (length < k && placed[cycle[(s + length) % k]]) length++;
+                if (length > bestLength) {
+                    bestStart = s;
+                    bestLength = length;
+                }
+            }
+            if (bestStart < 0) return new int[0]; // every atom already placed
+
+            int p = cycle[bestStart];
+            int q = cycle[(bestStart + bestLength - 1) % k];
+            double radius = polygonRadius(k);
+            double px = xy[2 * p], py = xy[2 * p + 1];
+            double qx = xy[2 * q], qy = xy[2 * q + 1];
+
+            double cx, cy, startAngle, sweep;
+            if (p == q) {
+                // Spiro or chain attachment: extend away from the atom's placed neighbours
+                double[] away = awayFrom(p, -1, -1);
+                cx = px + away[0] * radius;
+                cy = py + away[1] * radius;
+                startAngle = Math.atan2(py - cy, px - cx);
+                sweep = 2 * Math.PI;
+            } else {
+                double mx = (px + qx) / 2, my = (py + qy) / 2;
+                double chord = Math.hypot(px - qx, py - qy);
+                radius = Math.max(radius, chord / 2);
+                double h = Math.sqrt(Math.max(0, radius * radius - chord * chord / 4));
+                double nx = chord == 0 ? 1 : -(py - qy) / chord;
+                double ny = chord == 0 ? 0 : (px - qx) / chord;
+                // Put the centre on the side away from the placed neighbours of the run's ends
+                double[] away = awayFrom(p, q, bestLength > 2 ? cycle[(bestStart + 1) % k] : -1);
+                double side = nx * away[0] + ny * away[1] >= 0 ? 1 : -1;
+                cx = mx + side * h * nx;
+                cy = my + side * h * ny;
+                double farAngle = Math.atan2(side * ny, side * nx);
+
+                startAngle = Math.atan2(qy - cy, qx - cx);
+                double ccw = Math.atan2(py - cy, px - cx) - startAngle;
+                while (ccw <= 0) ccw += 2 * Math.PI;
+                double ccwMiddle = startAngle + ccw / 2;
+                boolean throughFar = Math.cos(ccwMiddle - farAngle) > 0;
+                sweep = throughFar ? ccw : ccw - 2 * Math.PI;
+            }
+
+            int unplaced = k - bestLength;
+            int[] added = new int[unplaced];
+            int count = 0;
+            for (int i = 1; i <= unplaced; i++) {
+                int atom = cycle[(bestStart + bestLength - 1 + i) % k];
+                if (placed[atom]) continue;
+                double angle = startAngle + sweep * i / (p == q ? k : unplaced + 1);
+                place(atom, cx + radius * Math.cos(angle), cy + radius * Math.sin(angle));
+                turn[atom] = 1;
+                added[count++] = atom;
+            }
+            return Arrays.copyOf(added, count);
+        }
+
+        /**
+         * Unit vector pointing from the placed neighbours of up to three atoms towards those atoms,
+         * ignoring the atoms themselves; (1, 0) if there is nothing to point away from.
+         */
+        private double[] awayFrom(int a, int b, int c) {
+            double sx = 0, sy = 0;
+            int[] atoms = {a, b, c};
+            for (int atom : atoms) {
+                if (atom < 0) continue;
+                for (int e = graph.firstEdge(atom); e < graph.endEdge(atom); e++) {
+                    int other = graph.neighbor(e);
+                    if (!placed[other] || other == a || other == b || other == c) continue;
+                    double dx = xy[2 * atom] - xy[2 * other];
+                    double dy = xy[2 * atom + 1] - xy[2 * other + 1];
+                    double d = Math.hypot(dx, dy);
+                    if (d > 0) {
+                        sx += dx / d;
+                        sy += dy / d;
+                    }
+                }
+            }
+            if (c >= 0) {
+                // The middle of a longer run lies on the near side
+                double mx = (xy[2 * a] + xy[2 * b]) / 2 - xy[2 * c];
+                double my = (xy[2 * a + 1] + xy[2 * b + 1]) / 2 - xy[2 * c + 1];
+                sx += mx;
+                sy += my;
+            }
+            double d = Math.hypot(sx, sy);
+            return d == 0 ? new double[]{1, 0} : new double[]{sx / d, sy / d};
+        }
+
+        /** Places the unplaced neighbours of a placed atom in the widest free angle around it. */
+        private void expand(int atom) {
+            int degree = graph.degree(atom);
+            double[] taken = new double[degree];
+            int placedCount = 0;
+            int unplaced = 0;
+            for (int e = graph.firstEdge(atom); e < graph.endEdge(atom); e++) {
+                int other = graph.neighbor(e);
+                if (placed[other]) {
+                    taken[placedCount++] = Math.atan2(xy[2 * other + 1] - xy[2 * atom + 1], xy[2 * other] - xy[2 * atom]);
+                } else {
+                    unplaced++;
+                }
+            }
+            if (unplaced == 0) return;
+
+            double[] angles = new double[unplaced];
+            if (placedCount == 0) {
+                for (int i = 0; i < unplaced; i++) angles[i] = -Math.PI / 6 + 2 * Math.PI * i / unplaced;
+            } else if (placedCount == 1 && unplaced == 1) {
+                angles[0] = linear(atom) ? taken[0] + Math.PI : taken[0] + Math.PI + turn[atom] * Math.PI / 3;
+            } else {
+                // Spread evenly over the widest gap between placed neighbours
+                Arrays.sort(taken, 0, placedCount);
+                double gapStart = taken[placedCount - 1];
+                double gap = taken[0] + 2 * Math.PI - gapStart;
+                for (int i = 1; i < placedCount; i++) {
+                    if (taken[i] - taken[i - 1] > gap) {
+                        gapStart = taken[i - 1];
+                        gap = taken[i] - taken[i - 1];
+                    }
+                }
+                for (int i = 0; i < unplaced; i++) angles[i] = gapStart + gap * (i + 1) / (unplaced + 1);
+            }
+
+            int i = 0;
+            for (int e = graph.firstEdge(atom); e < graph.endEdge(atom); e++) {
+                int other = graph.neighbor(e);
+                if (placed[other]) continue;
+                double angle = angles[i++];
+                place(other, xy[2 * atom] + BOND_LENGTH * Math.cos(angle), xy[2 * atom + 1] + BOND_LENGTH * Math.sin(angle));
+                turn[other] = -(turn[atom] == 0 ? 1 : turn[atom]);
+                placeRingsAround(other);
+            }
+        }
+
+        /** Whether an atom is sp: a triple bond, or two double bonds and nothing else. */
+        private boolean linear(int atom) {
+            int doubles = 0;
+            for (int e = graph.firstEdge(atom); e < graph.endEdge(atom); e++) {
+                if (graph.order(e) >= 3) return true;
+                if (graph.order(e) == 2) doubles++;
+            }
+            return doubles == 2 && graph.degree(atom) == 2;
+        }
+
+        /** Moves the current fragment to the right of the previous ones; returns the next offset. */
+        private double shiftFragment(double offset) {
+            double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int f = 0; f < fragmentSize; f++) {
+                int atom = fragment[f];
+                minX = Math.min(minX, xy[2 * atom]);
+                maxX = Math.max(maxX, xy[2 * atom]);
+                minY = Math.min(minY, xy[2 * atom + 1]);
+                maxY = Math.max(maxY, xy[2 * atom + 1]);
+            }
+            double dx = offset - minX;
+            double dy = -(minY + maxY) / 2;
+            for (int f = 0; f < fragmentSize; f++) {
+                int atom = fragment[f];
+                xy[2 * atom] += dx;
+                xy[2 * atom + 1] += dy;
+            }
+            return offset + (maxX - minX) + 2 * BOND_LENGTH;
+        }
+    }
+
+    private static double polygonRadius(int sides) {
+        return BOND_LENGTH / (2 * Math.sin(Math.PI / sides));
+    }
+
+    /* ------------------ Refinement ------------------ */
+
+    /**
+     * Refines coordinates with a force-directed pass. Bond and 1-3 distances are pulled towards
+     * their values in the given coordinates, while every pair of atoms repels.
+     *
+     * @param coordinates Starting coordinates, e.g. from {@link #initialCoordinates()}; not modified.
+     * @param iterations  Number of iterations.
+     * @param pool        Pool to compute forces on, for large structures.
+     * @param interval    Iterations between progress updates, or 0 for none.
+     * @param progress    Receives intermediate coordinates; may be {@code null}.
+     * @param cancelled   Polled every iteration; once it returns {@code true} refinement stops.
+     * @return The refined coordinates.
+     */
+    public double[] refine(double[] coordinates, int iterations, ForkJoinPool pool, int interval,
+                           Progress progress, BooleanSupplier cancelled) {
+        double[] xy = coordinates.clone();
+        if (n < 2) return xy;
+        Springs springs = new Springs(xy);
+        BarnesHut tree = new BarnesHut(n);
+        double[] force = new double[2 * n];
+
+        for (int it = 0; it < iterations && !cancelled.getAsBoolean(); it++) {
+            tree.build(xy);
+            if (n >= PARALLEL_THRESHOLD) {
+                pool.submit(() -> IntStream.range(0, n).parallel()
+                        .forEach(i -> computeForce(i, xy, springs, tree, force))).join();
+            } else {
+                for (int i = 0; i < n; i++) computeForce(i, xy, springs, tree, force);
+            }
+
+            // Cap the step, cooling linearly so the layout settles
+            double maxStep = BOND_LENGTH * (0.3 * (1 - (double) it / iterations) + 0.01);
+            for (int i = 0; i < n; i++) {
+                double fx = force[2 * i], fy = force[2 * i + 1];
+                double f = Math.hypot(fx, fy);
+                double scale = f > maxStep ? maxStep / f : 1;
+                xy[2 * i] += fx * scale;
+                xy[2 * i + 1] += fy * scale;
+            }
+            if (progress != null && interval > 0 && (it + 1) % interval == 0) progress.update(xy.clone(), it + 1);
+        }
+        return xy;
+    }
+
+    private void computeForce(int i, double[] xy, Springs springs, BarnesHut tree, double[] force) {
+        double xi = xy[2 * i], yi = xy[2 * i + 1];
+        double fx = 0, fy = 0;
+        for (int s = springs.offsets[i]; s < springs.offsets[i + 1]; s++) {
+            int j = springs.to[s];
+            double dx = xy[2 * j] - xi, dy = xy[2 * j + 1] - yi;
+            double d = Math.hypot(dx, dy);
+            if (d == 0) continue;
+            double stretch = springs.stiffness[s] * (d - springs.rest[s]) / d;
+            fx += stretch * dx;
+            fy += stretch * dy;
+        }
+        double[] repulsion = tree.repulsion(i, xi, yi);
+        force[2 * i] = fx + repulsion[0];
+        force[2 * i + 1] = fy + repulsion[1];
+    }
+
+    /** Bond and 1-3 springs of every atom in CSR form, with rest lengths from the template. */
+    private final class Springs {
+        final int[] offsets = new int[n + 1];
+        final int[] to;
+        final double[] rest;
+        final double[] stiffness;
+
+        Springs(double[] xy) {
+            List<int[]> pairs = new ArrayList<>();
+            int[] mark = new int[n];
+            Arrays.fill(mark, -1);
+            for (int i = 0; i < n; i++) {
+                mark[i] = i;
+                for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                    int j = graph.neighbor(e);
+                    if (mark[j] != i) {
+                        mark[j] = i;
+                        pairs.add(new int[]{i, j, 1});
+                    }
+                }
+                for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                    int j = graph.neighbor(e);
+                    for (int f = graph.firstEdge(j); f < graph.endEdge(j); f++) {
+                        int k = graph.neighbor(f);
+                        if (mark[k] != i) {
+                            mark[k] = i;
+                            pairs.add(new int[]{i, k, 0});
+                        }
+                    }
+                }
+            }
+            to = new int[pairs.size()];
+            rest = new double[pairs.size()];
+            stiffness = new double[pairs.size()];
+            for (int[] pair : pairs) offsets[pair[0] + 1]++;
+            for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+            int[] fill = Arrays.copyOf(offsets, n);
+            for (int[] pair : pairs) {
+                int s = fill[pair[0]]++;
+                int i = pair[0], j = pair[1];
+                to[s] = j;
+                double d = Math.hypot(xy[2 * j] - xy[2 * i], xy[2 * j + 1] - xy[2 * i + 1]);
+                rest[s] = pair[2] == 1 ? BOND_LENGTH : (d > 0 ? d : 1.7 * BOND_LENGTH);
+                stiffness[s] = pair[2] == 1 ? 0.5 : 0.5 * ANGLE_STIFFNESS;
+            }
+        }
+    }
+
+    /**
+     * Quadtree over atom positions holding the atom count and centre of mass of every cell,
+     * rebuilt every iteration and then read concurrently.
+     */
+    private static final class BarnesHut {
+
+        /** Cells below this size stop splitting and hold several atoms. */
+        private static final double MIN_CELL = 1e-6 * BOND_LENGTH;
+
+        private final int atoms;
+        private int[] children;
+        private int[] count;
+        private int[] point;
+        private double[] sumX, sumY, cellX, cellY, size;
+        private int cells;
+        private final int[] cellOf;
+
+        BarnesHut(int atoms) {
+            this.atoms = atoms;
+            this.cellOf = new int[atoms];
+            allocate(4 * atoms + 1);
+        }
+
+        private void allocate(int capacity) {
+            children = children == null ? new int[4 * capacity] : Arrays.copyOf(children, 4 * capacity);
+            count = count == null ? new int[capacity] : Arrays.copyOf(count, capacity);
+            point = point == null ? new int[capacity] : Arrays.copyOf(point, capacity);
+            sumX = sumX == null ? new double[capacity] : Arrays.copyOf(sumX, capacity);
+            sumY = sumY == null ? new double[capacity] : Arrays.copyOf(sumY, capacity);
+            cellX = cellX == null ? new double[capacity] : Arrays.copyOf(cellX, capacity);
+            cellY = cellY == null ? new double[capacity] : Arrays.copyOf(cellY, capacity);
+            size = size == null ? new double[capacity] : Arrays.copyOf(size, capacity);
+        }
+
+        private int newCell(double x, double y, double s) {
+            if (cells == count.length) allocate(2 * cells);
+            int c = cells++;
+            Arrays.fill(children, 4 * c, 4 * c + 4, -1);
+            count[c] = 0;
+            point[c] = -1;
+            sumX[c] = sumY[c] = 0;
+            cellX[c] = x;
+            cellY[c] = y;
+            size[c] = s;
+            return c;
+        }
+
+        void build(double[] xy) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < atoms; i++) {
+                minX = Math.min(minX, xy[2 * i]);
+                maxX = Math.max(maxX, xy[2 * i]);
+                minY = Math.min(minY, xy[2 * i + 1]);
+                maxY = Math.max(maxY, xy[2 * i + 1]);
+            }
+            cells = 0;
+            newCell(minX, minY, Math.max(maxX - minX, maxY - minY) * (1 + 1e-9) + MIN_CELL);
+            for (int i = 0; i < atoms; i++) insert(i, xy[2 * i], xy[2 * i + 1]);
+        }
+
+        private void insert(int i, double x, double y) {
+            int c = 0;
+            while (true) {
+                count[c]++;
+                sumX[c] += x;
+                sumY[c] += y;
+                if (count[c] == 1) {
+                    point[c] = i;
+                    cellOf[i] = c;
+                    return;
+                }
+                boolean leaf = children[4 * c] < 0 && children[4 * c + 1] < 0
+                        && children[4 * c + 2] < 0 && children[4 * c + 3] < 0;
+                if (leaf) {
+                    if (size[c] < MIN_CELL) {
+                        cellOf[i] = c;
+                        return;
+                    }
+                    // Push the resident atom down before descending
+                    int resident = point[c];
+                    if (resident >= 0) {
+                        point[c] = -1;
+                        double rx = sumX[c] - x, ry = sumY[c] - y;
+                        if (count[c] == 2) {
+                            int child = child(c, rx, ry);
+                            count[child] = 1;
+                            sumX[child] = rx;
+                            sumY[child] = ry;
+                            point[child] = resident;
+                            cellOf[resident] = child;
+                        }
+                    }
+                }
+                c = child(c, x, y);
+            }
+        }
+
+        private int child(int c, double x, double y) {
+            double half = size[c] / 2;
+            int q = (x >= cellX[c] + half ? 1 : 0) | (y >= cellY[c] + half ? 2 : 0);
+            int child = children[4 * c + q];
+            if (child < 0) {
+                child = newCell(cellX[c] + ((q & 1) != 0 ? half : 0), cellY[c] + ((q & 2) != 0 ? half : 0), half);
+                children[4 * c + q] = child;
+            }
+            return child;
+        }
+
+        /** Repulsive force on atom {@code i} from all other atoms. */
+        double[] repulsion(int i, double xi, double yi) {
+            double fx = 0, fy = 0;
+            int[] stack = new int[64];
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int c = stack[--top];
+                int m = count[c];
+                double sx = sumX[c], sy = sumY[c];
+                if (c == cellOf[i]) {
+                    m--;
+                    sx -= xi;
+                    sy -= yi;
+                }
+                if (m <= 0) continue;
+                double dx = xi - sx / m, dy = yi - sy / m;
+                double d2 = dx * dx + dy * dy;
+                boolean leaf = children[4 * c] < 0 && children[4 * c + 1] < 0
+                        && children[4 * c + 2] < 0 && children[4 * c + 3] < 0;
+                boolean containsAtom = xi >= cellX[c] && xi <= cellX[c] + size[c] && yi >= cellY[c] && yi <= cellY[c] + size[c];
+                if (!leaf && (containsAtom || size[c] * size[c] >= THETA * THETA * d2)) {
+                    for (int q = 0; q < 4; q++) {
+                        int child = children[4 * c + q];
+                        if (child < 0) continue;
+                        if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+                        stack[top++] = child;
+                    }
+                    continue;
+                }
+                if (d2 == 0) {
+                    // Coincident atoms: push apart in a direction that differs per atom
+                    double angle = 2.399963229728653 * i;
+                    dx = Math.cos(angle) * 1e-3;
+                    dy = Math.sin(angle) * 1e-3;
+                    d2 = dx * dx + dy * dy;
+                }
+                double d = Math.sqrt(d2);
+                double f = REPULSION * m * BOND_LENGTH * BOND_LENGTH / Math.max(d2, 0.01 * BOND_LENGTH * BOND_LENGTH);
+                fx += f * dx / d;
+                fy += f * dy / d;
+            }
+            return new double[]{fx, fy};
+        }
+    }
+}
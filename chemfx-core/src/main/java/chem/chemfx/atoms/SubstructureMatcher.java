@@ -0,0 +1,161 @@
+package chem.chemfx.atoms;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds a query structure inside target molecules (subgraph monomorphism), VF2-style.
+ * <p>
+ * Query atoms are matched one at a time in a fixed order chosen once per query: each
+ * connected component starts from its rarest, most connected atom and grows breadth-first, so
+ * that every later atom has an already-mapped neighbour. Candidates for such an atom are then
+ * only the neighbours of that neighbour's image, which keeps the search close to linear on
+ * typical molecules. A candidate must be unmapped, have a matching element (wildcard query
+ * atoms match any element) and at least the query atom's degree, and be bonded with the same
+ * {@link MoleculeGraph#orderClass(int) order class} to the image of every mapped query
+ * neighbour, so aromatic rings match however the query and target were kekulized.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ */
+public final class SubstructureMatcher {
+
+    private final MoleculeGraph query;
+
+    /** Query atoms in matching order. */
+    private final int[] order;
+
+    /** For each query atom in {@link #order}, an earlier neighbour to expand from, or -1. */
+    private final int[] parent;
+
+    /**
+     * @param query The structure to look for; wildcard atoms (atomic number 0) match any element.
+     */
+    public SubstructureMatcher(MoleculeGraph query) {
+        this.query = query;
+        int n = query.atomCount();
+        this.order = new int[n];
+        this.parent = new int[n];
+
+        int[] frequency = new int[ElementTable.SIZE + 1];
+        for (int i = 0; i < n; i++) frequency[query.element(i)]++;
+
+        boolean[] placed = new boolean[n];
+        int head = 0;
+        int tail = 0;
+        while (tail < n) {
+            // Seed the next component with the rarest, most connected unplaced atom
+            int seed = -1;
+            for (int i = 0; i < n; i++) {
+                if (placed[i]) continue;
+                if (seed < 0 || rarer(i, seed, frequency)) seed = i;
+            }
+            placed[seed] = true;
+            parent[tail] = -1;
+            order[tail++] = seed;
+            while (head < tail) {
+                int atom = order[head++];
+                for (int e = query.firstEdge(atom); e < query.endEdge(atom); e++) {
+                    int next = query.neighbor(e);
+                    if (placed[next]) continue;
+                    placed[next] = true;
+                    parent[tail] = atom;
+                    order[tail++] = next;
+                }
+            }
+        }
+    }
+
+    private boolean rarer(int a, int b, int[] frequency) {
+        int za = query.element(a);
+        int zb = query.element(b);
+        if ((za == 0) != (zb == 0)) return zb == 0;
+        if (frequency[za] != frequency[zb]) return frequency[za] < frequency[zb];
+        return query.degree(a) > query.degree(b);
+    }
+
+    /**
+     * @return The query.
+     */
+    public MoleculeGraph query() {
+        return query;
+    }
+
+    /**
+     * Tests whether a target contains the query.
+     *
+     * @param target The molecule to search.
+     * @return Whether the query occurs in the target.
+     */
+    public boolean matches(MoleculeGraph target) {
+        return match(target, () -> false) != null;
+    }
+
+    /**
+     * Finds one occurrence of the query in a target.
+     *
+     * @param target    The molecule to search.
+     * @param cancelled Polled during the search; once it returns {@code true} the search gives up.
+     * @return The target atom matched by each query atom, or {@code null} if the query does not
+     * occur or the search was cancelled.
+     */
+    public int[] match(MoleculeGraph target, BooleanSupplier cancelled) {
+        int n = query.atomCount();
+        if (n > target.atomCount()) return null;
+        int[] mapping = new int[n];
+        Arrays.fill(mapping, -1);
+        if (n == 0) return mapping;
+
+        boolean[] used = new boolean[target.atomCount()];
+        // Next candidate to try at each depth: a target atom, or an edge slot of the parent's image
+        int[] cursor = new int[n];
+        int depth = 0;
+        cursor[0] = start(target, 0, mapping);
+        long steps = 0;
+        while (true) {
+            if ((++steps & 0x3FF) == 0 && cancelled.getAsBoolean()) return null;
+            int atom = order[depth];
+            int candidate = next(target, depth, cursor, mapping);
+            if (candidate >= 0 && !used[candidate] && feasible(target, atom, candidate, mapping)) {
+                mapping[atom] = candidate;
+                used[candidate] = true;
+                if (++depth == n) return mapping;
+                cursor[depth] = start(target, depth, mapping);
+                continue;
+            }
+            if (candidate >= 0) continue;
+
+            // Candidates exhausted: backtrack
+            if (--depth < 0) return null;
+            used[mapping[order[depth]]] = false;
+            mapping[order[depth]] = -1;
+        }
+    }
+
+    private int start(MoleculeGraph target, int depth, int[] mapping) {
+        return parent[depth] < 0 ? 0 : target.firstEdge(mapping[parent[depth]]);
+    }
+
+    /** Advances the cursor at a depth, returning the candidate it pointed at or -1 at the end. */
+    private int next(MoleculeGraph target, int depth, int[] cursor, int[] mapping) {
+        int c = cursor[depth];
+        if (parent[depth] < 0) {
+            if (c >= target.atomCount()) return -1;
+            cursor[depth] = c + 1;
+            return c;
+        }
+        if (c >= target.endEdge(mapping[parent[depth]])) return -1;
+        cursor[depth] = c + 1;
+        return target.neighbor(c);
+    }
+
+    private boolean feasible(MoleculeGraph target, int atom, int candidate, int[] mapping) {
+        int z = query.element(atom);
+        if (z != 0 && z != target.element(candidate)) return false;
+        if (query.degree(atom) > target.degree(candidate)) return false;
+        for (int e = query.firstEdge(atom); e < query.endEdge(atom); e++) {
+            int image = mapping[query.neighbor(e)];
+            if (image >= 0 && target.bondOrderClass(candidate, image) != query.orderClass(e)) return false;
+        }
+        return true;
+    }
+}
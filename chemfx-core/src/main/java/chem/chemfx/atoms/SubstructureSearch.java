@@ -0,0 +1,150 @@
+package chem.chemfx.atoms;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * A set of molecules indexed for substructure search.
+ * <p>
+ * Fingerprints are computed once, when the set is built. A search fingerprints the query and
+ * screens every molecule with a few word ANDs ({@link Fingerprint#screens}); only molecules
+ * that pass are matched atom by atom with a {@link SubstructureMatcher}. Both steps run in
+ * parallel over blocks of molecules. The search stops early once it has the requested number
+ * of hits or is cancelled.
+ */
+public final class SubstructureSearch {
+
+    /** Molecules per parallel work item. */
+    private static final int BLOCK = 256;
+
+    /**
+     * A molecule containing the query.
+     *
+     * @param index   Position of the molecule in the searched set.
+     * @param mapping The molecule's atom matched by each query atom.
+     */
+    public record Hit(int index, int[] mapping) {
+    }
+
+    /**
+     * Outcome of a search.
+     *
+     * @param hits     Hits in index order.
+     * @param screened Number of molecules that passed the fingerprint screen and were matched.
+     * @param complete Whether every molecule was examined; {@code false} if the search stopped at
+     *                 the hit limit with molecules left, or was cancelled.
+     */
+    public record Result(List<Hit> hits, int screened, boolean complete) {
+    }
+
+    private final List<MoleculeGraph> molecules;
+    private final Fingerprint[] fingerprints;
+
+    /**
+     * Indexes molecules, fingerprinting on the common pool.
+     *
+     * @param molecules The molecules; copied.
+     */
+    public SubstructureSearch(List<MoleculeGraph> molecules) {
+        this(molecules, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Indexes molecules.
+     *
+     * @param molecules The molecules; copied.
+     * @param pool      Pool to fingerprint on.
+     */
+    public SubstructureSearch(List<MoleculeGraph> molecules, ForkJoinPool pool) {
+        this.molecules = List.copyOf(molecules);
+        this.fingerprints = new Fingerprint[this.molecules.size()];
+        pool.submit(() -> IntStream.range(0, fingerprints.length).parallel()
+                .forEach(i -> fingerprints[i] = Fingerprint.of(this.molecules.get(i)))).join();
+    }
+
+    /**
+     * @return Number of molecules in the set.
+     */
+    public int size() {
+        return molecules.size();
+    }
+
+    /**
+     * @param index Position in the set.
+     * @return The molecule.
+     */
+    public MoleculeGraph molecule(int index) {
+        return molecules.get(index);
+    }
+
+    /**
+     * Searches on the common pool without cancellation.
+     *
+     * @param query The structure to look for.
+     * @param limit Maximum number of hits.
+     * @return The hits.
+     * @see #search(MoleculeGraph, int, ForkJoinPool, BooleanSupplier)
+     */
+    public Result search(MoleculeGraph query, int limit) {
+        return search(query, limit, ForkJoinPool.commonPool(), () -> false);
+    }
+
+    /**
+     * Finds the molecules containing a query. When the limit cuts a search short, the hits
+     * returned are the first ones found, which depends on scheduling and need not be the
+     * lowest indices.
+     *
+     * @param query     The structure to look for; wildcard atoms match any element.
+     * @param limit     Maximum number of hits, at least 1.
+     * @param pool      Pool to search on.
+     * @param cancelled Polled while searching; once it returns {@code true} the search stops.
+     * @return The hits found.
+     * @throws IllegalArgumentException if {@code limit} is less than 1.
+     */
+    public Result search(MoleculeGraph query, int limit, ForkJoinPool pool, BooleanSupplier cancelled) {
+        if (limit < 1) throw new IllegalArgumentException("Hit limit must be at least 1: " + limit);
+        Fingerprint screen = Fingerprint.ofQuery(query);
+        SubstructureMatcher matcher = new SubstructureMatcher(query);
+
+        AtomicInteger found = new AtomicInteger();
+        AtomicInteger screened = new AtomicInteger();
+        AtomicBoolean truncated = new AtomicBoolean();
+        ConcurrentLinkedQueue<Hit> hits = new ConcurrentLinkedQueue<>();
+        BooleanSupplier stop = () -> found.get() >= limit || cancelled.getAsBoolean();
+
+        int blocks = (molecules.size() + BLOCK - 1) / BLOCK;
+        pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+            int end = Math.min(molecules.size(), (block + 1) * BLOCK);
+            int passed = 0;
+            for (int i = block * BLOCK; i < end; i++) {
+                if (stop.getAsBoolean()) {
+                    truncated.set(true);
+                    break;
+                }
+                if (!fingerprints[i].screens(screen)) continue;
+                passed++;
+                int[] mapping = matcher.match(molecules.get(i), stop);
+                if (mapping == null) {
+                    // A null after stopping may be an abandoned match rather than a miss
+                    if (stop.getAsBoolean()) truncated.set(true);
+                } else if (found.getAndIncrement() < limit) {
+                    hits.add(new Hit(i, mapping));
+                } else {
+                    truncated.set(true);
+                }
+            }
+            screened.addAndGet(passed);
+        })).join();
+
+        List<Hit> sorted = new ArrayList<>(hits);
+        sorted.sort(Comparator.comparingInt(Hit::index));
+        return new Result(List.copyOf(sorted), screened.get(), !truncated.get());
+    }
+}
@@ -0,0 +1,457 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.BatchCalculation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs a {@link BatchCalculation} over a CSV file of cases, streaming from one channel to
+ * another.
+ * <p>
+ * The input starts with a header row naming its columns; columns named after those of the
+ * calculation (ignoring case) are read as numbers, the others are passed through untouched. The
+ * output has the input's columns in the same order, followed by any column of the calculation
+ * the input lacked. Values given in the input are copied byte for byte; only the values the
+ * calculation fills in are formatted. A cell that is present but not a number leaves its whole
+ * case unsolved, with its text kept.
+ * <p>
+ * Input is read into a heap buffer that is parsed in place and refilled, and output collects in
+ * another that is flushed whenever it fills, so memory is constant however many rows there
+ * are. Rows are parsed into column arrays of up to {@value #BATCH} cases, which the calculation
+ * then processes as a whole. Fields may be quoted, with {@code ""} for a quote, and lines may
+ * end in CRLF.
+ */
+public final class CsvBatch {
+
+    /**
+     * Outcome of a run.
+     *
+     * @param rows     Number of data rows processed.
+     * @param unsolved Number of those rows with an output still missing.
+     * @param complete Whether the whole input was processed, i.e. the run was not cancelled.
+     */
+    public record Summary(long rows, long unsolved, boolean complete) {
+    }
+
+    /**
+     * Receives progress after every batch.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * @param rows  Data rows processed so far.
+         * @param bytes Input bytes consumed so far.
+         */
+        void update(long rows, long bytes);
+    }
+
+    /** Cases per batch. */
+    static final int BATCH = 4096;
+
+    /** Initial size of the input and output buffers. */
+    private static final int BUFFER = 1 << 16;
+
+    private final BatchCalculation calculation;
+    private final ReadableByteChannel in;
+    private final WritableByteChannel out;
+
+    private byte[] input = new byte[BUFFER];
+    private int filled;
+    private int position;
+    private long consumed;
+    private boolean eof;
+
+    private final byte[] output = new byte[BUFFER];
+    private int written;
+
+    /** Calculation column of each input column, or -1 if it is passed through. */
+    private int[] columnOf;
+    /** Calculation columns the input lacks, appended to the output. */
+    private int[] appended;
+
+    private final double[][] values;
+    /** Start and end in {@link #input} of each cell of the batch, row by row. */
+    private int[] cells;
+    private final boolean[] invalid = new boolean[BATCH];
+
+    private CsvBatch(BatchCalculation calculation, ReadableByteChannel in, WritableByteChannel out) {
+        this.calculation = calculation;
+        this.in = in;
+        this.out = out;
+        values = new double[calculation.columns().size()][BATCH];
+    }
+
+    /**
+     * Runs a calculation over a CSV file. The output is written to a temporary file that
+     * replaces {@code output} only when the run completes, so a cancelled run leaves no partial
+     * file behind.
+     *
+     * @param calculation The calculation.
+     * @param input       CSV file of cases.
+     * @param output      CSV file to write.
+     * @param progress    Receives progress; may be {@code null}.
+     * @param cancelled   Polled between batches; once it returns {@code true} the run stops.
+     * @return The outcome.
+     * @throws IOException if a file cannot be read or written, or the input has no header
+     *                     naming a column of the calculation.
+     */
+    public static Summary run(BatchCalculation calculation, Path input, Path output, Progress progress,
+                              BooleanSupplier cancelled) throws IOException {
+        Path directory = output.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, output.getFileName().toString(), ".tmp");
+        try {
+            Summary summary;
+            try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                summary = run(calculation, in, out, progress, cancelled);
+            }
+            if (summary.complete()) {
+                try {
+                    Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return summary;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Runs a calculation over CSV cases.
+     *
+     * @param calculation The calculation.
+     * @param in          The input; not closed.
+     * @param out         The output; not closed.
+     * @param progress    Receives progress; may be {@code null}.
+     * @param cancelled   Polled between batches; once it returns {@code true} the run stops.
+     * @return The outcome.
+     * @throws IOException if a channel cannot be read or written, or the input has no header
+     *                     naming a column of the calculation.
+     */
+    public static Summary run(BatchCalculation calculation, ReadableByteChannel in, WritableByteChannel out,
+                              Progress progress, BooleanSupplier cancelled) throws IOException {
+        return new CsvBatch(calculation, in, out).run(progress, cancelled);
+    }
+
+    private Summary run(Progress progress, BooleanSupplier cancelled) throws IOException {
+        readHeader();
+        long rows = 0;
+        long unsolved = 0;
+        while (true) {
+            if (cancelled.getAsBoolean()) {
+                flush();
+                return new Summary(rows, unsolved, false);
+            }
+            int count = readBatch();
+            if (count == 0) break;
+            calculation.compute(values, 0, count);
+            unsolved += writeBatch(count);
+            rows += count;
+            if (progress != null) progress.update(rows, consumed + position);
+        }
+        flush();
+        return new Summary(rows, unsolved, true);
+    }
+
+    /* ------------------ Input ------------------ */
+
+    private void readHeader() throws IOException {
+        int end;
+        do {
+            end = lineEnd();
+            if (end < 0 && eof) {
+                if (isBlank(position, filled)) throw new IOException("The CSV file has no header row");
+                end = filled;
+            }
+            if (end < 0) fill();
+        } while (end < 0);
+
+        int columnCount = countCells(position, end);
+        int[] bounds = new int[2 * columnCount];
+        split(position, end, bounds, 0, columnCount);
+        columnOf = new int[columnCount];
+        boolean[] present = new boolean[calculation.columns().size()];
+        boolean any = false;
+        for (int c = 0; c < columnCount; c++) {
+            String name = unquote(bounds[2 * c], bounds[2 * c + 1]).strip();
+            int k = calculation.columnOf(name);
+            if (k >= 0 && present[k]) k = -1;
+            columnOf[c] = k;
+            if (k >= 0) {
+                present[k] = true;
+                any |= k < calculation.inputs();
+            }
+        }
+        if (!any) {
+            throw new IOException("The CSV header names none of the columns " + calculation.columns().subList(0, calculation.inputs()));
+        }
+        appended = new int[present.length];
+        int appendedCount = 0;
+        for (int k = 0; k < present.length; k++) {
+            if (!present[k]) appended[appendedCount++] = k;
+        }
+        appended = Arrays.copyOf(appended, appendedCount);
+        cells = new int[2 * columnCount * BATCH];
+
+        // The header goes out as it came in, plus the appended columns
+        write(position, trimEnd(position, end));
+        for (int k : appended) {
+            write((byte) ',');
+            write(calculation.columns().get(k));
+        }
+        write((byte) '\n');
+        position = Math.min(end + 1, filled);
+    }
+
+    /**
+     * Parses up to {@link #BATCH} rows into {@link #values} and {@link #cells}, leaving
+     * {@link #position} after the last. Rows of a batch all stay in the buffer until written.
+     */
+    private int readBatch() throws IOException {
+        compact();
+        int columnCount = columnOf.length;
+        int count = 0;
+        while (count < BATCH) {
+            int end = lineEnd();
+            if (end < 0) {
+                // Refilling moves the buffer, so only before the batch has rows in it
+                if (!eof && count == 0) {
+                    fill();
+                    continue;
+                }
+                if (!eof || position == filled) break;
+                end = filled;
+            }
+            int stop = trimEnd(position, end);
+            if (stop == position) {
+                position = end + 1;
+                continue;
+            }
+
+            int base = 2 * columnCount * count;
+            split(position, stop, cells, base, columnCount);
+            for (int k = 0; k < values.length; k++) values[k][count] = Double.NaN;
+            boolean bad = false;
+            for (int c = 0; c < columnCount; c++) {
+                int k = columnOf[c];
+                if (k < 0) continue;
+                double value = parse(cells[base + 2 * c], cells[base + 2 * c + 1]);
+                if (value != value && !isBlank(cells[base + 2 * c], cells[base + 2 * c + 1])) bad = true;
+                values[k][count] = value;
+            }
+            if (bad) {
+                for (int k = 0; k < values.length; k++) values[k][count] = Double.NaN;
+            }
+            invalid[count] = bad;
+            count++;
+            position = Math.min(end + 1, filled);
+        }
+        return count;
+    }
+
+    /** End of the line starting at {@link #position}, or -1 if it is not all in the buffer. */
+    private int lineEnd() {
+        boolean quoted = false;
+        for (int i = position; i < filled; i++) {
+            byte b = input[i];
+            if (b == '"') quoted = !quoted;
+            else if (b == '\n' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    /** Moves the unread part of the buffer to its start, growing it if a line fills it all. */
+    private void compact() {
+        if (position > 0) {
+            System.arraycopy(input, position, input, 0, filled - position);
+            filled -= position;
+            consumed += position;
+            position = 0;
+        }
+    }
+
+    private void fill() throws IOException {
+        compact();
+        if (filled == input.length) input = Arrays.copyOf(input, 2 * input.length);
+        int read = in.read(ByteBuffer.wrap(input, filled, input.length - filled));
+        if (read < 0) eof = true;
+        else filled += read;
+    }
+
+    private int trimEnd(int from, int to) {
+        while (to > from && (input[to - 1] == '\r' || input[to - 1] == '\n')) to--;
+        return to;
+    }
+
+    private int countCells(int from, int to) {
+        int count = 1;
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            if (input[i] == '"') quoted = !quoted;
+            else if (input[i] == ',' && !quoted) count++;
+        }
+        return count;
+    }
+
+    /** Stores the bounds of the first {@code count} cells of a line; missing cells are empty. */
+    private void split(int from, int to, int[] bounds, int base, int count) {
+        int start = from;
+        boolean quoted = false;
+        int c = 0;
+        for (int i = from; i < to && c < count; i++) {
+            if (input[i] == '"') {
+                quoted = !quoted;
+            } else if (input[i] == ',' && !quoted) {
+                bounds[base + 2 * c] = start;
+                bounds[base + 2 * c + 1] = i;
+                c++;
+                start = i + 1;
+            }
+        }
+        if (c < count) {
+            bounds[base + 2 * c] = start;
+            bounds[base + 2 * c + 1] = to;
+            c++;
+        }
+        for (; c < count; c++) {
+            bounds[base + 2 * c] = to;
+            bounds[base + 2 * c + 1] = to;
+        }
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (input[i] != ' ' && input[i] != '\t' && input[i] != '"') return false;
+        }
+        return true;
+    }
+
+    private String unquote(int from, int to) {
+        String text = new String(input, from, to - from, StandardCharsets.UTF_8).strip();
+        if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+            text = text.substring(1, text.length() - 1).replace("\"\"", "\"");
+        }
+        return text;
+    }
+
+    /**
+     * Parses a number, taking the exact fast path for plain decimals of up to 15 digits and
+     * falling back to {@link Double#parseDouble} for anything else.
+     *
+     * @return The number, or {@code NaN} if the cell is blank or not a number.
+     */
+    private double parse(int from, int to) {
+        while (from < to && (input[from] == ' ' || input[from] == '\t' || input[from] == '"')) from++;
+        while (to > from && (input[to - 1] == ' ' || input[to - 1] == '\t' || input[to - 1] == '"')) to--;
+        if (from == to) return Double.NaN;
+
+        int i = from;
+        boolean negative = input[i] == '-';
+        if (negative || input[i] == '+') i++;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean number = false;
+        for (; i < to; i++) {
+            byte b = input[i];
+            if (b >= '0' && b <= '9') {
+                if (digits == 15) break;
+                mantissa = 10 * mantissa + (b - '0');
+                number = true;
+                if (mantissa > 0) digits++;
+                if (point) scale++;
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (i == to && number && scale < POWERS_OF_TEN.length) {
+            // Both operands are exact doubles, so one correctly rounded division is exact to the ulp
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(input, from, to - from, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /* ------------------ Output ------------------ */
+
+    /** Writes the rows of a batch, returning how many are unsolved. */
+    private int writeBatch(int count) throws IOException {
+        int columnCount = columnOf.length;
+        int unsolved = 0;
+        for (int row = 0; row < count; row++) {
+            int base = 2 * columnCount * row;
+            for (int c = 0; c < columnCount; c++) {
+                if (c > 0) write((byte) ',');
+                int from = cells[base + 2 * c], to = cells[base + 2 * c + 1];
+                int k = columnOf[c];
+                if (k < 0 || invalid[row] || !isBlank(from, to)) write(from, to);
+                else writeValue(values[k][row]);
+            }
+            for (int k : appended) {
+                write((byte) ',');
+                writeValue(values[k][row]);
+            }
+            write((byte) '\n');
+
+            boolean solved = !invalid[row];
+            for (int k = 0; k < values.length && solved; k++) solved = values[k][row] == values[k][row];
+            if (!solved) unsolved++;
+        }
+        return unsolved;
+    }
+
+    private void writeValue(double value) throws IOException {
+        if (value == value && !Double.isInfinite(value)) write(Double.toString(value));
+    }
+
+    private void write(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) write((byte) text.charAt(i));
+    }
+
+    private void write(int from, int to) throws IOException {
+        while (from < to) {
+            if (written == output.length) flush();
+            int length = Math.min(to - from, output.length - written);
+            System.arraycopy(input, from, output, written, length);
+            written += length;
+            from += length;
+        }
+    }
+
+    private void write(byte b) throws IOException {
+        if (written == output.length) flush();
+        output[written++] = b;
+    }
+
+    private void flush() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(output, 0, written);
+        while (buffer.hasRemaining()) out.write(buffer);
+        written = 0;
+    }
+}
@@ -0,0 +1,636 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.Atom;
+import chem.chemfx.atoms.MoleculeGraph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+/**
+ * Reads and writes molecules in the ChemFX binary format ({@code .cfxm}), built for documents
+ * too large to parse up front.
+ * <p>
+ * All numbers are little-endian and every section starts on an 8-byte boundary:
+ * <pre>
+ *     header   64 bytes: magic "CFXM", u16 version, u16 flags, i32 atom count, i32 reserved,
+ *              i64 edge count, then i64 file offsets of the five sections below
+ *              (the index offset is 0 when there is no index)
+ *     atoms    12 bytes per atom: f32 x, f32 y, u8 atomic number, i8 charge,
+ *              u16 mass number (0 if unknown)
+ *     offsets  i32 per atom plus one: CSR start of each atom's edges
+ *     edges    i32 per edge: neighbouring atom
+ *     orders   u8 per edge: bond order
+ *     index    optional uniform grid over the atom coordinates: f32 min x, f32 min y,
+ *              f32 cell size, i32 columns, i32 rows, i32 reserved, i32 per cell plus one:
+ *              start of each cell's atoms, then i32 per atom: atoms sorted by cell
+ * </pre>
+ * Every bond appears twice in the bond table, once from each end, as in {@link MoleculeGraph}.
+ * Readers reject files with a newer version and ignore flags they do not know.
+ * <p>
+ * Writing streams through a channel with a small direct buffer, pulling atoms from a
+ * {@link Source}, so a document never has to exist as one array. Reading memory-maps the file:
+ * {@link #map(Path)} checks only the header, and atoms are decoded when asked for, so opening
+ * costs the same for any size and a viewer pays heap only for the atoms it materializes.
+ */
+public final class MoleculeFile {
+
+    /** Extension of files in this format, without the dot. */
+    public static final String EXTENSION = "cfxm";
+
+    /** Version written by this class, and the newest it reads. */
+    public static final int VERSION = 1;
+
+    /** Flag set when the file has a spatial index. */
+    private static final int FLAG_INDEX = 1;
+
+    private static final byte[] MAGIC = "CFXM".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_BYTES = 64;
+    private static final int ATOM_BYTES = 12;
+    private static final int INDEX_HEADER_BYTES = 24;
+
+    /** Atoms per index cell on average. */
+    private static final int ATOMS_PER_CELL = 8;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private MoleculeFile() {
+    }
+
+    /**
+     * Atoms and bonds to write. Atoms are numbered {@code 0..atomCount()-1}; every bond must be
+     * reported from both of its atoms, with the same order.
+     */
+    public interface Source {
+        int atomCount();
+
+        int element(int atom);
+
+        /**
+         * @param atom The atom.
+         * @return Protons plus neutrons, or 0 if unknown.
+         */
+        int massNumber(int atom);
+
+        int charge(int atom);
+
+        float x(int atom);
+
+        float y(int atom);
+
+        int degree(int atom);
+
+        /**
+         * Reports every bond of an atom, in a consistent order between calls.
+         *
+         * @param atom    The atom.
+         * @param visitor Receives each bond.
+         */
+        void forEachBond(int atom, BondVisitor visitor);
+    }
+
+    /** Receives the bonds of an atom. */
+    @FunctionalInterface
+    public interface BondVisitor {
+        void visit(int neighbor, int order);
+    }
+
+    /**
+     * Wraps a molecule and its 2D coordinates as a {@link Source}. Mass numbers and charges come
+     * from the graph's {@link Atom}s, and are 0 for a graph without them.
+     *
+     * @param graph       The molecule.
+     * @param coordinates Interleaved x, y of each atom.
+     * @return A source reading the graph.
+     * @throws IllegalArgumentException if there are not two coordinates per atom.
+     */
+    public static Source source(MoleculeGraph graph, float[] coordinates) {
+        if (coordinates.length != 2 * graph.atomCount()) {
+            throw new IllegalArgumentException("Expected " + 2 * graph.atomCount() + " coordinates, got " + coordinates.length);
+        }
+        return new Source() {
+            @Override
+            public int atomCount() {
+                return graph.atomCount();
+            }
+
+            @Override
+            public int element(int atom) {
+                return graph.element(atom);
+            }
+
+            @Override
+            public int massNumber(int atom) {
+                Atom a = graph.atom(atom);
+                return a == null ? 0 : a.getAtomicNumber() + a.getNeutronNumber();
+            }
+
+            @Override
+            public int charge(int atom) {
+                Atom a = graph.atom(atom);
+                return a == null ? 0 : a.getCharge();
+            }
+
+            @Override
+            public float x(int atom) {
+                return coordinates[2 * atom];
+            }
+
+            @Override
+            public float y(int atom) {
+                return coordinates[2 * atom + 1];
+            }
+
+            @Override
+            public int degree(int atom) {
+                return graph.degree(atom);
+            }
+
+            @Override
+            public void forEachBond(int atom, BondVisitor visitor) {
+                for (int e = graph.firstEdge(atom); e < graph.endEdge(atom); e++) {
+                    visitor.visit(graph.neighbor(e), graph.order(e));
+                }
+            }
+        };
+    }
+
+    /* ------------------ Writing ------------------ */
+
+    /**
+     * Writes a file, replacing any existing one only once the new file is complete. The source
+     * may itself read from the file being replaced.
+     *
+     * @param path   The file.
+     * @param source The molecule.
+     * @param index  Whether to add a spatial index, for opening only a region of the molecule.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, Source source, boolean index) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(channel, source, index);
+                channel.force(false);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes a molecule to a channel.
+     *
+     * @param channel The output; not closed.
+     * @param source  The molecule.
+     * @param index   Whether to add a spatial index.
+     * @throws IOException           if the channel cannot be written.
+     * @throws IllegalStateException if the source reports more or fewer bonds than its degrees.
+     */
+    public static void write(WritableByteChannel channel, Source source, boolean index) throws IOException {
+        int n = source.atomCount();
+        long edges = 0;
+        for (int i = 0; i < n; i++) edges += source.degree(i);
+        if (edges > Integer.MAX_VALUE) throw new IOException("Too many bonds: " + edges / 2);
+
+        Grid grid = index && n > 0 ? Grid.of(source) : null;
+
+        long atomsAt = HEADER_BYTES;
+        long offsetsAt = align(atomsAt + (long) ATOM_BYTES * n);
+        long edgesAt = align(offsetsAt + 4L * (n + 1));
+        long ordersAt = align(edgesAt + 4 * edges);
+        long indexAt = grid == null ? 0 : align(ordersAt + edges);
+
+        Output out = new Output(channel);
+        out.buffer.put(MAGIC);
+        out.buffer.putShort((short) VERSION);
+        out.buffer.putShort((short) (grid == null ? 0 : FLAG_INDEX));
+        out.buffer.putInt(n);
+        out.buffer.putInt(0);
+        out.buffer.putLong(edges);
+        out.buffer.putLong(atomsAt);
+        out.buffer.putLong(offsetsAt);
+        out.buffer.putLong(edgesAt);
+        out.buffer.putLong(ordersAt);
+        out.buffer.putLong(indexAt);
+
+        for (int i = 0; i < n; i++) {
+            out.reserve(ATOM_BYTES);
+            out.buffer.putFloat(source.x(i));
+            out.buffer.putFloat(source.y(i));
+            out.buffer.put((byte) source.element(i));
+            out.buffer.put((byte) source.charge(i));
+            out.buffer.putShort((short) source.massNumber(i));
+        }
+
+        out.padTo(offsetsAt);
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            out.reserve(4);
+            out.buffer.putInt(offset);
+            offset += source.degree(i);
+        }
+        out.reserve(4);
+        out.buffer.putInt(offset);
+
+        try {
+            writeBonds(out, source, edges, edgesAt, ordersAt);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (grid != null) {
+            out.padTo(indexAt);
+            out.reserve(INDEX_HEADER_BYTES);
+            out.buffer.putFloat(grid.minX);
+            out.buffer.putFloat(grid.minY);
+            out.buffer.putFloat(grid.cellSize);
+            out.buffer.putInt(grid.columns);
+            out.buffer.putInt(grid.rows);
+            out.buffer.putInt(0);
+            for (int start : grid.starts) {
+                out.reserve(4);
+                out.buffer.putInt(start);
+            }
+            for (int atom : grid.atoms) {
+                out.reserve(4);
+                out.buffer.putInt(atom);
+            }
+        }
+        out.flush();
+    }
+
+    /** Writes the edge and order sections, which pull bonds from visitors. */
+    private static void writeBonds(Output out, Source source, long edges, long edgesAt, long ordersAt) throws IOException {
+        int n = source.atomCount();
+        out.padTo(edgesAt);
+        long[] written = {0};
+        for (int i = 0; i < n; i++) {
+            int atom = i;
+            source.forEachBond(i, (neighbor, order) -> {
+                if (neighbor < 0 || neighbor >= n) throw new IllegalStateException("Atom " + atom + " is bonded to missing atom " + neighbor);
+                out.reserveUnchecked(4);
+                out.buffer.putInt(neighbor);
+                written[0]++;
+            });
+        }
+        if (written[0] != edges) throw new IllegalStateException("Sources reported " + written[0] + " bonds for " + edges + " edges");
+
+        out.padTo(ordersAt);
+        for (int i = 0; i < n; i++) {
+            source.forEachBond(i, (neighbor, order) -> {
+                out.reserveUnchecked(1);
+                out.buffer.put((byte) order);
+            });
+        }
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /** Buffered channel output that tracks its position. */
+    private static final class Output {
+        final WritableByteChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long flushed = 0;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        /** {@link #reserve} for use inside visitors, which cannot throw checked exceptions. */
+        void reserveUnchecked(int bytes) {
+            try {
+                reserve(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void padTo(long position) throws IOException {
+            while (flushed + buffer.position() < position) {
+                reserve(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) flushed += channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /** Uniform grid of cells holding about {@value #ATOMS_PER_CELL} atoms each. */
+    private static final class Grid {
+        float minX;
+        float minY;
+        float cellSize;
+        int columns;
+        int rows;
+        int[] starts;
+        int[] atoms;
+
+        static Grid of(Source source) {
+            int n = source.atomCount();
+            Grid grid = new Grid();
+            float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                float x = source.x(i), y = source.y(i);
+                if (!Float.isFinite(x) || !Float.isFinite(y)) continue;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+            if (minX > maxX) {
+                minX = maxX = minY = maxY = 0;
+            }
+            double width = maxX - minX, height = maxY - minY;
+            int cells = Math.max(1, n / ATOMS_PER_CELL);
+            // Square cells, but never so small that a thin molecule needs more cells than atoms
+            double size = Math.max(Math.sqrt(width * height / cells), Math.max(width, height) / cells);
+            if (!(size > 0)) size = 1;
+            grid.minX = minX;
+            grid.minY = minY;
+            grid.cellSize = (float) size;
+            grid.columns = (int) Math.min(cells + 1, (long) Math.floor(width / grid.cellSize) + 1);
+            grid.rows = (int) Math.min(cells + 1, (long) Math.floor(height / grid.cellSize) + 1);
+
+            int[] cellOf = new int[n];
+            grid.starts = new int[grid.columns * grid.rows + 1];
+            for (int i = 0; i < n; i++) {
+                cellOf[i] = grid.cell(source.x(i), source.y(i));
+                grid.starts[cellOf[i] + 1]++;
+            }
+            for (int c = 0; c < grid.columns * grid.rows; c++) grid.starts[c + 1] += grid.starts[c];
+            grid.atoms = new int[n];
+            int[] cursor = grid.starts.clone();
+            for (int i = 0; i < n; i++) grid.atoms[cursor[cellOf[i]]++] = i;
+            return grid;
+        }
+
+        int cell(float x, float y) {
+            return row(y) * columns + column(x);
+        }
+
+        int column(float x) {
+            return clamp((int) ((x - minX) / cellSize), columns);
+        }
+
+        int row(float y) {
+            return clamp((int) ((y - minY) / cellSize), rows);
+        }
+
+        private static int clamp(int value, int count) {
+            return Math.max(0, Math.min(count - 1, value));
+        }
+    }
+
+    /* ------------------ Reading ------------------ */
+
+    /**
+     * Memory-maps a file. Only the header is read and checked; sections are decoded as they are
+     * accessed, and a corrupt section surfaces as an {@link IndexOutOfBoundsException} then.
+     *
+     * @param path The file.
+     * @return A view of the file.
+     * @throws IOException if the file cannot be read, is not in this format, is of a newer
+     *                     version or has a section too large to map.
+     */
+    public static Mapped map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException(path + " is not a ChemFX molecule file");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) throw new IOException(path + " is not a ChemFX molecule file");
+            }
+            int version = Short.toUnsignedInt(header.getShort(4));
+            if (version > VERSION) {
+                throw new IOException(path + " has format version " + version + "; this version reads up to " + VERSION);
+            }
+            int flags = Short.toUnsignedInt(header.getShort(6));
+            int n = header.getInt(8);
+            long edges = header.getLong(16);
+            long atomsAt = header.getLong(24);
+            long offsetsAt = header.getLong(32);
+            long edgesAt = header.getLong(40);
+            long ordersAt = header.getLong(48);
+            long indexAt = (flags & FLAG_INDEX) != 0 ? header.getLong(56) : 0;
+            if (n < 0 || edges < 0) throw new IOException(path + " is corrupt: negative counts");
+
+            Mapped mapped = new Mapped(n,
+                    section(channel, path, atomsAt, (long) ATOM_BYTES * n, size),
+                    section(channel, path, offsetsAt, 4L * (n + 1), size),
+                    section(channel, path, edgesAt, 4 * edges, size),
+                    section(channel, path, ordersAt, edges, size));
+            if (indexAt != 0) {
+                ByteBuffer indexHeader = section(channel, path, indexAt, INDEX_HEADER_BYTES, size);
+                long cells = (long) indexHeader.getInt(12) * indexHeader.getInt(16);
+                if (cells <= 0) throw new IOException(path + " is corrupt: empty index");
+                mapped.index = section(channel, path, indexAt, INDEX_HEADER_BYTES + 4 * (cells + 1) + 4L * n, size);
+            }
+            return mapped;
+        }
+    }
+
+    private static ByteBuffer section(FileChannel channel, Path path, long at, long length, long size) throws IOException {
+        if (at < HEADER_BYTES || length < 0 || at + length > size) {
+            throw new IOException(path + " is corrupt: section at " + at + " of " + length + " bytes runs past the end");
+        }
+        if (length > Integer.MAX_VALUE) throw new IOException(path + " has a section too large to map: " + length + " bytes");
+        return channel.map(FileChannel.MapMode.READ_ONLY, at, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * A memory-mapped molecule file. Reads go straight to the mapping, so they allocate nothing
+     * and are safe from any thread. The mapping lives as long as this object is reachable.
+     */
+    public static final class Mapped implements Source {
+
+        private final int atomCount;
+        private final ByteBuffer atoms;
+        private final ByteBuffer offsets;
+        private final ByteBuffer edges;
+        private final ByteBuffer orders;
+        private ByteBuffer index;
+
+        private Mapped(int atomCount, ByteBuffer atoms, ByteBuffer offsets, ByteBuffer edges, ByteBuffer orders) {
+            this.atomCount = atomCount;
+            this.atoms = atoms;
+            this.offsets = offsets;
+            this.edges = edges;
+            this.orders = orders;
+        }
+
+        @Override
+        public int atomCount() {
+            return atomCount;
+        }
+
+        @Override
+        public float x(int atom) {
+            return atoms.getFloat(ATOM_BYTES * atom);
+        }
+
+        @Override
+        public float y(int atom) {
+            return atoms.getFloat(ATOM_BYTES * atom + 4);
+        }
+
+        @Override
+        public int element(int atom) {
+            return Byte.toUnsignedInt(atoms.get(ATOM_BYTES * atom + 8));
+        }
+
+        @Override
+        public int charge(int atom) {
+            return atoms.get(ATOM_BYTES * atom + 9);
+        }
+
+        @Override
+        public int massNumber(int atom) {
+            return Short.toUnsignedInt(atoms.getShort(ATOM_BYTES * atom + 10));
+        }
+
+        /**
+         * @param atom The atom.
+         * @return Its first edge slot.
+         */
+        public int firstEdge(int atom) {
+            return offsets.getInt(4 * atom);
+        }
+
+        /**
+         * @param atom The atom.
+         * @return One past its last edge slot.
+         */
+        public int endEdge(int atom) {
+            return offsets.getInt(4 * atom + 4);
+        }
+
+        /**
+         * @param edge An edge slot.
+         * @return The neighbouring atom.
+         */
+        public int neighbor(int edge) {
+            return edges.getInt(4 * edge);
+        }
+
+        /**
+         * @param edge An edge slot.
+         * @return The bond order.
+         */
+        public int order(int edge) {
+            return Byte.toUnsignedInt(orders.get(edge));
+        }
+
+        @Override
+        public int degree(int atom) {
+            return endEdge(atom) - firstEdge(atom);
+        }
+
+        @Override
+        public void forEachBond(int atom, BondVisitor visitor) {
+            for (int e = firstEdge(atom), end = endEdge(atom); e < end; e++) visitor.visit(neighbor(e), order(e));
+        }
+
+        /**
+         * @return Whether the file has a spatial index, making {@link #query} proportional to
+         * the atoms found rather than to the whole molecule.
+         */
+        public boolean hasIndex() {
+            return index != null;
+        }
+
+        /**
+         * Visits the atoms whose coordinates lie inside a box, edges included.
+         *
+         * @param minX    Left edge.
+         * @param minY    Top edge.
+         * @param maxX    Right edge.
+         * @param maxY    Bottom edge.
+         * @param visitor Receives each atom.
+         */
+        public void query(float minX, float minY, float maxX, float maxY, IntConsumer visitor) {
+            if (index == null) {
+                for (int i = 0; i < atomCount; i++) visitIfInside(i, minX, minY, maxX, maxY, visitor);
+                return;
+            }
+            float originX = index.getFloat(0), originY = index.getFloat(4), cellSize = index.getFloat(8);
+            int columns = index.getInt(12), rows = index.getInt(16);
+            int firstColumn = Math.max(0, (int) Math.floor((minX - originX) / cellSize));
+            int lastColumn = Math.min(columns - 1, (int) Math.floor((maxX - originX) / cellSize));
+            int firstRow = Math.max(0, (int) Math.floor((minY - originY) / cellSize));
+            int lastRow = Math.min(rows - 1, (int) Math.floor((maxY - originY) / cellSize));
+            // Cells on the border also hold atoms clamped in from outside the grid
+            if (maxX >= originX + columns * cellSize) lastColumn = columns - 1;
+            if (maxY >= originY + rows * cellSize) lastRow = rows - 1;
+            if (minX < originX) firstColumn = 0;
+            if (minY < originY) firstRow = 0;
+            int atomsAt = INDEX_HEADER_BYTES + 4 * (columns * rows + 1);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int cell = row * columns + column;
+                    int start = index.getInt(INDEX_HEADER_BYTES + 4 * cell);
+                    int end = index.getInt(INDEX_HEADER_BYTES + 4 * cell + 4);
+                    for (int k = start; k < end; k++) {
+                        visitIfInside(index.getInt(atomsAt + 4 * k), minX, minY, maxX, maxY, visitor);
+                    }
+                }
+            }
+        }
+
+        private void visitIfInside(int atom, float minX, float minY, float maxX, float maxY, IntConsumer visitor) {
+            float x = x(atom), y = y(atom);
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) visitor.accept(atom);
+        }
+
+        /**
+         * Decodes the whole bond table into a graph, for analyses that need all of it.
+         *
+         * @return The molecule, without {@link Atom}s attached.
+         */
+        public MoleculeGraph toGraph() {
+            byte[] elements = new byte[atomCount];
+            for (int i = 0; i < atomCount; i++) elements[i] = (byte) element(i);
+            int m = (offsets.getInt(4 * atomCount)) / 2;
+            int[] bondAtoms = new int[2 * m];
+            byte[] bondOrders = new byte[m];
+            int b = 0;
+            for (int i = 0; i < atomCount; i++) {
+                for (int e = firstEdge(i), end = endEdge(i); e < end; e++) {
+                    int j = neighbor(e);
+                    if (j <= i) continue;
+                    bondAtoms[2 * b] = i;
+                    bondAtoms[2 * b + 1] = j;
+                    bondOrders[b++] = (byte) order(e);
+                }
+            }
+            return MoleculeGraph.of(elements, atomCount, bondAtoms, bondOrders, b);
+        }
+    }
+}
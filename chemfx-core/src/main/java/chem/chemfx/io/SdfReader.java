@@ -0,0 +1,472 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.ElementTable;
+import chem.chemfx.atoms.MoleculeGraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Streams molecules from SD files: MDL V2000 molfiles separated by {@code $$$$} lines, each
+ * optionally followed by {@code > <NAME>} data items. A single molfile without a terminator is
+ * read as one record.
+ * <p>
+ * The calling thread reads the input from a channel in large chunks cut after a {@code $$$$}
+ * line and hands each chunk to a {@link ForkJoinPool}, where workers parse its records with
+ * their own scratch buffers. Results are delivered to the consumer on the calling thread, in
+ * input order. As in {@link SmilesReader}, at most a few chunks per worker are in flight and
+ * chunk buffers are recycled, so memory stays bounded for files of any size. The file is read
+ * rather than memory-mapped: chunks are copied once into recycled heap buffers either way, and
+ * a channel has no 2 GB limit per mapping.
+ * <p>
+ * A {@link MoleculeGraph} only records elements and bond orders, so charges, isotopes, stereo
+ * flags and the properties block are read and dropped; atom coordinates are returned next to
+ * the graph. Query atoms and unknown symbols become element 0. Aromatic and query bond types
+ * are not supported, and records using them are reported as errors.
+ */
+public final class SdfReader {
+
+    /**
+     * A parsed record.
+     *
+     * @param record      Record number, starting at 1.
+     * @param line        Line number of the first line of the record, starting at 1.
+     * @param name        First line of the record, or {@code null} if it is blank.
+     * @param molecule    The molecule, or {@code null} if the record could not be parsed.
+     * @param coordinates Interleaved x, y, z coordinates of the atoms, or {@code null} if the
+     *                    record could not be parsed.
+     * @param data        Data items by name, in file order.
+     * @param error       Why the record could not be parsed, or {@code null}.
+     */
+    public record Entry(long record, long line, String name, MoleculeGraph molecule, float[] coordinates,
+                        Map<String, String> data, String error) {
+    }
+
+    /** Default chunk size in bytes. */
+    private static final int CHUNK = 1 << 20;
+
+    /** Chunks in flight per worker. */
+    private static final int IN_FLIGHT_PER_WORKER = 2;
+
+    private static final byte[] TERMINATOR = {'$', '$', '$', '$'};
+
+    /** Powers of ten for scaling fixed-point coordinates. */
+    private static final double[] POWERS_OF_TEN = new double[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int k = 1; k < POWERS_OF_TEN.length; k++) POWERS_OF_TEN[k] = 10 * POWERS_OF_TEN[k - 1];
+    }
+
+    private static final ThreadLocal<RecordParser> parsers = ThreadLocal.withInitial(RecordParser::new);
+
+    private SdfReader() {
+    }
+
+    /**
+     * Reads an SD file using the common pool.
+     *
+     * @param path     The file.
+     * @param consumer Receives every entry in file order.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void read(Path path, Consumer<? super Entry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(channel, consumer, ForkJoinPool.commonPool());
+        }
+    }
+
+    /**
+     * Reads SD records using the common pool.
+     *
+     * @param channel  The input; not closed.
+     * @param consumer Receives every entry in input order.
+     * @throws IOException if the input cannot be read.
+     */
+    public static void read(ReadableByteChannel channel, Consumer<? super Entry> consumer) throws IOException {
+        read(channel, consumer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads SD records, parsing on the given pool.
+     *
+     * @param channel  The input; not closed.
+     * @param consumer Receives every entry in input order, on the calling thread.
+     * @param pool     Pool to parse on.
+     * @throws IOException if the input cannot be read.
+     */
+    public static void read(ReadableByteChannel channel, Consumer<? super Entry> consumer, ForkJoinPool pool) throws IOException {
+        int maxInFlight = Math.max(1, pool.getParallelism() * IN_FLIGHT_PER_WORKER);
+        ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+        ArrayDeque<byte[]> free = new ArrayDeque<>();
+
+        byte[] buffer = new byte[CHUNK];
+        int filled = 0;
+        long line = 1;
+        long record = 1;
+        boolean eof = false;
+        while (!eof) {
+            int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+            if (read < 0) {
+                eof = true;
+            } else {
+                filled += read;
+                if (filled < buffer.length) continue;
+            }
+
+            // Cut after the last terminator line, counting the lines and records before it
+            int end = 0;
+            long lines = 0;
+            long records = 0;
+            long linesSoFar = 0;
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++) {
+                if (buffer[i] != '\n') continue;
+                linesSoFar++;
+                if (isTerminator(buffer, lineStart, i)) {
+                    end = i + 1;
+                    lines = linesSoFar;
+                    records++;
+                }
+                lineStart = i + 1;
+            }
+            if (eof && !isBlank(buffer, end, filled)) {
+                // A last record without a terminator
+                end = filled;
+                records++;
+            }
+            if (!eof && end == 0) {
+                // A single record longer than the buffer
+                buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                continue;
+            }
+            if (end == 0) break;
+
+            Chunk chunk = new Chunk(buffer, end, line, record);
+            line += lines;
+            record += records;
+            chunk.task = pool.submit(chunk::parse);
+            inFlight.add(chunk);
+
+            // Carry the partial last record over into the next buffer before this one can be recycled
+            byte[] next = free.poll();
+            if (next == null || next.length < Math.max(CHUNK, filled - end)) next = new byte[Math.max(CHUNK, buffer.length)];
+            System.arraycopy(buffer, end, next, 0, filled - end);
+            filled -= end;
+            buffer = next;
+
+            while (inFlight.size() >= maxInFlight) free.add(deliver(inFlight.poll(), consumer));
+        }
+        while (!inFlight.isEmpty()) deliver(inFlight.poll(), consumer);
+    }
+
+    private static byte[] deliver(Chunk chunk, Consumer<? super Entry> consumer) {
+        for (Entry entry : chunk.task.join()) consumer.accept(entry);
+        return chunk.bytes;
+    }
+
+    /** Whether the line {@code [from, to)} is a record terminator. */
+    private static boolean isTerminator(byte[] bytes, int from, int to) {
+        if (to - from < TERMINATOR.length) return false;
+        for (int k = 0; k < TERMINATOR.length; k++) {
+            if (bytes[from + k] != TERMINATOR[k]) return false;
+        }
+        return isBlank(bytes, from + TERMINATOR.length, to);
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] > ' ') return false;
+        }
+        return true;
+    }
+
+    /** A run of whole records and the task parsing them. */
+    private static final class Chunk {
+
+        final byte[] bytes;
+        final int length;
+        final long firstLine;
+        final long firstRecord;
+        ForkJoinTask<List<Entry>> task;
+
+        Chunk(byte[] bytes, int length, long firstLine, long firstRecord) {
+            this.bytes = bytes;
+            this.length = length;
+            this.firstLine = firstLine;
+            this.firstRecord = firstRecord;
+        }
+
+        List<Entry> parse() {
+            RecordParser parser = parsers.get();
+            List<Entry> entries = new ArrayList<>();
+            long line = firstLine;
+            long record = firstRecord;
+            int start = 0;
+            while (start < length) {
+                // Find the terminator line ending this record, or the end of the chunk
+                int end = length;
+                int next = length;
+                long lines = 0;
+                for (int lineStart = start; lineStart < length; ) {
+                    int lineEnd = lineStart;
+                    while (lineEnd < length && bytes[lineEnd] != '\n') lineEnd++;
+                    lines++;
+                    if (isTerminator(bytes, lineStart, lineEnd)) {
+                        end = lineStart;
+                        next = lineEnd + 1;
+                        break;
+                    }
+                    lineStart = lineEnd + 1;
+                }
+                if (end == length && isBlank(bytes, start, end)) break;
+                entries.add(parser.parse(bytes, start, end, record++, line));
+                line += lines;
+                start = next;
+            }
+            return entries;
+        }
+    }
+
+    /** Thrown while parsing a record; becomes the error of its entry. */
+    private static final class RecordException extends Exception {
+        RecordException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * Parses one record at a time, keeping its atom and bond buffers between records so that
+     * parsing a stream only allocates the results. Not thread-safe.
+     */
+    private static final class RecordParser {
+
+        private byte[] elements = new byte[64];
+        private float[] coordinates = new float[3 * 64];
+        private int[] bondAtoms = new int[128];
+        private byte[] bondOrders = new byte[64];
+
+        private byte[] bytes;
+        private int position;
+        private int end;
+        /** Bounds of the current line, without the line break. */
+        private int lineStart;
+        private int lineEnd;
+        private long lineNumber;
+
+        Entry parse(byte[] bytes, int from, int to, long record, long firstLine) {
+            this.bytes = bytes;
+            this.position = from;
+            this.end = to;
+            this.lineNumber = firstLine - 1;
+
+            String name = null;
+            try {
+                nextLine("header");
+                if (!isBlank(bytes, lineStart, lineEnd)) name = text(lineStart, lineEnd).strip();
+                nextLine("header");
+                nextLine("header");
+
+                nextLine("counts line");
+                int n = integer(0, 3, "atom count");
+                int m = integer(3, 6, "bond count");
+                if (lineEnd - lineStart >= 39 && bytes[lineStart + 34] == 'V' && bytes[lineStart + 35] == '3') {
+                    throw error("V3000 molfiles are not supported");
+                }
+                ensureCapacity(n, m);
+
+                for (int i = 0; i < n; i++) {
+                    nextLine("atom block");
+                    coordinates[3 * i] = decimal(0, 10, "x coordinate");
+                    coordinates[3 * i + 1] = decimal(10, 20, "y coordinate");
+                    coordinates[3 * i + 2] = decimal(20, 30, "z coordinate");
+                    elements[i] = (byte) element();
+                }
+                for (int b = 0; b < m; b++) {
+                    nextLine("bond block");
+                    int a1 = integer(0, 3, "bond atom") - 1;
+                    int a2 = integer(3, 6, "bond atom") - 1;
+                    int type = integer(6, 9, "bond type");
+                    if (a1 < 0 || a1 >= n || a2 < 0 || a2 >= n) throw error("Bond to missing atom");
+                    if (type < 1 || type > 3) throw error("Bond type " + type + " is not supported");
+                    bondAtoms[2 * b] = a1;
+                    bondAtoms[2 * b + 1] = a2;
+                    bondOrders[b] = (byte) type;
+                }
+                skipProperties();
+                Map<String, String> data = data();
+
+                MoleculeGraph molecule;
+                try {
+                    molecule = MoleculeGraph.of(elements, n, bondAtoms, bondOrders, m);
+                } catch (IllegalArgumentException e) {
+                    throw new RecordException(e.getMessage());
+                }
+                return new Entry(record, firstLine, name, molecule, Arrays.copyOf(coordinates, 3 * n), data, null);
+            } catch (RecordException e) {
+                return new Entry(record, firstLine, name, null, null, Map.of(), e.getMessage());
+            }
+        }
+
+        private void ensureCapacity(int n, int m) {
+            if (elements.length < n) {
+                elements = new byte[Math.max(n, 2 * elements.length)];
+                coordinates = new float[3 * elements.length];
+            }
+            if (bondOrders.length < m) {
+                bondOrders = new byte[Math.max(m, 2 * bondOrders.length)];
+                bondAtoms = new int[2 * bondOrders.length];
+            }
+        }
+
+        /** Skips the properties block up to and including {@code M  END}. */
+        private void skipProperties() throws RecordException {
+            while (true) {
+                nextLine("properties block");
+                if (startsWith("M  END")) return;
+            }
+        }
+
+        /** Reads the data items after the molfile. */
+        private Map<String, String> data() {
+            Map<String, String> data = null;
+            while (hasLine()) {
+                nextLineUnchecked();
+                if (lineEnd == lineStart || bytes[lineStart] != '>') continue;
+                int open = indexOf('<', lineStart, lineEnd);
+                int close = open < 0 ? -1 : indexOf('>', open + 1, lineEnd);
+                if (close < 0) continue;
+                String key = text(open + 1, close);
+
+                StringBuilder value = new StringBuilder();
+                while (hasLine()) {
+                    nextLineUnchecked();
+                    if (isBlank(bytes, lineStart, lineEnd)) break;
+                    if (!value.isEmpty()) value.append('\n');
+                    value.append(text(lineStart, lineEnd));
+                }
+                if (data == null) data = new LinkedHashMap<>();
+                data.put(key, value.toString());
+            }
+            return data == null ? Map.of() : data;
+        }
+
+        /* ------------------ Lines and fields ------------------ */
+
+        private boolean hasLine() {
+            return position < end;
+        }
+
+        private void nextLine(String section) throws RecordException {
+            if (!hasLine()) {
+                lineNumber++;
+                throw error("Record ends in the " + section);
+            }
+            nextLineUnchecked();
+        }
+
+        private void nextLineUnchecked() {
+            lineStart = position;
+            int i = position;
+            while (i < end && bytes[i] != '\n') i++;
+            position = i + 1;
+            lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+            lineNumber++;
+        }
+
+        private boolean startsWith(String prefix) {
+            if (lineEnd - lineStart < prefix.length()) return false;
+            for (int k = 0; k < prefix.length(); k++) {
+                if (bytes[lineStart + k] != prefix.charAt(k)) return false;
+            }
+            return true;
+        }
+
+        private int indexOf(char c, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == c) return i;
+            }
+            return -1;
+        }
+
+        private String text(int from, int to) {
+            return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        /** Parses the integer in columns {@code [from, to)} of the current line. */
+        private int integer(int from, int to, String field) throws RecordException {
+            int i = lineStart + from;
+            int limit = Math.min(lineStart + to, lineEnd);
+            while (i < limit && bytes[i] == ' ') i++;
+            boolean negative = i < limit && bytes[i] == '-';
+            if (negative) i++;
+            if (i >= limit) throw error("Missing " + field);
+            int value = 0;
+            for (; i < limit && bytes[i] != ' '; i++) {
+                int digit = bytes[i] - '0';
+                if (digit < 0 || digit > 9 || value > 99_999_999) throw error("Bad " + field);
+                value = 10 * value + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        /** Parses the fixed-point number in columns {@code [from, to)} of the current line. */
+        private float decimal(int from, int to, String field) throws RecordException {
+            int i = lineStart + from;
+            int limit = Math.min(lineStart + to, lineEnd);
+            while (i < limit && bytes[i] == ' ') i++;
+            boolean negative = i < limit && bytes[i] == '-';
+            if (negative) i++;
+            long mantissa = 0;
+            int scale = -1;
+            int digits = 0;
+            for (; i < limit && bytes[i] != ' '; i++) {
+                byte c = bytes[i];
+                if (c == '.' && scale < 0) {
+                    scale = 0;
+                } else if (c >= '0' && c <= '9' && digits < 18) {
+                    mantissa = 10 * mantissa + (c - '0');
+                    digits++;
+                    if (scale >= 0) scale++;
+                } else {
+                    throw error("Bad " + field);
+                }
+            }
+            if (digits == 0) throw error("Missing " + field);
+            double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+            return (float) (negative ? -value : value);
+        }
+
+        /** Element of the symbol in columns 31 to 34 of an atom line. */
+        private int element() throws RecordException {
+            int i = lineStart + 31;
+            int limit = Math.min(lineStart + 34, lineEnd);
+            while (i < limit && bytes[i] == ' ') i++;
+            if (i >= limit) throw error("Missing atom symbol");
+            char first = (char) bytes[i];
+            char second = i + 1 < limit && bytes[i + 1] != ' ' ? (char) bytes[i + 1] : 0;
+            if (i + 2 < limit && bytes[i + 2] != ' ') return 0;
+            // Deuterium and tritium are hydrogen; R#, A, Q, L and * are query atoms
+            if (second == 0 && (first == 'D' || first == 'T')) return 1;
+            return ElementTable.indexOfSymbol(first, second);
+        }
+
+        private RecordException error(String message) {
+            return new RecordException("Line " + lineNumber + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package chem.chemfx.io;
+
+/**
+ * Thrown when a SMILES string cannot be parsed.
+ */
+public class SmilesFormatException extends IllegalArgumentException {
+
+    private final int position;
+
+    public SmilesFormatException(String message, int position) {
+        super(position >= 0 ? message + " at position " + position : message);
+        this.position = position;
+    }
+
+    /**
+     * @return Offset of the offending character within the SMILES string, or -1 if the error
+     * concerns the whole string.
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,545 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.ElementTable;
+import chem.chemfx.atoms.MoleculeGraph;
+
+import java.util.Arrays;
+
+/**
+ * Parses SMILES strings into {@link MoleculeGraph}s.
+ * <p>
+ * The full atom and bond syntax is accepted: the organic subset, bracket atoms with isotope,
+ * chirality, hydrogen count, charge and class, branches, ring bonds up to {@code %99} and
+ * disconnected parts. A {@link MoleculeGraph} only records elements and bond orders, so:
+ * <ul>
+ *     <li>hydrogens are kept only when written as atoms (e.g. {@code [H][H]});</li>
+ *     <li>isotopes, charges, chirality, {@code /} and {@code \} directions and atom classes are
+ *     read and dropped;</li>
+ *     <li>aromatic atoms and bonds are kekulized into alternating single and double bonds. Which
+ *     Kekulé structure results depends on the order the atoms were written in; graphs of the same
+ *     molecule agree on {@link MoleculeGraph#orderClass(int) order classes}, which canonical
+ *     labeling and {@link SmilesWriter} go by.</li>
+ * </ul>
+ * A parser keeps its atom, bond and ring scratch buffers between calls, so parsing a stream of
+ * molecules only allocates the resulting graphs. Not thread-safe; keep one parser per thread.
+ */
+public final class SmilesParser {
+
+    /** Bond order placeholder for aromatic bonds until the ring system is kekulized. */
+    private static final byte AROMATIC = 0;
+
+    /** Marks a bond with no explicit order symbol. */
+    private static final byte UNSPECIFIED = -1;
+
+    /** Highest ring bond number, from the two-digit {@code %nn} form. */
+    private static final int MAX_RING = 99;
+
+    /** Copy of the input for {@link #parse(CharSequence)}. */
+    private char[] text = new char[64];
+
+    /** Atomic number of each atom; 0 for the {@code *} wildcard. */
+    private byte[] elements = new byte[16];
+
+    /** Whether each atom was written in lower case. */
+    private boolean[] aromatic = new boolean[16];
+
+    /** Hydrogen count of each bracket atom; 0 for organic-subset atoms. */
+    private byte[] hydrogens = new byte[16];
+
+    /** Charge of each bracket atom. */
+    private byte[] charges = new byte[16];
+    private int atomCount;
+
+    /** Atom numbers of the two ends of each bond, as consecutive pairs. */
+    private int[] bondAtoms = new int[32];
+    private byte[] bondOrders = new byte[16];
+    private int bondCount;
+
+    /** Atom holding each open ring bond number, or -1. */
+    private final int[] ringAtoms = new int[MAX_RING + 1];
+
+    /** Order written at the opening of each ring bond, or {@link #UNSPECIFIED}. */
+    private final byte[] ringOrders = new byte[MAX_RING + 1];
+    private int openRings;
+
+    /** Atoms to return to when the open branches close. */
+    private int[] branches = new int[8];
+    private int depth;
+
+    /** Atom the next atom or ring bond attaches to, or -1 at the start of a part. */
+    private int previous;
+
+    /** Order of the bond symbol just read, or {@link #UNSPECIFIED}. */
+    private byte pending;
+
+    /** Kekulization scratch: matched bond of each atom, candidate bonds in CSR form, visit stamps. */
+    private int[] mates = new int[16];
+    private int[] candidateOffsets = new int[17];
+    private int[] candidates = new int[32];
+    private int[] seen = new int[16];
+    private int stamp;
+    private int[] parents = new int[16];
+    private int[] bases = new int[16];
+    private int[] queue = new int[16];
+    private boolean[] inBlossom = new boolean[16];
+    private boolean[] onPath = new boolean[16];
+
+    public SmilesParser() {
+        Arrays.fill(ringAtoms, -1);
+    }
+
+    /**
+     * Parses a SMILES string.
+     *
+     * @param smiles The SMILES string, without a trailing name.
+     * @return The molecule.
+     * @throws SmilesFormatException if the string is not valid SMILES.
+     */
+    public MoleculeGraph parse(CharSequence smiles) {
+        int length = smiles.length();
+        if (text.length < length) text = new char[Math.max(length, 2 * text.length)];
+        for (int i = 0; i < length; i++) text[i] = smiles.charAt(i);
+        return parse(text, 0, length);
+    }
+
+    /**
+     * Parses a SMILES string held in part of a character buffer, e.g. a line of a file chunk.
+     *
+     * @param chars Buffer holding the string.
+     * @param from  Offset of the first character.
+     * @param to    Offset one past the last character.
+     * @return The molecule.
+     * @throws SmilesFormatException if the string is not valid SMILES.
+     */
+    public MoleculeGraph parse(char[] chars, int from, int to) {
+        reset();
+        int i = from;
+        while (i < to) {
+            char c = chars[i];
+            int position = i - from;
+            switch (c) {
+                case 'B' -> {
+                    boolean bromine = i + 1 < to && chars[i + 1] == 'r';
+                    addAtom(bromine ? 35 : 5, false, 0, 0, position);
+                    i += bromine ? 2 : 1;
+                }
+                case 'C' -> {
+                    boolean chlorine = i + 1 < to && chars[i + 1] == 'l';
+                    addAtom(chlorine ? 17 : 6, false, 0, 0, position);
+                    i += chlorine ? 2 : 1;
+                }
+                case 'N', 'O', 'P', 'S', 'F', 'I' -> {
+                    addAtom(ElementTable.indexOfSymbol(c, (char) 0), false, 0, 0, position);
+                    i++;
+                }
+                case 'b', 'c', 'n', 'o', 'p', 's' -> {
+                    addAtom(ElementTable.indexOfSymbol(c, (char) 0), true, 0, 0, position);
+                    i++;
+                }
+                case '*' -> {
+                    addAtom(0, false, 0, 0, position);
+                    i++;
+                }
+                case '[' -> i = bracketAtom(chars, i, from, to);
+                case '-', '/', '\\' -> i = bond(1, position, i);
+                case '=' -> i = bond(2, position, i);
+                case '#' -> i = bond(3, position, i);
+                case '$' -> i = bond(4, position, i);
+                case ':' -> i = bond(AROMATIC, position, i);
+                case '(' -> {
+                    if (previous < 0 || pending != UNSPECIFIED) throw new SmilesFormatException("Misplaced branch", position);
+                    if (depth == branches.length) branches = Arrays.copyOf(branches, 2 * depth);
+                    branches[depth++] = previous;
+                    i++;
+                }
+                case ')' -> {
+                    if (depth == 0 || pending != UNSPECIFIED) throw new SmilesFormatException("Unmatched ')'", position);
+                    previous = branches[--depth];
+                    i++;
+                }
+                case '.' -> {
+                    if (pending != UNSPECIFIED) throw new SmilesFormatException("Bond before '.'", position);
+                    previous = -1;
+                    i++;
+                }
+                case '%' -> {
+                    if (i + 2 >= to || !isDigit(chars[i + 1]) || !isDigit(chars[i + 2])) {
+                        throw new SmilesFormatException("Expected two digits after '%'", position);
+                    }
+                    ringBond((chars[i + 1] - '0') * 10 + chars[i + 2] - '0', position);
+                    i += 3;
+                }
+                default -> {
+                    if (!isDigit(c)) throw new SmilesFormatException("Unexpected '" + c + "'", position);
+                    ringBond(c - '0', position);
+                    i++;
+                }
+            }
+        }
+
+        if (pending != UNSPECIFIED) throw new SmilesFormatException("Bond without a second atom", to - from);
+        if (depth > 0) throw new SmilesFormatException("Unclosed branch", to - from);
+        if (openRings > 0) throw new SmilesFormatException("Unclosed ring bond", to - from);
+        kekulize();
+        try {
+            return MoleculeGraph.of(elements, atomCount, bondAtoms, bondOrders, bondCount);
+        } catch (IllegalArgumentException e) {
+            throw new SmilesFormatException(e.getMessage(), -1);
+        }
+    }
+
+    private void reset() {
+        atomCount = 0;
+        bondCount = 0;
+        depth = 0;
+        previous = -1;
+        pending = UNSPECIFIED;
+        if (openRings > 0) {
+            Arrays.fill(ringAtoms, -1);
+            openRings = 0;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isLower(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private int bond(int order, int position, int i) {
+        if (previous < 0 || pending != UNSPECIFIED) throw new SmilesFormatException("Misplaced bond", position);
+        pending = (byte) order;
+        return i + 1;
+    }
+
+    /**
+     * Parses {@code [isotope? symbol chirality? hcount? charge? class?]}.
+     *
+     * @return Offset just past the closing bracket.
+     */
+    private int bracketAtom(char[] chars, int start, int from, int to) {
+        int i = start + 1;
+        while (i < to && isDigit(chars[i])) i++;
+        if (i >= to) throw new SmilesFormatException("Unclosed bracket atom", start - from);
+
+        int z;
+        boolean lower = false;
+        char c = chars[i];
+        char next = i + 1 < to ? chars[i + 1] : 0;
+        if (c == '*') {
+            z = 0;
+            i++;
+        } else if (isUpper(c)) {
+            z = isLower(next) ? ElementTable.indexOfSymbol(c, next) : 0;
+            if (z != 0) {
+                i += 2;
+            } else {
+                z = ElementTable.indexOfSymbol(c, (char) 0);
+                i++;
+            }
+        } else if (isLower(c)) {
+            lower = true;
+            if ((c == 's' && next == 'e') || (c == 'a' && next == 's') || (c == 't' && next == 'e')) {
+                z = ElementTable.indexOfSymbol(c, next);
+                i += 2;
+            } else {
+                z = "bcnops".indexOf(c) >= 0 ? ElementTable.indexOfSymbol(c, (char) 0) : 0;
+                i++;
+            }
+        } else {
+            z = 0;
+        }
+        if (z == 0 && c != '*') throw new SmilesFormatException("Unknown element", i - from);
+
+        if (i < to && chars[i] == '@') {
+            i++;
+            if (i < to && chars[i] == '@') {
+                i++;
+            } else if (i + 1 < to && isUpper(chars[i]) && isUpper(chars[i + 1]) && chars[i] != 'H') {
+                i += 2;
+                while (i < to && isDigit(chars[i])) i++;
+            }
+        }
+
+        int h = 0;
+        if (i < to && chars[i] == 'H') {
+            i++;
+            h = 1;
+            if (i < to && isDigit(chars[i])) h = chars[i++] - '0';
+        }
+
+        int charge = 0;
+        if (i < to && (chars[i] == '+' || chars[i] == '-')) {
+            char sign = chars[i++];
+            int unit = sign == '+' ? 1 : -1;
+            if (i < to && isDigit(chars[i])) {
+                int magnitude = 0;
+                while (i < to && isDigit(chars[i])) magnitude = magnitude * 10 + chars[i++] - '0';
+                charge = unit * magnitude;
+            } else {
+                charge = unit;
+                while (i < to && chars[i] == sign) {
+                    charge += unit;
+                    i++;
+                }
+            }
+        }
+
+        if (i < to && chars[i] == ':') {
+            i++;
+            while (i < to && isDigit(chars[i])) i++;
+        }
+        if (i >= to || chars[i] != ']') throw new SmilesFormatException("Expected ']'", i - from);
+
+        addAtom(z, lower, h, charge, start - from);
+        return i + 1;
+    }
+
+    private void addAtom(int z, boolean isAromatic, int h, int charge, int position) {
+        if (atomCount == elements.length) {
+            int capacity = 2 * atomCount;
+            elements = Arrays.copyOf(elements, capacity);
+            aromatic = Arrays.copyOf(aromatic, capacity);
+            hydrogens = Arrays.copyOf(hydrogens, capacity);
+            charges = Arrays.copyOf(charges, capacity);
+        }
+        int atom = atomCount++;
+        elements[atom] = (byte) z;
+        aromatic[atom] = isAromatic;
+        hydrogens[atom] = (byte) h;
+        charges[atom] = (byte) charge;
+        if (previous >= 0) addBond(previous, atom, pending);
+        previous = atom;
+        pending = UNSPECIFIED;
+    }
+
+    private void addBond(int a1, int a2, byte order) {
+        if (order == UNSPECIFIED) order = aromatic[a1] && aromatic[a2] ? AROMATIC : 1;
+        if (bondCount == bondOrders.length) {
+            bondOrders = Arrays.copyOf(bondOrders, 2 * bondCount);
+            bondAtoms = Arrays.copyOf(bondAtoms, 4 * bondCount);
+        }
+        bondAtoms[2 * bondCount] = a1;
+        bondAtoms[2 * bondCount + 1] = a2;
+        bondOrders[bondCount++] = order;
+    }
+
+    private void ringBond(int number, int position) {
+        if (previous < 0) throw new SmilesFormatException("Ring bond without an atom", position);
+        int other = ringAtoms[number];
+        if (other < 0) {
+            ringAtoms[number] = previous;
+            ringOrders[number] = pending;
+            openRings++;
+        } else {
+            byte order = pending != UNSPECIFIED ? pending : ringOrders[number];
+            if (pending != UNSPECIFIED && ringOrders[number] != UNSPECIFIED && pending != ringOrders[number]) {
+                throw new SmilesFormatException("Conflicting ring bond orders", position);
+            }
+            if (other == previous) throw new SmilesFormatException("Ring bond to the same atom", position);
+            addBond(other, previous, order);
+            ringAtoms[number] = -1;
+            openRings--;
+        }
+        pending = UNSPECIFIED;
+    }
+
+    /**
+     * Replaces aromatic bonds by single and double bonds. Every aromatic atom with a free
+     * valence left after its other bonds and hydrogens needs exactly one double bond, so the
+     * double bonds form a perfect matching of those atoms over the aromatic bonds. The matching
+     * is built greedily and completed with augmenting paths. Fused rings with an odd ring, such
+     * as azulene, make the graph non-bipartite, so the paths are found with Edmonds' blossom
+     * search rather than by a plain alternating depth-first search.
+     */
+    private void kekulize() {
+        boolean any = false;
+        for (int b = 0; b < bondCount && !any; b++) any = bondOrders[b] == AROMATIC;
+        if (!any) return;
+
+        int n = atomCount;
+        if (mates.length < n) {
+            mates = new int[n];
+            seen = new int[n];
+            candidateOffsets = new int[n + 1];
+            parents = new int[n];
+            bases = new int[n];
+            queue = new int[n];
+            inBlossom = new boolean[n];
+            onPath = new boolean[n];
+        }
+        if (candidates.length < 2 * bondCount) candidates = new int[2 * bondCount];
+
+        // Free valence of each atom, temporarily held in mates
+        for (int i = 0; i < n; i++) mates[i] = aromatic[i] ? defaultValence(elements[i], charges[i]) - hydrogens[i] : 0;
+        for (int b = 0; b < bondCount; b++) {
+            int used = bondOrders[b] == AROMATIC ? 1 : bondOrders[b];
+            mates[bondAtoms[2 * b]] -= used;
+            mates[bondAtoms[2 * b + 1]] -= used;
+        }
+        // Aromatic bonds between two atoms that both need a double bond are the candidates;
+        // mark atoms that need one with -1 (unmatched) and the rest with -2
+        for (int i = 0; i < n; i++) mates[i] = mates[i] > 0 ? -1 : -2;
+        Arrays.fill(candidateOffsets, 0, n + 1, 0);
+        for (int b = 0; b < bondCount; b++) {
+            if (isCandidate(b)) {
+                candidateOffsets[bondAtoms[2 * b] + 1]++;
+                candidateOffsets[bondAtoms[2 * b + 1] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) candidateOffsets[i + 1] += candidateOffsets[i];
+        int[] cursor = seen;
+        System.arraycopy(candidateOffsets, 0, cursor, 0, n);
+        for (int b = 0; b < bondCount; b++) {
+            if (isCandidate(b)) {
+                candidates[cursor[bondAtoms[2 * b]]++] = b;
+                candidates[cursor[bondAtoms[2 * b + 1]]++] = b;
+            }
+        }
+        Arrays.fill(seen, 0, n, 0);
+        stamp = 0;
+
+        for (int u = 0; u < n; u++) {
+            if (mates[u] != -1) continue;
+            for (int k = candidateOffsets[u]; k < candidateOffsets[u + 1]; k++) {
+                int b = candidates[k];
+                int v = other(b, u);
+                if (mates[v] == -1) {
+                    mates[u] = b;
+                    mates[v] = b;
+                    break;
+                }
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            if (mates[u] != -1) continue;
+            if (!augment(u)) throw new SmilesFormatException("Cannot assign double bonds to aromatic atom " + u, -1);
+        }
+
+        for (int b = 0; b < bondCount; b++) {
+            if (bondOrders[b] == AROMATIC) bondOrders[b] = (byte) (mates[bondAtoms[2 * b]] == b ? 2 : 1);
+        }
+    }
+
+    private boolean isCandidate(int b) {
+        return bondOrders[b] == AROMATIC && mates[bondAtoms[2 * b]] == -1 && mates[bondAtoms[2 * b + 1]] == -1;
+    }
+
+    private int other(int bond, int atom) {
+        int a = bondAtoms[2 * bond];
+        return a == atom ? bondAtoms[2 * bond + 1] : a;
+    }
+
+    /** The atom double bonded to {@code atom} so far, or -1. */
+    private int mate(int atom) {
+        return mates[atom] < 0 ? -1 : other(mates[atom], atom);
+    }
+
+    /**
+     * Looks for an alternating path from the unmatched atom {@code root} to another unmatched
+     * atom, breadth first, shrinking each odd cycle met onto its base, and flips it.
+     */
+    private boolean augment(int root) {
+        int n = atomCount;
+        stamp++;
+        for (int i = 0; i < n; i++) {
+            parents[i] = -1;
+            bases[i] = i;
+        }
+        seen[root] = stamp;
+        int head = 0, tail = 0;
+        queue[tail++] = root;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int k = candidateOffsets[v]; k < candidateOffsets[v + 1]; k++) {
+                int to = other(candidates[k], v);
+                if (bases[v] == bases[to] || mates[v] == candidates[k]) continue;
+                if (to == root || (mate(to) >= 0 && parents[mate(to)] >= 0)) {
+                    // Both ends are at even distance from the root: an odd cycle, shrunk onto its base
+                    int base = commonBase(v, to);
+                    Arrays.fill(inBlossom, 0, n, false);
+                    markBlossom(v, base, to);
+                    markBlossom(to, base, v);
+                    for (int i = 0; i < n; i++) {
+                        if (!inBlossom[bases[i]]) continue;
+                        bases[i] = base;
+                        if (seen[i] != stamp) {
+                            seen[i] = stamp;
+                            queue[tail++] = i;
+                        }
+                    }
+                } else if (parents[to] < 0) {
+                    parents[to] = v;
+                    int next = mate(to);
+                    if (next < 0) {
+                        flip(to);
+                        return true;
+                    }
+                    seen[next] = stamp;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** The base of the innermost blossom holding both {@code a} and {@code b}. */
+    private int commonBase(int a, int b) {
+        Arrays.fill(onPath, 0, atomCount, false);
+        while (true) {
+            a = bases[a];
+            onPath[a] = true;
+            if (mates[a] < 0) break;
+            a = parents[mate(a)];
+        }
+        while (true) {
+            b = bases[b];
+            if (onPath[b]) return b;
+            b = parents[mate(b)];
+        }
+    }
+
+    /** Marks the blossoms on the path from {@code v} down to {@code base}, entered from {@code child}. */
+    private void markBlossom(int v, int base, int child) {
+        while (bases[v] != base) {
+            int m = mate(v);
+            inBlossom[bases[v]] = true;
+            inBlossom[bases[m]] = true;
+            parents[v] = child;
+            child = m;
+            v = parents[m];
+        }
+    }
+
+    /** Flips the alternating path ending at the unmatched atom {@code end}. */
+    private void flip(int end) {
+        for (int v = end; v >= 0; ) {
+            int parent = parents[v];
+            int next = mate(parent);
+            int bond = -1;
+            for (int k = candidateOffsets[v]; k < candidateOffsets[v + 1] && bond < 0; k++) {
+                if (other(candidates[k], v) == parent) bond = candidates[k];
+            }
+            mates[v] = bond;
+            mates[parent] = bond;
+            v = next;
+        }
+    }
+
+    /** Usual valence of an element that can take part in an aromatic ring, 0 otherwise. */
+    private static int defaultValence(int z, int charge) {
+        return switch (z) {
+            case 5 -> 3 - Math.abs(charge);
+            case 6 -> 4 - Math.abs(charge);
+            case 7, 15, 33 -> 3 + charge;
+            case 8, 16, 34, 52 -> 2 + charge;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,187 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.MoleculeGraph;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Streams molecules from SMILES files with one molecule per line, optionally followed by
+ * whitespace and a name. Blank lines and lines starting with {@code #} are skipped.
+ * <p>
+ * The calling thread reads the input in large chunks cut at line boundaries and hands each
+ * chunk to a {@link ForkJoinPool}, where every worker parses with its own {@link SmilesParser}.
+ * Results are delivered to the consumer on the calling thread, in input order. At most a few
+ * chunks per worker are in flight, so memory stays bounded however large the file is, and
+ * chunk buffers are recycled once their molecules have been delivered.
+ */
+public final class SmilesReader {
+
+    /**
+     * A parsed line.
+     *
+     * @param line     Line number, starting at 1.
+     * @param name     Text after the SMILES string, or {@code null} if there is none.
+     * @param molecule The molecule, or {@code null} if the line could not be parsed.
+     * @param error    Why the line could not be parsed, or {@code null}.
+     */
+    public record Entry(long line, String name, MoleculeGraph molecule, String error) {
+    }
+
+    /** Default chunk size in characters. */
+    private static final int CHUNK = 1 << 16;
+
+    /** Chunks in flight per worker. */
+    private static final int IN_FLIGHT_PER_WORKER = 2;
+
+    private static final ThreadLocal<SmilesParser> parsers = ThreadLocal.withInitial(SmilesParser::new);
+
+    private SmilesReader() {
+    }
+
+    /**
+     * Reads a UTF-8 SMILES file using the common pool.
+     *
+     * @param path     The file.
+     * @param consumer Receives every entry in file order.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void read(Path path, Consumer<? super Entry> consumer) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            read(reader, consumer, ForkJoinPool.commonPool());
+        }
+    }
+
+    /**
+     * Reads SMILES lines using the common pool.
+     *
+     * @param reader   The input; not closed.
+     * @param consumer Receives every entry in input order.
+     * @throws IOException if the input cannot be read.
+     */
+    public static void read(Reader reader, Consumer<? super Entry> consumer) throws IOException {
+        read(reader, consumer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads SMILES lines, parsing on the given pool.
+     *
+     * @param reader   The input; not closed.
+     * @param consumer Receives every entry in input order, on the calling thread.
+     * @param pool     Pool to parse on.
+     * @throws IOException if the input cannot be read.
+     */
+    public static void read(Reader reader, Consumer<? super Entry> consumer, ForkJoinPool pool) throws IOException {
+        int maxInFlight = Math.max(1, pool.getParallelism() * IN_FLIGHT_PER_WORKER);
+        ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+        ArrayDeque<char[]> free = new ArrayDeque<>();
+
+        char[] buffer = new char[CHUNK];
+        int filled = 0;
+        long line = 1;
+        boolean eof = false;
+        while (!eof) {
+            int read = reader.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                eof = true;
+            } else {
+                filled += read;
+                if (filled < buffer.length) continue;
+            }
+
+            int end = filled;
+            if (!eof) {
+                while (end > 0 && buffer[end - 1] != '\n') end--;
+                if (end == 0) {
+                    // A single line longer than the buffer
+                    char[] larger = new char[2 * buffer.length];
+                    System.arraycopy(buffer, 0, larger, 0, filled);
+                    buffer = larger;
+                    continue;
+                }
+            }
+            if (end == 0) break;
+
+            Chunk chunk = new Chunk(buffer, end, line);
+            for (int i = 0; i < end; i++) {
+                if (buffer[i] == '\n') line++;
+            }
+            chunk.task = pool.submit(chunk::parse);
+            inFlight.add(chunk);
+
+            // Carry the partial last line over into the next buffer before this one can be recycled
+            char[] next = free.poll();
+            if (next == null || next.length < filled - end) next = new char[Math.max(CHUNK, buffer.length)];
+            System.arraycopy(buffer, end, next, 0, filled - end);
+            filled -= end;
+            buffer = next;
+
+            while (inFlight.size() >= maxInFlight) free.add(deliver(inFlight.poll(), consumer));
+        }
+        while (!inFlight.isEmpty()) deliver(inFlight.poll(), consumer);
+    }
+
+    private static char[] deliver(Chunk chunk, Consumer<? super Entry> consumer) {
+        for (Entry entry : chunk.task.join()) consumer.accept(entry);
+        return chunk.chars;
+    }
+
+    /** A run of whole lines and the task parsing them. */
+    private static final class Chunk {
+
+        final char[] chars;
+        final int length;
+        final long firstLine;
+        ForkJoinTask<List<Entry>> task;
+
+        Chunk(char[] chars, int length, long firstLine) {
+            this.chars = chars;
+            this.length = length;
+            this.firstLine = firstLine;
+        }
+
+        List<Entry> parse() {
+            SmilesParser parser = parsers.get();
+            List<Entry> entries = new ArrayList<>();
+            long line = firstLine;
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while (end < length && chars[end] != '\n') end++;
+                int next = end + 1;
+
+                int from = start;
+                int to = end;
+                while (from < to && Character.isWhitespace(chars[from])) from++;
+                while (to > from && Character.isWhitespace(chars[to - 1])) to--;
+                if (from < to && chars[from] != '#') {
+                    int split = from;
+                    while (split < to && !Character.isWhitespace(chars[split])) split++;
+                    String name = null;
+                    if (split < to) {
+                        int nameStart = split;
+                        while (Character.isWhitespace(chars[nameStart])) nameStart++;
+                        name = new String(chars, nameStart, to - nameStart);
+                    }
+                    try {
+                        entries.add(new Entry(line, name, parser.parse(chars, from, split), null));
+                    } catch (SmilesFormatException e) {
+                        entries.add(new Entry(line, name, null, e.getMessage()));
+                    }
+                }
+                line++;
+                start = next;
+            }
+            return entries;
+        }
+    }
+}
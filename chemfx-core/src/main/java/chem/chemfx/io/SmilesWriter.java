@@ -0,0 +1,394 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.CanonicalLabeling;
+import chem.chemfx.atoms.ElementTable;
+import chem.chemfx.atoms.MoleculeGraph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes {@link MoleculeGraph}s as canonical SMILES.
+ * <p>
+ * Atoms are visited depth-first in {@link CanonicalLabeling} order: every part starts at its
+ * lowest-ranked atom and neighbours are taken in rank order, so the same molecule gives the same
+ * string however its atoms were numbered. Organic-subset elements are written without brackets.
+ * <p>
+ * Bonds are written in Kekulé form, since graphs carry no hydrogen counts for aromatic atoms.
+ * The double bonds of {@link MoleculeGraph#AROMATIC aromatic} bonds are not copied from the
+ * graph, whose Kekulé structure depends on how the molecule was written, but placed again in
+ * rank order: each aromatic atom in turn takes its lowest-ranked free aromatic neighbour, and
+ * atoms left over are matched along augmenting paths. The same molecule therefore gives the
+ * same string whichever Kekulé structure it was read in. Strings written here read back
+ * through {@link SmilesParser} into the same graph up to atom numbering and the choice of
+ * Kekulé structure.
+ * <p>
+ * A writer keeps its traversal buffers between calls. Not thread-safe.
+ */
+public final class SmilesWriter {
+
+    /** Elements that SMILES can write without brackets. */
+    private static final boolean[] organic = new boolean[ElementTable.SIZE + 1];
+
+    private static final String[] symbols = ElementTable.symbols();
+
+    static {
+        for (int z : new int[]{5, 6, 7, 8, 9, 15, 16, 17, 35, 53}) organic[z] = true;
+    }
+
+    private final StringBuilder out = new StringBuilder();
+
+    /** Neighbours of each atom sorted by rank, laid out like the graph's edge slots. */
+    private int[] adjacency = new int[16];
+
+    /** Parent of each atom in the depth-first tree, or -1 for a root. */
+    private int[] parents = new int[16];
+
+    /** 0 while unvisited, 1 while on the stack, 2 when finished. */
+    private byte[] states = new byte[16];
+
+    /** Atoms in depth-first order, and the children of each atom in CSR form. */
+    private int[] preorder = new int[16];
+    private int[] childOffsets = new int[17];
+    private int[] children = new int[16];
+
+    /** Ring bonds as (opening atom, closing atom) pairs, and their events per atom in CSR form. */
+    private int[] ringBonds = new int[16];
+    private int ringCount;
+    private int[] ringOffsets = new int[17];
+    private int[] ringEvents = new int[16];
+
+    /** Digit of each ring bond while it is open. */
+    private int[] ringDigits = new int[8];
+
+    /** Ring bond digits in use, indexed 1-99. */
+    private final boolean[] digitsInUse = new boolean[100];
+
+    /** Atom across the double bond placed at each aromatic atom, or -1. */
+    private int[] mates = new int[16];
+
+    /** Visit stamps of the augmenting path search. */
+    private int[] seen = new int[16];
+    private int stamp;
+
+    /** Traversal stack: atom and next edge or child index. */
+    private int[] stackAtoms = new int[16];
+    private int[] stackNext = new int[16];
+
+    /**
+     * Writes the canonical SMILES for a molecule.
+     *
+     * @param graph The molecule.
+     * @return The canonical SMILES string.
+     */
+    public String write(MoleculeGraph graph) {
+        out.setLength(0);
+        append(graph, CanonicalLabeling.ranks(graph));
+        return out.toString();
+    }
+
+    /**
+     * Writes canonical SMILES for several molecules, one per line.
+     *
+     * @param molecules The molecules.
+     * @param writer    Destination; not closed.
+     * @throws UncheckedIOException if writing fails.
+     */
+    public void writeAll(Iterable<? extends MoleculeGraph> molecules, Writer writer) {
+        try {
+            for (MoleculeGraph graph : molecules) {
+                out.setLength(0);
+                append(graph, CanonicalLabeling.ranks(graph));
+                out.append('\n');
+                writer.append(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(MoleculeGraph graph, int[] ranks) {
+        int n = graph.atomCount();
+        prepare(n, graph.bondCount());
+
+        // Sort each atom's neighbours by rank
+        int maxDegree = 0;
+        for (int i = 0; i < n; i++) maxDegree = Math.max(maxDegree, graph.degree(i));
+        long[] packed = new long[maxDegree];
+        for (int i = 0; i < n; i++) {
+            int first = graph.firstEdge(i);
+            int degree = graph.degree(i);
+            for (int t = 0; t < degree; t++) {
+                int j = graph.neighbor(first + t);
+                packed[t] = (long) ranks[j] << 32 | j;
+            }
+            Arrays.sort(packed, 0, degree);
+            for (int t = 0; t < degree; t++) adjacency[first + t] = (int) packed[t];
+        }
+
+        int[] byRank = new int[n];
+        for (int i = 0; i < n; i++) byRank[ranks[i]] = i;
+        kekulize(graph, byRank);
+
+        // Pass 1: depth-first tree and ring bonds, part by part
+        int visited = 0;
+        ringCount = 0;
+        for (int r = 0; r < n; r++) {
+            int root = byRank[r];
+            if (states[root] != 0) continue;
+            parents[root] = -1;
+            visited = search(graph, root, visited);
+        }
+        indexChildren(n);
+        indexRingEvents(n);
+
+        // Pass 2: emit each tree
+        for (int k = 0; k < n; k++) {
+            int root = preorder[k];
+            if (parents[root] != -1) continue;
+            if (k > 0) out.append('.');
+            emit(graph, root);
+        }
+    }
+
+    private void prepare(int n, int m) {
+        if (parents.length < n) {
+            parents = new int[n];
+            states = new byte[n];
+            preorder = new int[n];
+            childOffsets = new int[n + 1];
+            children = new int[n];
+            ringOffsets = new int[n + 1];
+            stackAtoms = new int[n];
+            stackNext = new int[n];
+            mates = new int[n];
+            seen = new int[n];
+        }
+        if (adjacency.length < 2 * m) {
+            adjacency = new int[2 * m];
+            ringBonds = new int[2 * m];
+            ringEvents = new int[2 * m];
+            ringDigits = new int[m];
+        }
+        Arrays.fill(states, 0, n, (byte) 0);
+    }
+
+    /**
+     * Places the double bonds of the aromatic bonds in rank order, as described in the class
+     * comment. Augmenting paths are looked for without contracting odd cycles, so in rare ring
+     * systems a path may be missed; the graph's own double bonds are then kept instead.
+     */
+    private void kekulize(MoleculeGraph graph, int[] byRank) {
+        int n = graph.atomCount();
+        // -1 for aromatic atoms still to match, -2 for the rest
+        Arrays.fill(mates, 0, n, -2);
+        Arrays.fill(seen, 0, n, 0);
+        stamp = 0;
+        boolean any = false;
+        for (int i = 0; i < n; i++) {
+            for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                if (graph.orderClass(e) == MoleculeGraph.AROMATIC) {
+                    mates[i] = -1;
+                    any = true;
+                }
+            }
+        }
+        if (!any) return;
+
+        for (int r = 0; r < n; r++) {
+            int u = byRank[r];
+            if (mates[u] != -1) continue;
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int v = adjacency[e];
+                if (mates[v] == -1 && graph.bondOrderClass(u, v) == MoleculeGraph.AROMATIC) {
+                    mates[u] = v;
+                    mates[v] = u;
+                    break;
+                }
+            }
+        }
+        for (int r = 0; r < n; r++) {
+            int u = byRank[r];
+            if (mates[u] != -1) continue;
+            stamp++;
+            if (!augment(graph, u)) {
+                // Fall back to the Kekulé structure the graph was built with
+                for (int i = 0; i < n; i++) {
+                    if (mates[i] == -2) continue;
+                    mates[i] = -1;
+                    for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                        if (graph.orderClass(e) == MoleculeGraph.AROMATIC && graph.order(e) == 2) mates[i] = graph.neighbor(e);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /** Looks for an alternating path from the unmatched aromatic atom {@code u} and flips it. */
+    private boolean augment(MoleculeGraph graph, int u) {
+        seen[u] = stamp;
+        for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+            int v = adjacency[e];
+            if (seen[v] == stamp || graph.bondOrderClass(u, v) != MoleculeGraph.AROMATIC) continue;
+            seen[v] = stamp;
+            int w = mates[v];
+            if (w < 0 || augment(graph, w)) {
+                mates[u] = v;
+                mates[v] = u;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Iterative depth-first search from {@code root}, recording tree order and ring bonds. */
+    private int search(MoleculeGraph graph, int root, int visited) {
+        int top = 0;
+        stackAtoms[0] = root;
+        stackNext[0] = graph.firstEdge(root);
+        states[root] = 1;
+        preorder[visited++] = root;
+        while (top >= 0) {
+            int u = stackAtoms[top];
+            if (stackNext[top] == graph.endEdge(u)) {
+                states[u] = 2;
+                top--;
+                continue;
+            }
+            int v = adjacency[stackNext[top]++];
+            if (v == parents[u] && states[v] == 1) continue;
+            if (states[v] == 0) {
+                parents[v] = u;
+                states[v] = 1;
+                preorder[visited++] = v;
+                top++;
+                stackAtoms[top] = v;
+                stackNext[top] = graph.firstEdge(v);
+            } else if (states[v] == 1) {
+                // Back edge to an ancestor: the ring opens at v and closes at u
+                ringBonds[2 * ringCount] = v;
+                ringBonds[2 * ringCount + 1] = u;
+                ringCount++;
+            }
+        }
+        return visited;
+    }
+
+    /** Lists the children of each atom in visiting order. */
+    private void indexChildren(int n) {
+        Arrays.fill(childOffsets, 0, n + 1, 0);
+        for (int k = 0; k < n; k++) {
+            int parent = parents[preorder[k]];
+            if (parent >= 0) childOffsets[parent + 1]++;
+        }
+        for (int i = 0; i < n; i++) childOffsets[i + 1] += childOffsets[i];
+        int[] cursor = stackNext;
+        System.arraycopy(childOffsets, 0, cursor, 0, n);
+        for (int k = 0; k < n; k++) {
+            int atom = preorder[k];
+            int parent = parents[atom];
+            if (parent >= 0) children[cursor[parent]++] = atom;
+        }
+    }
+
+    /**
+     * Lists the ring bonds at each atom. Each event holds the ring bond number; closings at an
+     * atom are listed before openings, because an atom's closings are found before the
+     * searches below it find its openings.
+     */
+    private void indexRingEvents(int n) {
+        Arrays.fill(ringOffsets, 0, n + 1, 0);
+        for (int r = 0; r < 2 * ringCount; r++) ringOffsets[ringBonds[r] + 1]++;
+        for (int i = 0; i < n; i++) ringOffsets[i + 1] += ringOffsets[i];
+        int[] cursor = stackNext;
+        System.arraycopy(ringOffsets, 0, cursor, 0, n);
+        for (int r = 0; r < ringCount; r++) {
+            int closing = ringBonds[2 * r + 1];
+            ringEvents[cursor[closing]++] = r;
+        }
+        for (int r = 0; r < ringCount; r++) {
+            int opening = ringBonds[2 * r];
+            ringEvents[cursor[opening]++] = r;
+        }
+    }
+
+    /** Writes the tree below {@code root}, with all but the last child of each atom in branches. */
+    private void emit(MoleculeGraph graph, int root) {
+        int top = 0;
+        stackAtoms[0] = root;
+        stackNext[0] = 0;
+        atom(graph, root);
+        while (top >= 0) {
+            int u = stackAtoms[top];
+            int i = stackNext[top];
+            int count = childOffsets[u + 1] - childOffsets[u];
+            if (i > 0 && i < count) out.append(')');
+            if (i == count) {
+                top--;
+                continue;
+            }
+            if (i < count - 1) out.append('(');
+            int child = children[childOffsets[u] + i];
+            stackNext[top]++;
+            bond(graph, u, child);
+            atom(graph, child);
+            top++;
+            stackAtoms[top] = child;
+            stackNext[top] = 0;
+        }
+    }
+
+    private void atom(MoleculeGraph graph, int atom) {
+        int z = graph.element(atom);
+        if (z == 0) {
+            out.append('*');
+        } else if (z <= ElementTable.SIZE && organic[z]) {
+            out.append(symbols[z - 1]);
+        } else {
+            out.append('[').append(z <= ElementTable.SIZE ? symbols[z - 1] : "*").append(']');
+        }
+
+        // Allocate digits for openings before freeing closings, so that no digit closes and
+        // reopens at the same atom
+        int first = ringOffsets[atom];
+        int end = ringOffsets[atom + 1];
+        for (int k = first; k < end; k++) {
+            int ring = ringEvents[k];
+            if (ringBonds[2 * ring] == atom) {
+                int digit = 1;
+                while (digit < digitsInUse.length && digitsInUse[digit]) digit++;
+                if (digit == digitsInUse.length) throw new IllegalArgumentException("More than 99 open rings");
+                digitsInUse[digit] = true;
+                ringDigits[ring] = digit;
+                bond(graph, atom, ringBonds[2 * ring + 1]);
+                digit(digit);
+            } else {
+                digit(ringDigits[ring]);
+            }
+        }
+        for (int k = first; k < end; k++) {
+            int ring = ringEvents[k];
+            if (ringBonds[2 * ring + 1] == atom) digitsInUse[ringDigits[ring]] = false;
+        }
+    }
+
+    private void bond(MoleculeGraph graph, int atom, int other) {
+        int order = graph.bondOrderClass(atom, other);
+        if (order == MoleculeGraph.AROMATIC) order = mates[atom] == other ? 2 : 1;
+        switch (order) {
+            case 2 -> out.append('=');
+            case 3 -> out.append('#');
+            case 4 -> out.append('$');
+            default -> {
+            }
+        }
+    }
+
+    private void digit(int digit) {
+        if (digit < 10) out.append((char) ('0' + digit));
+        else out.append('%').append(digit);
+    }
+}
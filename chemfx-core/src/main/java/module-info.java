@@ -0,0 +1,4 @@
+module chem.chemfx.core {
+    exports chem.chemfx.atoms;
+    exports chem.chemfx.io;
+}
@@ -0,0 +1,43 @@
+package chem.chemfx.atoms;
+
+import chem.chemfx.io.SmilesParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CanonicalCacheTest {
+
+    private final SmilesParser parser = new SmilesParser();
+
+    @Test
+    void findsFirstOccurrencesHoweverNumbered() {
+        Random random = new Random(1);
+        List<MoleculeGraph> graphs = new ArrayList<>();
+        for (String smiles : List.of("CCO", "C1CC1.C1CCCCC1", "OCC", "c1ccccc1", "C1CCCCC1.C1CC1", "C1=CC=CC=C1", "COC")) {
+            graphs.add(TestMolecules.shuffle(parser.parse(smiles), random));
+        }
+        assertArrayEquals(new int[] {0, 1, 0, 3, 1, 3, 6}, CanonicalCache.firstOccurrences(graphs, ForkJoinPool.commonPool()));
+        List<MoleculeGraph> distinct = CanonicalCache.distinct(graphs);
+        assertEquals(4, distinct.size());
+        assertSame(graphs.get(6), distinct.get(3));
+    }
+
+    @Test
+    void sharesOneEntryAcrossNumberings() {
+        CanonicalCache<String> cache = new CanonicalCache<>();
+        MoleculeGraph cubane = parser.parse("C12C3C4C1C5C2C3C45");
+        assertEquals("first", cache.computeIfAbsent(cubane, graph -> "first"));
+        assertEquals("first", cache.computeIfAbsent(TestMolecules.shuffle(cubane, new Random(2)), graph -> "second"));
+        assertNull(cache.putIfAbsent(parser.parse("C1CCCCCCC1"), "ring"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get(parser.parse("C1CCC1.C1CCC1")));
+    }
+}
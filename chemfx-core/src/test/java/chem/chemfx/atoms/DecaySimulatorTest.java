@@ -0,0 +1,116 @@
+package chem.chemfx.atoms;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecaySimulatorTest {
+
+    private static final DecayChain POLONIUM = new DecayChain.Builder()
+            .nuclide("Bi-210", 83, 210, 5.012 * DecayChain.DAY).decays(DecayChain.Mode.BETA_MINUS, 1)
+            .nuclide("Po-210", 84, 210, 138.376 * DecayChain.DAY).decays(DecayChain.Mode.ALPHA, 1)
+            .stable("Pb-206", 82, 206)
+            .build();
+
+    @Test
+    void batemanMatchesTheTwoMemberSolution() {
+        double a = POLONIUM.decayConstant(0);
+        double b = POLONIUM.decayConstant(1);
+        DecaySeries series = DecaySimulator.bateman(POLONIUM, 1e6, 100 * DecayChain.DAY, 11);
+        for (int s = 0; s < series.samples(); s++) {
+            double t = series.time(s);
+            double parent = 1e6 * Math.exp(-a * t);
+            double daughter = 1e6 * a / (b - a) * (Math.exp(-a * t) - Math.exp(-b * t));
+            assertEquals(parent, series.abundance(s, 0), parent * 1e-12);
+            assertEquals(daughter, series.abundance(s, 1), daughter * 1e-12 + 1e-9);
+            assertEquals(1e6 - parent - daughter, series.abundance(s, 2), 1e-6);
+        }
+    }
+
+    @Test
+    void batemanAllowsEqualDecayConstants() {
+        DecayChain twins = new DecayChain.Builder()
+                .nuclide("A", 90, 234, DecayChain.DAY).decays(DecayChain.Mode.BETA_MINUS, 1)
+                .nuclide("B", 91, 234, DecayChain.DAY).decays(DecayChain.Mode.BETA_MINUS, 1)
+                .stable("C", 92, 234)
+                .build();
+        double lambda = twins.decayConstant(0);
+        DecaySeries series = DecaySimulator.bateman(twins, 1000, 5 * DecayChain.DAY, 6);
+        for (int s = 0; s < series.samples(); s++) {
+            double t = series.time(s);
+            assertEquals(1000 * lambda * t * Math.exp(-lambda * t), series.abundance(s, 1), 1e-9);
+        }
+    }
+
+    @Test
+    void tinyAbundancesDoNotCancel() {
+        DecayChain uranium = DecayChain.uranium238();
+        DecaySeries series = DecaySimulator.bateman(uranium, 1e23, 30 * DecayChain.DAY, 31);
+        double last = 0;
+        for (int s = 1; s < series.samples(); s++) {
+            for (int i = 0; i < uranium.size(); i++) {
+                assertTrue(series.abundance(s, i) > 0, uranium.label(i) + " at sample " + s);
+            }
+            // Lead accumulates through fourteen decays, so after a month there is far less than an atom
+            double lead = series.abundance(s, uranium.size() - 1);
+            assertTrue(lead < 1e-12 && lead > last, "Pb-206 at sample " + s + ": " + lead);
+            last = lead;
+        }
+        // Radon comes after radium, so there is less of it while it builds up
+        assertTrue(series.abundance(30, 6) < series.abundance(30, 5));
+    }
+
+    @Test
+    void batemanConservesAtomsAndReachesSecularEquilibrium() {
+        DecayChain uranium = DecayChain.uranium238();
+        DecaySeries series = DecaySimulator.bateman(uranium, 1e23, 1e7 * DecayChain.YEAR, 2);
+        double total = 0;
+        for (int i = 0; i < uranium.size(); i++) total += series.abundance(1, i);
+        assertEquals(1e23, total, 1e23 * 1e-12);
+
+        double activity = uranium.decayConstant(0) * series.abundance(1, 0);
+        for (String label : new String[] {"U-234", "Th-230", "Ra-226", "Rn-222", "Pb-210", "Po-210"}) {
+            int i = indexOf(uranium, label);
+            assertEquals(1, uranium.decayConstant(i) * series.abundance(1, i) / activity, 1e-3, label);
+        }
+    }
+
+    @Test
+    void monteCarloAgreesWithBateman() {
+        DecaySeries exact = DecaySimulator.bateman(POLONIUM, 200_000, 200 * DecayChain.DAY, 5);
+        DecaySeries simulated = DecaySimulator.monteCarlo(POLONIUM, 200_000, 200 * DecayChain.DAY, 5, 11);
+        for (int s = 0; s < exact.samples(); s++) {
+            double total = 0;
+            for (int i = 0; i < POLONIUM.size(); i++) {
+                double expected = exact.abundance(s, i);
+                assertEquals(expected, simulated.abundance(s, i), 5 * Math.sqrt(expected) + 1);
+                total += simulated.abundance(s, i);
+            }
+            assertEquals(200_000, total);
+        }
+    }
+
+    @Test
+    void monteCarloRepeatsForTheSameSeed() {
+        DecaySeries first = DecaySimulator.monteCarlo(POLONIUM, 10_000, 100 * DecayChain.DAY, 4, 5);
+        DecaySeries second = DecaySimulator.monteCarlo(POLONIUM, 10_000, 100 * DecayChain.DAY, 4, 5);
+        for (int s = 0; s < first.samples(); s++) {
+            for (int i = 0; i < POLONIUM.size(); i++) assertEquals(first.abundance(s, i), second.abundance(s, i));
+        }
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> DecaySimulator.bateman(POLONIUM, -1, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> DecaySimulator.bateman(POLONIUM, 1, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> DecaySimulator.bateman(POLONIUM, 1, Double.POSITIVE_INFINITY, 2));
+        assertThrows(IllegalArgumentException.class, () -> DecaySimulator.monteCarlo(POLONIUM, 1, 1, 1, 0));
+    }
+
+    private static int indexOf(DecayChain chain, String label) {
+        for (int i = 0; i < chain.size(); i++) if (chain.label(i).equals(label)) return i;
+        throw new AssertionError(label);
+    }
+}
@@ -0,0 +1,155 @@
+package chem.chemfx.atoms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EquilibriumSystemTest {
+
+    @Test
+    void parsesReactionsChargesAndConstants() {
+        EquilibriumSystem system = EquilibriumSystem.parse("""
+                # acetic acid in water
+                CH3COOH <=> CH3COO- + H+; 1.8e-5
+
+                2SO2 + O2 = 2 SO3, K = 0.5
+                """);
+        assertEquals(List.of("CH3COOH", "CH3COO-", "H+", "SO2", "O2", "SO3"), system.species());
+        assertEquals(2, system.reactionCount());
+        assertEquals("2SO2 + O2 = 2 SO3", system.equation(1));
+        assertEquals(-2, system.coefficient(1, 3));
+        assertEquals(2, system.coefficient(1, 5));
+        assertEquals(0, system.coefficient(0, 5));
+        assertEquals(1.8e-5, system.constant(0), 1e-18);
+    }
+
+    @Test
+    void solvesAWeakAcid() {
+        EquilibriumSystem system = EquilibriumSystem.parse("HA <=> A- + H+, 1.8e-5");
+        EquilibriumSystem.Result result = system.solve(0.1);
+        // x^2 / (0.1 - x) = Ka
+        double ka = 1.8e-5, x = (-ka + Math.sqrt(ka * ka + 4 * ka * 0.1)) / 2;
+        assertTrue(result.converged());
+        assertEquals(x, result.extents()[0], 1e-9 * x);
+        assertEquals(0.1 - x, result.concentrations()[0], 1e-9 * x);
+        assertEquals(x, result.concentrations()[1], 1e-9 * x);
+        assertEquals(x, result.concentrations()[2], 1e-9 * x);
+    }
+
+    @Test
+    void solvesCoupledReactionsWithExtremeConstants() {
+        EquilibriumSystem system = EquilibriumSystem.parse("""
+                H2A <=> HA- + H+, 1e-3
+                HA- <=> A2- + H+, 1e-30
+                M2+ + A2- <=> MA, 1e25
+                N2 + 3 H2 <=> 2 NH3, 6e5
+                """);
+        double[] initial = {0.2, 0, 1e-7, 0, 0.05, 0, 1, 3, 0};
+        EquilibriumSystem.Result result = system.solve(initial);
+        assertTrue(result.converged());
+        double[] c = result.concentrations();
+        for (int r = 0; r < system.reactionCount(); r++) {
+            double log = 0;
+            for (int s = 0; s < c.length; s++) log += system.coefficient(r, s) * Math.log(c[s]);
+            assertEquals(Math.log(system.constant(r)), log, 1e-9, system.equation(r));
+        }
+        for (int s = 0; s < c.length; s++) {
+            double expected = initial[s];
+            for (int r = 0; r < system.reactionCount(); r++) expected += system.coefficient(r, s) * result.extents()[r];
+            assertEquals(expected, c[s], 1e-12 * Math.max(1, expected));
+            assertTrue(c[s] > 0);
+        }
+    }
+
+    @Test
+    void solvesReactionsThatCombineOthers() {
+        EquilibriumSystem consistent = EquilibriumSystem.parse("A <=> B, 2\nB <=> C, 3\nA <=> C, 6");
+        EquilibriumSystem.Result result = consistent.solve(9);
+        assertTrue(result.converged());
+        assertArrayEquals(new double[] {1, 2, 6}, result.concentrations(), 1e-9);
+
+        // A <=> C contradicts the other two, so no composition satisfies all three
+        EquilibriumSystem contradictory = EquilibriumSystem.parse("A <=> B, 2\nB <=> C, 3\nA <=> C, 7");
+        assertFalse(contradictory.solve(9).converged());
+        assertTrue(Double.isNaN(contradictory.solve(9).concentrations()[0]));
+    }
+
+    @Test
+    void leavesReactionsThatCannotStart() {
+        EquilibriumSystem system = EquilibriumSystem.parse("A + B <=> C, 10\nD <=> E, 3");
+        EquilibriumSystem.Result result = system.solve(1, 0, 0, 4);
+        assertTrue(result.converged());
+        assertEquals(0, result.extents()[0]);
+        assertArrayEquals(new double[] {1, 0, 0, 1, 3}, result.concentrations(), 1e-9);
+    }
+
+    @Test
+    void solveAllMatchesSolveAndMarksBadCases() {
+        EquilibriumSystem system = EquilibriumSystem.parse("A + B <=> C, 50\n2 C <=> D, 0.2");
+        Random random = new Random(1);
+        int cases = 1000;
+        double[][] columns = new double[4][cases];
+        for (double[] column : columns) {
+            for (int i = 0; i < cases; i++) column[i] = random.nextDouble();
+        }
+        columns[1][10] = -1;
+        columns[2][20] = Double.NaN;
+        double[][] initial = new double[4][];
+        for (int s = 0; s < 4; s++) initial[s] = columns[s].clone();
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            // In place, equilibrium over initial
+            system.solveAll(columns, columns, 0, cases, pool);
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < cases; i++) {
+            if (i == 10 || i == 20) {
+                for (double[] column : columns) assertTrue(Double.isNaN(column[i]));
+                continue;
+            }
+            double[] expected = system.solve(initial[0][i], initial[1][i], initial[2][i], initial[3][i]).concentrations();
+            for (int s = 0; s < 4; s++) assertEquals(expected[s], columns[s][i]);
+        }
+    }
+
+    @Test
+    void batchTreatsMissingConcentrationsAsZero() {
+        BatchCalculation batch = EquilibriumSystem.parse("A <=> B, 4").batch();
+        assertEquals(List.of("A", "B", "A_eq", "B_eq"), batch.columns());
+        assertEquals(2, batch.inputs());
+        double[] values = {5, Double.NaN, Double.NaN, Double.NaN};
+        batch.compute(values);
+        assertEquals(1, values[2], 1e-12);
+        assertEquals(4, values[3], 1e-12);
+    }
+
+    @Test
+    void rejectsBadInput() {
+        assertThrows(IllegalArgumentException.class, () -> EquilibriumSystem.parse("A <=> B"));
+        assertThrows(IllegalArgumentException.class, () -> EquilibriumSystem.parse("A <=> B, -1"));
+        assertThrows(IllegalArgumentException.class, () -> EquilibriumSystem.parse("A + B, 1"));
+        assertThrows(IllegalArgumentException.class, () -> EquilibriumSystem.parse(" <=> B, 1"));
+        assertThrows(IllegalArgumentException.class, () -> EquilibriumSystem.parse("A <=> A, 1"));
+        assertThrows(IllegalArgumentException.class, () -> EquilibriumSystem.parse("# nothing\n"));
+
+        EquilibriumSystem system = EquilibriumSystem.parse("A <=> B, 1");
+        assertThrows(IllegalArgumentException.class, () -> system.solve(1, 2, 3));
+        assertThrows(IllegalArgumentException.class, () -> system.solve(-1));
+        assertThrows(IllegalArgumentException.class, () -> system.solve(Double.NaN));
+
+        // Nothing to react is already at equilibrium
+        EquilibriumSystem.Result empty = system.solve();
+        assertTrue(empty.converged());
+        assertArrayEquals(new double[] {0, 0}, empty.concentrations(), 0);
+    }
+}
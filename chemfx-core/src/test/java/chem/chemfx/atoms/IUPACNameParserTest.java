@@ -0,0 +1,75 @@
+package chem.chemfx.atoms;
+
+import chem.chemfx.io.SmilesParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IUPACNameParserTest {
+
+    private final SmilesParser smiles = new SmilesParser();
+
+    @Test
+    void parsesChainsAndSubstituents() {
+        assertNames("3-ethyl-2,2-dimethylhexane", "CCCC(CC)C(C)(C)C");
+        assertNames("chlorocyclohexane", "ClC1CCCCC1");
+        assertNames("2-methylpropan-2-ol", "CC(C)(C)O");
+        assertNames("Ethanol", "CCO");
+    }
+
+    @Test
+    void parsesMultipleBonds() {
+        assertNames("buta-1,3-diene", "C=CC=C");
+        assertNames("hexa-1,3,5-triene", "C=CC=CC=C");
+        assertNames("but-2-yne", "CC#CC");
+        assertNames("cyclohexene", "C1=CCCCC1");
+    }
+
+    @Test
+    void parsesSuffixes() {
+        assertNames("pent-4-en-2-ol", "CC(O)CC=C");
+        assertNames("ethane-1,2-diol", "OCCO");
+        assertNames("butanoic acid", "CCCC(=O)O");
+        assertNames("propanal", "CCC=O");
+        assertNames("ethanenitrile", "CC#N");
+    }
+
+    @Test
+    void defaultsLocants() {
+        // Ketones and alkyl groups on a chain default to 2, everything else to 1
+        assertNames("propanone", "CC(=O)C");
+        assertNames("methylbutane", "CC(C)CC");
+        assertNames("propanol", "CCCO");
+    }
+
+    @Test
+    void backtracksOverOverlappingMorphemes() {
+        // "tetra" is a multiplier, but here it starts the stem "tetradec"
+        assertNames("tetradecane", "CCCCCCCCCCCCCC");
+        assertNames("1,1,2,2-tetrachloroethane", "ClC(Cl)C(Cl)Cl");
+    }
+
+    @Test
+    void numbersTheParentChainFirst() {
+        MoleculeGraph graph = new IUPACNameParser("pent-4-en-2-ol").parse();
+        assertEquals(6, graph.atomCount());
+        assertEquals(2, graph.bondOrder(3, 4));
+        assertEquals(8, graph.element(5));
+        assertEquals(1, graph.bondOrder(1, 5));
+    }
+
+    @Test
+    void rejectsBadNames() {
+        assertThrows(IllegalArgumentException.class, () -> new IUPACNameParser("foo").parse());
+        assertThrows(IllegalArgumentException.class, () -> new IUPACNameParser("").parse());
+        assertThrows(IllegalArgumentException.class, () -> new IUPACNameParser("5-methylbutane").parse());
+        assertThrows(IllegalArgumentException.class, () -> new IUPACNameParser("hex-7-ene").parse());
+        assertThrows(CovalentBondException.class, () -> new IUPACNameParser("2,2,2-trimethylbutane").parse());
+    }
+
+    private void assertNames(String name, String structure) {
+        assertEquals(CanonicalLabeling.canonicalString(smiles.parse(structure)),
+                CanonicalLabeling.canonicalString(new IUPACNameParser(name).parse()), name);
+    }
+}
@@ -0,0 +1,84 @@
+package chem.chemfx.atoms;
+
+import chem.chemfx.io.SmilesParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class MoleculeHashTest {
+
+    private final SmilesParser parser = new SmilesParser();
+
+    @Test
+    void naphthaleneHashesAlikeHoweverWritten() {
+        assertSameHash("c1ccc2ccccc2c1", "C1=CC=C2C=CC=CC2=C1", "c1cccc2c1cccc2",
+                "C1=CC2=CC=CC=C2C=C1", "c12ccccc1cccc2", "C=1C=CC2=CC=CC=C2C=1");
+    }
+
+    @Test
+    void tolueneHashesAlikeHoweverWritten() {
+        assertSameHash("Cc1ccccc1", "CC1=CC=CC=C1", "c1ccccc1C", "C1=CC=C(C)C=C1", "C1=CC(C)=CC=C1");
+    }
+
+    @Test
+    void cresolHashesAlikeHoweverWritten() {
+        assertSameHash("Oc1ccccc1C", "Cc1ccccc1O", "c1cc(C)c(O)cc1", "CC1=C(O)C=CC=C1",
+                "OC1=CC=CC=C1C", "C1=CC=C(O)C(C)=C1");
+    }
+
+    @Test
+    void fusedAndHeteroaromaticRingsHashAlike() {
+        assertSameHash("c1ccc2cc3ccccc3cc2c1", "C1=CC=C2C=C3C=CC=CC3=CC2=C1", "C1=CC2=CC3=CC=CC=C3C=C2C=C1");
+        assertSameHash("c1ccc2[nH]ccc2c1", "C1=CC=C2NC=CC2=C1", "N1C=CC2=CC=CC=C12");
+        assertSameHash("c1ccncc1", "C1=CC=NC=C1", "N1=CC=CC=C1");
+    }
+
+    @Test
+    void renumberingKeepsTheHash() {
+        // Symmetric and disconnected graphs leave refinement with ties that only search resolves
+        Random random = new Random(42);
+        for (String smiles : List.of("Cn1cnc2c1c(=O)n(C)c(=O)n2C", "C1CC1.C1CCCCC1", "C12C3C4C1C5C2C3C45",
+                "CCO.CCO", "c1ccccc1.c1ccccc1.C1CCCCC1", "C1CCC1.C1CCCC1.C1CCC1", "C12CC3CC(C1)CC(C3)C2",
+                "O.O.O.O.O.O.O.O.O.O.O.O.O.O.O.O", "C1CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC1")) {
+            MoleculeGraph graph = parser.parse(smiles);
+            MoleculeHash expected = MoleculeHash.of(graph);
+            String canonical = CanonicalLabeling.canonicalString(graph);
+            for (int trial = 0; trial < 50; trial++) {
+                MoleculeGraph shuffled = TestMolecules.shuffle(graph, random);
+                assertEquals(expected, MoleculeHash.of(shuffled), smiles);
+                assertEquals(canonical, CanonicalLabeling.canonicalString(shuffled), smiles);
+            }
+        }
+    }
+
+    @Test
+    void differentMoleculesHashApart() {
+        assertNotEquals(hash("Oc1ccccc1C"), hash("Oc1ccc(C)cc1"));
+        assertNotEquals(hash("CC=CC"), hash("C=CCC"));
+        assertNotEquals(hash("C1=CCCCC1"), hash("C1CCCCC1"));
+        assertNotEquals(hash("CCO"), hash("COC"));
+        // Same atoms, degrees and bond orders throughout, so refinement alone splits none of them
+        assertNotEquals(hash("C1CCC1.C1CCC1"), hash("C1CCCCCCC1"));
+        assertNotEquals(hash("C1CC1.C1CCCCC1"), hash("C1CCCC1.C1CCC1"));
+    }
+
+    @Test
+    void isolatedRingDoubleBondsKeepTheirOrder() {
+        // No alternating cycle, so the double bond is not aromatic
+        assertEquals("CCCCCC;0-1,0-2,1-3,2-4,3-5,4=5", CanonicalLabeling.canonicalString(parser.parse("C1=CCCCC1")));
+        assertSameHash("C1=CCCCC1", "C1CCCC=C1");
+    }
+
+    private void assertSameHash(String... spellings) {
+        MoleculeHash expected = hash(spellings[0]);
+        for (String smiles : List.of(spellings)) assertEquals(expected, hash(smiles), smiles);
+    }
+
+    private MoleculeHash hash(String smiles) {
+        return MoleculeHash.of(parser.parse(smiles));
+    }
+}
@@ -0,0 +1,137 @@
+package chem.chemfx.atoms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentLongMapTest {
+
+    @Test
+    void behavesLikeAHashMap() {
+        Random random = new Random(1);
+        Map<Long, String> expected = new HashMap<>();
+        PersistentLongMap<String> map = PersistentLongMap.empty();
+        for (int step = 0; step < 20_000; step++) {
+            // Few enough keys that removals and overwrites are common, with some far apart
+            long key = random.nextInt(2000) * (random.nextBoolean() ? 1 : 0x1_0000_0001L);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                String value = "v" + step;
+                expected.put(key, value);
+                map = map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertSameContents(expected, map);
+        assertNull(map.get(-1));
+        assertFalse(map.containsKey(-1));
+    }
+
+    @Test
+    void updatesLeaveOldVersionsUnchanged() {
+        PersistentLongMap<String> before = PersistentLongMap.empty();
+        for (long key = 0; key < 1000; key++) before = before.put(key, "a" + key);
+        PersistentLongMap<String> after = before.put(5, "b").remove(6).put(2000, "c");
+
+        assertEquals("a5", before.get(5));
+        assertEquals("a6", before.get(6));
+        assertNull(before.get(2000));
+        assertEquals(1000, before.size());
+        assertEquals("b", after.get(5));
+        assertNull(after.get(6));
+        assertEquals(1000, after.size());
+    }
+
+    @Test
+    void noOpUpdatesReturnTheSameMap() {
+        String value = "x";
+        PersistentLongMap<String> map = PersistentLongMap.<String>empty().put(1, value).put(2, "y");
+        assertSame(map, map.put(1, value));
+        assertSame(map, map.remove(3));
+        assertTrue(map.remove(1).remove(2).isEmpty());
+        assertThrows(NullPointerException.class, () -> map.put(3, null));
+    }
+
+    @Test
+    void diffReportsExactlyTheChangedKeys() {
+        Random random = new Random(2);
+        PersistentLongMap<String> before = PersistentLongMap.empty();
+        for (int i = 0; i < 5000; i++) before = before.put(random.nextLong(), "a" + i);
+        List<Long> keys = new ArrayList<>();
+        before.forEach((key, value) -> keys.add(key));
+
+        PersistentLongMap<String> after = before;
+        Map<Long, String[]> expected = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            long removed = keys.get(random.nextInt(keys.size()));
+            if (!expected.containsKey(removed)) expected.put(removed, new String[] {before.get(removed), null});
+            after = after.remove(removed);
+            long added = random.nextLong();
+            after = after.put(added, "b" + i);
+            expected.put(added, new String[] {before.get(added), "b" + i});
+        }
+
+        Map<Long, String[]> reported = new HashMap<>();
+        before.diff(after, (key, old, now) -> reported.put(key, new String[] {old, now}));
+        expected.values().removeIf(change -> Objects.equals(change[0], change[1]));
+        assertEquals(expected.keySet(), reported.keySet());
+        for (Map.Entry<Long, String[]> change : expected.entrySet()) {
+            assertEquals(change.getValue()[0], reported.get(change.getKey())[0]);
+            assertEquals(change.getValue()[1], reported.get(change.getKey())[1]);
+        }
+    }
+
+    @Test
+    void shapeDependsOnlyOnTheKeys() {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 0; key < 3000; key++) keys.add(key * 31);
+        String value = "v";
+        PersistentLongMap<String> ascending = PersistentLongMap.empty();
+        for (long key : keys) ascending = ascending.put(key, value);
+        Collections.shuffle(keys, new Random(3));
+        PersistentLongMap<String> shuffled = PersistentLongMap.empty();
+        for (long key : keys) shuffled = shuffled.put(key, value);
+        for (long key = 0; key < 100; key++) shuffled = shuffled.put(-key - 1, value).remove(-key - 1);
+
+        // Identical values in identically shaped tries, so there is nothing to report
+        shuffled.diff(ascending, (key, old, now) -> {
+            throw new AssertionError("changed " + key);
+        });
+    }
+
+    @Test
+    void unsharedBytesCountsOnlyTheCopiedPath() {
+        PersistentLongMap<String> map = PersistentLongMap.empty();
+        for (long key = 0; key < 100_000; key++) map = map.put(key, "v");
+        PersistentLongMap<String> edited = map.put(12_345, "w");
+
+        assertEquals(0, map.unsharedBytes(map));
+        long copied = edited.unsharedBytes(map);
+        assertTrue(copied > 0 && copied < 2000, "copied " + copied);
+        assertTrue(map.unsharedBytes(null) > 100 * copied);
+    }
+
+    private static void assertSameContents(Map<Long, String> expected, PersistentLongMap<String> map) {
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Map<Long, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+}
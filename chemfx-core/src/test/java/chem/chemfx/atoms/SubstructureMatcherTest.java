@@ -0,0 +1,104 @@
+package chem.chemfx.atoms;
+
+import chem.chemfx.io.SmilesParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubstructureMatcherTest {
+
+    private final SmilesParser parser = new SmilesParser();
+
+    @Test
+    void aromaticQueriesMatchAnyKekuleStructure() {
+        for (String target : List.of("c1cc(C)c(O)cc1", "CC1=C(O)C=CC=C1", "C1=CC=C(O)C(C)=C1", "Cc1ccccc1O")) {
+            assertFound("Oc1ccccc1C", target);
+            assertFound("CC1=C(O)C=CC=C1", target);
+        }
+        assertFound("c1ccccc1", "C1=CC2=CC=CC=C2C=C1");
+    }
+
+    @Test
+    void mappingRespectsElementsAndBonds() {
+        MoleculeGraph query = parser.parse("C=O");
+        MoleculeGraph target = parser.parse("OCC=O");
+        int[] mapping = new SubstructureMatcher(query).match(target, () -> false);
+        assertNotNull(mapping);
+        assertEquals(6, target.element(mapping[0]));
+        assertEquals(8, target.element(mapping[1]));
+        assertEquals(2, target.bondOrder(mapping[0], mapping[1]));
+    }
+
+    @Test
+    void rejectsWrongOrdersElementsAndPositions() {
+        assertNotFound("C=C", "CCC");
+        assertNotFound("CN", "CCO");
+        assertNotFound("Oc1ccc(C)cc1", "Oc1ccccc1C");
+        assertNotFound("CCCC", "CCC");
+        // A chain double bond is not an aromatic ring bond
+        assertNotFound("C=CC=C", "c1ccccc1");
+    }
+
+    @Test
+    void wildcardsMatchAnyElement() {
+        assertFound("*C(=O)O", "CC(=O)O");
+        assertFound("*C(=O)O", "NC(=O)O");
+        assertNotFound("*C(=O)O", "C(=O)O");
+    }
+
+    @Test
+    void matchesDisconnectedQueries() {
+        assertFound("O.N", "OCCN");
+        assertNotFound("O.O", "OCCN");
+    }
+
+    @Test
+    void findsTheQueryHoweverTheTargetIsNumbered() {
+        MoleculeGraph caffeine = parser.parse("Cn1cnc2c1c(=O)n(C)c(=O)n2C");
+        SubstructureMatcher imidazole = new SubstructureMatcher(parser.parse("c1ncn(C)c1"));
+        Random random = new Random(3);
+        for (int trial = 0; trial < 20; trial++) {
+            assertTrue(imidazole.matches(TestMolecules.shuffle(caffeine, random)));
+        }
+    }
+
+    @Test
+    void emptyQueryMatchesEverything() {
+        assertFound("", "C");
+    }
+
+    @Test
+    void searchScreensAndMatchesEveryMolecule() {
+        List<MoleculeGraph> library = List.of(parser.parse("c1cc(C)c(O)cc1"), parser.parse("CCO"),
+                parser.parse("CC1=C(O)C=CC=C1"), parser.parse("Oc1ccc(C)cc1"));
+        SubstructureSearch search = new SubstructureSearch(library);
+        SubstructureSearch.Result result = search.search(parser.parse("Oc1ccccc1C"), 10);
+        assertTrue(result.complete());
+        assertEquals(2, result.hits().size());
+        assertEquals(0, result.hits().get(0).index());
+        assertEquals(2, result.hits().get(1).index());
+
+        SubstructureSearch.Result limited = search.search(parser.parse("O"), 1);
+        assertEquals(1, limited.hits().size());
+        assertFalse(limited.complete());
+        assertThrows(IllegalArgumentException.class, () -> search.search(parser.parse("O"), 0));
+    }
+
+    private void assertFound(String query, String target) {
+        MoleculeGraph q = parser.parse(query);
+        MoleculeGraph t = parser.parse(target);
+        assertTrue(Fingerprint.of(t).screens(Fingerprint.ofQuery(q)), query + " screened out of " + target);
+        assertTrue(new SubstructureMatcher(q).matches(t), query + " not found in " + target);
+    }
+
+    private void assertNotFound(String query, String target) {
+        assertFalse(new SubstructureMatcher(parser.parse(query)).matches(parser.parse(target)), query + " found in " + target);
+    }
+}
@@ -0,0 +1,39 @@
+package chem.chemfx.atoms;
+
+import java.util.Random;
+
+/**
+ * Helpers shared by the tests.
+ */
+public final class TestMolecules {
+
+    private TestMolecules() {
+    }
+
+    /** Renumbers the atoms of a graph at random. */
+    public static MoleculeGraph shuffle(MoleculeGraph graph, Random random) {
+        int n = graph.atomCount();
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) position[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = position[i];
+            position[i] = position[j];
+            position[j] = t;
+        }
+        byte[] elements = new byte[n];
+        for (int i = 0; i < n; i++) elements[position[i]] = (byte) graph.element(i);
+        int[] bondAtoms = new int[2 * graph.bondCount()];
+        byte[] bondOrders = new byte[graph.bondCount()];
+        int b = 0;
+        for (int i = 0; i < n; i++) {
+            for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                if (graph.neighbor(e) < i) continue;
+                bondAtoms[2 * b] = position[i];
+                bondAtoms[2 * b + 1] = position[graph.neighbor(e)];
+                bondOrders[b++] = (byte) graph.order(e);
+            }
+        }
+        return MoleculeGraph.of(elements, bondAtoms, bondOrders);
+    }
+}
@@ -0,0 +1,146 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.ReactionCalculation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvBatchTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void solvesMissingValuesAndCopiesTheRest() throws IOException {
+        String csv = "sample,P,V,T,n\n"
+                + "a,1.000,,273.15,1\n"
+                + "b,2,10,,1\n"
+                + "c,,,300,1\n";
+        Result result = run(ReactionCalculation.IDEAL_GAS, csv);
+        String[] lines = result.output.split("\n");
+        assertEquals("sample,P,V,T,n", lines[0]);
+        assertEquals("a,1.000," + 1.0 * 0.08206 * 273.15 / 1.000 + ",273.15,1", lines[1]);
+        assertEquals("b,2,10," + 2.0 * 10 / (1 * 0.08206) + ",1", lines[2]);
+        // Two unknowns cannot be solved
+        assertEquals("c,,,300,1", lines[3]);
+        assertEquals(new CsvBatch.Summary(3, 1, true), result.summary);
+    }
+
+    @Test
+    void appendsColumnsTheInputLacks() throws IOException {
+        Result result = run(ReactionCalculation.EQUILIBRIUM, "a,b,c,d\n1,2,3,4\n");
+        assertEquals("a,b,c,d,Kc\n1,2,3,4," + 3.0 * 4 / (1 * 2) + "\n", result.output);
+    }
+
+    @Test
+    void keepsCasesWithBadCellsUnsolved() throws IOException {
+        Result result = run(ReactionCalculation.EQUILIBRIUM, "A,B,C,D,Kc\n1,two,3,4,\n1,1,1,1,\n");
+        assertEquals("A,B,C,D,Kc\n1,two,3,4,\n1,1,1,1,1.0\n", result.output);
+        assertEquals(new CsvBatch.Summary(2, 1, true), result.summary);
+    }
+
+    @Test
+    void handlesQuotesBlankLinesAndCrlf() throws IOException {
+        String csv = "\"name, with comma\",\"A\",B,C,D\r\n"
+                + "\"x, \"\"quoted\"\"\",\"2\",1,1,1\r\n"
+                + "\r\n"
+                + "y,4,1,1,1\r\n";
+        Result result = run(ReactionCalculation.EQUILIBRIUM, csv);
+        assertEquals("\"name, with comma\",\"A\",B,C,D,Kc\n"
+                + "\"x, \"\"quoted\"\"\",\"2\",1,1,1,0.5\n"
+                + "y,4,1,1,1,0.25\n", result.output);
+        assertEquals(2, result.summary.rows());
+    }
+
+    @Test
+    void readsNumbersExactlyAcrossManyBatches() throws IOException {
+        Random random = new Random(5);
+        StringBuilder csv = new StringBuilder("A,B,C,D\n");
+        List<String> written = new ArrayList<>();
+        int rows = 3 * CsvBatch.BATCH + 17;
+        for (int r = 0; r < rows; r++) {
+            String c = switch (r % 4) {
+                case 0 -> Long.toString(random.nextLong() >>> 12) + "." + random.nextInt(1000);
+                case 1 -> "0." + String.format("%015d", random.nextLong() & 0xFFFFFFFFFFFL);
+                case 2 -> "-" + random.nextInt(100) + "." + random.nextInt(100_000);
+                default -> random.nextInt(1_000_000) + "e-" + random.nextInt(20);
+            };
+            written.add(c);
+            csv.append("1,1,").append(c).append(",1\n");
+        }
+        List<Long> progress = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvBatch.Summary summary = CsvBatch.run(ReactionCalculation.EQUILIBRIUM,
+                Channels.newChannel(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.US_ASCII))),
+                Channels.newChannel(out), (done, bytes) -> progress.add(done), () -> false);
+
+        assertEquals(new CsvBatch.Summary(rows, 0, true), summary);
+        // Batches hold up to BATCH rows, fewer where the input buffer runs out
+        long previous = 0;
+        for (long done : progress) {
+            assertTrue(done > previous && done - previous <= CsvBatch.BATCH, progress.toString());
+            previous = done;
+        }
+        assertEquals(rows, previous);
+        String[] lines = out.toString(StandardCharsets.US_ASCII).split("\n");
+        for (int r = 0; r < rows; r++) {
+            // Kc = C when the other concentrations are 1, so the output shows how C was read
+            String c = written.get(r);
+            assertEquals("1,1," + c + ",1," + Double.parseDouble(c), lines[r + 1], c);
+        }
+    }
+
+    @Test
+    void rejectsHeadersWithoutInputColumns() {
+        assertThrows(IOException.class, () -> run(ReactionCalculation.IDEAL_GAS, "x,y\n1,2\n"));
+        assertThrows(IOException.class, () -> run(ReactionCalculation.IDEAL_GAS, ""));
+    }
+
+    @Test
+    void cancelledRunLeavesNoOutputFile() throws IOException {
+        Path input = directory.resolve("cases.csv");
+        Path output = directory.resolve("solved.csv");
+        StringBuilder csv = new StringBuilder("P,V,T,n\n");
+        for (int r = 0; r < 2 * CsvBatch.BATCH; r++) csv.append("1,1,,1\n");
+        Files.writeString(input, csv);
+
+        int[] polls = new int[1];
+        CsvBatch.Summary cancelled = CsvBatch.run(ReactionCalculation.IDEAL_GAS, input, output, null, () -> polls[0]++ > 0);
+        assertFalse(cancelled.complete());
+        assertEquals(CsvBatch.BATCH, cancelled.rows());
+        assertFalse(Files.exists(output));
+
+        CsvBatch.Summary complete = CsvBatch.run(ReactionCalculation.IDEAL_GAS, input, output, null, () -> false);
+        assertTrue(complete.complete());
+        assertEquals(2L * CsvBatch.BATCH + 1, Files.readAllLines(output).size());
+        try (var files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    private record Result(String output, CsvBatch.Summary summary) {
+    }
+
+    private static Result run(ReactionCalculation calculation, String csv) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvBatch.Summary summary = CsvBatch.run(calculation,
+                Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(out), null, () -> false);
+        return new Result(out.toString(StandardCharsets.UTF_8), summary);
+    }
+}
@@ -0,0 +1,189 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.CanonicalLabeling;
+import chem.chemfx.atoms.MoleculeGraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoleculeFileTest {
+
+    @TempDir
+    Path directory;
+
+    private final SmilesParser parser = new SmilesParser();
+
+    @Test
+    void roundTripsAtomsBondsAndCoordinates() throws IOException {
+        MoleculeGraph graph = parser.parse("Cn1cnc2c1c(=O)n(C)c(=O)n2C.CO");
+        float[] coordinates = coordinates(graph.atomCount(), new Random(1));
+        Path path = directory.resolve("caffeine." + MoleculeFile.EXTENSION);
+        MoleculeFile.write(path, MoleculeFile.source(graph, coordinates), false);
+
+        MoleculeFile.Mapped mapped = MoleculeFile.map(path);
+        assertEquals(graph.atomCount(), mapped.atomCount());
+        assertFalse(mapped.hasIndex());
+        for (int i = 0; i < graph.atomCount(); i++) {
+            assertEquals(graph.element(i), mapped.element(i));
+            assertEquals(coordinates[2 * i], mapped.x(i));
+            assertEquals(coordinates[2 * i + 1], mapped.y(i));
+            assertEquals(graph.degree(i), mapped.degree(i));
+            for (int e = mapped.firstEdge(i); e < mapped.endEdge(i); e++) {
+                assertEquals(graph.bondOrder(i, mapped.neighbor(e)), mapped.order(e));
+            }
+        }
+        assertEquals(CanonicalLabeling.canonicalString(graph), CanonicalLabeling.canonicalString(mapped.toGraph()));
+    }
+
+    @Test
+    void keepsMassNumbersAndCharges() throws IOException {
+        Path path = directory.resolve("methoxide.cfxm");
+        MoleculeFile.write(path, new MoleculeFile.Source() {
+            @Override
+            public int atomCount() {
+                return 2;
+            }
+
+            @Override
+            public int element(int atom) {
+                return atom == 0 ? 6 : 8;
+            }
+
+            @Override
+            public int massNumber(int atom) {
+                return atom == 0 ? 13 : 0;
+            }
+
+            @Override
+            public int charge(int atom) {
+                return atom == 1 ? -1 : 0;
+            }
+
+            @Override
+            public float x(int atom) {
+                return atom;
+            }
+
+            @Override
+            public float y(int atom) {
+                return -atom;
+            }
+
+            @Override
+            public int degree(int atom) {
+                return 1;
+            }
+
+            @Override
+            public void forEachBond(int atom, MoleculeFile.BondVisitor visitor) {
+                visitor.visit(1 - atom, 1);
+            }
+        }, false);
+
+        MoleculeFile.Mapped mapped = MoleculeFile.map(path);
+        assertEquals(13, mapped.massNumber(0));
+        assertEquals(0, mapped.massNumber(1));
+        assertEquals(0, mapped.charge(0));
+        assertEquals(-1, mapped.charge(1));
+        assertEquals(-1f, mapped.y(1));
+    }
+
+    @Test
+    void indexedQueriesFindTheSameAtomsAsAScan() throws IOException {
+        MoleculeGraph chain = parser.parse("C".repeat(5000));
+        float[] coordinates = coordinates(chain.atomCount(), new Random(2));
+        Path indexed = directory.resolve("indexed.cfxm");
+        Path plain = directory.resolve("plain.cfxm");
+        MoleculeFile.write(indexed, MoleculeFile.source(chain, coordinates), true);
+        MoleculeFile.write(plain, MoleculeFile.source(chain, coordinates), false);
+
+        MoleculeFile.Mapped withIndex = MoleculeFile.map(indexed);
+        MoleculeFile.Mapped withoutIndex = MoleculeFile.map(plain);
+        assertTrue(withIndex.hasIndex());
+        Random random = new Random(3);
+        for (int trial = 0; trial < 100; trial++) {
+            // Boxes reach past the molecule now and then, to cover the clamped border cells
+            float minX = random.nextFloat() * 140 - 20, minY = random.nextFloat() * 140 - 20;
+            float maxX = minX + random.nextFloat() * 40, maxY = minY + random.nextFloat() * 40;
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < chain.atomCount(); i++) {
+                float x = coordinates[2 * i], y = coordinates[2 * i + 1];
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) expected.add(i);
+            }
+            assertEquals(expected, sorted(withIndex, minX, minY, maxX, maxY));
+            assertEquals(expected, sorted(withoutIndex, minX, minY, maxX, maxY));
+        }
+    }
+
+    @Test
+    void rewritesTheFileItIsReadingFrom() throws IOException {
+        MoleculeGraph graph = parser.parse("CC(=O)O");
+        Path path = directory.resolve("acid.cfxm");
+        MoleculeFile.write(path, MoleculeFile.source(graph, coordinates(graph.atomCount(), new Random(4))), false);
+        MoleculeFile.write(path, MoleculeFile.map(path), true);
+
+        MoleculeFile.Mapped mapped = MoleculeFile.map(path);
+        assertTrue(mapped.hasIndex());
+        assertEquals(CanonicalLabeling.canonicalString(graph), CanonicalLabeling.canonicalString(mapped.toGraph()));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void rejectsOtherAndNewerFiles() throws IOException {
+        Path text = directory.resolve("text.cfxm");
+        Files.writeString(text, "not a molecule file, but long enough to hold a header of sixty-four bytes");
+        assertThrows(IOException.class, () -> MoleculeFile.map(text));
+
+        Path empty = directory.resolve("empty.cfxm");
+        Files.createFile(empty);
+        assertThrows(IOException.class, () -> MoleculeFile.map(empty));
+
+        MoleculeGraph graph = parser.parse("CCO");
+        Path path = directory.resolve("ethanol.cfxm");
+        MoleculeFile.write(path, MoleculeFile.source(graph, new float[6]), false);
+        byte[] bytes = Files.readAllBytes(path);
+
+        Path newer = directory.resolve("newer.cfxm");
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putShort(4, (short) (MoleculeFile.VERSION + 1));
+        Files.write(newer, bytes);
+        assertThrows(IOException.class, () -> MoleculeFile.map(newer));
+
+        Path truncated = directory.resolve("truncated.cfxm");
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(path), bytes.length - 8));
+        assertThrows(IOException.class, () -> MoleculeFile.map(truncated));
+    }
+
+    @Test
+    void sourceNeedsTwoCoordinatesPerAtom() {
+        assertThrows(IllegalArgumentException.class, () -> MoleculeFile.source(parser.parse("CCO"), new float[5]));
+    }
+
+    private static float[] coordinates(int atoms, Random random) {
+        float[] coordinates = new float[2 * atoms];
+        for (int k = 0; k < coordinates.length; k++) coordinates[k] = random.nextFloat() * 100;
+        return coordinates;
+    }
+
+    private static List<Integer> sorted(MoleculeFile.Mapped mapped, float minX, float minY, float maxX, float maxY) {
+        List<Integer> found = new ArrayList<>();
+        mapped.query(minX, minY, maxX, maxY, found::add);
+        found.sort(null);
+        return found;
+    }
+}
@@ -0,0 +1,140 @@
+package chem.chemfx.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SdfReaderTest {
+
+    @Test
+    void readsAtomsBondsCoordinatesAndData() throws IOException {
+        String sdf = molfile("ethanol", new String[] {"C", "C", "O"}, new int[][] {{1, 2, 1}, {2, 3, 1}})
+                + "> <NAME>\nethanol\n\n> <SYNONYMS>\nethyl alcohol\nalcohol\n\n$$$$\n";
+        List<SdfReader.Entry> entries = read(sdf, ForkJoinPool.commonPool());
+
+        assertEquals(1, entries.size());
+        SdfReader.Entry entry = entries.get(0);
+        assertNull(entry.error());
+        assertEquals(1, entry.record());
+        assertEquals(1, entry.line());
+        assertEquals("ethanol", entry.name());
+        assertEquals(3, entry.molecule().atomCount());
+        assertEquals(8, entry.molecule().element(2));
+        assertEquals(1, entry.molecule().bondOrder(1, 2));
+        assertEquals(0, entry.molecule().bondOrder(0, 2));
+        assertEquals(9, entry.coordinates().length);
+        assertEquals(1.5f, entry.coordinates()[3]);
+        assertEquals(-0.25f, entry.coordinates()[4]);
+        assertEquals(Map.of("NAME", "ethanol", "SYNONYMS", "ethyl alcohol\nalcohol"), entry.data());
+    }
+
+    @Test
+    void readsASingleMolfileWithoutTerminator() throws IOException {
+        String molfile = molfile("", new String[] {"C", "O"}, new int[][] {{1, 2, 2}}).replace("\n", "\r\n");
+        List<SdfReader.Entry> entries = read(molfile, ForkJoinPool.commonPool());
+        assertEquals(1, entries.size());
+        assertNull(entries.get(0).name());
+        assertEquals(2, entries.get(0).molecule().bondOrder(0, 1));
+        assertTrue(entries.get(0).data().isEmpty());
+    }
+
+    @Test
+    void reportsBadRecordsAndReadsOn() throws IOException {
+        String good = molfile("good", new String[] {"N", "N"}, new int[][] {{1, 2, 3}}) + "$$$$\n";
+        String aromatic = molfile("aromatic", new String[] {"C", "C"}, new int[][] {{1, 2, 4}}) + "$$$$\n";
+        String dangling = molfile("dangling", new String[] {"C"}, new int[][] {{1, 2, 1}}) + "$$$$\n";
+        String cut = "cut\n  test\n\n  3  0  0  0  0  0  0  0  0  0999 V2000\n$$$$\n";
+        List<SdfReader.Entry> entries = read(good + aromatic + dangling + cut + good, ForkJoinPool.commonPool());
+
+        assertEquals(5, entries.size());
+        assertNull(entries.get(0).error());
+        assertTrue(entries.get(1).error().contains("Bond type 4"), entries.get(1).error());
+        assertNull(entries.get(1).molecule());
+        assertTrue(entries.get(2).error().contains("missing atom"), entries.get(2).error());
+        assertTrue(entries.get(3).error().contains("Record ends"), entries.get(3).error());
+        assertNull(entries.get(4).error());
+        assertEquals(3, entries.get(4).molecule().bondOrder(0, 1));
+
+        long lines = good.lines().count() + aromatic.lines().count() + dangling.lines().count() + cut.lines().count();
+        assertEquals(5, entries.get(4).record());
+        assertEquals(lines + 1, entries.get(4).line());
+        assertEquals("aromatic", entries.get(1).name());
+    }
+
+    @Test
+    void readsRecordsAcrossChunksInOrder() throws IOException {
+        // Well over the 1 MB chunk size, so records straddle chunk boundaries
+        StringBuilder sdf = new StringBuilder();
+        int records = 12_000;
+        for (int r = 0; r < records; r++) {
+            int n = 1 + r % 9;
+            String[] symbols = new String[n];
+            int[][] bonds = new int[n - 1][];
+            for (int i = 0; i < n; i++) symbols[i] = i % 3 == 2 ? "O" : "C";
+            for (int b = 0; b < n - 1; b++) bonds[b] = new int[] {b + 1, b + 2, 1};
+            sdf.append(molfile("molecule " + r, symbols, bonds)).append("> <ID>\n").append(r).append("\n\n$$$$\n");
+        }
+        assertTrue(sdf.length() > 2 << 20);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<SdfReader.Entry> entries = read(sdf.toString(), pool);
+            assertEquals(records, entries.size());
+            long line = 1;
+            for (int r = 0; r < records; r++) {
+                SdfReader.Entry entry = entries.get(r);
+                assertNull(entry.error());
+                assertEquals(r + 1, entry.record());
+                assertEquals(line, entry.line());
+                assertEquals("molecule " + r, entry.name());
+                assertEquals(String.valueOf(r), entry.data().get("ID"));
+                assertNotNull(entry.molecule());
+                assertEquals(1 + r % 9, entry.molecule().atomCount());
+                line += 4 + entry.molecule().atomCount() + entry.molecule().bondCount() + 1 + 4;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void readsNothingFromEmptyInput() throws IOException {
+        assertTrue(read("", ForkJoinPool.commonPool()).isEmpty());
+    }
+
+    /** A V2000 molfile with atoms at (1.5 i, -0.25 i, 0), up to and including {@code M  END}. */
+    private static String molfile(String name, String[] symbols, int[][] bonds) {
+        StringBuilder out = new StringBuilder();
+        out.append(name).append("\n  SdfReaderTest\n\n");
+        out.append(String.format(Locale.ROOT, "%3d%3d  0  0  0  0  0  0  0  0999 V2000\n", symbols.length, bonds.length));
+        for (int i = 0; i < symbols.length; i++) {
+            out.append(String.format(Locale.ROOT, "%10.4f%10.4f%10.4f %-3s 0  0  0  0  0  0  0  0  0  0  0  0\n",
+                    1.5 * i, -0.25 * i, 0.0, symbols[i]));
+        }
+        for (int[] bond : bonds) {
+            out.append(String.format(Locale.ROOT, "%3d%3d%3d  0  0  0  0\n", bond[0], bond[1], bond[2]));
+        }
+        out.append("M  END\n");
+        return out.toString();
+    }
+
+    private static List<SdfReader.Entry> read(String sdf, ForkJoinPool pool) throws IOException {
+        List<SdfReader.Entry> entries = new ArrayList<>();
+        byte[] bytes = sdf.getBytes(StandardCharsets.UTF_8);
+        SdfReader.read(Channels.newChannel(new ByteArrayInputStream(bytes)), entries::add, pool);
+        return entries;
+    }
+}
@@ -0,0 +1,111 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.MoleculeGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SmilesParserTest {
+
+    private final SmilesParser parser = new SmilesParser();
+
+    @Test
+    void readsAtomsBondsAndBranches() {
+        MoleculeGraph acid = parser.parse("CC(=O)O");
+        assertEquals(4, acid.atomCount());
+        assertEquals(3, acid.bondCount());
+        assertEquals(8, acid.element(2));
+        assertEquals(2, acid.bondOrder(1, 2));
+        assertEquals(1, acid.bondOrder(1, 3));
+        assertEquals(0, acid.bondOrder(0, 2));
+    }
+
+    @Test
+    void readsTwoLetterAndBracketAtoms() {
+        MoleculeGraph graph = parser.parse("ClCBr.[13CH3][O-].[Fe+2].[H][H]");
+        assertEquals(17, graph.element(0));
+        assertEquals(35, graph.element(2));
+        assertEquals(6, graph.element(3));
+        assertEquals(8, graph.element(4));
+        assertEquals(26, graph.element(5));
+        assertEquals(1, graph.element(6));
+        assertEquals(1, graph.bondOrder(6, 7));
+    }
+
+    @Test
+    void readsRingBonds() {
+        MoleculeGraph cyclohexene = parser.parse("C1=CCCCC1");
+        assertEquals(6, cyclohexene.bondCount());
+        assertEquals(1, cyclohexene.bondOrder(0, 5));
+
+        MoleculeGraph twoDigit = parser.parse("C%12CCC%12");
+        assertEquals(4, twoDigit.bondCount());
+        assertEquals(1, twoDigit.bondOrder(0, 3));
+
+        MoleculeGraph orderAtClose = parser.parse("C1CCCC=1");
+        assertEquals(2, orderAtClose.bondOrder(0, 4));
+    }
+
+    @Test
+    void kekulizesAromaticRings() {
+        MoleculeGraph benzene = parser.parse("c1ccccc1");
+        int doubles = 0;
+        for (int i = 0; i < benzene.atomCount(); i++) {
+            int atomDoubles = 0;
+            for (int e = benzene.firstEdge(i); e < benzene.endEdge(i); e++) {
+                if (benzene.order(e) == 2) atomDoubles++;
+                assertEquals(MoleculeGraph.AROMATIC, benzene.orderClass(e));
+            }
+            assertEquals(1, atomDoubles);
+            doubles += atomDoubles;
+        }
+        assertEquals(6, doubles);
+
+        // The hydrogen on pyrrole nitrogen keeps it out of the double bonds
+        MoleculeGraph pyrrole = parser.parse("c1cc[nH]c1");
+        for (int e = pyrrole.firstEdge(3); e < pyrrole.endEdge(3); e++) assertEquals(1, pyrrole.order(e));
+    }
+
+    @Test
+    void kekulizesFusedRingsWithOddRings() {
+        // An odd ring makes the aromatic bonds non-bipartite, which plain alternating paths miss
+        for (String smiles : List.of("c1ccc2cccc2cc1", "c1cccc2cccc2c1", "c12cccc1ccccc2", "c1cc2cccccc2c1",
+                "c1cc2cccc3ccc(c1)c23", "c1cc2ccc3c2c(c1)ccc3", "c1cc2c3c4c(cccc4c2cc1)ccc3",
+                "c1ccc2c(c1)-c1cccc3cccc2c13", "c1cc2ccc3ccc4ccc5ccc1c1c2c3c4c51", "c1cc2cc3ccccc3cc2cc1",
+                "c1ccc2c(c1)ccc1c2ccc2ccccc21")) {
+            MoleculeGraph graph = parser.parse(smiles);
+            for (int i = 0; i < graph.atomCount(); i++) {
+                int doubles = 0;
+                for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+                    if (graph.order(e) == 2) doubles++;
+                }
+                assertEquals(1, doubles, smiles + " atom " + i);
+            }
+        }
+        // An odd number of atoms that each need a double bond has no Kekulé structure
+        assertThrows(SmilesFormatException.class, () -> parser.parse("c1cccc1"));
+        assertThrows(SmilesFormatException.class, () -> parser.parse("c1ccc2cccccc2c1"));
+    }
+
+    @Test
+    void keepsBufferStateApartBetweenCalls() {
+        assertThrows(SmilesFormatException.class, () -> parser.parse("C1CC"));
+        MoleculeGraph next = parser.parse("C1CC1");
+        assertEquals(3, next.bondCount());
+    }
+
+    @Test
+    void reportsPositionsOfErrors() {
+        assertEquals(1, assertThrows(SmilesFormatException.class, () -> parser.parse("C)")).getPosition());
+        assertEquals(2, assertThrows(SmilesFormatException.class, () -> parser.parse("CC?")).getPosition());
+        assertThrows(SmilesFormatException.class, () -> parser.parse("C="));
+        assertThrows(SmilesFormatException.class, () -> parser.parse("C(C"));
+        assertThrows(SmilesFormatException.class, () -> parser.parse("C1CC"));
+        assertThrows(SmilesFormatException.class, () -> parser.parse("C11"));
+        assertThrows(SmilesFormatException.class, () -> parser.parse("C%1"));
+        assertThrows(SmilesFormatException.class, () -> parser.parse("c1cccc1"));
+    }
+}
@@ -0,0 +1,81 @@
+package chem.chemfx.io;
+
+import chem.chemfx.atoms.CanonicalLabeling;
+import chem.chemfx.atoms.MoleculeGraph;
+import chem.chemfx.atoms.TestMolecules;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SmilesWriterTest {
+
+    private final SmilesParser parser = new SmilesParser();
+    private final SmilesWriter writer = new SmilesWriter();
+
+    @Test
+    void kekuleStructureDoesNotChangeTheString() {
+        assertSameSmiles("c1ccc2ccccc2c1", "C1=CC=C2C=CC=CC2=C1", "c1cccc2c1cccc2",
+                "C1=CC2=CC=CC=C2C=C1", "c12ccccc1cccc2", "C=1C=CC2=CC=CC=C2C=1");
+        assertSameSmiles("Oc1ccccc1C", "c1cc(C)c(O)cc1", "CC1=C(O)C=CC=C1", "C1=CC=C(O)C(C)=C1");
+        assertSameSmiles("c1cc2ccc3cccc4ccc(c1)c2c34", "C1=CC2=CC=C3C=CC=C4C=CC(=C1)C2=C34");
+    }
+
+    @Test
+    void atomNumberingDoesNotChangeTheString() {
+        Random random = new Random(7);
+        // Symmetric and disconnected molecules leave ties that the canonical numbering has to search
+        for (String smiles : List.of("Cn1cnc2c1c(=O)n(C)c(=O)n2C", "c1ccc2cc3ccccc3cc2c1", "CC(C)(C)C#N", "OCC.N",
+                "C1CC1.C1CCCCC1", "C12C3C4C1C5C2C3C45", "CCO.CCO", "c1ccccc1.c1ccccc1", "c1ccc2cccc2cc1",
+                "c1cc2cccc3ccc(c1)c23", "C12CC3CC(C1)CC(C3)C2")) {
+            MoleculeGraph graph = parser.parse(smiles);
+            String expected = writer.write(graph);
+            for (int trial = 0; trial < 20; trial++) {
+                assertEquals(expected, writer.write(TestMolecules.shuffle(graph, random)), smiles);
+            }
+        }
+    }
+
+    @Test
+    void writtenStringsReadBackAsTheSameMolecule() {
+        for (String smiles : List.of("CCO", "C1CC1C(=O)O", "c1ccc2[nH]ccc2c1", "[Na].[Cl]", "C#CC$C", "*C(*)=O",
+                "C12CC3CC(C1)CC(C3)C2", "c1cc2ccc3cccc4ccc(c1)c2c34")) {
+            MoleculeGraph graph = parser.parse(smiles);
+            String written = writer.write(graph);
+            MoleculeGraph read = parser.parse(written);
+            assertEquals(CanonicalLabeling.canonicalString(graph), CanonicalLabeling.canonicalString(read), smiles);
+            assertEquals(written, writer.write(read), smiles);
+        }
+    }
+
+    @Test
+    void writesSimpleMolecules() {
+        assertEquals("", writer.write(parser.parse("")));
+        assertEquals("C", writer.write(parser.parse("C")));
+        assertEquals("CCO", writer.write(parser.parse("OCC")));
+        assertEquals("[Fe]", writer.write(parser.parse("[Fe+2]")));
+        assertEquals("C#N", writer.write(parser.parse("N#C")));
+    }
+
+    @Test
+    void differentMoleculesWriteDifferently() {
+        assertNotEquals(writer.write(parser.parse("Oc1ccccc1C")), writer.write(parser.parse("Oc1ccc(C)cc1")));
+        assertNotEquals(writer.write(parser.parse("C1=CCCCC1")), writer.write(parser.parse("C1CCCCC1")));
+    }
+
+    @Test
+    void writeAllWritesOneLinePerMolecule() {
+        StringWriter out = new StringWriter();
+        writer.writeAll(List.of(parser.parse("OCC"), parser.parse("C1=CC=CC=C1")), out);
+        assertEquals(writer.write(parser.parse("CCO")) + "\n" + writer.write(parser.parse("c1ccccc1")) + "\n", out.toString());
+    }
+
+    private void assertSameSmiles(String... spellings) {
+        String expected = writer.write(parser.parse(spellings[0]));
+        for (String smiles : spellings) assertEquals(expected, writer.write(parser.parse(smiles)), smiles);
+    }
+}
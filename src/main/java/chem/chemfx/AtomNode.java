@@ -1,161 +0,0 @@
-package chem.chemfx;
-
-import chem.chemfx.atoms.Atom;
-import javafx.scene.input.MouseEvent;
-import javafx.scene.layout.Pane;
-import javafx.scene.layout.StackPane;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
-import javafx.scene.text.Text;
-import javafx.util.Pair;
-
-import java.util.HashSet;
-import java.util.Set;
-
-public abstract class AtomNode {
-
-    /* ------------------ Static Fields ------------------ */
-    private static final Set<AtomNode> ALL_ATOMS = new HashSet<>();
-
-    /* ------------------ Instance Fields ------------------ */
-    private final Circle circle;
-    private final Text text;
-    private final StackPane atomGroup;
-    private final Pane container;
-    private final BondManager bondManager;
-    private final Atom atom;
-
-    private boolean selected = false;
-
-    /* ------------------ Constructor ------------------ */
-    protected AtomNode(double x, double y, Pane container, BondManager bondManager, Atom atom) {
-        this.container = container;
-        this.bondManager = bondManager;
-        this.atom = atom;
-
-        this.circle = createCircle();
-        this.text = createText();
-        this.atomGroup = createAtomGroup(x, y);
-
-        registerEventHandlers();
-        styleUnselected();
-
-        ALL_ATOMS.add(this);
-        container.getChildren().add(atomGroup);
-    }
-
-    private static void deselectAllExcept(AtomNode except) {
-        for (AtomNode atom : ALL_ATOMS) {
-            if (atom != except && atom.isSelected()) {
-                atom.setSelected(false);
-            }
-        }
-    }
-
-    /* ------------------ Deletion ------------------ */
-    public static void deleteSelectedAtoms() {
-        Set<AtomNode> toDelete = new HashSet<>();
-        for (AtomNode atom : ALL_ATOMS) {
-            if (atom.isSelected()) {
-                toDelete.add(atom);
-            }
-        }
-        toDelete.forEach(AtomNode::delete);
-    }
-
-
-    /* ------------------ UI Creation ------------------ */
-    private Circle createCircle() {
-        Circle c = new Circle(15, Color.rgb(240, 240, 240));
-        c.setUserData(this);
-        return c;
-    }
-
-    private Text createText() {
-        Text t = new Text(atom.getElementSymbol());
-        styleText(t);
-        return t;
-    }
-
-    private StackPane createAtomGroup(double x, double y) {
-        StackPane stack = new StackPane(circle, text);
-        stack.setLayoutX(x);
-        stack.setLayoutY(y);
-        stack.setPickOnBounds(true); // clicks anywhere in the stack’s bounds
-        return stack;
-    }
-
-    /* ------------------ Event Handling ------------------ */
-    private void registerEventHandlers() {
-        atomGroup.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-            if (!event.isShiftDown()) {
-                deselectAllExcept(this);
-                container.requestFocus();
-            }
-            bondManager.selectBondingAtom(this);
-            event.consume();
-        });
-    }
-
-    public void toggleSelection() {
-        setSelected(!selected);
-    }
-
-    public boolean isSelected() {
-        return selected;
-    }
-
-    /* ------------------ Selection Handling ------------------ */
-    public void setSelected(boolean selected) {
-        if (this.selected != selected) {
-            this.selected = selected;
-            updateSelectionStyle();
-        }
-    }
-
-    public void updateSelectionStyle() {
-        if (selected) styleSelected();
-        else styleUnselected();
-    }
-
-    /* ------------------ Abstract styling ------------------ */
-    protected abstract void styleText(Text text);
-
-    protected abstract void styleSelected();
-
-    protected abstract void styleUnselected();
-
-    public void delete() {
-        if (bondManager != null) {
-            bondManager.deleteBondsConnectedTo(this);
-            for (Pair<Atom, Integer> p : atom.getBondedTo()) {
-                atom.unbond(p.getKey());
-            }
-        }
-        container.getChildren().remove(atomGroup);
-        ALL_ATOMS.remove(this);
-    }
-
-    public static boolean exists(AtomNode atomNode){
-        return ALL_ATOMS.contains(atomNode);
-    }
-
-    /* ------------------ Getters ------------------ */
-
-
-    public Text getText() {
-        return text;
-    }
-
-    public StackPane getAtomGroup() {
-        return atomGroup;
-    }
-
-    public Circle getCircle() {
-        return circle;
-    }
-
-    public Atom getAtom() {
-        return atom;
-    }
-}